@@ -1,5 +1,6 @@
 package com.sprinklr.sip4j;
 
+import com.sprinklr.sip4j.sip.SipAllFactories;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -10,6 +11,10 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class Sip4J {
 
     public static void main(String[] args) {
+        //loads the SIP parsers while Spring boots, instead of when the first Agent starts
+        Thread warmUp = new Thread(SipAllFactories::warmUp, "sip-warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
         SpringApplication.run(Sip4J.class, args);
     }
 
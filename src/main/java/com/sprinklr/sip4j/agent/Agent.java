@@ -1,12 +1,13 @@
 package com.sprinklr.sip4j.agent;
 
-import com.sprinklr.sip4j.rtp.RtpAddress;
-import com.sprinklr.sip4j.rtp.RtpReceiverImpl;
-import com.sprinklr.sip4j.rtp.RtpSenderImpl;
+import com.sprinklr.sip4j.metrics.StartupTimeline;
+import com.sprinklr.sip4j.rtp.RtpEngine;
+import com.sprinklr.sip4j.rtp.RtpEventLoopGroup;
+import com.sprinklr.sip4j.rtp.RtpIngress;
+import com.sprinklr.sip4j.sip.SipCall;
 import com.sprinklr.sip4j.sip.SipExtension;
 import com.sprinklr.sip4j.sip.SipState;
-import com.sprinklr.sip4j.websocket.Websocket;
-import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import com.sprinklr.sip4j.utils.VirtualThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,34 +15,69 @@ import javax.sip.InvalidArgumentException;
 import javax.sip.ObjectInUseException;
 import javax.sip.PeerUnavailableException;
 import javax.sip.TransportNotSupportedException;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
 import java.text.ParseException;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.TooManyListenersException;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
-import static com.sprinklr.sip4j.utils.Constants.SLEEP_CPU_TIME_MS;
+import static com.sprinklr.sip4j.utils.Constants.MEDIA_POLL_TIMEOUT_MS;
 
 /**
  * Agent class which handles signalling and media transfer. Sits between Ozonetel and Bot.
+ * An Agent registers once and then handles up to sipMaxConcurrentCalls calls at a time, each in a call slot whose media
+ * resources are allocated up front. An Agent with a single call slot stops when its call ends, as it always has; one with
+ * several, or one in the warm pool, keeps taking calls until it is stopped. In the warm pool each slot also keeps a bot
+ * connection open while it is idle, so that setting up a call is only a matter of answering the INVITE.
+ * The startup steps which do not depend on each other overlap: the shared RTP socket is bound and the bot connections of
+ * the warm pool are established on helper threads, while the SIP stack is created and the first REGISTER is sent. When
+ * each step completed is recorded in the Agent's startup timeline.
  */
 public class Agent implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Agent.class);
-    private static final int WS_RECONNECT_CODE = 1006;
     private static final int N_HELPER_THREADS = 3;
+    private static final long BOT_CONNECT_TIMEOUT_MS = 5000;
     private AgentConfig agentConfig;
     private AgentState agentState;
+    private AgentStats agentStats;
+    private volatile SipExtension sip;
+    private volatile boolean stopped = false;
+    /**
+     * The shared RTP socket, held from startup until the Agent stops so that calls do not bind it. Null for the other engines
+     */
+    private RtpIngress rtpIngress;
+    /**
+     * Completed once the Agent takes calls, or exceptionally if it stops before
+     */
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
 
     public Agent(AgentConfig agentConfig) {
+        this(agentConfig, System.nanoTime());
+    }
+
+    /**
+     * Creates an Agent whose configuration has just been loaded
+     * @param agentConfig the configuration of the Agent
+     * @param configLoadStartNs when loading the configuration started, from System.nanoTime(). The origin of the startup timeline
+     */
+    public Agent(AgentConfig agentConfig, long configLoadStartNs) {
         this.agentConfig = agentConfig;
         this.agentState = new AgentState(agentConfig.getAgentName());
+        this.agentStats = new AgentStats(agentConfig.getAgentName(), configLoadStartNs);
+        agentStats.getStartup().mark(StartupTimeline.CONFIG_LOADED);
     }
 
     /**
@@ -52,67 +88,175 @@ public class Agent implements Runnable {
      * @throws InvalidArgumentException
      * @throws ObjectInUseException
      * @throws ParseException
-     * @throws ExecutionException
      * @throws InterruptedException
-     * @throws URISyntaxException
      */
-    public void start() throws PeerUnavailableException, TransportNotSupportedException, TooManyListenersException, InvalidArgumentException, ObjectInUseException, ParseException, ExecutionException, InterruptedException, URISyntaxException {
+    public void start() throws PeerUnavailableException, TransportNotSupportedException, TooManyListenersException, InvalidArgumentException, ObjectInUseException, ParseException, InterruptedException {
 
-        Queue<byte[]> inboundRtpQueue = new ConcurrentLinkedQueue<>();
-        Queue<byte[]> outboundRtpQueue = new ConcurrentLinkedQueue<>();
+        int maxCalls = agentConfig.getSipMaxConcurrentCalls();
+        if (maxCalls < 1) {
+            throw new IllegalArgumentException("sipMaxConcurrentCalls must be at least 1 for " + agentConfig.getAgentName());
+        }
+        if (maxCalls > 1 && !RtpEngine.SHARED.equals(agentConfig.getRtpEngine())) {
+            //calls are told apart by their remote address on the Agent's single rtpLocalPort
+            throw new IllegalArgumentException("Concurrent calls need rtpEngine " + RtpEngine.SHARED + " for " + agentConfig.getAgentName());
+        }
 
-        ExecutorService executor = Executors.newFixedThreadPool(N_HELPER_THREADS);
+        boolean longLived = maxCalls > 1 || agentConfig.isWarmPoolEnabled();
+        ExecutorService executor = createHelperExecutor(maxCalls);
+        List<CallSession> sessions = new ArrayList<>(maxCalls);
+        for (int i = 0; i < maxCalls; i++) {
+            sessions.add(new CallSession(agentConfig, agentStats, executor, i, this::hangUp));
+        }
+        BlockingQueue<CallSession> idleSessions = new ArrayBlockingQueue<>(maxCalls, false, sessions);
 
-        SipExtension sip = new SipExtension(agentState, agentConfig);
+        StartupTimeline startup = agentStats.getStartup();
+        CompletableFuture<Void> rtpBound = RtpEngine.SHARED.equals(agentConfig.getRtpEngine())
+                ? CompletableFuture.runAsync(this::bindRtp, executor) : CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> botConnected = agentConfig.isWarmPoolEnabled()
+                ? CompletableFuture.runAsync(() -> connectBot(sessions), executor) : CompletableFuture.completedFuture(null);
+        try {
+            /*
+             * Refer to jain-sip-ri/gov.nist/javax/sip/SipStackImpl and src/main/java/com.spr/sip/Sip to understand threading
+             * Currently, javax.sip.REENTRANT_LISTENER = false and defaults are used.Change properties if behaviour is to be changed
+             */
+            sip = new SipExtension(agentState, agentConfig, agentStats.getRegistration(), startup);
+            awaitStartup(rtpBound, botConnected);
+            startup.mark(StartupTimeline.READY);
+            LOGGER.info("{} started, startup timeline: {}", agentConfig.getAgentName(), startup);
+            ready.complete(null);
 
-        /*
-         * Refer to jain-sip-ri/gov.nist/javax/sip/SipStackImpl and src/main/java/com.spr/sip/Sip to understand threading
-         * Currently, javax.sip.REENTRANT_LISTENER = false and defaults are used.Change properties if behaviour is to be changed
-         */
-        Future<RtpAddress> rtpRemoteAddressFuture = executor.submit(sip);
+            int callsHandled = 0;
+            while (!stopped && (longLived || callsHandled == 0)) {
+                SipCall call = sip.pollCall(MEDIA_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (call == null) {
+                    continue;
+                }
+                //the SipExtension rejects calls beyond maxCalls, a session is only busy until its call's media is torn down
+                CallSession session = idleSessions.take();
+                callsHandled++;
+                executor.execute(() -> handleCall(session, call, idleSessions));
+            }
+            //wait for the calls in progress to end
+            for (int i = 0; i < maxCalls; i++) {
+                idleSessions.take();
+            }
+        } finally {
+            if (sip != null) {
+                sip.shutDown();
+            }
+            //the startup steps may still be running if the SIP stack could not be created
+            CompletableFuture.allOf(rtpBound, botConnected).exceptionally(e -> null).join();
+            sessions.forEach(CallSession::close);
+            if (rtpIngress != null) {
+                RtpIngress.release(rtpIngress);
+            }
+            executor.shutdown();
+        }
+    }
 
-        RtpAddress rtpRemoteAddress = rtpRemoteAddressFuture.get();
-        if (!(rtpRemoteAddress.getAddressType().equals(agentConfig.getRtpAddressType())) || !(rtpRemoteAddress.getNetworkType().equals(agentConfig.getRtpNetworkType()))) {
-            throw new IllegalStateException("Rtp address type or network type not matching" +
-                    "Address type received: " + rtpRemoteAddress.getAddressType() + " expected: " + agentConfig.getRtpAddressType() +
-                    "Network type received: " + rtpRemoteAddress.getNetworkType() + " expected: " + agentConfig.getRtpNetworkType());
+    /**
+     * Binds the shared RTP socket of the Agent, or takes a reference to it if another Agent has already bound it
+     */
+    private void bindRtp() {
+        try {
+            rtpIngress = RtpIngress.acquire(agentConfig.getRtpLocalIp(), agentConfig.getRtpLocalPort(), RtpEventLoopGroup.getDefault());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not bind rtp socket " + agentConfig.getRtpLocalIp() + ":" + agentConfig.getRtpLocalPort()
+                    + " for " + agentConfig.getAgentName(), e);
         }
+        agentStats.getStartup().mark(StartupTimeline.RTP_BOUND);
+    }
 
-        //start listening on rtp port for rtp data from ozonetel (send data only after this is running)
-        DataReceiver rtpReceiver = new RtpReceiverImpl(inboundRtpQueue, agentConfig);
-        executor.execute(rtpReceiver); //1 new thread started
+    /**
+     * Connects a spare bot transport in every call slot and waits for the connections to be established
+     */
+    private void connectBot(List<CallSession> sessions) {
+        try {
+            boolean connected = true;
+            for (CallSession session : sessions) {
+                connected &= session.warmUp(BOT_CONNECT_TIMEOUT_MS);
+            }
+            if (connected) {
+                agentStats.getStartup().mark(StartupTimeline.BOT_CONNECTED);
+            } else {
+                LOGGER.warn("Bot connections of {} not established at startup, they are retried when a call arrives", agentConfig.getAgentName());
+            }
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid bot websocket uri for " + agentConfig.getAgentName(), e);
+        } catch (InterruptedException e) {
+            LOGGER.error("{} interrupted while connecting to the bot", agentConfig.getAgentName());
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        //connect websocket to botserver (make sure botserver is running)
-        Websocket websocket = new Websocket(outboundRtpQueue, agentState, agentConfig);
-        websocket.connect(); //starts a read and write thread internally, 2 new threads started
+    /**
+     * Waits for the startup steps running on helper threads
+     * @throws RuntimeException the error of a step which failed
+     */
+    private static void awaitStartup(CompletableFuture<Void> rtpBound, CompletableFuture<Void> botConnected) {
+        try {
+            CompletableFuture.allOf(rtpBound, botConnected).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
 
-        //send the returned data to ozontel rtp
-        DataSender rtpSender = new RtpSenderImpl(rtpRemoteAddress, outboundRtpQueue, agentConfig);
-        executor.execute(rtpSender); //1 new thread started
+    /**
+     * Runs the media of a call in a session, then returns the session to the idle ones. A call whose media failed is
+     * hung up, so that it does not keep holding one of the Agent's call slots
+     */
+    private void handleCall(CallSession session, SipCall call, BlockingQueue<CallSession> idleSessions) {
+        try {
+            session.handle(call);
+        } catch (InterruptedException e) {
+            LOGGER.error("{} interrupted in call {}", agentConfig.getAgentName(), call.getCallId());
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            StringWriter sw = new StringWriter();
+            PrintWriter pw = new PrintWriter(sw);
+            e.printStackTrace(pw);
+            LOGGER.error("In Agent, {} alert in call {}! \n Cause: {} \n Stacktrace: {}", agentConfig.getAgentName(), call.getCallId(), e.getCause(), sw);
+        } finally {
+            hangUp(call); //does nothing if the call has already ended
+            idleSessions.add(session);
+        }
+    }
 
-        while (!agentState.getSipState().equals(SipState.DISCONNECTED)) {
-            try {
-                byte[] data = inboundRtpQueue.poll();
-                if (data == null) {
-                    Thread.sleep(SLEEP_CPU_TIME_MS); //sleep to save cpu cycles or can replace by a blocking queue, refer https://www.baeldung.com/java-concurrent-queues
-                    continue;
-                }
-                websocket.send(data);
-            } catch (WebsocketNotConnectedException e) {
-                if (agentState.getWsCloseCode() == WS_RECONNECT_CODE) {
-                    websocket.reconnect(); //reconnecting immediately, thread.sleep to delay
-                    LOGGER.info("Reconnecting {} to bot websocket server", agentConfig.getAgentName());
-                }
-                else {
-                    throw new WebsocketNotConnectedException();
-                }
-            }
+    /**
+     * Hangs up a call of the Agent, e.g. one whose media cannot keep up
+     */
+    private void hangUp(SipCall call) {
+        SipExtension sipExtension = sip;
+        if (sipExtension != null) {
+            sipExtension.hangUp(call);
         }
+    }
 
-        rtpReceiver.stop();
-        rtpSender.stop();
-        websocket.close();
-        executor.shutdown();
+    /**
+     * Stops taking calls. The Agent stops once its calls in progress have ended
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Creates the executor running the media loop, RTP receive and RTP send tasks of the Agent's calls, for the execution
+     * mode selected in the Agent's configuration
+     * @param maxCalls the number of calls the Agent handles at a time
+     * @return the executor, to be shut down when the Agent stops
+     */
+    private ExecutorService createHelperExecutor(int maxCalls) {
+        switch (agentConfig.getExecutionMode()) {
+            case ExecutionMode.PLATFORM:
+                return Executors.newFixedThreadPool(N_HELPER_THREADS * maxCalls);
+            case ExecutionMode.VIRTUAL:
+                return VirtualThreads.newThreadPerTaskExecutor(agentConfig.getAgentName() + "-helper-");
+            default:
+                throw new IllegalArgumentException("Unknown execution mode " + agentConfig.getExecutionMode() + " for " + agentConfig.getAgentName());
+        }
     }
 
     /**
@@ -131,12 +275,51 @@ public class Agent implements Runnable {
         return agentState;
     }
 
+    /**
+     * Returns the media metrics of the Agent
+     * @return media metrics of the Agent
+     */
+    public AgentStats getStats() {
+        return agentStats;
+    }
+
+    /**
+     * Returns a future completed once the Agent takes calls, which is all of its startup but the registration. It completes
+     * exceptionally with the error which stopped the Agent, if it stops before. Only completed when the Agent is run()
+     * @return the readiness of the Agent, not to be completed by the caller
+     */
+    public CompletableFuture<Void> getReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the calls in progress
+     * @return the calls in progress, empty if the Agent has not started or has stopped
+     */
+    public List<SipCall> getCalls() {
+        SipExtension sipExtension = sip;
+        return sipExtension == null ? Collections.<SipCall>emptyList() : sipExtension.getCalls();
+    }
+
+    /**
+     * Returns the number of calls the Agent could answer right now
+     * @return the free call slots, 0 if the Agent is not registered
+     */
+    public int getIdleCallSlots() {
+        SipExtension sipExtension = sip;
+        if (sipExtension == null || !SipState.REGISTERED.equals(agentState.getSipState())) {
+            return 0;
+        }
+        return Math.max(0, agentConfig.getSipMaxConcurrentCalls() - sipExtension.getCalls().size());
+    }
+
     /**
      * Clears the Agent's configuration and state. Should be called after start() has finished executing
      */
     public void clear() {
         agentConfig = null;
         agentState = null;
+        agentStats = null;
     }
 
     /**
@@ -147,13 +330,17 @@ public class Agent implements Runnable {
         try {
             start();
         } catch (InterruptedException e) {
+            ready.completeExceptionally(e);
             LOGGER.error("{} interrupted in Agent", agentConfig.getAgentName());
             Thread.currentThread().interrupt();
         } catch (Exception e) {
+            ready.completeExceptionally(e);
             StringWriter sw = new StringWriter();
             PrintWriter pw = new PrintWriter(sw);
             e.printStackTrace(pw);
             LOGGER.error("In Agent, {} alert! \n Cause: {} \n Stacktrace: {}", agentConfig.getAgentName(), e.getCause(), sw);
+        } finally {
+            ready.completeExceptionally(new IllegalStateException(agentConfig.getAgentName() + " stopped before it was ready"));
         }
     }
 }
\ No newline at end of file
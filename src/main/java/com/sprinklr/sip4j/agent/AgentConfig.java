@@ -1,7 +1,11 @@
 package com.sprinklr.sip4j.agent;
 
+import com.sprinklr.sip4j.media.OverflowPolicy;
+import com.sprinklr.sip4j.rtp.RtpEngine;
+
 import java.util.UUID;
 
+import static com.sprinklr.sip4j.utils.Constants.MEDIA_QUEUE_CAPACITY;
 import static com.sprinklr.sip4j.utils.Constants.RTP_HEADER_SIZE;
 
 /**
@@ -26,6 +30,8 @@ public class AgentConfig {
     private int sipRegistrarPort;
 
     private int sipRegisterExpiryTimeSec;
+    private boolean sipSharedStack = false;
+    private int sipMaxConcurrentCalls = 1;
     private final String sipLocalTag = UUID.randomUUID().toString();
 
     /*
@@ -41,17 +47,84 @@ public class AgentConfig {
     private int rtpPayloadSize;
     private int rtpPacketSize;
 
+    private String rtpEngine = RtpEngine.BLOCKING;
+
+    private int rtpClockRate = 8000;
+    private int rtpPtimeMs = 20;
+    private boolean rtpPacingEnabled = false;
+    private boolean rtpHeaderStampingEnabled = false;
+    private int rtpPayloadType = 0;
+
+    private boolean jitterBufferEnabled = false;
+    private int jitterBufferMinDepthMs = 20;
+    private int jitterBufferMaxDepthMs = 200;
+
+    private int mediaQueueCapacity = MEDIA_QUEUE_CAPACITY;
+    private String inboundOverflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private String outboundOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+
     /*
     ---------------------------------------------- WEBSOCKET CONFIG ------------------------------------------------
      */
 
     private String wsServerUri;
+    private int wsBatchMs = 0;
+    private int wsMuxConnections = 0;
 
 
     /*
     ---------------------------------------------- MISC CONFIG ------------------------------------------------
      */
     private String password;
+    private String executionMode = ExecutionMode.PLATFORM;
+    private boolean warmPoolEnabled = false;
+
+    public AgentConfig() {
+        //populated by the yaml or json setters
+    }
+
+    /**
+     * Copies a configuration, e.g. a cached one for an Agent being started. The copy gets a sipLocalTag of its own
+     * @param other the configuration to be copied
+     */
+    public AgentConfig(AgentConfig other) {
+        this.getAgentName = other.getAgentName;
+        this.transportMode = other.transportMode;
+        this.sipLocalIp = other.sipLocalIp;
+        this.sipLocalPort = other.sipLocalPort;
+        this.sipLocalUsername = other.sipLocalUsername;
+        this.sipLocalRealm = other.sipLocalRealm;
+        this.sipLocalDisplayName = other.sipLocalDisplayName;
+        this.sipRegistrarIp = other.sipRegistrarIp;
+        this.sipRegistrarPort = other.sipRegistrarPort;
+        this.sipRegisterExpiryTimeSec = other.sipRegisterExpiryTimeSec;
+        this.sipSharedStack = other.sipSharedStack;
+        this.sipMaxConcurrentCalls = other.sipMaxConcurrentCalls;
+        this.rtpLocalPort = other.rtpLocalPort;
+        this.rtpLocalIp = other.rtpLocalIp;
+        this.rtpAddressType = other.rtpAddressType;
+        this.rtpNetworkType = other.rtpNetworkType;
+        this.rtpPayloadSize = other.rtpPayloadSize;
+        this.rtpPacketSize = other.rtpPacketSize;
+        this.rtpEngine = other.rtpEngine;
+        this.rtpClockRate = other.rtpClockRate;
+        this.rtpPtimeMs = other.rtpPtimeMs;
+        this.rtpPacingEnabled = other.rtpPacingEnabled;
+        this.rtpHeaderStampingEnabled = other.rtpHeaderStampingEnabled;
+        this.rtpPayloadType = other.rtpPayloadType;
+        this.jitterBufferEnabled = other.jitterBufferEnabled;
+        this.jitterBufferMinDepthMs = other.jitterBufferMinDepthMs;
+        this.jitterBufferMaxDepthMs = other.jitterBufferMaxDepthMs;
+        this.mediaQueueCapacity = other.mediaQueueCapacity;
+        this.inboundOverflowPolicy = other.inboundOverflowPolicy;
+        this.outboundOverflowPolicy = other.outboundOverflowPolicy;
+        this.wsServerUri = other.wsServerUri;
+        this.wsBatchMs = other.wsBatchMs;
+        this.wsMuxConnections = other.wsMuxConnections;
+        this.password = other.password;
+        this.executionMode = other.executionMode;
+        this.warmPoolEnabled = other.warmPoolEnabled;
+    }
 
     public String getAgentName() {
         return getAgentName;
@@ -133,6 +206,22 @@ public class AgentConfig {
         this.sipRegisterExpiryTimeSec = sipRegisterExpiryTimeSec;
     }
 
+    public boolean isSipSharedStack() {
+        return sipSharedStack;
+    }
+
+    public void setSipSharedStack(boolean sipSharedStack) {
+        this.sipSharedStack = sipSharedStack;
+    }
+
+    public int getSipMaxConcurrentCalls() {
+        return sipMaxConcurrentCalls;
+    }
+
+    public void setSipMaxConcurrentCalls(int sipMaxConcurrentCalls) {
+        this.sipMaxConcurrentCalls = sipMaxConcurrentCalls;
+    }
+
     public String getSipLocalTag() {
         return sipLocalTag;
     }
@@ -182,6 +271,102 @@ public class AgentConfig {
         return rtpPacketSize;
     }
 
+    public String getRtpEngine() {
+        return rtpEngine;
+    }
+
+    public void setRtpEngine(String rtpEngine) {
+        this.rtpEngine = rtpEngine;
+    }
+
+    public int getRtpClockRate() {
+        return rtpClockRate;
+    }
+
+    public void setRtpClockRate(int rtpClockRate) {
+        this.rtpClockRate = rtpClockRate;
+    }
+
+    public int getRtpPtimeMs() {
+        return rtpPtimeMs;
+    }
+
+    public void setRtpPtimeMs(int rtpPtimeMs) {
+        this.rtpPtimeMs = rtpPtimeMs;
+    }
+
+    public boolean isRtpPacingEnabled() {
+        return rtpPacingEnabled;
+    }
+
+    public void setRtpPacingEnabled(boolean rtpPacingEnabled) {
+        this.rtpPacingEnabled = rtpPacingEnabled;
+    }
+
+    public boolean isRtpHeaderStampingEnabled() {
+        return rtpHeaderStampingEnabled;
+    }
+
+    public void setRtpHeaderStampingEnabled(boolean rtpHeaderStampingEnabled) {
+        this.rtpHeaderStampingEnabled = rtpHeaderStampingEnabled;
+    }
+
+    public int getRtpPayloadType() {
+        return rtpPayloadType;
+    }
+
+    public void setRtpPayloadType(int rtpPayloadType) {
+        this.rtpPayloadType = rtpPayloadType;
+    }
+
+    public boolean isJitterBufferEnabled() {
+        return jitterBufferEnabled;
+    }
+
+    public void setJitterBufferEnabled(boolean jitterBufferEnabled) {
+        this.jitterBufferEnabled = jitterBufferEnabled;
+    }
+
+    public int getJitterBufferMinDepthMs() {
+        return jitterBufferMinDepthMs;
+    }
+
+    public void setJitterBufferMinDepthMs(int jitterBufferMinDepthMs) {
+        this.jitterBufferMinDepthMs = jitterBufferMinDepthMs;
+    }
+
+    public int getJitterBufferMaxDepthMs() {
+        return jitterBufferMaxDepthMs;
+    }
+
+    public void setJitterBufferMaxDepthMs(int jitterBufferMaxDepthMs) {
+        this.jitterBufferMaxDepthMs = jitterBufferMaxDepthMs;
+    }
+
+    public int getMediaQueueCapacity() {
+        return mediaQueueCapacity;
+    }
+
+    public void setMediaQueueCapacity(int mediaQueueCapacity) {
+        this.mediaQueueCapacity = mediaQueueCapacity;
+    }
+
+    public String getInboundOverflowPolicy() {
+        return inboundOverflowPolicy;
+    }
+
+    public void setInboundOverflowPolicy(String inboundOverflowPolicy) {
+        this.inboundOverflowPolicy = inboundOverflowPolicy;
+    }
+
+    public String getOutboundOverflowPolicy() {
+        return outboundOverflowPolicy;
+    }
+
+    public void setOutboundOverflowPolicy(String outboundOverflowPolicy) {
+        this.outboundOverflowPolicy = outboundOverflowPolicy;
+    }
+
     public String getWsServerUri() {
         return wsServerUri;
     }
@@ -190,6 +375,22 @@ public class AgentConfig {
         this.wsServerUri = wsServerUri;
     }
 
+    public int getWsBatchMs() {
+        return wsBatchMs;
+    }
+
+    public void setWsBatchMs(int wsBatchMs) {
+        this.wsBatchMs = wsBatchMs;
+    }
+
+    public int getWsMuxConnections() {
+        return wsMuxConnections;
+    }
+
+    public void setWsMuxConnections(int wsMuxConnections) {
+        this.wsMuxConnections = wsMuxConnections;
+    }
+
     public String getPassword() {
         return password;
     }
@@ -198,6 +399,22 @@ public class AgentConfig {
         this.password = password;
     }
 
+    public String getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(String executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public boolean isWarmPoolEnabled() {
+        return warmPoolEnabled;
+    }
+
+    public void setWarmPoolEnabled(boolean warmPoolEnabled) {
+        this.warmPoolEnabled = warmPoolEnabled;
+    }
+
     @Override
     public String toString() {
         return "AgentConfig2{" +
@@ -211,6 +428,8 @@ public class AgentConfig {
                 ", sipRegistrarIp='" + sipRegistrarIp + '\'' +
                 ", sipRegistrarPort=" + sipRegistrarPort +
                 ", sipRegisterExpiryTimeSec=" + sipRegisterExpiryTimeSec +
+                ", sipSharedStack=" + sipSharedStack +
+                ", sipMaxConcurrentCalls=" + sipMaxConcurrentCalls +
                 ", sipLocalTag='" + sipLocalTag + '\'' +
                 ", rtpLocalPort=" + rtpLocalPort +
                 ", rtpLocalIp='" + rtpLocalIp + '\'' +
@@ -218,8 +437,24 @@ public class AgentConfig {
                 ", rtpNetworkType='" + rtpNetworkType + '\'' +
                 ", rtpPayloadSize=" + rtpPayloadSize +
                 ", rtpPacketSize=" + rtpPacketSize +
+                ", rtpEngine='" + rtpEngine + '\'' +
+                ", rtpClockRate=" + rtpClockRate +
+                ", rtpPtimeMs=" + rtpPtimeMs +
+                ", rtpPacingEnabled=" + rtpPacingEnabled +
+                ", rtpHeaderStampingEnabled=" + rtpHeaderStampingEnabled +
+                ", rtpPayloadType=" + rtpPayloadType +
+                ", jitterBufferEnabled=" + jitterBufferEnabled +
+                ", jitterBufferMinDepthMs=" + jitterBufferMinDepthMs +
+                ", jitterBufferMaxDepthMs=" + jitterBufferMaxDepthMs +
+                ", mediaQueueCapacity=" + mediaQueueCapacity +
+                ", inboundOverflowPolicy='" + inboundOverflowPolicy + '\'' +
+                ", outboundOverflowPolicy='" + outboundOverflowPolicy + '\'' +
                 ", wsServerUri='" + wsServerUri + '\'' +
+                ", wsBatchMs=" + wsBatchMs +
+                ", wsMuxConnections=" + wsMuxConnections +
                 ", password='" + password + '\'' +
+                ", executionMode='" + executionMode + '\'' +
+                ", warmPoolEnabled=" + warmPoolEnabled +
                 '}';
     }
 }
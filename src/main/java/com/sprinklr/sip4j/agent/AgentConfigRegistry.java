@@ -0,0 +1,197 @@
+package com.sprinklr.sip4j.agent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Keeps the parsed configurations of the Agents, indexed by agent id, the {id} of their agent{id}.yaml file.
+ * The directory is read once and then watched: a file created or modified is parsed again on its own and a deleted one is
+ * dropped, so that an Agent started afterwards gets the new configuration without a restart. Agents already running keep
+ * the configuration they were started with. A file which cannot be parsed, e.g. while it is being written, leaves the
+ * previous configuration in place until the file changes again.
+ */
+public class AgentConfigRegistry implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AgentConfigRegistry.class);
+    private static final String FILE_PREFIX = "agent";
+    private static final String FILE_SUFFIX = ".yaml";
+
+    private final Path directory;
+    private final Map<String, AgentConfig> configs = new ConcurrentHashMap<>();
+    /**
+     * Used by one thread at a time, the constructor's and then the watcher
+     */
+    private final Yaml yaml = new Yaml();
+    private final WatchService watchService;
+
+    /**
+     * Loads the configurations of a directory and starts watching it for changes
+     * @param directory the directory of the agent{id}.yaml files
+     * @throws IOException if the directory cannot be read or watched
+     */
+    public AgentConfigRegistry(Path directory) throws IOException {
+        this.directory = directory;
+        watchService = directory.getFileSystem().newWatchService();
+        //registered before loading, so that a change made while loading is not missed
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        loadAll();
+        Thread watcher = new Thread(this::watch, "agent-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private AgentConfigRegistry() {
+        this.directory = null;
+        this.watchService = null;
+    }
+
+    /**
+     * Returns a registry without configurations which watches no directory, e.g. when the directory cannot be read
+     * @return an empty registry
+     */
+    public static AgentConfigRegistry empty() {
+        return new AgentConfigRegistry();
+    }
+
+    /**
+     * Returns the configuration of an Agent
+     * @param id id of the agent
+     * @return a copy of the configuration, for a single Agent, null if there is no configuration for this id
+     */
+    public AgentConfig getConfig(String id) {
+        AgentConfig config = configs.get(id);
+        return config == null ? null : new AgentConfig(config);
+    }
+
+    /**
+     * Returns the ids of the agents which have a configuration
+     * @return the agent ids
+     */
+    public Set<String> getIds() {
+        return configs.keySet();
+    }
+
+    /**
+     * Stops watching the directory. The configurations loaded so far are kept
+     */
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    /**
+     * Applies the changes to the directory until the registry is closed
+     */
+    private void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (InterruptedException e) {
+                LOGGER.error("Interrupted while watching agent configurations in {}", directory);
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (OVERFLOW.equals(event.kind())) {
+                    //events were lost, the whole directory is compared again
+                    loadAll();
+                    continue;
+                }
+                Path file = directory.resolve((Path) event.context());
+                if (ENTRY_DELETE.equals(event.kind())) {
+                    remove(file);
+                } else {
+                    load(file);
+                }
+            }
+            if (!key.reset()) {
+                LOGGER.error("Agent configurations in {} no longer watched, the directory is gone", directory);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Loads every configuration file of the directory and drops the configurations whose file is gone
+     */
+    private void loadAll() {
+        Set<String> ids = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                ids.add(getId(file));
+                load(file);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not list agent configurations in {}: {}", directory, e.toString());
+            return;
+        }
+        configs.keySet().retainAll(ids);
+    }
+
+    /**
+     * Parses a configuration file and replaces the configuration of its agent id
+     */
+    private void load(Path file) {
+        String id = getId(file);
+        if (id == null) {
+            return;
+        }
+        try (InputStream ymlStream = Files.newInputStream(file)) {
+            AgentConfig config = yaml.loadAs(ymlStream, AgentConfig.class);
+            if (config == null) {
+                LOGGER.warn("Agent configuration {} is empty, agent {} keeps its previous configuration", file, id);
+                return;
+            }
+            configs.put(id, config);
+            LOGGER.info("Loaded configuration of agent {} from {}", id, file);
+        } catch (IOException | YAMLException e) {
+            LOGGER.warn("Could not load agent configuration {}, agent {} keeps its previous configuration: {}", file, id, e.toString());
+        }
+    }
+
+    private void remove(Path file) {
+        String id = getId(file);
+        if (id != null && configs.remove(id) != null) {
+            LOGGER.info("Removed configuration of agent {}, {} was deleted", id, file);
+        }
+    }
+
+    /**
+     * Returns the agent id of a configuration file
+     * @return the {id} of agent{id}.yaml, null if the file is not a configuration file
+     */
+    private static String getId(Path file) {
+        String fileName = file.getFileName().toString();
+        if (!fileName.startsWith(FILE_PREFIX) || !fileName.endsWith(FILE_SUFFIX) || fileName.length() == FILE_PREFIX.length() + FILE_SUFFIX.length()) {
+            return null;
+        }
+        return fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length());
+    }
+}
@@ -0,0 +1,107 @@
+package com.sprinklr.sip4j.agent;
+
+import com.sprinklr.sip4j.media.OverflowPolicy;
+import com.sprinklr.sip4j.rtp.RtpEngine;
+import com.sprinklr.sip4j.utils.VirtualThreads;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks Agent configurations before the Agents are started, so that a bad configuration is reported to whoever submitted
+ * it instead of only showing up as an exception in the Agent's thread. The local addresses of the Agents are checked
+ * against each other by the AgentManager, which hands out the local ports left at 0.
+ */
+public class AgentConfigValidator {
+
+    /**
+     * Payload types above are dynamic, refer RFC 3551
+     */
+    private static final int MAX_STATIC_PAYLOAD_TYPE = 95;
+
+    /**
+     * Private constructor since it is a utility class
+     */
+    private AgentConfigValidator() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Validates the fields of a configuration
+     * @param config the configuration to be validated
+     * @return the errors found, empty if the configuration is valid
+     */
+    public static List<String> validate(AgentConfig config) {
+        List<String> errors = new ArrayList<>();
+        requireValue(errors, "agentName", config.getAgentName());
+        requireValue(errors, "sipLocalIp", config.getSipLocalIp());
+        requireValue(errors, "sipLocalUsername", config.getSipLocalUsername());
+        requireValue(errors, "sipLocalRealm", config.getSipLocalRealm());
+        requireValue(errors, "sipRegistrarIp", config.getSipRegistrarIp());
+        requireValue(errors, "rtpLocalIp", config.getRtpLocalIp());
+        requireValue(errors, "wsServerUri", config.getWsServerUri());
+        if (!"udp".equalsIgnoreCase(config.getTransportMode()) && !"tcp".equalsIgnoreCase(config.getTransportMode())) {
+            errors.add("transportMode must be udp or tcp, not " + config.getTransportMode());
+        }
+        requirePort(errors, "sipLocalPort", config.getSipLocalPort(), 0);
+        requirePort(errors, "sipRegistrarPort", config.getSipRegistrarPort(), 1);
+        requirePort(errors, "rtpLocalPort", config.getRtpLocalPort(), 0);
+        if (!RtpEngine.BLOCKING.equals(config.getRtpEngine()) && !RtpEngine.NIO.equals(config.getRtpEngine())
+                && !RtpEngine.SHARED.equals(config.getRtpEngine())) {
+            errors.add("Unknown rtpEngine " + config.getRtpEngine());
+        }
+        if (!ExecutionMode.PLATFORM.equals(config.getExecutionMode()) && !ExecutionMode.VIRTUAL.equals(config.getExecutionMode())) {
+            errors.add("Unknown executionMode " + config.getExecutionMode());
+        } else if (ExecutionMode.VIRTUAL.equals(config.getExecutionMode()) && !VirtualThreads.isSupported()) {
+            errors.add("executionMode " + ExecutionMode.VIRTUAL + " needs Java 21 or later, running on Java " + System.getProperty("java.version"));
+        }
+        if (config.getSipMaxConcurrentCalls() < 1) {
+            errors.add("sipMaxConcurrentCalls must be at least 1");
+        } else if (config.getSipMaxConcurrentCalls() > 1 && !RtpEngine.SHARED.equals(config.getRtpEngine())) {
+            errors.add("Concurrent calls need rtpEngine " + RtpEngine.SHARED);
+        }
+        //the blocking receiver only releases its port once its receive times out, after the next call tried to bind it
+        if (config.isWarmPoolEnabled() && RtpEngine.BLOCKING.equals(config.getRtpEngine())) {
+            errors.add("warmPoolEnabled needs rtpEngine " + RtpEngine.NIO + " or " + RtpEngine.SHARED);
+        }
+        //a dynamic payload type would have to be matched and answered by encoding name, which the configuration does not have
+        if (config.getRtpPayloadType() < 0 || config.getRtpPayloadType() > MAX_STATIC_PAYLOAD_TYPE) {
+            errors.add("rtpPayloadType must be a static payload type between 0 and " + MAX_STATIC_PAYLOAD_TYPE + ", not " + config.getRtpPayloadType());
+        }
+        if (config.getMediaQueueCapacity() < 1) {
+            errors.add("mediaQueueCapacity must be at least 1");
+        }
+        requireOverflowPolicy(errors, "inboundOverflowPolicy", config.getInboundOverflowPolicy());
+        requireOverflowPolicy(errors, "outboundOverflowPolicy", config.getOutboundOverflowPolicy());
+        //a blocked producer must not hold up the packets of other calls
+        if (OverflowPolicy.BLOCK.equals(config.getInboundOverflowPolicy()) && !RtpEngine.BLOCKING.equals(config.getRtpEngine())) {
+            errors.add("inboundOverflowPolicy " + OverflowPolicy.BLOCK + " needs rtpEngine " + RtpEngine.BLOCKING);
+        }
+        if (OverflowPolicy.BLOCK.equals(config.getOutboundOverflowPolicy()) && config.getWsMuxConnections() > 0) {
+            errors.add("outboundOverflowPolicy " + OverflowPolicy.BLOCK + " cannot be used with wsMuxConnections");
+        }
+        return errors;
+    }
+
+    private static void requireValue(List<String> errors, String name, String value) {
+        if (value == null || value.isEmpty()) {
+            errors.add(name + " is required");
+        }
+    }
+
+    private static void requireOverflowPolicy(List<String> errors, String name, String policy) {
+        if (!OverflowPolicy.DROP_OLDEST.equals(policy) && !OverflowPolicy.DROP_NEWEST.equals(policy)
+                && !OverflowPolicy.BLOCK.equals(policy) && !OverflowPolicy.SIGNAL.equals(policy)) {
+            errors.add("Unknown " + name + " " + policy);
+        }
+    }
+
+    /**
+     * Checks a port, which may be 0 if minPort is, i.e. if a port is handed out when it is left at 0
+     */
+    private static void requirePort(List<String> errors, String name, int port, int minPort) {
+        if (port < minPort || port > 65535) {
+            errors.add(name + " must be between " + minPort + " and 65535, not " + port);
+        }
+    }
+}
@@ -1,29 +1,107 @@
 package com.sprinklr.sip4j.agent;
 
+import com.sprinklr.sip4j.rtp.RtpEngine;
+import com.sprinklr.sip4j.utils.PortAllocator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Manager class. Stores agents mapped by agent names
+ * Manager class. Stores agents mapped by agent names, from their start until they have finished, and owns the local SIP
+ * and RTP ports they use. An Agent whose configuration leaves sipLocalPort or rtpLocalPort at 0 is handed a port from the
+ * manager's range when it is added; a configured port is checked against the other Agents, and taken out of the range if
+ * it is part of it. An address may only be used by several Agents if all of them share it, through the shared SIP stack
+ * or the shared RTP engine. The ports of an Agent are released when it is removed, which for an Agent taking a single
+ * call is when that call has ended, and quarantined before they are handed out again.
  */
 public class AgentManager {
+
+    /**
+     * SIP ports handed out. They are quarantined for 64*T1, the longest a transaction of the former Agent may be retransmitted
+     */
+    private static final int SIP_PORT_MIN = 16000;
+    private static final int SIP_PORT_MAX = 16999;
+    private static final long SIP_PORT_QUARANTINE_MS = 32000;
+    /**
+     * RTP ports handed out, even ones as is customary for RTP. They are quarantined for the late packets of the former call
+     */
+    private static final int RTP_PORT_MIN = 20000;
+    private static final int RTP_PORT_MAX = 29998;
+    private static final long RTP_PORT_QUARANTINE_MS = 4000;
+
     private final Map<String, Agent> agentMapper;
+    private final PortAllocator sipPorts; //guarded by this, as are claims
+    private final PortAllocator rtpPorts;
+    private final Map<String, AddressClaim> claims = new HashMap<>();
 
     public AgentManager() {
+        this(new PortAllocator(SIP_PORT_MIN, SIP_PORT_MAX, 1, SIP_PORT_QUARANTINE_MS),
+                new PortAllocator(RTP_PORT_MIN, RTP_PORT_MAX, 2, RTP_PORT_QUARANTINE_MS));
+    }
+
+    /**
+     * Creates a manager handing out the ports of the given allocators
+     * @param sipPorts the allocator of sipLocalPort
+     * @param rtpPorts the allocator of rtpLocalPort
+     */
+    public AgentManager(PortAllocator sipPorts, PortAllocator rtpPorts) {
         agentMapper = new ConcurrentHashMap<>();
+        this.sipPorts = sipPorts;
+        this.rtpPorts = rtpPorts;
     }
 
-    public void addAgent(Agent agent, AgentConfig agentConfig) {
+    /**
+     * Adds an Agent which is about to be started and claims its local ports. Ports left at 0 in its configuration are set
+     * to the ones allocated
+     * @param agent the Agent
+     * @param agentConfig the configuration of the Agent, whose fields have been validated
+     * @return the reasons why the Agent cannot be started, e.g. its name or a port is already used. The Agent is only
+     * added if there are none
+     */
+    public synchronized List<String> addAgent(Agent agent, AgentConfig agentConfig) {
+        List<String> errors = new ArrayList<>();
+        if (agentMapper.containsKey(agentConfig.getAgentName())) {
+            errors.add("agentName already used");
+            return errors;
+        }
+        long nowNs = System.nanoTime();
+        int sipPort = claim(sipPorts, sipHost(agentConfig), agentConfig.getSipLocalPort(), agentConfig.isSipSharedStack(), agentConfig, nowNs, errors);
+        int rtpPort = claim(rtpPorts, rtpHost(agentConfig), agentConfig.getRtpLocalPort(), RtpEngine.SHARED.equals(agentConfig.getRtpEngine()), agentConfig, nowNs, errors);
+        if (!errors.isEmpty()) {
+            if (sipPort > 0) {
+                unclaim(sipPorts, sipHost(agentConfig), sipPort, nowNs);
+            }
+            if (rtpPort > 0) {
+                unclaim(rtpPorts, rtpHost(agentConfig), rtpPort, nowNs);
+            }
+            return errors;
+        }
+        agentConfig.setSipLocalPort(sipPort);
+        agentConfig.setRtpLocalPort(rtpPort);
         agentMapper.put(agentConfig.getAgentName(), agent);
+        return errors;
     }
 
-    public Agent getAgentByName(String agentName) {
-        return agentMapper.get(agentName);
+    /**
+     * Removes an Agent which has finished, or will not be started, and releases its local ports
+     * @param agent the Agent
+     */
+    public synchronized void removeAgent(Agent agent) {
+        AgentConfig agentConfig = agent.getConfig();
+        if (!agentMapper.remove(agentConfig.getAgentName(), agent)) {
+            return;
+        }
+        long nowNs = System.nanoTime();
+        unclaim(sipPorts, sipHost(agentConfig), agentConfig.getSipLocalPort(), nowNs);
+        unclaim(rtpPorts, rtpHost(agentConfig), agentConfig.getRtpLocalPort(), nowNs);
     }
 
-    public void removeAgentByName(String agentName) {
-        agentMapper.remove(agentName);
+    public Agent getAgentByName(String agentName) {
+        return agentMapper.get(agentName);
     }
 
     public boolean containsAgent(String agentName){
@@ -33,4 +111,89 @@ public class AgentManager {
     public Set<String> getNames() {
         return agentMapper.keySet();
     }
+
+    /**
+     * Returns the usage of the port ranges
+     * @return the free and quarantined ports of each range
+     */
+    public synchronized String getPortUsage() {
+        long nowNs = System.nanoTime();
+        return "sip " + sipPorts + " free: " + sipPorts.getFreeCount(nowNs) + " quarantined: " + sipPorts.getQuarantinedCount(nowNs)
+                + ", rtp " + rtpPorts + " free: " + rtpPorts.getFreeCount(nowNs) + " quarantined: " + rtpPorts.getQuarantinedCount(nowNs);
+    }
+
+    /**
+     * Claims a local port for an Agent: allocates one if the configured port is 0, otherwise takes the configured one,
+     * unless it is held by another Agent which does not share it or is quarantined
+     * @return the port claimed, 0 if it could not be, in which case the reason is added to the errors
+     */
+    private int claim(PortAllocator allocator, String host, int port, boolean shared, AgentConfig agentConfig, long nowNs, List<String> errors) {
+        if (port == 0) {
+            port = allocator.allocate(nowNs);
+            if (port < 0) {
+                errors.add("No free port left in " + host + allocator);
+                return 0;
+            }
+            claims.put(host + port, new AddressClaim(agentConfig.getAgentName(), shared, true));
+            return port;
+        }
+        AddressClaim claim = claims.get(host + port);
+        if (claim != null) {
+            if (!claim.shared || !shared) {
+                errors.add(host + port + " already used by " + claim.owner);
+                return 0;
+            }
+            claim.users++;
+            return port;
+        }
+        boolean managed = allocator.contains(port);
+        if (managed && !allocator.reserve(port, nowNs)) {
+            //allocated to an Agent on another local ip, or quarantined
+            errors.add(host + port + " is not free");
+            return 0;
+        }
+        claims.put(host + port, new AddressClaim(agentConfig.getAgentName(), shared, managed));
+        return port;
+    }
+
+    /**
+     * Releases a port claimed by an Agent. Once no Agent uses it, a port of the range is quarantined
+     */
+    private void unclaim(PortAllocator allocator, String host, int port, long nowNs) {
+        AddressClaim claim = claims.get(host + port);
+        if (claim == null || --claim.users > 0) {
+            return;
+        }
+        claims.remove(host + port);
+        if (claim.managed) {
+            allocator.release(port, nowNs);
+        }
+    }
+
+    private static String sipHost(AgentConfig agentConfig) {
+        return "sip " + agentConfig.getTransportMode().toLowerCase() + ":" + agentConfig.getSipLocalIp() + ":";
+    }
+
+    private static String rtpHost(AgentConfig agentConfig) {
+        return "rtp " + agentConfig.getRtpLocalIp() + ":";
+    }
+
+    /**
+     * The Agents using a local address
+     */
+    private static class AddressClaim {
+        private final String owner;
+        private final boolean shared;
+        /**
+         * Whether the port belongs to the range of the allocator, to which it is released
+         */
+        private final boolean managed;
+        private int users = 1;
+
+        private AddressClaim(String owner, boolean shared, boolean managed) {
+            this.owner = owner;
+            this.shared = shared;
+            this.managed = managed;
+        }
+    }
 }
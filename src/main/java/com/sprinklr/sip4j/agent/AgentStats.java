@@ -0,0 +1,139 @@
+package com.sprinklr.sip4j.agent;
+
+import com.sprinklr.sip4j.metrics.BatchStats;
+import com.sprinklr.sip4j.metrics.JitterBufferStats;
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import com.sprinklr.sip4j.metrics.PacingStats;
+import com.sprinklr.sip4j.metrics.QueueStats;
+import com.sprinklr.sip4j.metrics.RegistrationStats;
+import com.sprinklr.sip4j.metrics.StartupTimeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the media, registration and startup metrics of an Agent, so that the behaviour of its pipeline can be observed while it is running.
+ */
+public class AgentStats {
+
+    private final String name;
+    /**
+     * Time spent by packets from Ozonetel in the inbound queue, before being forwarded to the bot
+     */
+    private final LatencyStats inboundQueueWait = new LatencyStats();
+    /**
+     * Time spent by packets from the bot in the outbound queue, before being sent to Ozonetel
+     */
+    private final LatencyStats outboundQueueWait = new LatencyStats();
+    /**
+     * Deepest the inbound queues of the Agent's calls got, and the packets from Ozonetel they dropped
+     */
+    private final QueueStats inboundQueue = new QueueStats();
+    /**
+     * Deepest the outbound queues of the Agent's calls got, and the packets from the bot they dropped
+     */
+    private final QueueStats outboundQueue = new QueueStats();
+    /**
+     * Number of receive buffers allocated by the inbound buffer pool, stops growing once the pool is warm
+     */
+    private final AtomicLong inboundBuffersAllocated = new AtomicLong();
+    /**
+     * Number of buffers allocated by the outbound buffer pool for the bot's packets, stops growing once the pool is warm
+     */
+    private final AtomicLong outboundBuffersAllocated = new AtomicLong();
+    /**
+     * Jitter, loss and depth of the inbound jitter buffer, stays at zero if the jitter buffer is disabled
+     */
+    private final JitterBufferStats inboundJitterBuffer = new JitterBufferStats();
+    /**
+     * Send drift and burst absorption of the outbound paced sender, stays at zero if pacing is disabled
+     */
+    private final PacingStats outboundPacing = new PacingStats();
+    /**
+     * Frames sent to the bot and the latency added by batching, stays at zero if batching is disabled
+     */
+    private final BatchStats inboundBatching = new BatchStats();
+    /**
+     * Latency and failures of the REGISTER requests sent to the registrar
+     */
+    private final RegistrationStats registration = new RegistrationStats();
+    /**
+     * When the SIP stack, RTP socket and bot connection of the Agent became ready and when it registered
+     */
+    private final StartupTimeline startup;
+
+    public AgentStats(String name) {
+        this(name, System.nanoTime());
+    }
+
+    /**
+     * Creates the metrics of an Agent
+     * @param name the name of the Agent
+     * @param startupOriginNs when the Agent's configuration started loading, from System.nanoTime()
+     */
+    public AgentStats(String name, long startupOriginNs) {
+        this.name = name;
+        this.startup = new StartupTimeline(startupOriginNs);
+    }
+
+    public LatencyStats getInboundQueueWait() {
+        return inboundQueueWait;
+    }
+
+    public LatencyStats getOutboundQueueWait() {
+        return outboundQueueWait;
+    }
+
+    public QueueStats getInboundQueue() {
+        return inboundQueue;
+    }
+
+    public QueueStats getOutboundQueue() {
+        return outboundQueue;
+    }
+
+    public AtomicLong getInboundBuffersAllocated() {
+        return inboundBuffersAllocated;
+    }
+
+    public AtomicLong getOutboundBuffersAllocated() {
+        return outboundBuffersAllocated;
+    }
+
+    public JitterBufferStats getInboundJitterBuffer() {
+        return inboundJitterBuffer;
+    }
+
+    public PacingStats getOutboundPacing() {
+        return outboundPacing;
+    }
+
+    public BatchStats getInboundBatching() {
+        return inboundBatching;
+    }
+
+    public RegistrationStats getRegistration() {
+        return registration;
+    }
+
+    public StartupTimeline getStartup() {
+        return startup;
+    }
+
+    @Override
+    public String toString() {
+        return "AgentStats{" +
+                "name='" + name + '\'' +
+                ", inboundQueueWait=" + inboundQueueWait +
+                ", outboundQueueWait=" + outboundQueueWait +
+                ", inboundQueue=" + inboundQueue +
+                ", outboundQueue=" + outboundQueue +
+                ", inboundBuffersAllocated=" + inboundBuffersAllocated +
+                ", outboundBuffersAllocated=" + outboundBuffersAllocated +
+                ", inboundJitterBuffer=" + inboundJitterBuffer +
+                ", outboundPacing=" + outboundPacing +
+                ", inboundBatching=" + inboundBatching +
+                ", registration=" + registration +
+                ", startup=" + startup +
+                '}';
+    }
+}
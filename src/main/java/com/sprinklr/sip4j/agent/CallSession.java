@@ -0,0 +1,367 @@
+package com.sprinklr.sip4j.agent;
+
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import com.sprinklr.sip4j.media.PayloadBatcher;
+import com.sprinklr.sip4j.rtp.DemuxRtpReceiverImpl;
+import com.sprinklr.sip4j.rtp.JitterBuffer;
+import com.sprinklr.sip4j.rtp.NioRtpReceiverImpl;
+import com.sprinklr.sip4j.rtp.NioRtpSenderImpl;
+import com.sprinklr.sip4j.rtp.PacedRtpSenderImpl;
+import com.sprinklr.sip4j.rtp.RtpAddress;
+import com.sprinklr.sip4j.rtp.RtpEngine;
+import com.sprinklr.sip4j.rtp.RtpEventLoopGroup;
+import com.sprinklr.sip4j.rtp.RtpReceiverImpl;
+import com.sprinklr.sip4j.rtp.RtpSenderImpl;
+import com.sprinklr.sip4j.rtp.RtpSession;
+import com.sprinklr.sip4j.rtp.TimingWheel;
+import com.sprinklr.sip4j.sip.SipCall;
+import com.sprinklr.sip4j.sip.SipState;
+import com.sprinklr.sip4j.websocket.BotTransport;
+import com.sprinklr.sip4j.websocket.MuxConnectionPool;
+import com.sprinklr.sip4j.websocket.Websocket;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.sprinklr.sip4j.utils.Constants.MEDIA_BLOCK_TIMEOUT_MS;
+import static com.sprinklr.sip4j.utils.Constants.MEDIA_POLL_TIMEOUT_MS;
+
+/**
+ * One of an Agent's call slots: the media queues and buffer pools of a call, allocated when the Agent starts and reused by
+ * every call the slot handles, and the media loop forwarding the call's audio between Ozonetel and the bot.
+ * Handles one call at a time. In a warm pool the slot keeps a spare bot transport connected while it is idle, so a call
+ * does not wait for the websocket handshake; every call still gets a transport of its own.
+ */
+class CallSession {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CallSession.class);
+    private static final int WS_RECONNECT_CODE = 1006;
+    private final AgentConfig agentConfig;
+    private final AgentStats agentStats;
+    private final ExecutorService executor;
+    private final Consumer<SipCall> hangUp;
+    private final MediaQueue<ByteBuffer> inboundRtpQueue;
+    private final MediaQueue<ByteBuffer> outboundRtpQueue;
+    private final BufferPool inboundBufferPool;
+    private final BufferPool outboundBufferPool;
+    private final String slotName;
+    /**
+     * A transport connected ahead of the next call, null unless the Agent is in a warm pool
+     */
+    private BotTransport spareTransport;
+    /**
+     * The websocket state of the spare transport, which is connected before the call it serves exists
+     */
+    private AgentState spareTransportState;
+    /**
+     * Set by a media queue with the signal overflow policy, for the media loop to hang up the call
+     */
+    private volatile boolean overflowed;
+
+    /**
+     * Allocates the media resources of the slot
+     * @param agentConfig The configuration of the Agent
+     * @param agentStats The media metrics of the Agent, shared by its calls
+     * @param executor The executor on which the RTP receiver and sender of each call run
+     * @param slot The index of the slot in the Agent
+     * @param hangUp Sends a BYE for a call, invoked when a media queue with the signal overflow policy is full
+     */
+    CallSession(AgentConfig agentConfig, AgentStats agentStats, ExecutorService executor, int slot, Consumer<SipCall> hangUp) {
+        this.agentConfig = agentConfig;
+        this.agentStats = agentStats;
+        this.executor = executor;
+        this.hangUp = hangUp;
+        int capacity = agentConfig.getMediaQueueCapacity();
+        this.inboundRtpQueue = new MediaQueue<>(capacity, agentConfig.getInboundOverflowPolicy(), MEDIA_BLOCK_TIMEOUT_MS,
+                agentStats.getInboundQueueWait(), agentStats.getInboundQueue());
+        this.outboundRtpQueue = new MediaQueue<>(capacity, agentConfig.getOutboundOverflowPolicy(), MEDIA_BLOCK_TIMEOUT_MS,
+                agentStats.getOutboundQueueWait(), agentStats.getOutboundQueue());
+        //receive buffers are recycled once forwarded to the bot, so the inbound path does not allocate per packet
+        this.inboundBufferPool = new BufferPool(capacity, agentConfig.getRtpPacketSize(), agentStats.getInboundBuffersAllocated());
+        //likewise the bot's packets are recycled once sent to ozonetel
+        this.outboundBufferPool = new BufferPool(capacity, agentConfig.getRtpPacketSize(), agentStats.getOutboundBuffersAllocated());
+        //packets evicted to make room are recycled like the forwarded ones, the rejected ones are released by their producer
+        inboundRtpQueue.setEvictionListener(inboundBufferPool::release);
+        outboundRtpQueue.setEvictionListener(outboundBufferPool::release);
+        //the BYE is sent by the media loop rather than on the producer's thread, which may serve other calls
+        inboundRtpQueue.setOverflowListener(() -> overflowed = true);
+        outboundRtpQueue.setOverflowListener(() -> overflowed = true);
+        this.slotName = agentConfig.getAgentName() + "/slot" + slot;
+    }
+
+    /**
+     * Connects a spare bot transport for the next call. Returns without waiting for the connection to be established
+     * @throws URISyntaxException
+     */
+    void warmUp() throws URISyntaxException {
+        if (spareTransport == null) {
+            spareTransportState = new AgentState(slotName);
+            spareTransport = openTransport(spareTransportState);
+        }
+    }
+
+    /**
+     * Connects a spare bot transport for the next call and waits for the connection to be established
+     * @param timeoutMs how long to wait
+     * @return whether the connection is open
+     * @throws URISyntaxException
+     * @throws InterruptedException
+     */
+    boolean warmUp(long timeoutMs) throws URISyntaxException, InterruptedException {
+        warmUp();
+        return spareTransport.awaitOpen(timeoutMs);
+    }
+
+    /**
+     * Closes the spare bot transport, when the Agent stops
+     */
+    void close() {
+        if (spareTransport != null) {
+            spareTransport.close();
+            spareTransport = null;
+            spareTransportState = null;
+        }
+    }
+
+    /**
+     * Forwards the media of a call until it is disconnected, then releases everything the call used but the slot's resources
+     * @param call The established call, whose remote RTP address is set
+     * @throws InterruptedException
+     * @throws URISyntaxException
+     */
+    void handle(SipCall call) throws InterruptedException, URISyntaxException {
+        RtpAddress rtpRemoteAddress = call.getRtpRemoteAddress();
+        if (!(rtpRemoteAddress.getAddressType().equals(agentConfig.getRtpAddressType())) || !(rtpRemoteAddress.getNetworkType().equals(agentConfig.getRtpNetworkType()))) {
+            throw new IllegalStateException("Rtp address type or network type not matching" +
+                    "Address type received: " + rtpRemoteAddress.getAddressType() + " expected: " + agentConfig.getRtpAddressType() +
+                    "Network type received: " + rtpRemoteAddress.getNetworkType() + " expected: " + agentConfig.getRtpNetworkType());
+        }
+        AgentState callState = call.getState();
+        overflowed = false;
+
+        //start listening on rtp port for rtp data from ozonetel (send data only after this is running)
+        DataReceiver rtpReceiver = createRtpReceiver(rtpRemoteAddress);
+        executor.execute(rtpReceiver); //1 new thread started in blocking mode, returns immediately in nio and shared mode
+
+        AgentState transportState = spareTransport == null ? callState : spareTransportState;
+        BotTransport websocket = null;
+        DataSender rtpSender = null;
+        JitterBuffer jitterBuffer = null;
+        PayloadBatcher batcher = null;
+        try {
+            websocket = spareTransport == null ? openTransport(callState) : takeSpareTransport();
+
+            //send the returned data to ozontel rtp
+            rtpSender = createRtpSender(rtpRemoteAddress);
+            executor.execute(rtpSender); //1 new thread started in blocking mode, returns immediately in nio and shared mode
+
+            //optionally reorder, de-duplicate and re-time the inbound stream before it reaches the bot
+            if (agentConfig.isJitterBufferEnabled()) {
+                jitterBuffer = new JitterBuffer(agentConfig.getRtpClockRate(), agentConfig.getRtpPtimeMs(), agentConfig.getJitterBufferMinDepthMs(),
+                        agentConfig.getJitterBufferMaxDepthMs(), inboundBufferPool, agentStats.getInboundJitterBuffer());
+            }
+            //optionally send several payloads per websocket frame instead of one packet per frame
+            if (agentConfig.getWsBatchMs() > 0) {
+                batcher = new PayloadBatcher(agentConfig.getWsBatchMs(), agentConfig.getRtpPtimeMs(), agentConfig.getRtpPayloadSize(),
+                        websocket::send, agentStats.getInboundBatching());
+            }
+
+            forward(call, transportState, websocket, jitterBuffer, batcher);
+        } finally {
+            if (jitterBuffer != null) {
+                jitterBuffer.clear();
+            }
+            if (batcher != null) {
+                flushLastFrame(batcher);
+            }
+            rtpReceiver.stop();
+            if (rtpSender != null) {
+                rtpSender.stop();
+            }
+            if (websocket != null) {
+                websocket.close();
+            }
+            drain(inboundRtpQueue, inboundBufferPool);
+            drain(outboundRtpQueue, outboundBufferPool);
+            //the next call of a warm slot gets a new transport, whose handshake happens while the slot is idle
+            if (agentConfig.isWarmPoolEnabled()) {
+                warmUp();
+            }
+        }
+    }
+
+    /**
+     * Hands the spare transport over to a call, reconnecting it if the bot closed it while the slot was idle
+     * @return the transport of the call
+     */
+    BotTransport takeSpareTransport() {
+        BotTransport transport = spareTransport;
+        spareTransport = null;
+        spareTransportState = null;
+        drain(outboundRtpQueue, outboundBufferPool); //anything the bot sent before the call started
+        if (transport.isClosed()) {
+            LOGGER.info("Spare bot connection of {} was lost while idle, reconnecting", agentConfig.getAgentName());
+            transport.reconnect();
+        }
+        return transport;
+    }
+
+    /**
+     * Creates a bot transport writing into the slot's outbound queue and starts connecting it
+     * @param transportState The state on which the transport records how its websocket was closed
+     * @return the transport
+     * @throws URISyntaxException
+     */
+    private BotTransport openTransport(AgentState transportState) throws URISyntaxException {
+        //connect websocket to botserver (make sure botserver is running)
+        BotTransport transport = agentConfig.getWsMuxConnections() > 0
+                ? MuxConnectionPool.open(outboundRtpQueue, outboundBufferPool, transportState, agentConfig)
+                : new Websocket(outboundRtpQueue, outboundBufferPool, transportState, agentConfig);
+        transport.connect(); //a dedicated websocket starts a read and write thread internally, a shared one is already started
+        return transport;
+    }
+
+    /**
+     * The media loop of a call, which forwards the received packets to the bot until the call is disconnected, or hangs it
+     * up if one of its media queues overflowed with the signal policy
+     */
+    private void forward(SipCall call, AgentState transportState, BotTransport websocket, JitterBuffer jitterBuffer, PayloadBatcher batcher) throws InterruptedException {
+        AgentState callState = call.getState();
+        while (!callState.getSipState().equals(SipState.DISCONNECTED)) {
+            if (overflowed) {
+                LOGGER.warn("Media queue of {} overflowed, hanging up call {}", slotName, call.getCallId());
+                hangUp.accept(call);
+                return;
+            }
+            try {
+                //wake up when a packet is received, or when the next buffered packet or batch is due
+                long timeoutNs = TimeUnit.MILLISECONDS.toNanos(MEDIA_POLL_TIMEOUT_MS);
+                if (jitterBuffer != null) {
+                    timeoutNs = Math.min(timeoutNs, jitterBuffer.nanosUntilNextPlayout(System.nanoTime()));
+                }
+                if (batcher != null) {
+                    timeoutNs = Math.min(timeoutNs, batcher.nanosUntilDue(System.nanoTime()));
+                }
+                ByteBuffer data = inboundRtpQueue.poll(timeoutNs, TimeUnit.NANOSECONDS);
+                long nowNs = System.nanoTime();
+                if (jitterBuffer == null) {
+                    if (data != null) {
+                        sendToBot(websocket, batcher, data, nowNs);
+                    }
+                } else {
+                    if (data != null) {
+                        jitterBuffer.offer(data, nowNs);
+                    }
+                    while ((data = jitterBuffer.poll(nowNs)) != null) {
+                        sendToBot(websocket, batcher, data, nowNs);
+                    }
+                }
+                if (batcher != null) {
+                    batcher.flushIfDue(nowNs);
+                }
+            } catch (WebsocketNotConnectedException e) {
+                if (transportState.getWsCloseCode() == WS_RECONNECT_CODE) {
+                    websocket.reconnect(); //reconnecting immediately, thread.sleep to delay
+                    LOGGER.info("Reconnecting {} to bot websocket server", agentConfig.getAgentName());
+                }
+                else {
+                    throw new WebsocketNotConnectedException();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the audio still waiting in the batcher at the end of a call, before the connection to the bot is closed. The
+     * frame is dropped if the connection is already gone
+     * @param batcher The batcher of the call
+     */
+    private void flushLastFrame(PayloadBatcher batcher) {
+        try {
+            batcher.flush(System.nanoTime());
+        } catch (WebsocketNotConnectedException e) {
+            batcher.clear();
+            LOGGER.debug("Bot connection of {} closed before the last frame of the call was sent", slotName);
+        }
+    }
+
+    /**
+     * Forwards an inbound packet to the bot, either in its own frame or through the batcher, and recycles its buffer
+     * @param websocket The transport connected to the bot
+     * @param batcher The batcher coalescing payloads into frames, or null if every packet is sent in its own frame
+     * @param data The packet to be forwarded
+     * @param nowNs The current time, from System.nanoTime()
+     */
+    private void sendToBot(BotTransport websocket, PayloadBatcher batcher, ByteBuffer data, long nowNs) {
+        try {
+            if (batcher != null) {
+                batcher.add(data, nowNs); //the payload is copied into the batch
+            } else {
+                websocket.send(data); //frame is serialised before send returns, the buffer can be recycled right after
+            }
+        } finally {
+            inboundBufferPool.release(data);
+        }
+    }
+
+    /**
+     * Returns the packets left in a queue by the previous call to their pool, so that the next call starts empty
+     */
+    private static void drain(MediaQueue<ByteBuffer> queue, BufferPool bufferPool) {
+        ByteBuffer data;
+        while ((data = queue.poll()) != null) {
+            bufferPool.release(data);
+        }
+    }
+
+    /**
+     * Creates the RTP receiver for the engine selected in the Agent's configuration
+     * @param rtpRemoteAddress The remote RTP address from which packets are expected
+     * @return the RTP receiver
+     */
+    private DataReceiver createRtpReceiver(RtpAddress rtpRemoteAddress) {
+        switch (agentConfig.getRtpEngine()) {
+            case RtpEngine.BLOCKING:
+                return new RtpReceiverImpl(inboundRtpQueue, inboundBufferPool, agentConfig);
+            case RtpEngine.NIO:
+                return new NioRtpReceiverImpl(inboundRtpQueue, inboundBufferPool, agentConfig, RtpEventLoopGroup.getDefault());
+            case RtpEngine.SHARED:
+                return new DemuxRtpReceiverImpl(rtpRemoteAddress, inboundRtpQueue, inboundBufferPool, agentConfig, RtpEventLoopGroup.getDefault());
+            default:
+                throw new IllegalArgumentException("Unknown rtp engine " + agentConfig.getRtpEngine() + " for " + agentConfig.getAgentName());
+        }
+    }
+
+    /**
+     * Creates the RTP sender for the engine selected in the Agent's configuration, or a paced sender if pacing is enabled.
+     * If header stamping is enabled the sender owns the outbound RTP session of the call and the bot only sends payloads
+     * @param rtpRemoteAddress The remote RTP address where the packets are to be sent
+     * @return the RTP sender
+     */
+    private DataSender createRtpSender(RtpAddress rtpRemoteAddress) {
+        RtpSession rtpSession = null;
+        if (agentConfig.isRtpHeaderStampingEnabled()) {
+            rtpSession = new RtpSession(agentConfig.getRtpPayloadType(), agentConfig.getRtpClockRate(), agentConfig.getRtpPtimeMs());
+        }
+        if (agentConfig.isRtpPacingEnabled()) {
+            //paced sends are clocked by the shared timing wheel whatever the engine
+            return new PacedRtpSenderImpl(rtpRemoteAddress, outboundRtpQueue, outboundBufferPool, rtpSession, agentConfig, TimingWheel.getDefault(), agentStats.getOutboundPacing());
+        }
+        switch (agentConfig.getRtpEngine()) {
+            case RtpEngine.BLOCKING:
+                return new RtpSenderImpl(rtpRemoteAddress, outboundRtpQueue, outboundBufferPool, rtpSession, agentConfig);
+            case RtpEngine.NIO:
+            case RtpEngine.SHARED:
+                return new NioRtpSenderImpl(rtpRemoteAddress, outboundRtpQueue, outboundBufferPool, rtpSession, agentConfig, RtpEventLoopGroup.getDefault());
+            default:
+                throw new IllegalArgumentException("Unknown rtp engine " + agentConfig.getRtpEngine() + " for " + agentConfig.getAgentName());
+        }
+    }
+}
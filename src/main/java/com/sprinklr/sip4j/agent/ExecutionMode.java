@@ -0,0 +1,25 @@
+package com.sprinklr.sip4j.agent;
+
+/**
+ * Defines constants for the kind of threads on which an Agent's signalling, receive, send and forward tasks run
+ */
+public class ExecutionMode {
+
+    /**
+     * Private constructor since it is a utility class
+     */
+    private ExecutionMode() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Platform threads, a fixed pool of helpers per Agent and one thread per running Agent
+     */
+    public static final String PLATFORM = "platform";
+
+    /**
+     * One virtual thread per task, requires Java 21. The number of Agents is then bounded by memory, not threads
+     */
+    public static final String VIRTUAL = "virtual";
+
+}
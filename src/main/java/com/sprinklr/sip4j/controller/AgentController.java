@@ -1,14 +1,21 @@
 package com.sprinklr.sip4j.controller;
 
+import com.sprinklr.sip4j.agent.AgentConfig;
 import com.sprinklr.sip4j.service.AgentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Controller class for Agent
@@ -17,6 +24,8 @@ import java.util.List;
 @RequestMapping(value = "/agent")
 public class AgentController {
 
+    private static final long PROVISION_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
     @Autowired
     AgentService agentService;
 
@@ -30,6 +39,39 @@ public class AgentController {
         agentService.startAgent(id);
     }
 
+    /**
+     * Calls the service for validating and starting a batch of agents. The status of each agent is streamed as a server-sent
+     * event once it is ready, has failed to start or has been rejected, and the stream ends when all of them have
+     * @param configs configurations of the agents to be started
+     * @return the stream of agent statuses
+     */
+    @PostMapping(value = "/provision", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter provisionAgents(@RequestBody List<AgentConfig> configs) {
+        SseEmitter emitter = new SseEmitter(PROVISION_TIMEOUT_MS);
+        List<CompletableFuture<String>> results = agentService.provisionAgents(configs);
+        for (CompletableFuture<String> result : results) {
+            result.thenAccept(status -> {
+                try {
+                    emitter.send(status);
+                } catch (IOException | IllegalStateException e) {
+                    //the client has gone or the stream timed out, the agents keep starting
+                }
+            });
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).thenRun(emitter::complete);
+        return emitter;
+    }
+
+    /**
+     * Calls the service for stopping an agent by name. The agent takes no more calls and stops once its calls have ended
+     * @param name name of the agent to be stopped
+     * @return whether the agent was found
+     */
+    @GetMapping(value = "/stop/{name}")
+    public boolean stopAgent(@PathVariable("name") String name) {
+        return agentService.stopAgent(name);
+    }
+
     /**
      * Calls the service for shutting down the executor service. No more Agents can be started once this is called
      */
@@ -46,4 +88,31 @@ public class AgentController {
     public List<String> showAllStatus() {
         return agentService.showAllStatus();
     }
+
+    /**
+     * Calls the service to show media metrics (e.g. per-hop queue wait latency) of all active agents
+     * @return The media metrics of all active agents
+     */
+    @GetMapping(value = "/allStats")
+    public List<String> showAllStats() {
+        return agentService.showAllStats();
+    }
+
+    /**
+     * Calls the service to show the idle agents of the warm pool, which answer calls without connecting to the bot first
+     * @return The idle agents of the warm pool
+     */
+    @GetMapping(value = "/warmPool")
+    public List<String> showWarmPool() {
+        return agentService.showWarmPool();
+    }
+
+    /**
+     * Calls the service to show the usage of the local port ranges from which agents get their ports
+     * @return The free and quarantined ports of each range
+     */
+    @GetMapping(value = "/ports")
+    public String showPorts() {
+        return agentService.showPorts();
+    }
 }
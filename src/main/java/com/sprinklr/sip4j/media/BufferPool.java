@@ -0,0 +1,67 @@
+package com.sprinklr.sip4j.media;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of equally sized heap buffers which are recycled between the stages of an Agent, so the media path does not
+ * allocate per packet. The pool starts empty and grows on demand up to its capacity; once enough buffers are in
+ * circulation, acquire and release allocate nothing.
+ * Buffers can be acquired and released from different threads.
+ */
+public class BufferPool {
+
+    private final ArrayBlockingQueue<ByteBuffer> freeBuffers;
+    private final int bufferSize;
+    private final AtomicLong allocatedCount;
+
+    /**
+     * Creates an empty buffer pool
+     * @param capacity the maximum number of free buffers retained by the pool
+     * @param bufferSize the size in bytes of each buffer
+     * @param allocatedCount the counter incremented each time the pool has to allocate a new buffer
+     */
+    public BufferPool(int capacity, int bufferSize, AtomicLong allocatedCount) {
+        this.freeBuffers = new ArrayBlockingQueue<>(capacity);
+        this.bufferSize = bufferSize;
+        this.allocatedCount = allocatedCount;
+    }
+
+    /**
+     * Takes a cleared buffer from the pool, allocating a new one only if the pool is empty
+     * @return a buffer with position 0 and limit equal to its capacity
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            allocatedCount.incrementAndGet();
+            return ByteBuffer.allocate(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must not be used by the caller afterwards.
+     * Buffers of a different size, or released when the pool is full, are left to the garbage collector.
+     * @param buffer the buffer to be recycled
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize) {
+            freeBuffers.offer(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Returns the number of free buffers currently held by the pool
+     * @return the number of free buffers
+     */
+    public int available() {
+        return freeBuffers.size();
+    }
+}
@@ -0,0 +1,319 @@
+package com.sprinklr.sip4j.media;
+
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import com.sprinklr.sip4j.metrics.QueueStats;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring buffer which hands media packets from one stage of an Agent to the next.
+ * A consumer waiting in poll(timeout) is parked and woken up as soon as a packet is offered, so a packet never waits
+ * for a sleep interval to expire. The time each packet spends in the queue is recorded in the queue's wait stats.
+ * Any number of producers may offer, but only a single thread should consume from the queue. Consumers which are not
+ * a dedicated thread (e.g. an event loop) can instead be notified through an available listener.
+ * What happens to a packet offered while the queue is full is decided by the queue's OverflowPolicy, and recorded in its
+ * queue stats along with the deepest the queue got.
+ * @param <E> the type of packet held in the queue
+ */
+public class MediaQueue<E> {
+
+    private final Object[] items;
+    private final long[] enqueueTimesNs;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final String overflowPolicy;
+    private final long blockTimeoutNs;
+    private final LatencyStats waitStats;
+    private final QueueStats queueStats;
+    private int head = 0;
+    private int tail = 0;
+    private int count = 0;
+    /**
+     * The consumer thread parked on an empty queue, null if no consumer is waiting. Guarded by lock.
+     */
+    private Thread waiter;
+    /**
+     * The number of producers waiting for room with the block policy. Guarded by lock.
+     */
+    private int blockedProducers = 0;
+    /**
+     * Whether the overflow listener was notified since the last packet was inserted. Guarded by lock.
+     */
+    private boolean overflowSignalled = false;
+    /**
+     * Invoked by the producer whenever the queue goes from empty to non-empty
+     */
+    private volatile Runnable availableListener;
+    /**
+     * Invoked by the producer with each packet evicted by the drop oldest policy, e.g. to recycle its buffer
+     */
+    private volatile Consumer<? super E> evictionListener;
+    /**
+     * Invoked by the producer when the queue starts rejecting packets with the signal policy
+     */
+    private volatile Runnable overflowListener;
+
+    /**
+     * Creates a bounded media queue which rejects the packets offered while it is full
+     * @param capacity the maximum number of packets the queue can hold
+     * @param waitStats the stats in which the time spent by each packet in the queue is recorded
+     */
+    public MediaQueue(int capacity, LatencyStats waitStats) {
+        this(capacity, OverflowPolicy.DROP_NEWEST, 0, waitStats, new QueueStats());
+    }
+
+    /**
+     * Creates a bounded media queue
+     * @param capacity the maximum number of packets the queue can hold
+     * @param overflowPolicy what is done with a packet offered while the queue is full, one of the OverflowPolicy constants
+     * @param blockTimeoutMs how long a producer waits for room with the block policy, before the packet is rejected
+     * @param waitStats the stats in which the time spent by each packet in the queue is recorded
+     * @param queueStats the stats in which the high-water mark and the overflows of the queue are recorded
+     */
+    public MediaQueue(int capacity, String overflowPolicy, long blockTimeoutMs, LatencyStats waitStats, QueueStats queueStats) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity of media queue should be positive, found " + capacity);
+        }
+        if (!OverflowPolicy.DROP_OLDEST.equals(overflowPolicy) && !OverflowPolicy.DROP_NEWEST.equals(overflowPolicy)
+                && !OverflowPolicy.BLOCK.equals(overflowPolicy) && !OverflowPolicy.SIGNAL.equals(overflowPolicy)) {
+            throw new IllegalArgumentException("Unknown overflow policy " + overflowPolicy);
+        }
+        this.items = new Object[capacity];
+        this.enqueueTimesNs = new long[capacity];
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNs = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.waitStats = waitStats;
+        this.queueStats = queueStats;
+    }
+
+    /**
+     * Inserts the packet at the tail of the queue and wakes up the consumer if it is waiting. If the queue is full the
+     * packet is handled according to the overflow policy of the queue
+     * @param e the packet to be inserted
+     * @return true if the packet was inserted, false if it was rejected because the queue was full
+     */
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        Thread toWake;
+        boolean becameAvailable;
+        E evicted = null;
+        boolean signal = false;
+        lock.lock();
+        try {
+            if (count == items.length) {
+                if (OverflowPolicy.DROP_OLDEST.equals(overflowPolicy)) {
+                    evicted = evict();
+                } else if (!OverflowPolicy.BLOCK.equals(overflowPolicy) || !awaitRoom()) {
+                    queueStats.recordDrop();
+                    signal = OverflowPolicy.SIGNAL.equals(overflowPolicy) && !overflowSignalled;
+                    overflowSignalled |= signal;
+                    return false;
+                }
+            }
+            items[tail] = e;
+            enqueueTimesNs[tail] = System.nanoTime();
+            tail = next(tail);
+            becameAvailable = count == 0;
+            count++;
+            overflowSignalled = false;
+            queueStats.recordDepth(count);
+            toWake = waiter;
+        } finally {
+            lock.unlock();
+            //listeners run outside the lock, they may poll the queue or take locks of their own
+            notifyOverflow(evicted, signal);
+        }
+        if (toWake != null) {
+            LockSupport.unpark(toWake);
+        }
+        Runnable listener = availableListener;
+        if (becameAvailable && listener != null) {
+            listener.run();
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the head of the queue without waiting
+     * @return the head of the queue, or null if the queue is empty
+     */
+    public E poll() {
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves and removes the head of the queue, waiting up to the specified time for a packet to be offered
+     * @param timeout how long to wait before giving up
+     * @param unit the unit of the timeout
+     * @return the head of the queue, or null if the timeout elapsed before a packet was offered
+     * @throws InterruptedException
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadlineNs = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            lock.lock();
+            try {
+                if (count > 0) {
+                    waiter = null;
+                    return dequeue();
+                }
+                waiter = Thread.currentThread();
+            } finally {
+                lock.unlock();
+            }
+            long remainingNs = deadlineNs - System.nanoTime();
+            if (remainingNs <= 0) {
+                clearWaiter();
+                return null;
+            }
+            LockSupport.parkNanos(this, remainingNs);
+            if (Thread.interrupted()) {
+                clearWaiter();
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of packets in the queue
+     * @return the number of packets in the queue
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+
+    /**
+     * Sets the listener invoked on the producer's thread whenever the queue goes from empty to non-empty.
+     * The consumer is expected to drain the queue with poll() until it returns null, so that no packet is left unnoticed.
+     * @param availableListener the listener, or null to remove it
+     */
+    public void setAvailableListener(Runnable availableListener) {
+        this.availableListener = availableListener;
+    }
+
+    /**
+     * Sets the listener invoked on the producer's thread with each packet evicted by the drop oldest policy, which is no
+     * longer referenced by the queue once the listener is called
+     * @param evictionListener the listener, or null to remove it
+     */
+    public void setEvictionListener(Consumer<? super E> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Sets the listener invoked on the producer's thread when the queue starts rejecting packets with the signal policy.
+     * It is invoked once per overflow, again only after a packet could be inserted
+     * @param overflowListener the listener, or null to remove it
+     */
+    public void setOverflowListener(Runnable overflowListener) {
+        this.overflowListener = overflowListener;
+    }
+
+    public String getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public LatencyStats getWaitStats() {
+        return waitStats;
+    }
+
+    public QueueStats getQueueStats() {
+        return queueStats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E dequeue() {
+        E e = (E) items[head];
+        items[head] = null;
+        waitStats.record(System.nanoTime() - enqueueTimesNs[head]);
+        head = next(head);
+        count--;
+        if (blockedProducers > 0) {
+            notFull.signal();
+        }
+        return e;
+    }
+
+    /**
+     * Removes the head of the full queue to make room for a new packet, without recording its wait
+     */
+    @SuppressWarnings("unchecked")
+    private E evict() {
+        E e = (E) items[head];
+        items[head] = null;
+        head = next(head);
+        count--;
+        queueStats.recordDrop();
+        return e;
+    }
+
+    /**
+     * Waits for the consumer to make room in the full queue, with the lock held
+     * @return true if there is room, false if the block timeout elapsed or the producer was interrupted
+     */
+    private boolean awaitRoom() {
+        queueStats.recordBlock();
+        long remainingNs = blockTimeoutNs;
+        blockedProducers++;
+        try {
+            while (count == items.length) {
+                if (remainingNs <= 0) {
+                    return false;
+                }
+                remainingNs = notFull.awaitNanos(remainingNs);
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt(); //left for the producer's loop to notice, the packet is rejected
+            return false;
+        } finally {
+            blockedProducers--;
+        }
+    }
+
+    private void notifyOverflow(E evicted, boolean signal) {
+        Consumer<? super E> onEviction = evictionListener;
+        if (evicted != null && onEviction != null) {
+            onEviction.accept(evicted);
+        }
+        Runnable onOverflow = overflowListener;
+        if (signal) {
+            queueStats.recordSignal();
+            if (onOverflow != null) {
+                onOverflow.run();
+            }
+        }
+    }
+
+    private void clearWaiter() {
+        lock.lock();
+        try {
+            waiter = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int next(int index) {
+        return index + 1 == items.length ? 0 : index + 1;
+    }
+}
@@ -0,0 +1,36 @@
+package com.sprinklr.sip4j.media;
+
+/**
+ * Defines constants for what a MediaQueue does with a packet offered while it is full
+ */
+public class OverflowPolicy {
+
+    /**
+     * Private constructor since it is a utility class
+     */
+    private OverflowPolicy() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Evicts the oldest packet to make room for the new one, so that a stalled consumer adds at most a full queue of latency
+     */
+    public static final String DROP_OLDEST = "dropOldest";
+
+    /**
+     * Rejects the new packet, the packets already queued are kept
+     */
+    public static final String DROP_NEWEST = "dropNewest";
+
+    /**
+     * Blocks the producer until there is room, up to a timeout after which the new packet is rejected. Only for producers
+     * which are a thread of their own, never for an event loop or a connection shared by several calls
+     */
+    public static final String BLOCK = "block";
+
+    /**
+     * Rejects the new packet and notifies the overflow listener of the queue, e.g. for the call to be hung up
+     */
+    public static final String SIGNAL = "signal";
+
+}
@@ -0,0 +1,128 @@
+package com.sprinklr.sip4j.media;
+
+import com.sprinklr.sip4j.metrics.BatchStats;
+import com.sprinklr.sip4j.rtp.RtpPacketView;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces the payloads of consecutive RTP packets into a single frame, so the bot receives one websocket frame per
+ * batch instead of one per packet. RTP headers are stripped, a frame carries the concatenated audio.
+ * A frame is flushed as soon as it holds the configured duration of audio or is full, or when its oldest payload has
+ * waited for the configured duration (e.g. packets were lost). The frame buffer is reused, so the sink must be done with
+ * it when it returns. Not thread-safe, owned by the thread forwarding media to the bot.
+ */
+public class PayloadBatcher {
+
+    private final RtpPacketView rtpPacket = new RtpPacketView();
+    private final ByteBuffer frame;
+    private final long[] arrivalTimesNs;
+    private final long batchNs;
+    private final Consumer<ByteBuffer> sink;
+    private final BatchStats stats;
+    private int payloadCount = 0;
+
+    /**
+     * Creates an empty batcher
+     * @param batchMs the duration of audio carried by a frame
+     * @param ptimeMs the duration of audio carried by an RTP packet
+     * @param maxPayloadSize the largest payload of a single packet
+     * @param sink the consumer of the flushed frames, e.g. the bot's websocket
+     * @param stats the stats in which frames and hold times are recorded
+     */
+    public PayloadBatcher(int batchMs, int ptimeMs, int maxPayloadSize, Consumer<ByteBuffer> sink, BatchStats stats) {
+        if (batchMs <= 0 || ptimeMs <= 0) {
+            throw new IllegalArgumentException("Batch duration and ptime should be positive, found " + batchMs + "ms and " + ptimeMs + "ms");
+        }
+        int maxPayloads = Math.max(1, (batchMs + ptimeMs - 1) / ptimeMs);
+        this.frame = ByteBuffer.allocate(maxPayloads * maxPayloadSize);
+        this.arrivalTimesNs = new long[maxPayloads];
+        this.batchNs = TimeUnit.MILLISECONDS.toNanos(batchMs);
+        this.sink = sink;
+        this.stats = stats;
+    }
+
+    /**
+     * Appends the payload of a packet to the current frame, and flushes the frame if it is complete. The packet is not
+     * retained and can be recycled by the caller
+     * @param packet a valid RTP packet between its position and limit
+     * @param nowNs the time the packet was received, from System.nanoTime()
+     */
+    public void add(ByteBuffer packet, long nowNs) {
+        rtpPacket.wrap(packet);
+        int payloadOffset = rtpPacket.getPayloadOffset();
+        int payloadLength = rtpPacket.getPayloadLength();
+        if (payloadLength > frame.remaining()) {
+            flush(false, nowNs);
+        }
+        if (payloadLength > frame.remaining()) {
+            payloadLength = frame.remaining(); //larger than any configured payload, truncated as a socket would
+        }
+        //bulk copy of the payload only, the packet's bounds are restored afterwards
+        int position = packet.position();
+        int limit = packet.limit();
+        packet.limit(payloadOffset + payloadLength).position(payloadOffset);
+        frame.put(packet);
+        packet.limit(limit).position(position);
+        arrivalTimesNs[payloadCount++] = nowNs;
+        if (payloadCount == arrivalTimesNs.length || frame.remaining() == 0) {
+            flush(false, nowNs);
+        }
+    }
+
+    /**
+     * Flushes the current frame if its oldest payload has waited for the batch duration
+     * @param nowNs the current time, from System.nanoTime()
+     */
+    public void flushIfDue(long nowNs) {
+        if (payloadCount > 0 && nanosUntilDue(nowNs) == 0) {
+            flush(true, nowNs);
+        }
+    }
+
+    /**
+     * Flushes the current frame whatever its size, e.g. before the call ends
+     * @param nowNs the current time, from System.nanoTime()
+     */
+    public void flush(long nowNs) {
+        flush(false, nowNs);
+    }
+
+    /**
+     * Returns how long the caller can wait before the current frame is due
+     * @param nowNs the current time, from System.nanoTime()
+     * @return the time to wait in nanoseconds, Long.MAX_VALUE if the frame is empty
+     */
+    public long nanosUntilDue(long nowNs) {
+        if (payloadCount == 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, arrivalTimesNs[0] + batchNs - nowNs);
+    }
+
+    /**
+     * Drops the payloads of the current frame without sending them
+     */
+    public void clear() {
+        frame.clear();
+        payloadCount = 0;
+    }
+
+    private void flush(boolean byDeadline, long nowNs) {
+        if (payloadCount == 0) {
+            return;
+        }
+        for (int i = 0; i < payloadCount; i++) {
+            stats.getHoldTime().record(nowNs - arrivalTimesNs[i]);
+        }
+        stats.recordFrame(payloadCount, frame.position(), byDeadline);
+        frame.flip();
+        try {
+            sink.accept(frame);
+        } finally {
+            clear(); //a frame which could not be sent is dropped, as a packet would be
+        }
+    }
+}
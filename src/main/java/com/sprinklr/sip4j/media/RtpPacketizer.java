@@ -0,0 +1,88 @@
+package com.sprinklr.sip4j.media;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Slices the audio stream sent by the bot into RTP payloads of the configured size, whatever the size of the bot's
+ * messages. Audio is copied once, straight from the message into pooled packet buffers behind the room left for the
+ * RTP header, and a partial payload at the end of a message stays in its buffer until the next message completes it.
+ * Not thread-safe, owned by the thread receiving the bot's messages.
+ */
+public class RtpPacketizer {
+
+    private final int payloadSize;
+    private final int headerRoom;
+    private final BufferPool bufferPool;
+    private final MediaQueue<ByteBuffer> outboundRtpQueue;
+    /**
+     * Packet whose payload is not complete yet, null if the audio received so far was a whole number of payloads
+     */
+    private ByteBuffer pending;
+
+    /**
+     * Creates a packetizer with no pending audio
+     * @param payloadSize the size of the payload of each packet
+     * @param headerRoom the room left in front of each payload for the RTP header
+     * @param bufferPool the pool from which packet buffers are taken, at least headerRoom + payloadSize bytes each
+     * @param outboundRtpQueue the queue where complete packets are offered
+     */
+    public RtpPacketizer(int payloadSize, int headerRoom, BufferPool bufferPool, MediaQueue<ByteBuffer> outboundRtpQueue) {
+        if (payloadSize <= 0 || headerRoom + payloadSize > bufferPool.getBufferSize()) {
+            throw new IllegalArgumentException("Payload of " + payloadSize + " bytes and header of " + headerRoom
+                    + " bytes do not fit in pooled buffers of " + bufferPool.getBufferSize() + " bytes");
+        }
+        this.payloadSize = payloadSize;
+        this.headerRoom = headerRoom;
+        this.bufferPool = bufferPool;
+        this.outboundRtpQueue = outboundRtpQueue;
+    }
+
+    /**
+     * Appends audio to the stream and offers every payload it completes to the outbound queue
+     * @param audio the audio between its position and limit, consumed by this call
+     * @return the number of packets which were dropped because the queue was full
+     */
+    public int write(ByteBuffer audio) {
+        int dropped = 0;
+        while (audio.hasRemaining()) {
+            if (pending == null) {
+                pending = bufferPool.acquire();
+                pending.position(headerRoom);
+                pending.limit(headerRoom + payloadSize);
+            }
+            int length = Math.min(audio.remaining(), pending.remaining());
+            int limit = audio.limit();
+            audio.limit(audio.position() + length);
+            pending.put(audio);
+            audio.limit(limit);
+
+            if (!pending.hasRemaining()) {
+                pending.flip();
+                if (!outboundRtpQueue.offer(pending)) {
+                    bufferPool.release(pending);
+                    dropped++;
+                }
+                pending = null;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Returns the number of audio bytes carried over to the next message
+     * @return the size of the incomplete payload
+     */
+    public int pendingBytes() {
+        return pending == null ? 0 : pending.position() - headerRoom;
+    }
+
+    /**
+     * Drops the incomplete payload, e.g. when the bot's connection is lost mid-stream
+     */
+    public void clear() {
+        if (pending != null) {
+            bufferPool.release(pending);
+            pending = null;
+        }
+    }
+}
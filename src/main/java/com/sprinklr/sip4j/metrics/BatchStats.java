@@ -0,0 +1,73 @@
+package com.sprinklr.sip4j.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the metrics of a payload batcher: how many frames it saved and how much latency it added to do so.
+ */
+public class BatchStats {
+
+    /**
+     * Time each payload was held in a batch before the batch was flushed
+     */
+    private final LatencyStats holdTime = new LatencyStats();
+    private final AtomicLong payloads = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong deadlineFlushes = new AtomicLong();
+
+    public LatencyStats getHoldTime() {
+        return holdTime;
+    }
+
+    /**
+     * Records a flushed frame
+     * @param payloadCount the number of payloads in the frame
+     * @param byteCount the size of the frame
+     * @param byDeadline true if the frame was flushed before it was full because its oldest payload was due
+     */
+    public void recordFrame(int payloadCount, int byteCount, boolean byDeadline) {
+        payloads.addAndGet(payloadCount);
+        frames.incrementAndGet();
+        bytes.addAndGet(byteCount);
+        if (byDeadline) {
+            deadlineFlushes.incrementAndGet();
+        }
+    }
+
+    public long getPayloads() {
+        return payloads.get();
+    }
+
+    public long getFrames() {
+        return frames.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getDeadlineFlushes() {
+        return deadlineFlushes.get();
+    }
+
+    /**
+     * Returns the mean number of payloads carried by a frame
+     * @return payloads per frame, 0 if no frame was sent
+     */
+    public double getPayloadsPerFrame() {
+        long n = frames.get();
+        return n == 0 ? 0 : (double) payloads.get() / n;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "holdTime=" + holdTime +
+                ", frames=" + frames +
+                ", payloadsPerFrame=" + String.format("%.2f", getPayloadsPerFrame()) +
+                ", bytes=" + bytes +
+                ", deadlineFlushes=" + deadlineFlushes +
+                '}';
+    }
+}
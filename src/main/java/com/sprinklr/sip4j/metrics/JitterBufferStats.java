@@ -0,0 +1,120 @@
+package com.sprinklr.sip4j.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the metrics of a jitter buffer: the measured jitter, the depth it adapted to, and what happened to the packets
+ * which could not be played in order.
+ */
+public class JitterBufferStats {
+
+    private final AtomicLong played = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong reordered = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private volatile long jitterUs = 0;
+    private volatile long targetDepthUs = 0;
+    private volatile long depthUs = 0;
+    private volatile int bufferedPackets = 0;
+
+    public void incrementPlayed() {
+        played.incrementAndGet();
+    }
+
+    public void incrementLost() {
+        lost.incrementAndGet();
+    }
+
+    public void incrementLate() {
+        late.incrementAndGet();
+    }
+
+    public void incrementDuplicates() {
+        duplicates.incrementAndGet();
+    }
+
+    public void incrementReordered() {
+        reordered.incrementAndGet();
+    }
+
+    public void incrementResyncs() {
+        resyncs.incrementAndGet();
+    }
+
+    public void setJitterUs(long jitterUs) {
+        this.jitterUs = jitterUs;
+    }
+
+    public void setTargetDepthUs(long targetDepthUs) {
+        this.targetDepthUs = targetDepthUs;
+    }
+
+    public void setDepthUs(long depthUs) {
+        this.depthUs = depthUs;
+    }
+
+    public void setBufferedPackets(int bufferedPackets) {
+        this.bufferedPackets = bufferedPackets;
+    }
+
+    public long getPlayed() {
+        return played.get();
+    }
+
+    public long getLost() {
+        return lost.get();
+    }
+
+    public long getLate() {
+        return late.get();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    public long getReordered() {
+        return reordered.get();
+    }
+
+    public long getResyncs() {
+        return resyncs.get();
+    }
+
+    public long getJitterUs() {
+        return jitterUs;
+    }
+
+    public long getDepthUs() {
+        return depthUs;
+    }
+
+    /**
+     * Returns the fraction of expected packets which were never played, either missing or arrived too late
+     * @return the loss ratio between 0 and 1
+     */
+    public double getLossRatio() {
+        long missing = lost.get();
+        long expected = played.get() + missing;
+        return expected == 0 ? 0 : (double) missing / expected;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "jitterUs=" + jitterUs +
+                ", targetDepthUs=" + targetDepthUs +
+                ", depthUs=" + depthUs +
+                ", bufferedPackets=" + bufferedPackets +
+                ", played=" + played +
+                ", lost=" + lost +
+                ", lossRatio=" + String.format("%.4f", getLossRatio()) +
+                ", late=" + late +
+                ", duplicates=" + duplicates +
+                ", reordered=" + reordered +
+                ", resyncs=" + resyncs +
+                '}';
+    }
+}
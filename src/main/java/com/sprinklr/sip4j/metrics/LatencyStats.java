@@ -0,0 +1,79 @@
+package com.sprinklr.sip4j.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, allocation-free latency recorder. Samples are kept in power-of-two nanosecond buckets,
+ * which is precise enough to tell microseconds from milliseconds and cheap enough for the media path.
+ */
+public class LatencyStats {
+
+    private static final int N_BUCKETS = 64;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNs = new AtomicLong();
+    private final AtomicLong maxNs = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(N_BUCKETS);
+
+    /**
+     * Records a single latency sample
+     * @param latencyNs the latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long latencyNs) {
+        long sample = Math.max(0L, latencyNs);
+        count.incrementAndGet();
+        totalNs.addAndGet(sample);
+        //bucket i holds samples in [2^i, 2^(i+1)), a zero sample goes into bucket 0
+        buckets.incrementAndGet(sample == 0 ? 0 : N_BUCKETS - 1 - Long.numberOfLeadingZeros(sample));
+        long currentMax = maxNs.get();
+        while (sample > currentMax && !maxNs.compareAndSet(currentMax, sample)) {
+            currentMax = maxNs.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNs.get() / n);
+    }
+
+    public long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxNs.get());
+    }
+
+    /**
+     * Returns an upper bound of the requested percentile, accurate to a factor of two
+     * @param percentile the percentile in the range (0, 100]
+     * @return the percentile in microseconds
+     */
+    public long getPercentileMicros(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < N_BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                long upperBoundNs = i == N_BUCKETS - 1 ? Long.MAX_VALUE : (2L << i) - 1;
+                return TimeUnit.NANOSECONDS.toMicros(Math.min(upperBoundNs, maxNs.get()));
+            }
+        }
+        return getMaxMicros();
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "count=" + getCount() +
+                ", meanUs=" + getMeanMicros() +
+                ", p99Us=" + getPercentileMicros(99) +
+                ", maxUs=" + getMaxMicros() +
+                '}';
+    }
+}
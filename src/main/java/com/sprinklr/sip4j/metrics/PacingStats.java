@@ -0,0 +1,79 @@
+package com.sprinklr.sip4j.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the metrics of a paced sender: how far sends drift from their slot on the transmission clock, and how bursty
+ * the source feeding the sender is.
+ */
+public class PacingStats {
+
+    /**
+     * Delay between the scheduled send time of a packet and the time it was actually sent
+     */
+    private final LatencyStats sendDrift = new LatencyStats();
+    private final AtomicLong sent = new AtomicLong();
+    /**
+     * Packets which were already queued behind another one when their turn came, i.e. received faster than real time
+     */
+    private final AtomicLong smoothed = new AtomicLong();
+    /**
+     * Times the sender fell more than one packetization interval behind its clock and restarted from the current time
+     */
+    private final AtomicLong resyncs = new AtomicLong();
+    /**
+     * Highest number of packets waiting to be sent, the size of the largest burst absorbed by the sender
+     */
+    private volatile int maxBacklog = 0;
+
+    public LatencyStats getSendDrift() {
+        return sendDrift;
+    }
+
+    /**
+     * Records a sent packet
+     * @param driftNs the delay between the scheduled and the actual send time
+     * @param backlog the number of packets still waiting to be sent
+     */
+    public void recordSent(long driftNs, int backlog) {
+        sendDrift.record(Math.max(0, driftNs));
+        sent.incrementAndGet();
+        if (backlog > 0) {
+            smoothed.incrementAndGet();
+        }
+        if (backlog > maxBacklog) {
+            maxBacklog = backlog; //single writer, the sender's clock
+        }
+    }
+
+    public void incrementResyncs() {
+        resyncs.incrementAndGet();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getSmoothed() {
+        return smoothed.get();
+    }
+
+    public long getResyncs() {
+        return resyncs.get();
+    }
+
+    public int getMaxBacklog() {
+        return maxBacklog;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "sendDrift=" + sendDrift +
+                ", sent=" + sent +
+                ", smoothed=" + smoothed +
+                ", maxBacklog=" + maxBacklog +
+                ", resyncs=" + resyncs +
+                '}';
+    }
+}
@@ -0,0 +1,72 @@
+package com.sprinklr.sip4j.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the occupancy metrics of the media queues of an Agent: the deepest any of them got and what their overflow policy
+ * did when they were full.
+ */
+public class QueueStats {
+
+    private final AtomicLong highWaterMark = new AtomicLong();
+    /**
+     * Packets evicted or rejected because the queue was full
+     */
+    private final AtomicLong drops = new AtomicLong();
+    /**
+     * Offers which waited for room, whether or not they got it
+     */
+    private final AtomicLong blocks = new AtomicLong();
+    /**
+     * Times the overflow listener was notified
+     */
+    private final AtomicLong signals = new AtomicLong();
+
+    /**
+     * Records the depth of a queue after an offer, the high-water mark is only written when it is exceeded
+     * @param depth the number of packets in the queue
+     */
+    public void recordDepth(int depth) {
+        if (depth > highWaterMark.get()) {
+            highWaterMark.accumulateAndGet(depth, Math::max);
+        }
+    }
+
+    public void recordDrop() {
+        drops.incrementAndGet();
+    }
+
+    public void recordBlock() {
+        blocks.incrementAndGet();
+    }
+
+    public void recordSignal() {
+        signals.incrementAndGet();
+    }
+
+    public long getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    public long getDrops() {
+        return drops.get();
+    }
+
+    public long getBlocks() {
+        return blocks.get();
+    }
+
+    public long getSignals() {
+        return signals.get();
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "highWaterMark=" + highWaterMark +
+                ", drops=" + drops +
+                ", blocks=" + blocks +
+                ", signals=" + signals +
+                '}';
+    }
+}
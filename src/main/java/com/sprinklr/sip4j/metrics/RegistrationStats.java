@@ -0,0 +1,85 @@
+package com.sprinklr.sip4j.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the metrics of an Agent's registrations: how long the registrar takes to accept them and how often they fail.
+ */
+public class RegistrationStats {
+
+    /**
+     * Time from sending a REGISTER until it is accepted, including the authentication challenge
+     */
+    private final LatencyStats latency = new LatencyStats();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    /**
+     * 401 responses, each costing a round trip. Refreshes answer the last challenge pre-emptively, so these should only
+     * come with the first registration and when the registrar issues a new nonce
+     */
+    private final AtomicLong challenges = new AtomicLong();
+    /**
+     * Failures since the last success, 0 while the Agent is registered
+     */
+    private final AtomicLong consecutiveFailures = new AtomicLong();
+
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    public void recordAttempt() {
+        attempts.incrementAndGet();
+    }
+
+    /**
+     * Records an accepted registration
+     * @param latencyNs the time since the attempt started
+     */
+    public void recordSuccess(long latencyNs) {
+        latency.record(latencyNs);
+        successes.incrementAndGet();
+        consecutiveFailures.set(0);
+    }
+
+    public void recordFailure() {
+        failures.incrementAndGet();
+        consecutiveFailures.incrementAndGet();
+    }
+
+    public void recordChallenge() {
+        challenges.incrementAndGet();
+    }
+
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    public long getSuccesses() {
+        return successes.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getChallenges() {
+        return challenges.get();
+    }
+
+    public long getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "latency=" + latency +
+                ", attempts=" + attempts +
+                ", successes=" + successes +
+                ", failures=" + failures +
+                ", challenges=" + challenges +
+                ", consecutiveFailures=" + consecutiveFailures +
+                '}';
+    }
+}
@@ -0,0 +1,69 @@
+package com.sprinklr.sip4j.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records when each phase of an Agent's startup completed, e.g. SIP stack created, REGISTER sent, registered, relative to
+ * the moment its configuration started loading. Phases may complete on different threads and in any order; only the
+ * first completion of a phase is kept, so that refreshes and reconnections do not move it.
+ */
+public class StartupTimeline {
+
+    public static final String CONFIG_LOADED = "configLoaded";
+    public static final String SIP_STACK_READY = "sipStackReady";
+    public static final String REGISTER_SENT = "registerSent";
+    public static final String REGISTERED = "registered";
+    public static final String RTP_BOUND = "rtpBound";
+    public static final String BOT_CONNECTED = "botConnected";
+    /**
+     * The Agent waits for calls, once everything but the registration is ready
+     */
+    public static final String READY = "ready";
+
+    private final long originNs;
+    private final Map<String, Long> phases = new LinkedHashMap<>(); //guarded by this, in completion order
+
+    /**
+     * Starts the timeline
+     * @param originNs the start of the Agent's startup, from System.nanoTime()
+     */
+    public StartupTimeline(long originNs) {
+        this.originNs = originNs;
+    }
+
+    /**
+     * Records that a phase completed now, unless it already completed before
+     * @param phase the name of the phase
+     */
+    public void mark(String phase) {
+        long elapsedNs = System.nanoTime() - originNs;
+        synchronized (this) {
+            phases.putIfAbsent(phase, elapsedNs);
+        }
+    }
+
+    /**
+     * Returns the time at which a phase completed
+     * @param phase the name of the phase
+     * @return the time since the origin in ns, -1 if the phase has not completed
+     */
+    public synchronized long getElapsedNs(String phase) {
+        Long elapsedNs = phases.get(phase);
+        return elapsedNs == null ? -1 : elapsedNs;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            long elapsedUs = TimeUnit.NANOSECONDS.toMicros(phase.getValue());
+            sb.append(phase.getKey()).append('=').append(elapsedUs / 1000).append('.').append(elapsedUs % 1000 / 100).append("ms");
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -1,6 +1,6 @@
 package com.sprinklr.sip4j.mockserver;
 
-import com.sprinklr.sip4j.rtp.RtpPacket;
+import com.sprinklr.sip4j.rtp.RtpPacketView;
 import com.sprinklr.sip4j.utils.AudioHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +13,7 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,7 +35,7 @@ public class RtpOzonetelReceiver {
     /*
     Hardcoded values end
      */
-    private final List<byte[]> storeRecv = new ArrayList<>();
+    private final List<ByteBuffer> storeRecv = new ArrayList<>();
     private boolean exit = false;
 
     public static void main(String[] args) throws IOException, UnsupportedAudioFileException {
@@ -56,11 +57,13 @@ public class RtpOzonetelReceiver {
         LOGGER.info("Total size={}", storeRecv.size());
         File outputFile = new File(WRITE_AUDIO_FILE);
         ByteArrayOutputStream rawBuffer = new ByteArrayOutputStream();
-        for (byte[] b : storeRecv) {
-            RtpPacket rtpPacket = new RtpPacket(b, RTP_PACKET_SIZE);
-            byte[] payload = new byte[RTP_PAYLOAD_SIZE];
-            rtpPacket.getPayload(payload);
-            rawBuffer.write(payload, 0, payload.length);
+        RtpPacketView rtpPacket = new RtpPacketView();
+        for (ByteBuffer packet : storeRecv) {
+            //payload written straight from the received datagram, the header is skipped in place
+            rtpPacket.wrap(packet);
+            if (rtpPacket.isValid()) {
+                rawBuffer.write(packet.array(), rtpPacket.getPayloadOffset(), rtpPacket.getPayloadLength());
+            }
         }
         rawBuffer.flush();
         rawBuffer.close();
@@ -75,7 +78,7 @@ public class RtpOzonetelReceiver {
             receiveData = new byte[RTP_PACKET_SIZE];
             receivePacket = new DatagramPacket(receiveData, RTP_PACKET_SIZE);
             serverSocket.receive(receivePacket);
-            storeRecv.add(receivePacket.getData());
+            storeRecv.add(ByteBuffer.wrap(receiveData, 0, receivePacket.getLength()));
         } catch (SocketTimeoutException e) {
             exit = true;
         }
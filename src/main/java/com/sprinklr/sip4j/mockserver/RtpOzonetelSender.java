@@ -1,16 +1,16 @@
 package com.sprinklr.sip4j.mockserver;
 
-import com.sprinklr.sip4j.rtp.RtpPacket;
+import com.sprinklr.sip4j.rtp.RtpPacketView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.FileChannel;
 
 /*
  * Mocks entity which will send data packets via RTP from Ozonetel
@@ -34,35 +34,34 @@ public class RtpOzonetelSender {
 
     public void run() throws IOException {
         File file = new File(READ_AUDIO_FILE);
-
-        byte[] fileBytes = Files.readAllBytes(file.toPath());
-        LOGGER.info("Data length {} ", fileBytes.length);
-
-        InetAddress address = InetAddress.getByName(RTP_LOCAL_IP);
-        ByteBuffer audioBuffer = ByteBuffer.wrap(fileBytes);
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getByName(RTP_LOCAL_IP), RTP_LOCAL_PORT);
 
         int cnt = 0; //start with random number in application
         int ssrc = (int) (System.currentTimeMillis() % (int) (1e9 + 7));
         int startTime = 0; //start with random number in application
 
-        try (DatagramSocket datagramSocket = new DatagramSocket()) {
-            DatagramPacket packet;
-            RtpPacket rtpPacket;
-            byte[] rtpBytes;
-            byte[] audioChunkBytes;
-
-            while (audioBuffer.remaining() >= RTP_PAYLOAD_SIZE) {
+        try (FileChannel fileChannel = FileChannel.open(file.toPath()); DatagramChannel datagramChannel = DatagramChannel.open()) {
+            LOGGER.info("Data length {} ", fileChannel.size());
+
+            //a single packet buffer: audio is read from the file straight behind the header, which is stamped in place
+            ByteBuffer packet = ByteBuffer.allocate(RTP_PACKET_SIZE);
+            RtpPacketView rtpPacket = new RtpPacketView();
+
+            while (true) {
+                packet.clear();
+                packet.position(RTP_HEADER_SIZE);
+                int read = 0;
+                while (packet.hasRemaining() && read != -1) {
+                    read = fileChannel.read(packet); //keep reading until a full payload is available or the file ends
+                }
+                if (packet.hasRemaining()) {
+                    break; //last chunk is smaller than the payload size
+                }
                 cnt++;
 
-                audioChunkBytes = new byte[RTP_PAYLOAD_SIZE];
-                audioBuffer.get(audioChunkBytes, 0, RTP_PAYLOAD_SIZE);
-
-                rtpPacket = new RtpPacket(65, cnt, startTime, ssrc, 0, audioChunkBytes, RTP_PAYLOAD_SIZE);
-                rtpBytes = new byte[RTP_PACKET_SIZE];
-                rtpPacket.getPacket(rtpBytes);
-
-                packet = new DatagramPacket(rtpBytes, RTP_PACKET_SIZE, address, RTP_LOCAL_PORT);
-                datagramSocket.send(packet);
+                packet.flip();
+                rtpPacket.wrap(packet).writeHeader(65, cnt, startTime, ssrc, false);
+                datagramChannel.send(packet, address);
 
                 startTime += 1;
             }
@@ -1,5 +1,6 @@
 package com.sprinklr.sip4j.mockserver;
 
+import com.sprinklr.sip4j.websocket.MuxFrame;
 import org.java_websocket.WebSocket;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.server.WebSocketServer;
@@ -8,9 +9,13 @@ import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 /*
-Mocks the bot websocket server which receives data from Agent's Websocket Client Entity
+Mocks the bot websocket server which receives data from Agent's Websocket Client Entity.
+Connections shared by several agents (MuxFrame protocol) are demultiplexed, and media is echoed on the channel it came from
  */
 public class WsBot extends WebSocketServer {
 
@@ -31,7 +36,13 @@ public class WsBot extends WebSocketServer {
 
     @Override
     public void onOpen(WebSocket conn, ClientHandshake handshake) {
-        LOGGER.info("new connection to {}", conn.getRemoteSocketAddress());
+        if (handshake.hasFieldValue(MuxFrame.HANDSHAKE_HEADER)) {
+            //names of the channels opened on the connection, only accessed by the connection's thread
+            conn.setAttachment(new HashMap<Integer, String>());
+            LOGGER.info("new shared connection to {}", conn.getRemoteSocketAddress());
+        } else {
+            LOGGER.info("new connection to {}", conn.getRemoteSocketAddress());
+        }
     }
 
     @Override
@@ -56,7 +67,32 @@ public class WsBot extends WebSocketServer {
 
     @Override
     public void onMessage(WebSocket conn, ByteBuffer message) {
-        conn.send(message);
+        Map<Integer, String> channels = conn.getAttachment();
+        if (channels == null) {
+            conn.send(message);
+            return;
+        }
+        if (!MuxFrame.isValid(message)) {
+            LOGGER.warn("invalid frame of {} bytes on shared connection {}", message.remaining(), conn.getRemoteSocketAddress());
+            return;
+        }
+        int channelId = MuxFrame.getChannelId(message);
+        switch (MuxFrame.getType(message)) {
+            case MuxFrame.TYPE_OPEN:
+                message.position(message.position() + MuxFrame.HEADER_SIZE);
+                String agentName = StandardCharsets.UTF_8.decode(message).toString();
+                channels.put(channelId, agentName);
+                LOGGER.info("channel {} opened for {} on {}", channelId, agentName, conn.getRemoteSocketAddress());
+                break;
+            case MuxFrame.TYPE_CLOSE:
+                LOGGER.info("channel {} of {} closed on {}", channelId, channels.remove(channelId), conn.getRemoteSocketAddress());
+                break;
+            case MuxFrame.TYPE_DATA:
+                conn.send(message); //echoed with its header, hence on the same channel
+                break;
+            default:
+                LOGGER.warn("unknown frame type {} on shared connection {}", MuxFrame.getType(message), conn.getRemoteSocketAddress());
+        }
     }
 
     @Override
@@ -0,0 +1,97 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.DataReceiver;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Agent's RTP receiver which does not own a socket. It registers a route on the RtpIngress shared by all Agents
+ * configured with the same rtpLocalIp and rtpLocalPort, which then delivers the packets of this Agent's call to its queue.
+ */
+public class DemuxRtpReceiverImpl implements DataReceiver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DemuxRtpReceiverImpl.class);
+    private final RtpAddress rtpRemoteAddress;
+    private final MediaQueue<ByteBuffer> inboundRtpQueue;
+    private final BufferPool bufferPool;
+    private final AgentConfig agentConfig;
+    private final RtpEventLoopGroup eventLoopGroup;
+    private RtpIngress ingress;
+    private RtpRoute route;
+    /**
+     * Set by stop(), which may run before start() on the executor. Guarded by this receiver, like the route
+     */
+    private boolean exit = false;
+
+    /**
+     * Instantiates the demultiplexed RtpReceiver entity of an Agent
+     * @param rtpRemoteAddress The remote RTP address negotiated in the SDP, from which the call's packets are expected
+     * @param inboundRtpQueue The queue where the received Rtp packets are stored
+     * @param bufferPool The pool from which buffers are taken. Buffers are released by the consumer of the queue
+     * @param agentConfig The configuration the Agent to whom this RtpReceiver entity belongs
+     * @param eventLoopGroup The group of event loops one of which serves the shared ingress
+     */
+    public DemuxRtpReceiverImpl(RtpAddress rtpRemoteAddress, MediaQueue<ByteBuffer> inboundRtpQueue, BufferPool bufferPool, AgentConfig agentConfig, RtpEventLoopGroup eventLoopGroup) {
+        this.rtpRemoteAddress = rtpRemoteAddress;
+        this.inboundRtpQueue = inboundRtpQueue;
+        this.bufferPool = bufferPool;
+        this.agentConfig = agentConfig;
+        this.eventLoopGroup = eventLoopGroup;
+    }
+
+    /**
+     * Joins the shared ingress and registers the route of this Agent's call, unless the receiver was already stopped.
+     * Returns immediately.
+     */
+    @Override
+    public synchronized void start() {
+        if (exit) {
+            return; //the call already ended
+        }
+        InetSocketAddress remoteAddress = new InetSocketAddress(rtpRemoteAddress.getAddress(), rtpRemoteAddress.getPort());
+        if (remoteAddress.isUnresolved()) {
+            LOGGER.error("Could not resolve remote rtp address {} in {}", rtpRemoteAddress.getAddress(), agentConfig.getAgentName());
+            return;
+        }
+        try {
+            ingress = RtpIngress.acquire(agentConfig.getRtpLocalIp(), agentConfig.getRtpLocalPort(), eventLoopGroup);
+        } catch (IOException e) {
+            LOGGER.error("IOException in {}: {}", agentConfig.getAgentName(), e.toString());
+            return;
+        }
+        route = new RtpRoute(agentConfig.getAgentName(), remoteAddress, inboundRtpQueue, bufferPool);
+        ingress.addRoute(route);
+        LOGGER.info("{} receiving rtp from {} on shared udp:{}:{}", agentConfig.getAgentName(), remoteAddress,
+                agentConfig.getRtpLocalIp(), agentConfig.getRtpLocalPort());
+    }
+
+    /**
+     * Overridden method of Runnable which registers the route of this receiver
+     */
+    @Override
+    public void run() {
+        start();
+    }
+
+    /**
+     * Removes the route of this Agent's call and leaves the shared ingress
+     */
+    @Override
+    public synchronized void stop() {
+        exit = true;
+        if (ingress == null) {
+            return;
+        }
+        ingress.removeRoute(route);
+        RtpIngress.release(ingress);
+        ingress = null;
+        LOGGER.info("{} stopped receiving rtp on shared udp:{}:{}", agentConfig.getAgentName(), agentConfig.getRtpLocalIp(), agentConfig.getRtpLocalPort());
+    }
+}
@@ -0,0 +1,259 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.metrics.JitterBufferStats;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive jitter buffer which restores the order and timing of an inbound RTP stream before it is forwarded to the bot.
+ * Packets are held in a ring indexed by sequence number and played out at base time + (timestamp - base timestamp) / clock
+ * rate, where the base time is the arrival of the first packet delayed by the buffer depth. Duplicates and packets arriving
+ * after their playout time are dropped, and a missing packet is skipped once its playout time has passed. A new SSRC or a
+ * sequence number jumping further ahead than the buffer holds starts the stream over.
+ * The depth follows the interarrival jitter estimated as in RFC 3550 A.8, within configured bounds, and is changed gradually
+ * so that playout never jumps. Packets dropped by the buffer are released to the pool. Not thread-safe, owned by the
+ * thread forwarding media to the bot.
+ */
+public class JitterBuffer {
+
+    private static final int CAPACITY = 256; //power of two, bounds the reordering and the depth expressed in packets
+    private static final int MASK = CAPACITY - 1;
+    private static final int SEQUENCE_MODULO = 1 << 16;
+    private static final double JITTER_GAIN = 1.0 / 16; //RFC 3550 A.8
+    private static final int JITTER_MULTIPLIER = 3; //depth needed to absorb most of the jitter, assuming it is roughly normal
+    private static final long ADAPTATION_STEP_NS = TimeUnit.MILLISECONDS.toNanos(1); //per played packet
+
+    private final ByteBuffer[] slots = new ByteBuffer[CAPACITY];
+    private final int[] slotTimeStamps = new int[CAPACITY];
+    private final BufferPool bufferPool;
+    private final JitterBufferStats stats;
+    private final RtpPacketView rtpPacket = new RtpPacketView();
+    private final long clockRate;
+    private final long ptimeNs;
+    private final long minDepthNs;
+    private final long maxDepthNs;
+
+    private boolean started = false;
+    private int ssrc;
+    private int nextSequenceNumber;
+    private int highestSequenceNumber;
+    private int baseTimeStamp;
+    private long playoutBaseNs;
+    private long depthNs;
+    private long nextPlayoutNs;
+    private int bufferedPackets = 0;
+
+    private boolean hasPreviousArrival = false;
+    private double previousArrivalInTimeStampUnits;
+    private int previousTimeStamp;
+    private double jitterInTimeStampUnits = 0;
+
+    /**
+     * Creates an empty jitter buffer
+     * @param clockRate the RTP clock rate of the stream in Hz (e.g. 8000 for G.711)
+     * @param ptimeMs the packetization interval of the stream
+     * @param minDepthMs the lowest depth the buffer adapts to
+     * @param maxDepthMs the highest depth the buffer adapts to
+     * @param bufferPool the pool to which dropped packets are released
+     * @param stats the stats in which jitter, loss and depth are recorded
+     */
+    public JitterBuffer(int clockRate, int ptimeMs, int minDepthMs, int maxDepthMs, BufferPool bufferPool, JitterBufferStats stats) {
+        if (minDepthMs > maxDepthMs || (long) maxDepthMs >= (long) CAPACITY * ptimeMs) {
+            throw new IllegalArgumentException("Jitter buffer depth should be within [" + minDepthMs + ", " + maxDepthMs
+                    + "] and below " + CAPACITY * ptimeMs + "ms");
+        }
+        this.clockRate = clockRate;
+        this.ptimeNs = TimeUnit.MILLISECONDS.toNanos(ptimeMs);
+        this.minDepthNs = TimeUnit.MILLISECONDS.toNanos(minDepthMs);
+        this.maxDepthNs = TimeUnit.MILLISECONDS.toNanos(maxDepthMs);
+        this.bufferPool = bufferPool;
+        this.stats = stats;
+    }
+
+    /**
+     * Inserts a received packet. The buffer takes ownership of the packet, which is either returned later by poll() or released
+     * @param packet a valid RTP packet between its position and limit
+     * @param nowNs the arrival time of the packet, from System.nanoTime()
+     */
+    public void offer(ByteBuffer packet, long nowNs) {
+        rtpPacket.wrap(packet);
+        int sequenceNumber = rtpPacket.getSequenceNumber();
+        int timeStamp = rtpPacket.getTimeStamp();
+        int ssrc = rtpPacket.getSsrc();
+
+        if (!started) {
+            start(sequenceNumber, timeStamp, ssrc, nowNs);
+        }
+        int ahead = sequenceDistance(sequenceNumber, nextSequenceNumber);
+        if (ssrc != this.ssrc || ahead >= CAPACITY) {
+            //new stream or sequence jump forward, e.g. the remote restarted its stream: start over from this packet
+            stats.incrementResyncs();
+            clear();
+            start(sequenceNumber, timeStamp, ssrc, nowNs);
+            ahead = 0;
+        }
+        if (ahead < 0) {
+            //includes stale packets more than the capacity behind, which must not restart the stream
+            stats.incrementLate();
+            bufferPool.release(packet);
+            return;
+        }
+        int slot = sequenceNumber & MASK;
+        if (slots[slot] != null) {
+            stats.incrementDuplicates();
+            bufferPool.release(packet);
+            return;
+        }
+        updateJitter(timeStamp, nowNs); //only from the packets kept, a dropped one says nothing about the transit time
+        if (sequenceDistance(sequenceNumber, highestSequenceNumber) < 0) {
+            stats.incrementReordered();
+        } else {
+            highestSequenceNumber = sequenceNumber;
+        }
+        slots[slot] = packet;
+        slotTimeStamps[slot] = timeStamp;
+        bufferedPackets++;
+        stats.setBufferedPackets(bufferedPackets);
+    }
+
+    /**
+     * Returns the next packet in sequence if its playout time has come, skipping the missing packets whose time has passed
+     * @param nowNs the current time, from System.nanoTime()
+     * @return the packet to be played, owned by the caller, or null if no packet is due yet
+     */
+    public ByteBuffer poll(long nowNs) {
+        while (bufferedPackets > 0) {
+            int slot = nextSequenceNumber & MASK;
+            ByteBuffer packet = slots[slot];
+            if (packet != null) {
+                long playoutNs = playoutTime(slotTimeStamps[slot]);
+                if (nowNs < playoutNs) {
+                    return null;
+                }
+                slots[slot] = null;
+                bufferedPackets--;
+                stats.setBufferedPackets(bufferedPackets);
+                stats.incrementPlayed();
+                advance(playoutNs);
+                adaptDepth();
+                return packet;
+            }
+            if (nowNs < nextPlayoutNs) {
+                return null;
+            }
+            stats.incrementLost(); //missing packet, its playout time has passed
+            advance(nextPlayoutNs);
+        }
+        return null;
+    }
+
+    /**
+     * Returns how long the caller can wait before the next call to poll() may return a packet
+     * @param nowNs the current time, from System.nanoTime()
+     * @return the time to wait in nanoseconds, Long.MAX_VALUE if the buffer is empty
+     */
+    public long nanosUntilNextPlayout(long nowNs) {
+        if (bufferedPackets == 0) {
+            return Long.MAX_VALUE;
+        }
+        int slot = nextSequenceNumber & MASK;
+        long dueNs = slots[slot] != null ? playoutTime(slotTimeStamps[slot]) : nextPlayoutNs;
+        return Math.max(0, dueNs - nowNs);
+    }
+
+    /**
+     * Releases all buffered packets to the pool and forgets the stream, including its jitter
+     */
+    public void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            if (slots[i] != null) {
+                bufferPool.release(slots[i]);
+                slots[i] = null;
+            }
+        }
+        bufferedPackets = 0;
+        stats.setBufferedPackets(0);
+        started = false;
+        hasPreviousArrival = false;
+        jitterInTimeStampUnits = 0;
+        stats.setJitterUs(0);
+    }
+
+    private void start(int sequenceNumber, int timeStamp, int ssrc, long nowNs) {
+        started = true;
+        this.ssrc = ssrc;
+        nextSequenceNumber = sequenceNumber;
+        highestSequenceNumber = sequenceNumber;
+        baseTimeStamp = timeStamp;
+        depthNs = targetDepthNs();
+        playoutBaseNs = nowNs + depthNs;
+        nextPlayoutNs = playoutBaseNs;
+        stats.setDepthUs(TimeUnit.NANOSECONDS.toMicros(depthNs));
+    }
+
+    /**
+     * Moves playout to the packet following the one played (or skipped) at the given time
+     * @param playedAtNs the playout time of the packet which was played or skipped
+     */
+    private void advance(long playedAtNs) {
+        nextSequenceNumber = (nextSequenceNumber + 1) & (SEQUENCE_MODULO - 1);
+        nextPlayoutNs = playedAtNs + ptimeNs;
+    }
+
+    /**
+     * Moves the depth one step towards its target. Shifting the playout base by at most a millisecond per packet stretches
+     * or shrinks the gaps between packets instead of making playout jump
+     */
+    private void adaptDepth() {
+        long targetNs = targetDepthNs();
+        long stepNs = Math.max(-ADAPTATION_STEP_NS, Math.min(ADAPTATION_STEP_NS, targetNs - depthNs));
+        if (stepNs != 0) {
+            depthNs += stepNs;
+            playoutBaseNs += stepNs;
+            nextPlayoutNs += stepNs;
+            stats.setDepthUs(TimeUnit.NANOSECONDS.toMicros(depthNs));
+        }
+    }
+
+    private long targetDepthNs() {
+        long jitterNs = (long) (jitterInTimeStampUnits * TimeUnit.SECONDS.toNanos(1) / clockRate);
+        long targetNs = Math.max(minDepthNs, Math.min(maxDepthNs, JITTER_MULTIPLIER * jitterNs));
+        stats.setTargetDepthUs(TimeUnit.NANOSECONDS.toMicros(targetNs));
+        return targetNs;
+    }
+
+    /**
+     * Updates the interarrival jitter estimate, refer RFC 3550 A.8. Both the arrival time and the RTP timestamp are
+     * expressed in timestamp units, the difference of their deltas is the transit time variation
+     * @param timeStamp the RTP timestamp of the packet
+     * @param nowNs the arrival time of the packet
+     */
+    private void updateJitter(int timeStamp, long nowNs) {
+        double arrival = (double) nowNs * clockRate / TimeUnit.SECONDS.toNanos(1);
+        if (hasPreviousArrival) {
+            double transitDelta = (arrival - previousArrivalInTimeStampUnits) - (timeStamp - previousTimeStamp);
+            jitterInTimeStampUnits += (Math.abs(transitDelta) - jitterInTimeStampUnits) * JITTER_GAIN;
+            stats.setJitterUs((long) (jitterInTimeStampUnits * TimeUnit.SECONDS.toMicros(1) / clockRate));
+        }
+        hasPreviousArrival = true;
+        previousArrivalInTimeStampUnits = arrival;
+        previousTimeStamp = timeStamp;
+    }
+
+    private long playoutTime(int timeStamp) {
+        //int subtraction handles the wrap around of the 32 bit timestamp
+        return playoutBaseNs + (long) (timeStamp - baseTimeStamp) * TimeUnit.SECONDS.toNanos(1) / clockRate;
+    }
+
+    /**
+     * Returns the signed distance from one sequence number to another, taking the 16 bit wrap around into account
+     * @param sequenceNumber the sequence number
+     * @param reference the reference sequence number
+     * @return a value in [-32768, 32767], positive if sequenceNumber is after reference
+     */
+    private static int sequenceDistance(int sequenceNumber, int reference) {
+        return (short) (sequenceNumber - reference);
+    }
+}
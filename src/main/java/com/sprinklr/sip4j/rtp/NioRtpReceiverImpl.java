@@ -0,0 +1,148 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.DataReceiver;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+
+/**
+ * Agent's RTP receiver which receives data packets from Ozonetel on a non-blocking DatagramChannel.
+ * Unlike RtpReceiverImpl it does not occupy a thread: the channel is served by an event loop shared with other Agents.
+ */
+public class NioRtpReceiverImpl implements DataReceiver, SelectionHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioRtpReceiverImpl.class);
+    /**
+     * Upper bound of datagrams read per selection, so that one busy channel cannot starve the others on its event loop
+     */
+    private static final int MAX_DATAGRAMS_PER_SELECTION = 16;
+    private final MediaQueue<ByteBuffer> inboundRtpQueue;
+    private final BufferPool bufferPool;
+    private final AgentConfig agentConfig;
+    private final RtpEventLoop eventLoop;
+    private volatile DatagramChannel channel;
+    /**
+     * Set by stop(), which may run before start() on the executor. start() then closes the channel it has just bound
+     */
+    private volatile boolean exit = false;
+    /**
+     * Pooled buffer into which the next datagram is received. Only accessed on the event loop thread
+     */
+    private ByteBuffer receiveBuffer;
+    private final RtpPacketView rtpPacket = new RtpPacketView();
+
+    /**
+     * Instantiates the non-blocking RtpReceiver entity of an Agent
+     * @param inboundRtpQueue The queue where the received Rtp packets are stored
+     * @param bufferPool The pool from which receive buffers are taken. Buffers are released by the consumer of the queue
+     * @param agentConfig The configuration the Agent to whom this RtpReceiver entity belongs
+     * @param eventLoopGroup The group of event loops one of which will serve this receiver's channel
+     */
+    public NioRtpReceiverImpl(MediaQueue<ByteBuffer> inboundRtpQueue, BufferPool bufferPool, AgentConfig agentConfig, RtpEventLoopGroup eventLoopGroup) {
+        this.inboundRtpQueue = inboundRtpQueue;
+        this.bufferPool = bufferPool;
+        this.agentConfig = agentConfig;
+        this.eventLoop = eventLoopGroup.next();
+    }
+
+    /**
+     * Binds the channel at the specified port and address and hands it to the event loop. Returns immediately.
+     */
+    @Override
+    public void start() {
+        if (exit) {
+            return;
+        }
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.bind(new InetSocketAddress(agentConfig.getRtpLocalIp(), agentConfig.getRtpLocalPort()));
+        } catch (IOException e) {
+            LOGGER.error("IOException in {}: {}", agentConfig.getAgentName(), e.toString());
+            closeChannel();
+            return;
+        }
+        if (exit) {
+            closeChannel(); //stopped while binding, stop() may not have seen the channel
+            return;
+        }
+        eventLoop.register(channel, SelectionKey.OP_READ, this);
+        LOGGER.info("{} listening on udp:{}:{} (nio)", agentConfig.getAgentName(), agentConfig.getRtpLocalIp(), agentConfig.getRtpLocalPort());
+    }
+
+    /**
+     * Reads the pending datagrams into pooled buffers and pushes them into the inbound queue
+     * @param key the selected key of the channel
+     */
+    @Override
+    public void onSelected(SelectionKey key) {
+        try {
+            for (int i = 0; i < MAX_DATAGRAMS_PER_SELECTION; i++) {
+                if (receiveBuffer == null) {
+                    receiveBuffer = bufferPool.acquire();
+                }
+                if (channel.receive(receiveBuffer) == null) {
+                    return; //nothing more to read
+                }
+                receiveBuffer.flip();
+                if (!rtpPacket.wrap(receiveBuffer).isValid()) {
+                    receiveBuffer.clear();
+                    LOGGER.debug("Malformed rtp packet received in {}, dropping", agentConfig.getAgentName());
+                } else if (inboundRtpQueue.offer(receiveBuffer)) {
+                    receiveBuffer = null; //ownership passed to the consumer of the queue
+                } else {
+                    receiveBuffer.clear();
+                    LOGGER.warn("Inbound queue full in {}, dropping rtp packet", agentConfig.getAgentName());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("IOException in {}: {}", agentConfig.getAgentName(), e.toString());
+            key.cancel();
+            closeChannel();
+        }
+    }
+
+    /**
+     * Overridden method of Runnable which registers this receiver with its event loop
+     */
+    @Override
+    public void run() {
+        start();
+    }
+
+    /**
+     * Stops the listener. Closing the channel deregisters it from the event loop
+     */
+    @Override
+    public void stop() {
+        exit = true;
+        closeChannel();
+        eventLoop.execute(() -> {
+            if (receiveBuffer != null) {
+                bufferPool.release(receiveBuffer);
+                receiveBuffer = null;
+            }
+        });
+        LOGGER.info("{} stopped listening on udp:{}:{} (nio)", agentConfig.getAgentName(), agentConfig.getRtpLocalIp(), agentConfig.getRtpLocalPort());
+    }
+
+    private void closeChannel() {
+        DatagramChannel channel = this.channel;
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.error("IOException while closing channel in {}: {}", agentConfig.getAgentName(), e.toString());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.DataSender;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Agent's RTP sender which sends data packets to Ozonetel on a non-blocking DatagramChannel.
+ * Unlike RtpSenderImpl it does not occupy a thread: the outbound queue is drained on a shared event loop whenever
+ * the bot's packets make it non-empty.
+ */
+public class NioRtpSenderImpl implements DataSender {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioRtpSenderImpl.class);
+    private final MediaQueue<ByteBuffer> outboundRtpQueue;
+    private final BufferPool bufferPool;
+    private final RtpSession rtpSession;
+    private final RtpAddress rtpRemoteAddress;
+    private final AgentConfig agentConfig;
+    private final RtpEventLoop eventLoop;
+    private final Runnable drainTask = this::drain;
+    private DatagramChannel channel;
+    private InetSocketAddress remoteRtpAddress;
+    private volatile boolean exit = false;
+
+    /**
+     * Instantiates a non-blocking RtpSender object responsible for sending the processed audio data to the remote destination
+     *
+     * @param rtpRemoteAddress The remote RTP address where the packets are to be sent
+     * @param outboundRtpQueue The queue from which data is polled and sent to the remote destination
+     * @param bufferPool The pool to which the buffers of sent packets are released
+     * @param rtpSession The session whose header is stamped on each packet, or null if the bot sends complete RTP packets
+     * @param agentConfig The configuration of the Agent to whom this RtpSender entity belongs
+     * @param eventLoopGroup The group of event loops one of which will drain this sender's queue
+     */
+    public NioRtpSenderImpl(RtpAddress rtpRemoteAddress, MediaQueue<ByteBuffer> outboundRtpQueue, BufferPool bufferPool, RtpSession rtpSession, AgentConfig agentConfig, RtpEventLoopGroup eventLoopGroup) {
+        this.rtpRemoteAddress = rtpRemoteAddress;
+        this.outboundRtpQueue = outboundRtpQueue;
+        this.bufferPool = bufferPool;
+        this.rtpSession = rtpSession;
+        this.agentConfig = agentConfig;
+        this.eventLoop = eventLoopGroup.next();
+    }
+
+    /**
+     * Opens the channel and subscribes to the outbound queue. Returns immediately.
+     */
+    @Override
+    public void start() {
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            LOGGER.error("IOException in {}: {}", agentConfig.getAgentName(), e.toString());
+            return;
+        }
+        remoteRtpAddress = new InetSocketAddress(rtpRemoteAddress.getAddress(), rtpRemoteAddress.getPort());
+        if (remoteRtpAddress.isUnresolved()) {
+            LOGGER.error("Could not resolve remote rtp address {} in {}", rtpRemoteAddress.getAddress(), agentConfig.getAgentName());
+            return;
+        }
+
+        LOGGER.info("Starting rtp transmission from {} (nio)", agentConfig.getAgentName());
+        outboundRtpQueue.setAvailableListener(() -> eventLoop.execute(drainTask));
+        eventLoop.execute(drainTask); //send anything queued before the listener was set
+    }
+
+    /**
+     * Sends all packets currently in the outbound queue. Runs on the event loop thread
+     */
+    private void drain() {
+        ByteBuffer data;
+        while (!exit && (data = outboundRtpQueue.poll()) != null) {
+            try {
+                if (rtpSession != null) {
+                    rtpSession.stamp(data, System.nanoTime());
+                }
+                //udp send does not block, it either copies the whole datagram into the socket buffer or drops it
+                if (channel.send(data, remoteRtpAddress) == 0) {
+                    LOGGER.warn("Socket buffer full in {}, dropping rtp packet", agentConfig.getAgentName());
+                }
+            } catch (IOException e) {
+                //the packet is dropped, the queue is drained on as the listener only fires once it is empty again
+                LOGGER.error("IOException in {}, dropping rtp packet: {}", agentConfig.getAgentName(), e.toString());
+            } finally {
+                bufferPool.release(data);
+            }
+        }
+    }
+
+    /**
+     * Overridden method of Runnable which subscribes this sender to its queue
+     */
+    @Override
+    public void run() {
+        start();
+    }
+
+    /**
+     * Stops the transmission of RTP packets
+     */
+    @Override
+    public void stop() {
+        exit = true;
+        outboundRtpQueue.setAvailableListener(null);
+        eventLoop.execute(() -> {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.error("IOException while closing channel in {}: {}", agentConfig.getAgentName(), e.toString());
+            }
+        });
+        LOGGER.info("Stopping rtp transmission from {} (nio)", agentConfig.getAgentName());
+    }
+}
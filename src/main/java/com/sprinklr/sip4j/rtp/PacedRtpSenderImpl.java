@@ -0,0 +1,175 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.DataSender;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import com.sprinklr.sip4j.metrics.PacingStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Agent's RTP sender which puts packets on the wire at the packetization interval, whatever the rate at which the bot
+ * returns them, so that a burst of TTS audio does not overflow the carrier's jitter buffer.
+ * Sends are driven by a TimingWheel shared by all Agents instead of a thread per call. The sender only stays on the
+ * wheel while it has packets to send and is put back on it by the outbound queue when the bot resumes talking.
+ */
+public class PacedRtpSenderImpl implements DataSender {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PacedRtpSenderImpl.class);
+    private final MediaQueue<ByteBuffer> outboundRtpQueue;
+    private final BufferPool bufferPool;
+    private final RtpSession rtpSession;
+    private final RtpAddress rtpRemoteAddress;
+    private final AgentConfig agentConfig;
+    private final TimingWheel timingWheel;
+    private final PacingStats pacingStats;
+    private final long ptimeNs;
+    private final TimingWheel.Timeout sendTimeout = new TimingWheel.Timeout(this::sendNext);
+    /**
+     * True while the sender is not scheduled on the wheel, the thread which sets it to false schedules the next send
+     */
+    private final AtomicBoolean idle = new AtomicBoolean(true);
+    private DatagramChannel channel;
+    private InetSocketAddress remoteRtpAddress;
+    private volatile long lastSendDeadlineNs;
+    private volatile boolean hasSent = false;
+    private volatile boolean exit = false;
+
+    /**
+     * Instantiates a paced RtpSender object responsible for sending the processed audio data to the remote destination
+     *
+     * @param rtpRemoteAddress The remote RTP address where the packets are to be sent
+     * @param outboundRtpQueue The queue from which data is polled and sent to the remote destination
+     * @param bufferPool The pool to which the buffers of sent packets are released
+     * @param rtpSession The session whose header is stamped on each packet, or null if the bot sends complete RTP packets
+     * @param agentConfig The configuration of the Agent to whom this RtpSender entity belongs
+     * @param timingWheel The wheel which clocks the sends
+     * @param pacingStats The stats in which drift and bursts are recorded
+     */
+    public PacedRtpSenderImpl(RtpAddress rtpRemoteAddress, MediaQueue<ByteBuffer> outboundRtpQueue, BufferPool bufferPool, RtpSession rtpSession, AgentConfig agentConfig, TimingWheel timingWheel, PacingStats pacingStats) {
+        this.rtpRemoteAddress = rtpRemoteAddress;
+        this.outboundRtpQueue = outboundRtpQueue;
+        this.bufferPool = bufferPool;
+        this.rtpSession = rtpSession;
+        this.agentConfig = agentConfig;
+        this.timingWheel = timingWheel;
+        this.pacingStats = pacingStats;
+        this.ptimeNs = TimeUnit.MILLISECONDS.toNanos(agentConfig.getRtpPtimeMs());
+    }
+
+    /**
+     * Opens the channel and subscribes to the outbound queue. Returns immediately.
+     */
+    @Override
+    public void start() {
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            LOGGER.error("IOException in {}: {}", agentConfig.getAgentName(), e.toString());
+            return;
+        }
+        remoteRtpAddress = new InetSocketAddress(rtpRemoteAddress.getAddress(), rtpRemoteAddress.getPort());
+        if (remoteRtpAddress.isUnresolved()) {
+            LOGGER.error("Could not resolve remote rtp address {} in {}", rtpRemoteAddress.getAddress(), agentConfig.getAgentName());
+            return;
+        }
+
+        LOGGER.info("Starting paced rtp transmission from {}, ptime: {}ms", agentConfig.getAgentName(), agentConfig.getRtpPtimeMs());
+        outboundRtpQueue.setAvailableListener(this::resume);
+        resume(); //send anything queued before the listener was set
+    }
+
+    /**
+     * Puts the sender back on the wheel if it is idle. The next packet goes out one interval after the previous one,
+     * or immediately if the sender has been idle for longer than that
+     */
+    private void resume() {
+        if (exit || !idle.compareAndSet(true, false)) {
+            return;
+        }
+        long nowNs = System.nanoTime();
+        long deadlineNs = hasSent ? Math.max(nowNs, lastSendDeadlineNs + ptimeNs) : nowNs;
+        timingWheel.schedule(sendTimeout, deadlineNs);
+    }
+
+    /**
+     * Sends the packet at the head of the queue and schedules the next send one interval later. Runs on the wheel thread
+     */
+    private void sendNext() {
+        if (exit) {
+            return;
+        }
+        ByteBuffer data = outboundRtpQueue.poll();
+        if (data == null) {
+            idle.set(true);
+            //a packet offered after the poll above may have found the sender still scheduled, look again
+            if (outboundRtpQueue.size() == 0 || !idle.compareAndSet(true, false)) {
+                return;
+            }
+            data = outboundRtpQueue.poll();
+            if (data == null) {
+                idle.set(true); //taken by the drain of the queue at the end of the call
+                return;
+            }
+        }
+
+        long nowNs = System.nanoTime();
+        long deadlineNs = sendTimeout.getDeadlineNs();
+        if (nowNs - deadlineNs > ptimeNs) {
+            //fell behind the clock (e.g. a long pause of the process), restart from now instead of catching up in a burst
+            pacingStats.incrementResyncs();
+            deadlineNs = nowNs;
+        }
+        pacingStats.recordSent(nowNs - deadlineNs, outboundRtpQueue.size());
+        try {
+            if (rtpSession != null) {
+                rtpSession.stamp(data, deadlineNs); //the slot on the clock, so the timestamps do not carry the wheel's drift
+            }
+            //udp send does not block, it either copies the whole datagram into the socket buffer or drops it
+            if (channel.send(data, remoteRtpAddress) == 0) {
+                LOGGER.warn("Socket buffer full in {}, dropping rtp packet", agentConfig.getAgentName());
+            }
+        } catch (IOException e) {
+            LOGGER.error("IOException in {}: {}", agentConfig.getAgentName(), e.toString());
+        } finally {
+            bufferPool.release(data);
+        }
+        lastSendDeadlineNs = deadlineNs;
+        hasSent = true;
+        timingWheel.schedule(sendTimeout, deadlineNs + ptimeNs);
+    }
+
+    /**
+     * Overridden method of Runnable which subscribes this sender to its queue
+     */
+    @Override
+    public void run() {
+        start();
+    }
+
+    /**
+     * Stops the transmission of RTP packets
+     */
+    @Override
+    public void stop() {
+        exit = true;
+        outboundRtpQueue.setAvailableListener(null);
+        if (channel != null) {
+            try {
+                channel.close(); //a send already in progress on the wheel fails with ClosedChannelException, which is logged
+            } catch (IOException e) {
+                LOGGER.error("IOException while closing channel in {}: {}", agentConfig.getAgentName(), e.toString());
+            }
+        }
+        LOGGER.info("Stopping paced rtp transmission from {}", agentConfig.getAgentName());
+    }
+}
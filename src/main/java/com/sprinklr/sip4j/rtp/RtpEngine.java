@@ -0,0 +1,30 @@
+package com.sprinklr.sip4j.rtp;
+
+/**
+ * Defines constants for the engine used by an Agent to receive and send RTP packets
+ */
+public class RtpEngine {
+
+    /**
+     * Private constructor since it is a utility class
+     */
+    private RtpEngine() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * One blocking DatagramSocket and one thread each for receiving and sending, per Agent
+     */
+    public static final String BLOCKING = "blocking";
+
+    /**
+     * Non-blocking DatagramChannels multiplexed on the shared RtpEventLoopGroup
+     */
+    public static final String NIO = "nio";
+
+    /**
+     * One RTP socket per local address shared by all Agents, packets are demultiplexed to calls by source address and SSRC
+     */
+    public static final String SHARED = "shared";
+
+}
@@ -0,0 +1,120 @@
+package com.sprinklr.sip4j.rtp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A single thread which multiplexes the RTP channels of many Agents with a Selector, and runs tasks submitted to it.
+ */
+public class RtpEventLoop implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RtpEventLoop.class);
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean exit = false;
+
+    /**
+     * Opens the selector and starts the event loop thread
+     * @param name the name of the event loop thread
+     * @throws IOException
+     */
+    RtpEventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Runs the task on the event loop thread. Tasks must not block.
+     * @param task the task to be run
+     */
+    public void execute(Runnable task) {
+        tasks.offer(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Wakes the selector up, so that the keys of the channels closed since its last selection are deregistered and
+     * their sockets released
+     */
+    void wakeup() {
+        selector.wakeup();
+    }
+
+    /**
+     * Registers a non-blocking channel with the selector of this event loop
+     * @param channel the channel to be registered
+     * @param ops the interest operations of the channel
+     * @param handler the handler invoked on the event loop thread when the channel is ready
+     */
+    void register(SelectableChannel channel, int ops, SelectionHandler handler) {
+        execute(() -> {
+            try {
+                channel.register(selector, ops, handler);
+            } catch (ClosedChannelException e) {
+                LOGGER.warn("Channel closed before registration on {}", thread.getName());
+            }
+        });
+    }
+
+    /**
+     * Overridden method of Runnable. Selects ready channels and runs pending tasks until the loop is stopped.
+     */
+    @Override
+    public void run() {
+        LOGGER.info("{} started", thread.getName());
+        while (!exit) {
+            try {
+                selector.select();
+                runTasks();
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if (key.isValid()) {
+                        ((SelectionHandler) key.attachment()).onSelected(key);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("IOException in {}: {}", thread.getName(), e.toString());
+            } catch (RuntimeException e) {
+                //a misbehaving channel should not take down the other agents served by this loop
+                LOGGER.error("Exception in {}: {}", thread.getName(), e.toString());
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.error("IOException while closing selector of {}: {}", thread.getName(), e.toString());
+        }
+        LOGGER.info("{} stopped", thread.getName());
+    }
+
+    /**
+     * Stops the event loop. Channels still registered with it are not closed.
+     */
+    void stop() {
+        exit = true;
+        selector.wakeup();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.sprinklr.sip4j.rtp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of RtpEventLoops among which the RTP channels of all Agents are spread in round-robin.
+ * By default there is one event loop per available core, shared by the whole application.
+ */
+public class RtpEventLoopGroup {
+
+    private static final String THREAD_NAME_PREFIX = "rtp-event-loop-";
+    private final RtpEventLoop[] eventLoops;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    /**
+     * Starts the given number of event loops
+     * @param nEventLoops the number of event loops (and threads) in the group
+     * @throws IOException
+     */
+    public RtpEventLoopGroup(int nEventLoops) throws IOException {
+        eventLoops = new RtpEventLoop[nEventLoops];
+        for (int i = 0; i < nEventLoops; i++) {
+            eventLoops[i] = new RtpEventLoop(THREAD_NAME_PREFIX + i);
+        }
+    }
+
+    /**
+     * Returns the group shared by all Agents, started on first use
+     * @return the shared event loop group
+     */
+    public static RtpEventLoopGroup getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Picks the event loop to which the next channel should be assigned
+     * @return an event loop of the group
+     */
+    public RtpEventLoop next() {
+        return eventLoops[Math.floorMod(nextIndex.getAndIncrement(), eventLoops.length)];
+    }
+
+    /**
+     * Stops all event loops of the group
+     */
+    public void shutdown() {
+        for (RtpEventLoop eventLoop : eventLoops) {
+            eventLoop.stop();
+        }
+    }
+
+    /**
+     * Lazily initialises the default group, refer initialization-on-demand holder idiom
+     */
+    private static class DefaultHolder {
+        private static final RtpEventLoopGroup INSTANCE;
+        static {
+            try {
+                INSTANCE = new RtpEventLoopGroup(Runtime.getRuntime().availableProcessors());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open selectors for the default rtp event loop group", e);
+            }
+        }
+    }
+}
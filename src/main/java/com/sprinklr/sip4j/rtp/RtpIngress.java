@@ -0,0 +1,204 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.utils.LongObjectMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single RTP socket shared by many Agents. Incoming packets are routed to the inbound queue of the right call using
+ * primitive keyed lookup tables, first by source address and then by SSRC, so that the dispatch cost stays flat as the
+ * number of calls grows. A packet routed by SSRC must still come from the remote host of the call, only its port may
+ * differ. Ingresses are reference counted per local address and served by an RtpEventLoop.
+ */
+public class RtpIngress implements SelectionHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RtpIngress.class);
+    private static final Map<String, RtpIngress> INGRESSES = new HashMap<>(); //guarded by RtpIngress.class
+    private static final int MAX_DATAGRAM_SIZE = 1500; //ethernet mtu, a larger rtp packet would be fragmented anyway
+    private static final int MAX_DATAGRAMS_PER_SELECTION = 64;
+    private static final int EXPECTED_ROUTES = 1024;
+
+    private final String localAddress;
+    private final DatagramChannel channel;
+    private final RtpEventLoop eventLoop;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+    private final RtpPacketView rtpPacket = new RtpPacketView();
+    //routing tables are only accessed on the event loop thread
+    private final LongObjectMap<RtpRoute> routesByAddress = new LongObjectMap<>(EXPECTED_ROUTES);
+    private final LongObjectMap<RtpRoute> routesBySsrc = new LongObjectMap<>(EXPECTED_ROUTES);
+    private final AtomicLong unroutablePackets = new AtomicLong();
+    private final AtomicLong droppedPackets = new AtomicLong();
+    private int references = 0; //guarded by RtpIngress.class
+
+    private RtpIngress(String localAddress, DatagramChannel channel, RtpEventLoop eventLoop) {
+        this.localAddress = localAddress;
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Returns the ingress bound to the local address, binding it on first use
+     * @param localIp the local IP on which RTP is received
+     * @param localPort the local port on which RTP is received
+     * @param eventLoopGroup the group of event loops one of which will serve the ingress if it is created
+     * @return the shared ingress. Must be released with release() when no longer used
+     * @throws IOException if the socket could not be bound
+     */
+    public static synchronized RtpIngress acquire(String localIp, int localPort, RtpEventLoopGroup eventLoopGroup) throws IOException {
+        String localAddress = localIp + ":" + localPort;
+        RtpIngress ingress = INGRESSES.get(localAddress);
+        if (ingress == null) {
+            DatagramChannel channel = DatagramChannel.open();
+            try {
+                channel.configureBlocking(false);
+                channel.bind(new InetSocketAddress(localIp, localPort));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            ingress = new RtpIngress(localAddress, channel, eventLoopGroup.next());
+            ingress.eventLoop.register(channel, SelectionKey.OP_READ, ingress);
+            INGRESSES.put(localAddress, ingress);
+            LOGGER.info("Shared rtp ingress listening on udp:{}", localAddress);
+        }
+        ingress.references++;
+        return ingress;
+    }
+
+    /**
+     * Releases an ingress obtained from acquire(). The socket is closed once the last user has released it
+     * @param ingress the ingress to be released
+     */
+    public static synchronized void release(RtpIngress ingress) {
+        if (--ingress.references > 0) {
+            return;
+        }
+        INGRESSES.remove(ingress.localAddress);
+        try {
+            ingress.channel.close();
+            ingress.eventLoop.wakeup(); //the port is only released once the event loop deregistered the channel
+        } catch (IOException e) {
+            LOGGER.error("IOException while closing shared rtp ingress udp:{}: {}", ingress.localAddress, e.toString());
+        }
+        LOGGER.info("Shared rtp ingress udp:{} closed, unroutable packets: {}, dropped packets: {}",
+                ingress.localAddress, ingress.unroutablePackets.get(), ingress.droppedPackets.get());
+    }
+
+    /**
+     * Starts routing the packets sent from the route's remote address to its queue
+     * @param route the route of a call
+     */
+    void addRoute(RtpRoute route) {
+        eventLoop.execute(() -> {
+            RtpRoute previous = routesByAddress.put(route.getAddressKey(), route);
+            if (previous != null && previous != route) {
+                LOGGER.warn("Rtp route of {} replaced by {} for {}", previous.getAgentName(), route.getAgentName(), route.getRemoteAddress());
+            }
+        });
+    }
+
+    /**
+     * Stops routing packets to the route's queue
+     * @param route the route of a call
+     */
+    void removeRoute(RtpRoute route) {
+        eventLoop.execute(() -> {
+            if (routesByAddress.get(route.getAddressKey()) == route) {
+                routesByAddress.remove(route.getAddressKey());
+            }
+            if (route.getLatchedSsrc() != RtpRoute.NO_SSRC && routesBySsrc.get(route.getLatchedSsrc()) == route) {
+                routesBySsrc.remove(route.getLatchedSsrc());
+            }
+        });
+    }
+
+    /**
+     * Reads the pending datagrams and dispatches each of them to the queue of its call
+     * @param key the selected key of the shared channel
+     */
+    @Override
+    public void onSelected(SelectionKey key) {
+        try {
+            for (int i = 0; i < MAX_DATAGRAMS_PER_SELECTION; i++) {
+                receiveBuffer.clear();
+                SocketAddress source = channel.receive(receiveBuffer);
+                if (source == null) {
+                    return; //nothing more to read
+                }
+                receiveBuffer.flip();
+                if (!rtpPacket.wrap(receiveBuffer).isValid()) {
+                    unroutablePackets.incrementAndGet();
+                    continue;
+                }
+                dispatch((InetSocketAddress) source, receiveBuffer);
+            }
+        } catch (IOException e) {
+            LOGGER.error("IOException in shared rtp ingress udp:{}: {}", localAddress, e.toString());
+        }
+    }
+
+    /**
+     * Looks up the route of a packet and copies the packet into a buffer of the route's pool
+     * @param source the source address of the packet
+     * @param packet the packet, already wrapped by the rtpPacket view
+     */
+    private void dispatch(InetSocketAddress source, ByteBuffer packet) {
+        long ssrc = rtpPacket.getSsrc() & 0xFFFFFFFFL;
+        RtpRoute route = routesByAddress.get(RtpRoute.addressKey(source));
+        if (route != null && route.matches(source)) {
+            if (route.getLatchedSsrc() != ssrc) {
+                latchSsrc(route, ssrc);
+            }
+        } else {
+            route = routesBySsrc.get(ssrc);
+            //an SSRC is only 32 bits sent in clear, it does not let another host inject audio into the call
+            if (route == null || !route.getRemoteAddress().getAddress().equals(source.getAddress())) {
+                unroutablePackets.incrementAndGet();
+                return;
+            }
+        }
+
+        ByteBuffer buffer = route.getBufferPool().acquire();
+        if (packet.remaining() > buffer.capacity()) {
+            packet.limit(packet.position() + buffer.capacity()); //truncated, as a socket of the configured packet size would
+        }
+        buffer.put(packet);
+        buffer.flip();
+        if (!route.getInboundRtpQueue().offer(buffer)) {
+            route.getBufferPool().release(buffer);
+            droppedPackets.incrementAndGet();
+        }
+    }
+
+    /**
+     * Associates the SSRC of the remote stream with the route, replacing the previous SSRC of the route if any
+     * @param route the route of a call
+     * @param ssrc the SSRC as an unsigned value
+     */
+    private void latchSsrc(RtpRoute route, long ssrc) {
+        if (route.getLatchedSsrc() != RtpRoute.NO_SSRC && routesBySsrc.get(route.getLatchedSsrc()) == route) {
+            routesBySsrc.remove(route.getLatchedSsrc());
+        }
+        routesBySsrc.put(ssrc, route);
+        route.setLatchedSsrc(ssrc);
+        LOGGER.info("{} latched ssrc {} on shared rtp ingress udp:{}", route.getAgentName(), ssrc, localAddress);
+    }
+
+    public long getUnroutablePackets() {
+        return unroutablePackets.get();
+    }
+
+    public long getDroppedPackets() {
+        return droppedPackets.get();
+    }
+}
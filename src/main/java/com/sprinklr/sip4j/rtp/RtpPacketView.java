@@ -0,0 +1,242 @@
+package com.sprinklr.sip4j.rtp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.sprinklr.sip4j.utils.Constants.RTP_HEADER_SIZE;
+
+/**
+ * Zero-copy flyweight over an RTP packet held in a heap or direct ByteBuffer, refer https://dl.acm.org/doi/pdf/10.17487/RFC3550
+ * Header fields are read and written in place with absolute accesses, so neither the header nor the payload is copied
+ * and the position and limit of the wrapped buffer are never modified.
+ * A single view can be re-pointed at any number of packets with wrap(). Not thread-safe.
+ */
+public class RtpPacketView {
+
+    public static final int VERSION = 2;
+    private static final int CSRC_SIZE = 4;
+    private static final int EXTENSION_HEADER_SIZE = 4;
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+
+    /**
+     * Points the view at the packet between the position and the limit of the buffer
+     * @param buffer a big-endian buffer holding the packet
+     * @return this view
+     */
+    public RtpPacketView wrap(ByteBuffer buffer) {
+        return wrap(buffer, buffer.position(), buffer.remaining());
+    }
+
+    /**
+     * Points the view at the packet held in a region of the buffer
+     * @param buffer a big-endian buffer holding the packet
+     * @param offset the index of the first byte of the packet in the buffer
+     * @param length the length of the packet in bytes
+     * @return this view
+     */
+    public RtpPacketView wrap(ByteBuffer buffer, int offset, int length) {
+        if (buffer.order() != ByteOrder.BIG_ENDIAN) {
+            throw new IllegalArgumentException("RTP is in network byte order, buffer should be big-endian");
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Checks that the wrapped bytes hold a complete RTP packet of the supported version
+     * @return true if the header, its CSRC list and extension, and the padding all fit in the packet
+     */
+    public boolean isValid() {
+        if (length < RTP_HEADER_SIZE || getVersion() != VERSION) {
+            return false;
+        }
+        if (hasExtension() && length < getExtensionOffset() + EXTENSION_HEADER_SIZE) {
+            return false;
+        }
+        return getPayloadLength() >= 0;
+    }
+
+    /**
+     * Writes a fixed header (no padding, no extension, no CSRC) in place, as RtpPacket does for its header array
+     * @param payloadType the format of the RTP payload
+     * @param sequenceNumber the sequence number, incremented by one for each packet sent
+     * @param timeStamp the sampling instant of the first octet of the payload
+     * @param ssrc the synchronisation source of the stream
+     * @param marker the marker bit, its interpretation is defined by the profile
+     * @return this view
+     */
+    public RtpPacketView writeHeader(int payloadType, int sequenceNumber, int timeStamp, int ssrc, boolean marker) {
+        buffer.put(offset, (byte) (VERSION << 6));
+        buffer.put(offset + 1, (byte) ((marker ? 0x80 : 0) | payloadType & 0x7F));
+        buffer.putShort(offset + 2, (short) sequenceNumber);
+        buffer.putInt(offset + 4, timeStamp);
+        buffer.putInt(offset + 8, ssrc);
+        return this;
+    }
+
+    public int getVersion() {
+        return (buffer.get(offset) & 0xC0) >>> 6;
+    }
+
+    public boolean hasPadding() {
+        return (buffer.get(offset) & 0x20) != 0;
+    }
+
+    public boolean hasExtension() {
+        return (buffer.get(offset) & 0x10) != 0;
+    }
+
+    public int getCsrcCount() {
+        return buffer.get(offset) & 0x0F;
+    }
+
+    /**
+     * Sets the number of CSRC identifiers. The payload is not moved, the caller lays it out after getHeaderLength()
+     * @param csrcCount the number of CSRC identifiers, from 0 to 15
+     */
+    public void setCsrcCount(int csrcCount) {
+        buffer.put(offset, (byte) (buffer.get(offset) & 0xF0 | csrcCount & 0x0F));
+    }
+
+    public boolean isMarker() {
+        return (buffer.get(offset + 1) & 0x80) != 0;
+    }
+
+    public void setMarker(boolean marker) {
+        buffer.put(offset + 1, (byte) (buffer.get(offset + 1) & 0x7F | (marker ? 0x80 : 0)));
+    }
+
+    public int getPayloadType() {
+        return buffer.get(offset + 1) & 0x7F;
+    }
+
+    public void setPayloadType(int payloadType) {
+        buffer.put(offset + 1, (byte) (buffer.get(offset + 1) & 0x80 | payloadType & 0x7F));
+    }
+
+    public int getSequenceNumber() {
+        return buffer.getShort(offset + 2) & 0xFFFF;
+    }
+
+    public void setSequenceNumber(int sequenceNumber) {
+        buffer.putShort(offset + 2, (short) sequenceNumber);
+    }
+
+    public int getTimeStamp() {
+        return buffer.getInt(offset + 4);
+    }
+
+    public void setTimeStamp(int timeStamp) {
+        buffer.putInt(offset + 4, timeStamp);
+    }
+
+    public int getSsrc() {
+        return buffer.getInt(offset + 8);
+    }
+
+    public void setSsrc(int ssrc) {
+        buffer.putInt(offset + 8, ssrc);
+    }
+
+    /**
+     * Returns a contributing source identifier
+     * @param index the index in the CSRC list, less than getCsrcCount()
+     * @return the CSRC identifier
+     */
+    public int getCsrc(int index) {
+        return buffer.getInt(offset + RTP_HEADER_SIZE + index * CSRC_SIZE);
+    }
+
+    /**
+     * Sets a contributing source identifier
+     * @param index the index in the CSRC list, less than getCsrcCount()
+     * @param csrc the CSRC identifier
+     */
+    public void setCsrc(int index, int csrc) {
+        buffer.putInt(offset + RTP_HEADER_SIZE + index * CSRC_SIZE, csrc);
+    }
+
+    /**
+     * Returns the index in the buffer of the header extension, which follows the CSRC list
+     * @return the index of the extension's profile field
+     */
+    public int getExtensionOffset() {
+        return offset + RTP_HEADER_SIZE + getCsrcCount() * CSRC_SIZE;
+    }
+
+    /**
+     * Returns the profile specific identifier of the header extension. Only meaningful if hasExtension()
+     * @return the 16 bit profile identifier
+     */
+    public int getExtensionProfile() {
+        return buffer.getShort(getExtensionOffset()) & 0xFFFF;
+    }
+
+    /**
+     * Returns the length of the header extension data, excluding its own 4 byte header. Only meaningful if hasExtension()
+     * @return the length of the extension data in bytes
+     */
+    public int getExtensionLength() {
+        return (buffer.getShort(getExtensionOffset() + 2) & 0xFFFF) * 4;
+    }
+
+    /**
+     * Sets the extension bit and writes the extension header. The extension data is not moved, the caller lays it out
+     * after getExtensionOffset() + 4
+     * @param profile the 16 bit profile identifier
+     * @param lengthInWords the length of the extension data in 32 bit words
+     */
+    public void setExtension(int profile, int lengthInWords) {
+        buffer.put(offset, (byte) (buffer.get(offset) | 0x10));
+        buffer.putShort(getExtensionOffset(), (short) profile);
+        buffer.putShort(getExtensionOffset() + 2, (short) lengthInWords);
+    }
+
+    /**
+     * Returns the length of the header including the CSRC list and the header extension
+     * @return the header length in bytes
+     */
+    public int getHeaderLength() {
+        int headerLength = RTP_HEADER_SIZE + getCsrcCount() * CSRC_SIZE;
+        if (hasExtension()) {
+            headerLength += EXTENSION_HEADER_SIZE + getExtensionLength();
+        }
+        return headerLength;
+    }
+
+    /**
+     * Returns the index in the buffer of the first payload byte
+     * @return the payload offset
+     */
+    public int getPayloadOffset() {
+        return offset + getHeaderLength();
+    }
+
+    /**
+     * Returns the length of the payload, excluding the header and the padding
+     * @return the payload length in bytes, negative if the packet is malformed
+     */
+    public int getPayloadLength() {
+        int paddingLength = hasPadding() && length > 0 ? buffer.get(offset + length - 1) & 0xFF : 0;
+        return length - getHeaderLength() - paddingLength;
+    }
+
+    /**
+     * Returns the length of the wrapped packet
+     * @return the packet length in bytes
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public String getHeaderAsString() {
+        return "Version:" + getVersion() + " Padding:" + (hasPadding() ? 1 : 0) + " Extension: " + (hasExtension() ? 1 : 0)
+                + " CC: " + getCsrcCount() + " Marker:" + (isMarker() ? 1 : 0) + " PayloadType:" + getPayloadType()
+                + " SequenceNumber:" + getSequenceNumber() + " TimeStamp:" + getTimeStamp();
+    }
+}
@@ -2,12 +2,14 @@ package com.sprinklr.sip4j.rtp;
 
 import com.sprinklr.sip4j.agent.AgentConfig;
 import com.sprinklr.sip4j.agent.DataReceiver;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.*;
-import java.util.Queue;
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -17,17 +19,29 @@ public class RtpReceiverImpl implements DataReceiver {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RtpReceiverImpl.class);
     private static final int RTP_BLOCK_SOCKET_TIME_MS = (int) TimeUnit.SECONDS.toMillis(1);
-    private final Queue<byte[]> inboundRtpQueue;
+    private final MediaQueue<ByteBuffer> inboundRtpQueue;
+    private final BufferPool bufferPool;
     private final AgentConfig agentConfig;
+    /**
+     * Reused for every datagram, pointed at the pooled buffer being filled
+     */
+    private final DatagramPacket receivePacket = new DatagramPacket(new byte[0], 0);
+    /**
+     * Pooled buffer into which the next datagram is received, kept across socket timeouts
+     */
+    private ByteBuffer receiveBuffer;
+    private final RtpPacketView rtpPacket = new RtpPacketView();
     private volatile boolean exit = false;
 
     /**
      * Instantiates the RtpReceiver entity of an Agent
      * @param inboundRtpQueue The queue where the received Rtp packets are stored
+     * @param bufferPool The pool from which receive buffers are taken. Buffers are released by the consumer of the queue
      * @param agentConfig The configuration the Agent to whom this RtpReceiver entity belongs
      */
-    public RtpReceiverImpl(Queue<byte[]> inboundRtpQueue, AgentConfig agentConfig) {
+    public RtpReceiverImpl(MediaQueue<ByteBuffer> inboundRtpQueue, BufferPool bufferPool, AgentConfig agentConfig) {
         this.inboundRtpQueue = inboundRtpQueue;
+        this.bufferPool = bufferPool;
         this.agentConfig = agentConfig;
     }
 
@@ -54,24 +68,37 @@ public class RtpReceiverImpl implements DataReceiver {
         } catch (IOException e) {
             LOGGER.error("IOException in {}: {}", agentConfig.getAgentName(), e.toString());
             return;
+        } finally {
+            if (receiveBuffer != null) {
+                bufferPool.release(receiveBuffer);
+                receiveBuffer = null;
+            }
         }
         LOGGER.info("{} stopped listening on udp:{}:{}", agentConfig.getAgentName(), agentConfig.getRtpLocalIp(), agentConfig.getRtpLocalPort());
     }
 
     /**
-     * Helper function which receives the incoming packets and pushes them into the inboound queue
+     * Helper function which receives the incoming packets into pooled buffers and pushes them into the inbound queue
      * @param serverSocket the DatagramSocket which listens for Rtp Packets
      * @throws IOException
      */
     private void readBytes(DatagramSocket serverSocket) throws IOException {
-        byte[] receiveData;
-        DatagramPacket receivePacket;
+        if (receiveBuffer == null) {
+            receiveBuffer = bufferPool.acquire();
+        }
         try {
-            receiveData = new byte[agentConfig.getRtpPacketSize()];
-            receivePacket = new DatagramPacket(receiveData, agentConfig.getRtpPacketSize());
+            receivePacket.setData(receiveBuffer.array(), 0, receiveBuffer.capacity());
             serverSocket.receive(receivePacket);
 
-            inboundRtpQueue.offer(receivePacket.getData());
+            receiveBuffer.clear();
+            receiveBuffer.limit(receivePacket.getLength());
+            if (!rtpPacket.wrap(receiveBuffer).isValid()) {
+                LOGGER.debug("Malformed rtp packet of {} bytes received in {}, dropping", receivePacket.getLength(), agentConfig.getAgentName());
+            } else if (inboundRtpQueue.offer(receiveBuffer)) {
+                receiveBuffer = null; //ownership passed to the consumer of the queue
+            } else {
+                LOGGER.warn("Inbound queue full in {}, dropping rtp packet", agentConfig.getAgentName());
+            }
         } catch (SocketTimeoutException e) {
             //no message received, timeout, check for exit condition in while loop
         }
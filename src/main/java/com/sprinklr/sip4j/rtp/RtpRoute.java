@@ -0,0 +1,86 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Destination of the RTP packets of one call arriving on a shared RtpIngress.
+ * A route is found by the remote address negotiated in the SDP, or by the SSRC latched from the first packet received
+ * from that address (so packets keep flowing if the remote port changes mid-call, e.g. after a NAT rebinding). Packets
+ * found by SSRC are only accepted from the host of the remote address.
+ */
+class RtpRoute {
+
+    static final long NO_SSRC = -1L;
+    private final String agentName;
+    private final InetSocketAddress remoteAddress;
+    private final long addressKey;
+    private final MediaQueue<ByteBuffer> inboundRtpQueue;
+    private final BufferPool bufferPool;
+    /**
+     * SSRC of the remote stream as an unsigned value, NO_SSRC until the first packet is received. Only accessed on the
+     * event loop thread of the ingress
+     */
+    private long latchedSsrc = NO_SSRC;
+
+    RtpRoute(String agentName, InetSocketAddress remoteAddress, MediaQueue<ByteBuffer> inboundRtpQueue, BufferPool bufferPool) {
+        this.agentName = agentName;
+        this.remoteAddress = remoteAddress;
+        this.addressKey = addressKey(remoteAddress);
+        this.inboundRtpQueue = inboundRtpQueue;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Computes the routing key of a socket address without allocating. IPv4 addresses map to a unique key made of the
+     * address and the port, other addresses to a hash which has to be confirmed with matches()
+     * @param address the socket address
+     * @return the routing key
+     */
+    static long addressKey(InetSocketAddress address) {
+        //Inet4Address.hashCode() is the address itself, unlike getAddress() it does not copy
+        long hostBits = address.getAddress().hashCode() & 0xFFFFFFFFL;
+        return hostBits << 16 | address.getPort();
+    }
+
+    /**
+     * Checks whether the packet's source address belongs to this route. Only needed for non IPv4 keys, which may collide
+     * @param source the source address of a packet
+     * @return true if the packet was sent from the remote address of this route
+     */
+    boolean matches(InetSocketAddress source) {
+        return remoteAddress.getAddress() instanceof Inet4Address || remoteAddress.equals(source);
+    }
+
+    String getAgentName() {
+        return agentName;
+    }
+
+    InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    long getAddressKey() {
+        return addressKey;
+    }
+
+    MediaQueue<ByteBuffer> getInboundRtpQueue() {
+        return inboundRtpQueue;
+    }
+
+    BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    long getLatchedSsrc() {
+        return latchedSsrc;
+    }
+
+    void setLatchedSsrc(long latchedSsrc) {
+        this.latchedSsrc = latchedSsrc;
+    }
+}
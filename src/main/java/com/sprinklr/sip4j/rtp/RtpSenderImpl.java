@@ -2,6 +2,8 @@ package com.sprinklr.sip4j.rtp;
 
 import com.sprinklr.sip4j.agent.AgentConfig;
 import com.sprinklr.sip4j.agent.DataSender;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,9 +12,10 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.Queue;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
 
-import static com.sprinklr.sip4j.utils.Constants.SLEEP_CPU_TIME_MS;
+import static com.sprinklr.sip4j.utils.Constants.MEDIA_POLL_TIMEOUT_MS;
 
 /**
 Agent's RTP sender which sends data packets to Ozonetel in the RTP session
@@ -21,9 +24,12 @@ public class RtpSenderImpl implements DataSender {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RtpSenderImpl.class);
 
-    private final Queue<byte[]> outboundRtpQueue;
+    private final MediaQueue<ByteBuffer> outboundRtpQueue;
+    private final BufferPool bufferPool;
+    private final RtpSession rtpSession;
     private final RtpAddress rtpRemoteAddress;
     private final AgentConfig agentConfig;
+    private final DatagramPacket sendPacket = new DatagramPacket(new byte[0], 0);
 
     private volatile boolean exit = false;
 
@@ -32,11 +38,15 @@ public class RtpSenderImpl implements DataSender {
      *
      * @param rtpRemoteAddress The remote RTP address where the packets are to be sent
      * @param outboundRtpQueue The queue from which data is polled and sent to the remote destination
+     * @param bufferPool The pool to which the buffers of sent packets are released
+     * @param rtpSession The session whose header is stamped on each packet, or null if the bot sends complete RTP packets
      * @param agentConfig The configuration of the Agent to whom this RtpSender entity belongs
      */
-    public RtpSenderImpl(RtpAddress rtpRemoteAddress, Queue<byte[]> outboundRtpQueue, AgentConfig agentConfig) {
+    public RtpSenderImpl(RtpAddress rtpRemoteAddress, MediaQueue<ByteBuffer> outboundRtpQueue, BufferPool bufferPool, RtpSession rtpSession, AgentConfig agentConfig) {
         this.rtpRemoteAddress = rtpRemoteAddress;
         this.outboundRtpQueue = outboundRtpQueue;
+        this.bufferPool = bufferPool;
+        this.rtpSession = rtpSession;
         this.agentConfig = agentConfig;
     }
 
@@ -60,12 +70,19 @@ public class RtpSenderImpl implements DataSender {
             LOGGER.info("Starting rtp transmission from {}", agentConfig.getAgentName());
 
             while (!exit) {
-                byte[] data = outboundRtpQueue.poll(); //packet size should be correctly configured and sent from bot websocket server side
+                //packet size should be correctly configured and sent from bot websocket server side
+                ByteBuffer data = outboundRtpQueue.poll(MEDIA_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS); //woken up as soon as the bot sends a packet
                 if (data == null) {
-                    Thread.sleep(SLEEP_CPU_TIME_MS); //sleep or use blocking queue, refer https://www.baeldung.com/java-concurrent-queues
                     continue;
                 }
-                sendBytes(remoteRtpIp, remoteRtpPort, datagramSocket, data);
+                try {
+                    if (rtpSession != null) {
+                        rtpSession.stamp(data, System.nanoTime());
+                    }
+                    sendBytes(remoteRtpIp, remoteRtpPort, datagramSocket, data);
+                } finally {
+                    bufferPool.release(data);
+                }
             }
         } catch (IOException e) {
             LOGGER.error("IOException in {}: {}", agentConfig.getAgentName(), e.toString());
@@ -83,12 +100,14 @@ public class RtpSenderImpl implements DataSender {
      * @param remoteRtpIp the IP address of the remote RTP address
      * @param remoteRtpPort the port of the remote RTP address
      * @param datagramSocket the DatagramSocket used to send the data
-     * @param data the data in bytes to be sent
+     * @param data the packet to be sent, between its position and limit
      * @throws IOException
      */
-    private void sendBytes(InetAddress remoteRtpIp, int remoteRtpPort, DatagramSocket datagramSocket, byte[] data) throws IOException {
-        DatagramPacket sendPacket;
-        sendPacket = new DatagramPacket(data, data.length, remoteRtpIp, remoteRtpPort);
+    private void sendBytes(InetAddress remoteRtpIp, int remoteRtpPort, DatagramSocket datagramSocket, ByteBuffer data) throws IOException {
+        //the datagram packet is reused and points at the pooled buffer, nothing is copied or allocated per packet
+        sendPacket.setData(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        sendPacket.setAddress(remoteRtpIp);
+        sendPacket.setPort(remoteRtpPort);
         datagramSocket.send(sendPacket);
     }
 
@@ -0,0 +1,90 @@
+package com.sprinklr.sip4j.rtp;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound RTP session of a call, which lets the bot send plain audio payloads. The sender stamps the header of each
+ * packet in place, just before it goes on the wire, refer https://dl.acm.org/doi/pdf/10.17487/RFC3550 section 5.1:
+ * the SSRC and the initial sequence number and timestamp are random, the sequence number is incremented by one per
+ * packet and the timestamp by the number of samples per frame.
+ * When the bot pauses between talkspurts the timestamp keeps following the wall clock and the first packet of the next
+ * talkspurt carries the marker bit. Not thread-safe, owned by the thread which sends the packets.
+ */
+public class RtpSession {
+
+    private final RtpPacketView rtpPacket = new RtpPacketView();
+    private final int payloadType;
+    private final int ssrc;
+    private final long clockRate;
+    private final int samplesPerFrame;
+    private final long frameNs;
+    private int sequenceNumber;
+    private int timeStamp;
+    private boolean started = false;
+    /**
+     * The wall clock time matching the timestamp of the last packet. Runs ahead of the wall clock while the bot sends
+     * faster than real time, and falls behind it while the bot is silent
+     */
+    private long mediaTimeNs;
+    private long packetsStamped = 0;
+
+    /**
+     * Creates the outbound session of a call
+     * @param payloadType the payload type negotiated for the call, e.g. 0 for PCMU
+     * @param clockRate the RTP clock rate of the payload format in Hz
+     * @param ptimeMs the duration of the audio carried by each packet
+     */
+    public RtpSession(int payloadType, int clockRate, int ptimeMs) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.payloadType = payloadType;
+        this.ssrc = random.nextInt();
+        this.clockRate = clockRate;
+        this.samplesPerFrame = (int) ((long) clockRate * ptimeMs / 1000);
+        this.frameNs = TimeUnit.MILLISECONDS.toNanos(ptimeMs);
+        this.sequenceNumber = random.nextInt(1 << 16);
+        this.timeStamp = random.nextInt();
+    }
+
+    /**
+     * Writes the header of the next packet of the session in place
+     * @param packet a packet whose first RTP_HEADER_SIZE bytes from its position are reserved for the header, followed
+     *               by one frame of payload
+     * @param nowNs the send time of the packet, from System.nanoTime()
+     */
+    public void stamp(ByteBuffer packet, long nowNs) {
+        boolean marker = false;
+        if (!started) {
+            started = true;
+            marker = true;
+            mediaTimeNs = nowNs;
+        } else {
+            sequenceNumber = (sequenceNumber + 1) & 0xFFFF;
+            timeStamp += samplesPerFrame;
+            mediaTimeNs += frameNs;
+            long gapNs = nowNs - mediaTimeNs;
+            if (gapNs > frameNs) {
+                //the bot was silent: move the timestamp over the gap, in whole frames, and mark the start of the talkspurt
+                long skippedFrames = gapNs / frameNs;
+                timeStamp += (int) (skippedFrames * samplesPerFrame);
+                mediaTimeNs += skippedFrames * frameNs;
+                marker = true;
+            }
+        }
+        packetsStamped++;
+        rtpPacket.wrap(packet).writeHeader(payloadType, sequenceNumber, timeStamp, ssrc, marker);
+    }
+
+    public int getSsrc() {
+        return ssrc;
+    }
+
+    public long getClockRate() {
+        return clockRate;
+    }
+
+    public long getPacketsStamped() {
+        return packetsStamped;
+    }
+}
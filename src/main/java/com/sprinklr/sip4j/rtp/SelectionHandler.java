@@ -0,0 +1,15 @@
+package com.sprinklr.sip4j.rtp;
+
+import java.nio.channels.SelectionKey;
+
+/**
+ * Handles the readiness of a channel registered with an RtpEventLoop. Always invoked on the event loop's thread.
+ */
+interface SelectionHandler {
+
+    /**
+     * Called when the channel of the key is ready for one of its interest operations
+     * @param key the selected key
+     */
+    void onSelected(SelectionKey key);
+}
@@ -0,0 +1,240 @@
+package com.sprinklr.sip4j.rtp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hierarchical timing wheel which runs the timed media tasks of all Agents on a single thread, refer
+ * Varghese and Lauck, "Hashed and Hierarchical Timing Wheels". Scheduling and expiring a timeout is O(1) whatever the
+ * number of calls: the first level has one bucket per tick, and each higher level has one bucket per revolution of the
+ * level below, whose timeouts are cascaded down when the lower level wraps around.
+ * Tasks run on the wheel thread at the first tick at or after their deadline, so they must not block.
+ */
+public class TimingWheel implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheel.class);
+    private static final String THREAD_NAME = "rtp-timing-wheel";
+    private static final long DEFAULT_TICK_NS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int[] LEVEL_BITS = {8, 6, 6}; //256 ticks, then 64 x 256 ticks, then 64 x 16384 ticks (~17 min at 1ms)
+    private static final int N_LEVELS = LEVEL_BITS.length;
+
+    private final long tickNs;
+    private final long startNs;
+    private final Timeout[][] buckets = new Timeout[N_LEVELS][];
+    private final int[] shifts = new int[N_LEVELS];
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    /**
+     * The wheel thread, null if the ticks are driven by the caller of tick()
+     */
+    private final Thread thread;
+    private long currentTick = 0; //next tick to be processed, only accessed on the wheel thread
+    private volatile boolean exit = false;
+
+    /**
+     * A task scheduled on the wheel. A timeout is scheduled at most once at a time, and is typically rescheduled from its
+     * own task, so that a periodic task does not allocate.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private volatile long deadlineNs;
+        private long deadlineTick;
+        private Timeout next;
+
+        public Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Returns the deadline with which the timeout was last scheduled
+         * @return the deadline in System.nanoTime() units
+         */
+        public long getDeadlineNs() {
+            return deadlineNs;
+        }
+    }
+
+    /**
+     * Starts the wheel thread
+     * @param tickNs the resolution of the wheel, tasks run at most one tick (plus scheduling latency) after their deadline
+     */
+    public TimingWheel(long tickNs) {
+        this(tickNs, System.nanoTime(), true);
+    }
+
+    /**
+     * Creates a wheel whose tick 0 is at the given time
+     * @param tickNs the resolution of the wheel
+     * @param startNs the time of tick 0, in System.nanoTime() units
+     * @param startThread whether to start the wheel thread, otherwise the ticks are processed by calling tick()
+     */
+    TimingWheel(long tickNs, long startNs, boolean startThread) {
+        this.tickNs = tickNs;
+        int shift = 0;
+        for (int level = 0; level < N_LEVELS; level++) {
+            buckets[level] = new Timeout[1 << LEVEL_BITS[level]];
+            shifts[level] = shift;
+            shift += LEVEL_BITS[level];
+        }
+        this.startNs = startNs;
+        if (startThread) {
+            this.thread = new Thread(this, THREAD_NAME);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        } else {
+            this.thread = null;
+        }
+    }
+
+    /**
+     * Returns the wheel shared by all Agents, started on first use with a 1ms tick
+     * @return the shared timing wheel
+     */
+    public static TimingWheel getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Schedules the timeout's task to run at the given time. May be called from any thread
+     * @param timeout a timeout which is not currently scheduled
+     * @param deadlineNs the time at which the task should run, in System.nanoTime() units
+     */
+    public void schedule(Timeout timeout, long deadlineNs) {
+        timeout.deadlineNs = deadlineNs;
+        //ceiling, so that a task never runs before its deadline
+        timeout.deadlineTick = Math.floorDiv(deadlineNs - startNs + tickNs - 1, tickNs);
+        if (Thread.currentThread() == thread) {
+            insert(timeout);
+        } else {
+            pending.offer(timeout);
+        }
+    }
+
+    /**
+     * Overridden method of Runnable. Processes one tick per tickNs until the wheel is stopped.
+     */
+    @Override
+    public void run() {
+        LOGGER.info("{} started, tick: {}us", THREAD_NAME, TimeUnit.NANOSECONDS.toMicros(tickNs));
+        while (!exit) {
+            long waitNs = startNs + currentTick * tickNs - System.nanoTime();
+            if (waitNs > 0) {
+                LockSupport.parkNanos(this, waitNs);
+                continue;
+            }
+            tick();
+        }
+        LOGGER.info("{} stopped", THREAD_NAME);
+    }
+
+    /**
+     * Processes the next tick, whether or not its time has come. Called by the wheel thread, or by the owner of a wheel
+     * created without one
+     */
+    void tick() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            insert(timeout);
+        }
+        processTick();
+    }
+
+    /**
+     * Returns the next tick to be processed
+     * @return the number of ticks processed since the wheel started
+     */
+    long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Stops the wheel thread. Timeouts still scheduled never run.
+     */
+    public void stop() {
+        exit = true;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Cascades the higher levels if the lower levels wrapped around, then runs the timeouts of the current tick
+     */
+    private void processTick() {
+        long tick = currentTick;
+        for (int level = N_LEVELS - 1; level > 0; level--) {
+            if ((tick & ((1L << shifts[level]) - 1)) == 0) {
+                Timeout cascaded = detach(level, tick);
+                while (cascaded != null) {
+                    Timeout next = cascaded.next;
+                    insert(cascaded);
+                    cascaded = next;
+                }
+            }
+        }
+        Timeout expired = detach(0, tick);
+        currentTick = tick + 1; //timeouts rescheduled by the tasks below go to the following ticks
+        while (expired != null) {
+            Timeout next = expired.next;
+            expired.next = null;
+            if (expired.deadlineTick > tick) {
+                insert(expired); //placed at the end of the wheel's range, not due yet
+            } else {
+                runTask(expired);
+            }
+            expired = next;
+        }
+    }
+
+    /**
+     * Places the timeout in the lowest level whose range covers its deadline. Deadlines beyond the range of the wheel are
+     * placed in the last bucket of the highest level, and cascaded again until they are due
+     */
+    private void insert(Timeout timeout) {
+        long tick = Math.max(timeout.deadlineTick, currentTick);
+        for (int level = 0; level < N_LEVELS; level++) {
+            int shift = shifts[level];
+            long distance = (tick >> shift) - (currentTick >> shift);
+            int size = buckets[level].length;
+            //level 0 is visited every tick, a higher level bucket is only visited once per revolution of its level
+            boolean inRange = level == 0 ? tick - currentTick < size : distance <= size;
+            if (!inRange && level == N_LEVELS - 1) {
+                tick = ((currentTick >> shift) + size) << shift;
+                inRange = true;
+            }
+            if (inRange) {
+                int index = (int) ((tick >> shift) & (size - 1));
+                timeout.next = buckets[level][index];
+                buckets[level][index] = timeout;
+                return;
+            }
+        }
+    }
+
+    private Timeout detach(int level, long tick) {
+        int index = (int) ((tick >> shifts[level]) & (buckets[level].length - 1));
+        Timeout head = buckets[level][index];
+        buckets[level][index] = null;
+        return head;
+    }
+
+    private void runTask(Timeout timeout) {
+        try {
+            timeout.task.run();
+        } catch (RuntimeException e) {
+            //a misbehaving task should not take down the other agents served by this wheel
+            LOGGER.error("Exception in {}: {}", THREAD_NAME, e.toString());
+        }
+    }
+
+    /**
+     * Lazily initialises the default wheel, refer initialization-on-demand holder idiom
+     */
+    private static class DefaultHolder {
+        private static final TimingWheel INSTANCE = new TimingWheel(DEFAULT_TICK_NS);
+    }
+}
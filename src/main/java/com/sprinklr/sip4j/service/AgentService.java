@@ -2,19 +2,27 @@ package com.sprinklr.sip4j.service;
 
 import com.sprinklr.sip4j.agent.Agent;
 import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.AgentConfigRegistry;
+import com.sprinklr.sip4j.agent.AgentConfigValidator;
 import com.sprinklr.sip4j.agent.AgentManager;
+import com.sprinklr.sip4j.agent.ExecutionMode;
+import com.sprinklr.sip4j.utils.VirtualThreads;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.yaml.snakeyaml.Yaml;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 /**
 Service class for Agent
@@ -22,54 +30,278 @@ Service class for Agent
 @Service
 public class AgentService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(AgentService.class);
     private static final String YAML_CONFIG_DIR = "src/main/resources/yaml/";
-    private static final int N_AGENTS = 3;
-    private final ThreadPoolExecutor executor;
+    /**
+     * Agents of a provisioning request which may be starting at the same time, i.e. created their SIP stack but are not ready yet
+     */
+    private static final int MAX_CONCURRENT_STARTUPS = 32;
+    /**
+     * Runs the Agents whose execution mode is platform, one thread each for as long as the Agent runs
+     */
+    private final ExecutorService executor;
+    /**
+     * Runs the Agents whose execution mode is virtual, one virtual thread each. Created when the first one is started
+     */
+    private ExecutorService virtualExecutor; //guarded by this, as is shutDown
+    private boolean shutDown = false;
     private final AgentManager agentManager;
-    private final Yaml yaml;
+    private final Path yamlConfigDir;
+    private final AgentConfigRegistry configRegistry;
+    private final Semaphore startupPermits = new Semaphore(MAX_CONCURRENT_STARTUPS);
 
     /**
-     * Initialises the member variables. Assigns a ThreadPoolExecutor, AgentManager and Yaml for the service
+     * Initialises the member variables. Assigns an ExecutorService, AgentManager and AgentConfigRegistry for the service
      */
     public AgentService() {
-        executor = (ThreadPoolExecutor) Executors.newCachedThreadPool();
-        executor.setCorePoolSize(N_AGENTS);
-        executor.setMaximumPoolSize(N_AGENTS);
+        this(Paths.get(YAML_CONFIG_DIR));
+    }
+
+    /**
+     * Initialises the service with the agent configurations of a directory. If the directory cannot be read or watched
+     * the error is logged and the service starts without configurations, so no Agent can be started
+     * @param yamlConfigDir the directory of the agent{id}.yaml files
+     */
+    AgentService(Path yamlConfigDir) {
+        executor = Executors.newCachedThreadPool();
         agentManager = new AgentManager();
-        yaml = new Yaml();
+        this.yamlConfigDir = yamlConfigDir;
+        AgentConfigRegistry registry;
+        try {
+            registry = new AgentConfigRegistry(yamlConfigDir);
+        } catch (IOException e) {
+            LOGGER.error("Could not load agent configurations from {}, no Agent can be started: {}", yamlConfigDir, e.toString());
+            registry = AgentConfigRegistry.empty();
+        }
+        configRegistry = registry;
     }
 
     /**
-     * Starts agent by id
+     * Starts agent by id, with the configuration of its agent{id}.yaml as last loaded by the registry
      * @param id id of the agent to be started
-     * @throws IOException
+     * @throws IOException if there is no configuration for this id
      */
     public void startAgent(String id) throws IOException {
-        InputStream ymlStream = Files.newInputStream(Paths.get(YAML_CONFIG_DIR + "agent" + id + ".yaml"));
-        AgentConfig config = yaml.loadAs(ymlStream, AgentConfig.class);
-        Agent agent = new Agent(config);
-        agentManager.addAgent(agent, config);
-        executor.submit(agent);
+        long loadStartNs = System.nanoTime();
+        AgentConfig config = configRegistry.getConfig(id);
+        if (config == null) {
+            throw new NoSuchFileException(yamlConfigDir.resolve("agent" + id + ".yaml").toString(), null, "No configuration for agent " + id);
+        }
+        List<String> errors = AgentConfigValidator.validate(config);
+        Agent agent = new Agent(config, loadStartNs);
+        if (errors.isEmpty()) {
+            errors = agentManager.addAgent(agent, config);
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("Cannot start agent " + id + ": " + String.join(", ", errors));
+        }
+        try {
+            launch(agent);
+        } catch (RuntimeException e) {
+            agentManager.removeAgent(agent);
+            throw e;
+        }
+    }
+
+    /**
+     * Validates a batch of Agent configurations and starts the Agents of the valid ones. A configuration is rejected if a
+     * field is missing or out of range, or if its name or local addresses are taken by a running Agent or by an earlier
+     * configuration of the batch. Local ports left at 0 are handed out by the AgentManager. At most MAX_CONCURRENT_STARTUPS
+     * Agents are starting at a time, the others wait for one of them to be ready
+     * @param configs the configurations of the Agents to be started
+     * @return one future per configuration, in the same order, completed with a status line once the Agent is ready, has
+     * failed to start or has been rejected
+     */
+    public List<CompletableFuture<String>> provisionAgents(List<AgentConfig> configs) {
+        long loadStartNs = System.nanoTime();
+        List<CompletableFuture<String>> results = new ArrayList<>(configs.size());
+        List<Agent> accepted = new ArrayList<>(configs.size());
+        for (AgentConfig config : configs) {
+            List<String> errors = AgentConfigValidator.validate(config);
+            Agent agent = new Agent(config, loadStartNs);
+            if (errors.isEmpty()) {
+                errors = agentManager.addAgent(agent, config);
+            }
+            if (!errors.isEmpty()) {
+                results.add(CompletableFuture.completedFuture(config.getAgentName() + " rejected: " + String.join(", ", errors)));
+                continue;
+            }
+            accepted.add(agent);
+            results.add(agent.getReady().handle((ready, e) -> e == null
+                    ? config.getAgentName() + " ready on sip port " + config.getSipLocalPort() + " rtp port " + config.getRtpLocalPort() + " " + agent.getStats().getStartup()
+                    : config.getAgentName() + " failed: " + e));
+        }
+        if (!accepted.isEmpty()) {
+            try {
+                executor.execute(() -> startWithPermits(accepted));
+            } catch (RejectedExecutionException e) {
+                accepted.forEach(agent -> abandon(agent, new IllegalStateException("Agents can no longer be started, the service is shut down")));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Starts Agents one after the other, each once a startup permit is available. A permit is released when its Agent is ready or has failed
+     * @param agents the Agents to be started
+     */
+    private void startWithPermits(List<Agent> agents) {
+        for (int i = 0; i < agents.size(); i++) {
+            Agent agent = agents.get(i);
+            try {
+                startupPermits.acquire();
+            } catch (InterruptedException e) {
+                LOGGER.error("Interrupted while provisioning {}, {} Agents not started", agent.getConfig().getAgentName(), agents.size() - i);
+                Thread.currentThread().interrupt();
+                agents.subList(i, agents.size()).forEach(notStarted -> abandon(notStarted, e));
+                return;
+            }
+            agent.getReady().whenComplete((ready, e) -> startupPermits.release());
+            try {
+                launch(agent);
+            } catch (RejectedExecutionException e) {
+                abandon(agent, new IllegalStateException("Agents can no longer be started, the service is shut down"));
+            } catch (RuntimeException e) {
+                LOGGER.error("Could not start {}: {}", agent.getConfig().getAgentName(), e.toString());
+                abandon(agent, e);
+            }
+        }
+    }
+
+    /**
+     * Runs an Agent added to the AgentManager, and removes it from the manager once it has finished so that its ports are released
+     * @param agent the Agent
+     * @throws RejectedExecutionException if the service is shut down
+     * @throws RuntimeException if the executor of the Agent's execution mode cannot be created
+     */
+    private void launch(Agent agent) {
+        getExecutor(agent.getConfig()).execute(() -> {
+            try {
+                agent.run();
+            } finally {
+                agentManager.removeAgent(agent);
+            }
+        });
+    }
+
+    /**
+     * Removes an Agent which will not be started, so that its name and addresses can be provisioned again
+     */
+    private void abandon(Agent agent, Exception cause) {
+        agentManager.removeAgent(agent);
+        agent.getReady().completeExceptionally(cause);
+    }
+
+    /**
+     * Returns the executor on which an Agent runs, for the execution mode selected in its configuration
+     * @param config configuration of the Agent
+     * @return the executor
+     * @throws RejectedExecutionException if the service is shut down and no virtual Agent was started before
+     */
+    synchronized ExecutorService getExecutor(AgentConfig config) {
+        switch (config.getExecutionMode()) {
+            case ExecutionMode.PLATFORM:
+                return executor;
+            case ExecutionMode.VIRTUAL:
+                if (virtualExecutor == null) {
+                    if (shutDown) {
+                        throw new RejectedExecutionException("Agents can no longer be started, the service is shut down");
+                    }
+                    virtualExecutor = VirtualThreads.newThreadPerTaskExecutor("agent-");
+                }
+                return virtualExecutor;
+            default:
+                throw new IllegalArgumentException("Unknown execution mode " + config.getExecutionMode() + " for " + config.getAgentName());
+        }
     }
 
     /**
-     * Shows statuses of all active agents
+     * Stops an agent by name. It takes no more calls and stops once its calls in progress have ended
+     * @param agentName name of the agent to be stopped
+     * @return whether the agent was found
+     */
+    public boolean stopAgent(String agentName) {
+        Agent agent = agentManager.getAgentByName(agentName);
+        if (agent == null) {
+            return false;
+        }
+        agent.stop();
+        return true;
+    }
+
+    /**
+     * Shows statuses of all active agents, followed by the states of their calls in progress
      * @return The statuses of all active agents
      */
     public List<String> showAllStatus() {
         List<String> statuses = new ArrayList<>();
         for (String agentName : agentManager.getNames()) {
-            String status = agentName + " " + agentManager.getAgentByName(agentName).getState();
+            Agent agent = agentManager.getAgentByName(agentName);
+            if (agent == null) {
+                continue; //finished in the meantime
+            }
+            String status = agentName + " " + agent.getState() + " " + agent.getCalls();
             statuses.add(status);
         }
         return statuses;
     }
 
     /**
-     * Shuts down executor service. No more Agents can be started once this is called
+     * Shows the agents of the warm pool which are registered and can answer a call without delay, with their free call slots
+     * @return The idle agents of the warm pool
      */
-    public void shutdown() {
+    public List<String> showWarmPool() {
+        List<String> idleAgents = new ArrayList<>();
+        for (String agentName : agentManager.getNames()) {
+            Agent agent = agentManager.getAgentByName(agentName);
+            if (agent == null) {
+                continue;
+            }
+            int idleSlots = agent.getIdleCallSlots();
+            if (agent.getConfig().isWarmPoolEnabled() && idleSlots > 0) {
+                idleAgents.add(agentName + " idle call slots: " + idleSlots);
+            }
+        }
+        return idleAgents;
+    }
+
+    /**
+     * Shows media metrics of all active agents
+     * @return The media metrics of all active agents
+     */
+    public List<String> showAllStats() {
+        List<String> stats = new ArrayList<>();
+        for (String agentName : agentManager.getNames()) {
+            Agent agent = agentManager.getAgentByName(agentName);
+            if (agent != null) {
+                stats.add(agentName + " " + agent.getStats());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Shows the usage of the local port ranges from which agents get the ports left at 0 in their configuration
+     * @return The free and quarantined ports of each range
+     */
+    public String showPorts() {
+        return agentManager.getPortUsage();
+    }
+
+    /**
+     * Shuts down executor service and stops watching the agent configurations. No more Agents can be started once this is called
+     */
+    public synchronized void shutdown() {
+        try {
+            configRegistry.close();
+        } catch (IOException e) {
+            LOGGER.error("Error while closing the agent configuration registry: {}", e.toString());
+        }
+        shutDown = true;
         executor.shutdown();
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        }
     }
 
 
@@ -0,0 +1,130 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.utils.DigestMD5Converter;
+
+import javax.sip.address.URI;
+import javax.sip.header.AuthorizationHeader;
+import javax.sip.header.WWWAuthenticateHeader;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.sprinklr.sip4j.sip.SipAllFactories.HEADER_FACTORY;
+
+/**
+ * Remembers the last digest challenge of the registrar, so that REGISTER refreshes carry an Authorization header
+ * pre-emptively and are accepted without a 401 round trip. HA1 is computed once per realm. When the challenge offers
+ * qop=auth, each request uses the next nonce-count and a fresh cnonce, as RFC 2617 requires to reuse a nonce; otherwise
+ * the RFC 2069 response is reused until the registrar issues a new nonce.
+ * A challenge which follows a rejected answer, and is not marked stale, means that the credentials are wrong: it is not
+ * answered, so that a wrong password does not loop on 401s.
+ */
+public class DigestAuthCache {
+
+    private static final String AUTHENTICATION_SCHEME = "Digest";
+    private static final String QOP_AUTH = "auth";
+
+    private final String username;
+    private final String password;
+    private final Map<String, String> ha1ByRealm = new HashMap<>(); //guarded by this
+    private WWWAuthenticateHeader challenge; //guarded by this, null until the registrar has challenged the Agent
+    private boolean qopAuth; //guarded by this
+    private int nonceCount; //guarded by this
+    private boolean confirmed; //guarded by this, whether the registrar has accepted an answer to the current challenge
+
+    public DigestAuthCache(String username, String password) {
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Stores a challenge received in a 401 response
+     * @param wwwAuthenticateHeader the challenge
+     * @throws SipIncorrectAuthenticationSchemeException if the scheme is not Digest
+     * @throws SipAuthenticationRejectedException if the registrar rejected the answer to the previous challenge
+     */
+    public synchronized void challenge(WWWAuthenticateHeader wwwAuthenticateHeader) {
+        if (!AUTHENTICATION_SCHEME.equals(wwwAuthenticateHeader.getScheme())) {
+            throw new SipIncorrectAuthenticationSchemeException(wwwAuthenticateHeader.getScheme() + " not valid. Expected " + AUTHENTICATION_SCHEME);
+        }
+        if (challenge != null && !confirmed && !wwwAuthenticateHeader.isStale()) {
+            challenge = null; //the next attempt starts over without credentials
+            throw new SipAuthenticationRejectedException("Credentials of " + username + " rejected in realm " + wwwAuthenticateHeader.getRealm());
+        }
+        challenge = wwwAuthenticateHeader;
+        qopAuth = offersQopAuth(wwwAuthenticateHeader.getQop());
+        nonceCount = 0;
+        confirmed = false;
+    }
+
+    /**
+     * Records that a request authorized with the current challenge was accepted, so the nonce can keep being used
+     */
+    public synchronized void confirm() {
+        confirmed = challenge != null;
+    }
+
+    /**
+     * Answers the current challenge for a request
+     * @param method the method of the request
+     * @param uri the Request-URI of the request
+     * @return the Authorization header, null if the registrar has not challenged the Agent yet
+     * @throws ParseException
+     * @throws NoSuchAlgorithmException
+     */
+    public synchronized AuthorizationHeader authorize(String method, URI uri) throws ParseException, NoSuchAlgorithmException {
+        if (challenge == null) {
+            return null;
+        }
+        String realm = challenge.getRealm();
+        String ha1 = ha1ByRealm.get(realm);
+        if (ha1 == null) {
+            ha1 = DigestMD5Converter.ha1(username, realm, password);
+            ha1ByRealm.put(realm, ha1);
+        }
+
+        AuthorizationHeader authorizationHeader = HEADER_FACTORY.createAuthorizationHeader(challenge.getScheme());
+        String nonce = challenge.getNonce();
+        if (qopAuth) {
+            nonceCount++;
+            String cnonce = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            authorizationHeader.setResponse(DigestMD5Converter.digestResponseFromNonce(ha1, method, uri.toString(), nonce,
+                    String.format("%08x", nonceCount), cnonce, QOP_AUTH));
+            authorizationHeader.setQop(QOP_AUTH);
+            authorizationHeader.setNonceCount(nonceCount);
+            authorizationHeader.setCNonce(cnonce);
+        } else {
+            authorizationHeader.setResponse(DigestMD5Converter.digestResponseFromNonce(ha1, method, uri.toString(), nonce));
+        }
+        if (challenge.getAlgorithm() != null) {
+            authorizationHeader.setAlgorithm(challenge.getAlgorithm());
+        }
+        if (challenge.getOpaque() != null) {
+            authorizationHeader.setOpaque(challenge.getOpaque());
+        }
+        authorizationHeader.setNonce(nonce);
+        authorizationHeader.setRealm(realm);
+        authorizationHeader.setUsername(username);
+        authorizationHeader.setURI(uri);
+        return authorizationHeader;
+    }
+
+    /**
+     * Checks whether the qop options of a challenge, e.g. "auth,auth-int", include auth
+     * @param qop the qop parameter of the challenge, null if absent
+     * @return whether qop=auth can be used
+     */
+    private static boolean offersQopAuth(String qop) {
+        if (qop == null) {
+            return false;
+        }
+        for (String option : qop.split(",")) {
+            if (QOP_AUTH.equalsIgnoreCase(option.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
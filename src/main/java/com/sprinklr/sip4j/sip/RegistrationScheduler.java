@@ -0,0 +1,212 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.metrics.RegistrationStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules the REGISTER requests of all Agents on a few shared threads, instead of a java.util.Timer thread per Agent.
+ * Refreshes are spread with jitter, so that Agents started together do not keep registering in the same instant: the
+ * first attempt is delayed by a random part of the initial spread, and each refresh happens up to 10% before the refresh
+ * interval. An Agent which starts alone, while no other first attempt is pending, registers immediately. Failed attempts
+ * are retried with exponential backoff and jitter, capped at the refresh interval.
+ * Attempts only send the request, the outcome is reported by the SipExtension with registered() or failed().
+ */
+public class RegistrationScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegistrationScheduler.class);
+    private static final String THREAD_NAME_PREFIX = "sip-registration-";
+    private static final int DEFAULT_THREADS = 2;
+    private static final long DEFAULT_INITIAL_SPREAD_MS = 1000;
+    private static final long DEFAULT_MIN_BACKOFF_MS = 1000;
+    private static final long DEFAULT_MAX_BACKOFF_MS = 60_000;
+    private static final double REFRESH_JITTER = 0.1;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final long initialSpreadMs;
+    private final long minBackoffMs;
+    private final long maxBackoffMs;
+    /**
+     * Registrations started whose first attempt has not been sent yet
+     */
+    private final AtomicInteger pendingFirstAttempts = new AtomicInteger();
+
+    /**
+     * Starts the scheduler threads
+     * @param threads the number of threads sending the requests
+     * @param initialSpreadMs the interval over which first attempts are spread, 0 to send them immediately
+     * @param minBackoffMs the delay before retrying after a first failure
+     * @param maxBackoffMs the maximum delay before retrying after consecutive failures
+     */
+    public RegistrationScheduler(int threads, long initialSpreadMs, long minBackoffMs, long maxBackoffMs) {
+        if (threads <= 0 || initialSpreadMs < 0 || minBackoffMs <= 0 || maxBackoffMs < minBackoffMs) {
+            throw new IllegalArgumentException("Invalid registration scheduler: " + threads + " threads, initial spread "
+                    + initialSpreadMs + "ms, backoff " + minBackoffMs + "-" + maxBackoffMs + "ms");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true); //Agents which stop do not leave their next refresh in the queue
+        this.initialSpreadMs = initialSpreadMs;
+        this.minBackoffMs = minBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    /**
+     * Returns the scheduler shared by all Agents, started on first use
+     * @return the shared registration scheduler
+     */
+    public static RegistrationScheduler getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Creates the registration of an Agent, whose first attempt is scheduled by Registration.start()
+     * @param name the name of the Agent, for logging
+     * @param register sends the REGISTER request. Runs on a scheduler thread, so it must not block
+     * @param refreshIntervalMs the interval between successful registrations, 0 to register only once
+     * @param stats the metrics of the Agent's registrations
+     * @return the registration, to which the outcome of each attempt must be reported
+     */
+    public Registration newRegistration(String name, Runnable register, long refreshIntervalMs, RegistrationStats stats) {
+        return new Registration(name, register, refreshIntervalMs, stats);
+    }
+
+    /**
+     * Stops the scheduler threads. Pending attempts are dropped
+     */
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The registration of an Agent, whose attempts are scheduled one at a time
+     */
+    public final class Registration {
+        private final String name;
+        private final Runnable register;
+        private final long refreshIntervalMs;
+        private final RegistrationStats stats;
+        private ScheduledFuture<?> next; //guarded by this
+        private long attemptStartNs = 0; //guarded by this, 0 if no attempt is waiting for its outcome
+        private int consecutiveFailures = 0; //guarded by this
+        private boolean cancelled = false; //guarded by this
+        private boolean firstAttemptPending = false; //guarded by this
+
+        private Registration(String name, Runnable register, long refreshIntervalMs, RegistrationStats stats) {
+            this.name = name;
+            this.register = register;
+            this.refreshIntervalMs = refreshIntervalMs;
+            this.stats = stats;
+        }
+
+        /**
+         * Schedules the first attempt immediately if no other registration is about to be sent, otherwise after a random
+         * part of the initial spread
+         */
+        public synchronized void start() {
+            firstAttemptPending = true;
+            boolean alone = pendingFirstAttempts.getAndIncrement() == 0;
+            scheduleIn(alone || initialSpreadMs == 0 ? 0 : ThreadLocalRandom.current().nextLong(initialSpreadMs));
+        }
+
+        /**
+         * Reports that the registrar accepted the pending attempt, and schedules the next refresh
+         */
+        public synchronized void registered() {
+            if (cancelled || attemptStartNs == 0) {
+                return;
+            }
+            stats.recordSuccess(System.nanoTime() - attemptStartNs);
+            attemptStartNs = 0;
+            consecutiveFailures = 0;
+            if (refreshIntervalMs > 0) {
+                long jitterMs = (long) (refreshIntervalMs * REFRESH_JITTER * ThreadLocalRandom.current().nextDouble());
+                scheduleIn(refreshIntervalMs - jitterMs);
+            }
+        }
+
+        /**
+         * Reports that the pending attempt failed, and schedules a retry after a backoff
+         */
+        public synchronized void failed() {
+            if (cancelled || attemptStartNs == 0) {
+                return;
+            }
+            stats.recordFailure();
+            attemptStartNs = 0;
+            consecutiveFailures++;
+            long backoffMs = maxBackoffMs;
+            if (consecutiveFailures < Long.SIZE - 1) {
+                backoffMs = Math.min(maxBackoffMs, minBackoffMs << (consecutiveFailures - 1));
+            }
+            if (refreshIntervalMs > 0) {
+                backoffMs = Math.min(backoffMs, refreshIntervalMs);
+            }
+            //equal jitter, half of the backoff is kept so that retries never come faster than intended
+            long delayMs = backoffMs / 2 + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1);
+            LOGGER.warn("Registration of {} failed {} times in a row, retrying in {}ms", name, consecutiveFailures, delayMs);
+            scheduleIn(delayMs);
+        }
+
+        /**
+         * Stops registering, e.g. when the Agent shuts down. Outcomes reported afterwards are ignored
+         */
+        public synchronized void cancel() {
+            cancelled = true;
+            firstAttemptSent();
+            if (next != null) {
+                next.cancel(false);
+                next = null;
+            }
+        }
+
+        private synchronized void scheduleIn(long delayMs) {
+            if (cancelled) {
+                return;
+            }
+            if (next != null) {
+                next.cancel(false);
+            }
+            next = executor.schedule(this::attempt, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void firstAttemptSent() {
+            if (firstAttemptPending) {
+                firstAttemptPending = false;
+                pendingFirstAttempts.decrementAndGet();
+            }
+        }
+
+        private void attempt() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                attemptStartNs = System.nanoTime();
+                stats.recordAttempt();
+                firstAttemptSent();
+            }
+            try {
+                register.run(); //outside the lock, a response may be reported from the SIP stack's thread meanwhile
+            } catch (RuntimeException e) {
+                LOGGER.error("Error while registering {}: {}", name, e.toString());
+                failed();
+            }
+        }
+    }
+
+    private static class DefaultHolder {
+        private static final RegistrationScheduler INSTANCE = new RegistrationScheduler(DEFAULT_THREADS,
+                DEFAULT_INITIAL_SPREAD_MS, DEFAULT_MIN_BACKOFF_MS, DEFAULT_MAX_BACKOFF_MS);
+    }
+}
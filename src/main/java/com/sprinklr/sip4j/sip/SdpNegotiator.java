@@ -0,0 +1,119 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers the SDP offers of an Agent's calls. The Agent sends and receives a single codec, its rtpPayloadType at
+ * rtpClockRate, packetized every rtpPtimeMs: an offer is accepted if its audio stream includes that payload type and
+ * its maxptime, if any, allows that ptime. The payload type is a static one, so it is matched by number. The answer is rendered once per Agent when the negotiator is created, and only
+ * the session id and version of the o= line are written per call.
+ */
+public class SdpNegotiator {
+
+    private static final String CRLF = "\r\n";
+
+    private final int payloadType;
+    private final int ptimeMs;
+    private final byte[] answerPrefix;
+    private final byte[] answerSuffix;
+    /**
+     * Session ids of the answers, starting from the current time as RFC 4566 suggests so that they do not repeat across restarts
+     */
+    private final AtomicLong sessionIds = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Renders the answer template of an Agent
+     * @param agentConfig the configuration of the Agent, whose sipLocalUsername, rtp address and rtp codec are used
+     */
+    public SdpNegotiator(AgentConfig agentConfig) {
+        this.payloadType = agentConfig.getRtpPayloadType();
+        this.ptimeMs = agentConfig.getRtpPtimeMs();
+        String origin = agentConfig.getRtpNetworkType() + " " + agentConfig.getRtpAddressType() + " " + agentConfig.getRtpLocalIp();
+        this.answerPrefix = ("v=0" + CRLF + "o=" + agentConfig.getSipLocalUsername() + " ").getBytes(StandardCharsets.US_ASCII);
+        String encodingName = getStaticEncodingName(payloadType);
+        this.answerSuffix = (" " + origin + CRLF +
+                "s=sip4j" + CRLF +
+                "c=" + origin + CRLF +
+                "t=0 0" + CRLF +
+                "m=audio " + agentConfig.getRtpLocalPort() + " RTP/AVP " + payloadType + CRLF +
+                (encodingName == null ? "" : "a=rtpmap:" + payloadType + " " + encodingName + "/" + agentConfig.getRtpClockRate() + CRLF) +
+                "a=ptime:" + ptimeMs + CRLF +
+                "a=sendrecv" + CRLF).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Checks whether the Agent can take part in the audio stream of an offer
+     * @param offer the remote offer
+     * @return whether the codec and ptime of the Agent suit the offer
+     */
+    public boolean accepts(SdpOffer offer) {
+        return offer.offers(payloadType) && (offer.getMaxPtimeMs() == 0 || offer.getMaxPtimeMs() >= ptimeMs);
+    }
+
+    /**
+     * Renders the answer to an offer
+     * @param offer the remote offer
+     * @return the SDP answer, null if the offer is not acceptable
+     */
+    public byte[] answer(SdpOffer offer) {
+        if (!accepts(offer)) {
+            return null;
+        }
+        long sessionId = sessionIds.getAndIncrement();
+        int digits = countDigits(sessionId);
+        byte[] answer = new byte[answerPrefix.length + 2 * digits + 1 + answerSuffix.length];
+        System.arraycopy(answerPrefix, 0, answer, 0, answerPrefix.length);
+        int offset = answerPrefix.length;
+        writeDigits(sessionId, answer, offset, digits); //session id
+        offset += digits;
+        answer[offset++] = ' ';
+        writeDigits(sessionId, answer, offset, digits); //session version, the answer is never modified
+        offset += digits;
+        System.arraycopy(answerSuffix, 0, answer, offset, answerSuffix.length);
+        return answer;
+    }
+
+    /**
+     * Returns the encoding name of the static RTP/AVP payload types of RFC 3551 an Agent may use. Dynamic payload types
+     * are refused by the AgentConfigValidator, they have no fixed name
+     * @param payloadType the payload type
+     * @return the encoding name, null if unknown
+     */
+    static String getStaticEncodingName(int payloadType) {
+        switch (payloadType) {
+            case 0:
+                return "PCMU";
+            case 3:
+                return "GSM";
+            case 4:
+                return "G723";
+            case 8:
+                return "PCMA";
+            case 9:
+                return "G722";
+            case 18:
+                return "G729";
+            default:
+                return null;
+        }
+    }
+
+    private static int countDigits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static void writeDigits(long value, byte[] bytes, int offset, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
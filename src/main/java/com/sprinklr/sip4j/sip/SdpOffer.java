@@ -0,0 +1,236 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.rtp.RtpAddress;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The fields of a remote SDP offer which an Agent needs to answer a call: the RTP address and payload types of the first
+ * audio stream, and its ptime and maxptime. Parsed straight from the body of the INVITE, without building the full
+ * SessionDescription object graph of the SdpFactory: a single pass over the bytes which only creates the strings of the
+ * connection address. Lines of the other media streams and the fields the Agent does not use are skipped.
+ */
+public final class SdpOffer {
+
+    private static final int MAX_PAYLOAD_TYPE = 127;
+
+    private final RtpAddress rtpAddress;
+    /**
+     * The payload types of the audio stream, bit n of the first word for type n < 64 and of the second one for the others
+     */
+    private final long payloadTypesLow;
+    private final long payloadTypesHigh;
+    private final int ptimeMs;
+    private final int maxPtimeMs;
+
+    private SdpOffer(RtpAddress rtpAddress, long payloadTypesLow, long payloadTypesHigh, int ptimeMs, int maxPtimeMs) {
+        this.rtpAddress = rtpAddress;
+        this.payloadTypesLow = payloadTypesLow;
+        this.payloadTypesHigh = payloadTypesHigh;
+        this.ptimeMs = ptimeMs;
+        this.maxPtimeMs = maxPtimeMs;
+    }
+
+    /**
+     * Parses the offer in the body of an INVITE
+     * @param sdp the body, lines separated by CRLF or LF
+     * @return the offer
+     * @throws IllegalArgumentException if the body has no audio stream, the stream is disabled (port 0) or no connection
+     * address applies to it
+     */
+    public static SdpOffer parse(byte[] sdp) {
+        if (sdp == null) {
+            throw new IllegalArgumentException("No SDP offer");
+        }
+        Connection sessionConnection = null;
+        Connection mediaConnection = null;
+        boolean inAudio = false;
+        boolean audioFound = false;
+        int port = 0;
+        long payloadTypesLow = 0;
+        long payloadTypesHigh = 0;
+        int ptimeMs = 0;
+        int maxPtimeMs = 0;
+
+        int lineStart = 0;
+        while (lineStart < sdp.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < sdp.length && sdp[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && sdp[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd - lineStart > 2 && sdp[lineStart + 1] == '=') {
+                byte type = sdp[lineStart];
+                int valueStart = lineStart + 2;
+                if (type == 'm') {
+                    inAudio = !audioFound && startsWith(sdp, valueStart, lineEnd, "audio ");
+                    if (inAudio) {
+                        audioFound = true;
+                        int cursor = valueStart + "audio ".length();
+                        int portEnd = tokenEnd(sdp, cursor, lineEnd);
+                        port = parseInt(sdp, cursor, portEnd, '/');
+                        cursor = tokenEnd(sdp, skipSpaces(sdp, portEnd, lineEnd), lineEnd); //the transport protocol
+                        while ((cursor = skipSpaces(sdp, cursor, lineEnd)) < lineEnd) {
+                            int formatEnd = tokenEnd(sdp, cursor, lineEnd);
+                            int payloadType = parseInt(sdp, cursor, formatEnd, ' ');
+                            if (payloadType >= 0 && payloadType <= MAX_PAYLOAD_TYPE) {
+                                if (payloadType < 64) {
+                                    payloadTypesLow |= 1L << payloadType;
+                                } else {
+                                    payloadTypesHigh |= 1L << (payloadType - 64);
+                                }
+                            }
+                            cursor = formatEnd;
+                        }
+                    }
+                } else if (type == 'c') {
+                    if (!audioFound) {
+                        sessionConnection = Connection.parse(sdp, valueStart, lineEnd);
+                    } else if (inAudio) {
+                        mediaConnection = Connection.parse(sdp, valueStart, lineEnd);
+                    }
+                } else if (type == 'a' && inAudio) {
+                    if (startsWith(sdp, valueStart, lineEnd, "ptime:")) {
+                        ptimeMs = parseInt(sdp, valueStart + "ptime:".length(), lineEnd, '.');
+                    } else if (startsWith(sdp, valueStart, lineEnd, "maxptime:")) {
+                        maxPtimeMs = parseInt(sdp, valueStart + "maxptime:".length(), lineEnd, '.');
+                    }
+                }
+            }
+            lineStart = next;
+        }
+
+        Connection connection = mediaConnection != null ? mediaConnection : sessionConnection;
+        if (!audioFound || port <= 0) {
+            throw new IllegalArgumentException("No active audio stream in SDP offer");
+        }
+        if (connection == null) {
+            throw new IllegalArgumentException("No connection address for the audio stream in SDP offer");
+        }
+        return new SdpOffer(new RtpAddress(port, connection.address, connection.addressType, connection.networkType),
+                payloadTypesLow, payloadTypesHigh, Math.max(ptimeMs, 0), Math.max(maxPtimeMs, 0));
+    }
+
+    /**
+     * Returns the address the remote party receives the audio stream on
+     * @return the remote RTP address
+     */
+    public RtpAddress getRtpAddress() {
+        return rtpAddress;
+    }
+
+    /**
+     * Checks whether the audio stream offers a payload type
+     * @param payloadType the RTP payload type, 0 to 127
+     * @return whether it is one of the formats of the m= line
+     */
+    public boolean offers(int payloadType) {
+        if (payloadType < 0 || payloadType > MAX_PAYLOAD_TYPE) {
+            return false;
+        }
+        return payloadType < 64 ? (payloadTypesLow & (1L << payloadType)) != 0 : (payloadTypesHigh & (1L << (payloadType - 64))) != 0;
+    }
+
+    /**
+     * Returns the packetization time the remote party prefers to receive
+     * @return the ptime in ms, 0 if the offer has none
+     */
+    public int getPtimeMs() {
+        return ptimeMs;
+    }
+
+    /**
+     * Returns the longest packetization time the remote party can receive
+     * @return the maxptime in ms, 0 if the offer has none
+     */
+    public int getMaxPtimeMs() {
+        return maxPtimeMs;
+    }
+
+    @Override
+    public String toString() {
+        return "SdpOffer{" +
+                "rtpAddress=" + rtpAddress +
+                ", ptimeMs=" + ptimeMs +
+                ", maxPtimeMs=" + maxPtimeMs +
+                '}';
+    }
+
+    private static boolean startsWith(byte[] bytes, int from, int to, String prefix) {
+        if (to - from < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[from + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipSpaces(byte[] bytes, int from, int to) {
+        while (from < to && bytes[from] == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int tokenEnd(byte[] bytes, int from, int to) {
+        while (from < to && bytes[from] != ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Parses the decimal number at the start of a range, up to a terminator
+     * @return the number, -1 if the range does not start with digits or the number is too large
+     */
+    private static int parseInt(byte[] bytes, int from, int to, char terminator) {
+        int value = 0;
+        int i = from;
+        for (; i < to && bytes[i] != terminator; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return i == from ? -1 : value;
+    }
+
+    /**
+     * The fields of a c= line: network type, address type and connection address without its TTL or address count
+     */
+    private static final class Connection {
+        private final String networkType;
+        private final String addressType;
+        private final String address;
+
+        private Connection(String networkType, String addressType, String address) {
+            this.networkType = networkType;
+            this.addressType = addressType;
+            this.address = address;
+        }
+
+        private static Connection parse(byte[] bytes, int from, int to) {
+            int networkTypeEnd = tokenEnd(bytes, from, to);
+            int addressTypeStart = skipSpaces(bytes, networkTypeEnd, to);
+            int addressTypeEnd = tokenEnd(bytes, addressTypeStart, to);
+            int addressStart = skipSpaces(bytes, addressTypeEnd, to);
+            int addressEnd = addressStart;
+            while (addressEnd < to && bytes[addressEnd] != '/' && bytes[addressEnd] != ' ') {
+                addressEnd++;
+            }
+            if (addressEnd == addressStart) {
+                throw new IllegalArgumentException("Invalid connection line in SDP offer: " + new String(bytes, from, to - from, StandardCharsets.US_ASCII));
+            }
+            return new Connection(new String(bytes, from, networkTypeEnd - from, StandardCharsets.US_ASCII),
+                    new String(bytes, addressTypeStart, addressTypeEnd - addressTypeStart, StandardCharsets.US_ASCII),
+                    new String(bytes, addressStart, addressEnd - addressStart, StandardCharsets.US_ASCII));
+        }
+    }
+}
@@ -1,17 +1,33 @@
 package com.sprinklr.sip4j.sip;
 
+import com.sprinklr.sip4j.utils.DigestMD5Converter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sdp.SdpFactory;
+import javax.sip.InvalidArgumentException;
+import javax.sip.ListeningPoint;
 import javax.sip.PeerUnavailableException;
+import javax.sip.SipException;
 import javax.sip.SipFactory;
+import javax.sip.SipStack;
 import javax.sip.address.AddressFactory;
 import javax.sip.header.HeaderFactory;
 import javax.sip.message.MessageFactory;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Utility class which initialises sip+sdp factories
+ * Utility class which initialises sip+sdp factories. The factories are created when the class is first used, but
+ * jain-sip loads its parsers and header classes lazily, the first time each kind of message is handled: warmUp() does
+ * that ahead of the first Agent, so that its startup does not pay for it.
  */
 public class SipAllFactories {
 
@@ -60,6 +76,69 @@ public class SipAllFactories {
         HEADER_FACTORY = tmpHeaderFactory;
     }
 
+    /**
+     * A REGISTER exchange like an Agent's first one, covering the headers it sends and receives
+     */
+    private static final String WARM_UP_REGISTER = "REGISTER sip:127.0.0.1:5060 SIP/2.0\r\n" +
+            "Via: SIP/2.0/UDP 127.0.0.1:5070;branch=z9hG4bK-warmup\r\n" +
+            "Max-Forwards: 70\r\n" +
+            "From: \"warmup\" <sip:warmup@127.0.0.1>;tag=warmup\r\n" +
+            "To: \"warmup\" <sip:warmup@127.0.0.1>\r\n" +
+            "Call-ID: warmup@127.0.0.1\r\n" +
+            "CSeq: 1 REGISTER\r\n" +
+            "Contact: <sip:warmup@127.0.0.1:5070>\r\n" +
+            "Allow: INVITE,BYE,CANCEL,ACK\r\n" +
+            "Expires: 3600\r\n" +
+            "Authorization: Digest username=\"warmup\",realm=\"127.0.0.1\",nonce=\"0\",uri=\"sip:127.0.0.1:5060\",response=\"0\",algorithm=MD5\r\n" +
+            "Content-Length: 0\r\n\r\n";
+    private static final String WARM_UP_CHALLENGE = "SIP/2.0 401 Unauthorized\r\n" +
+            "Via: SIP/2.0/UDP 127.0.0.1:5070;branch=z9hG4bK-warmup\r\n" +
+            "From: \"warmup\" <sip:warmup@127.0.0.1>;tag=warmup\r\n" +
+            "To: \"warmup\" <sip:warmup@127.0.0.1>;tag=registrar\r\n" +
+            "Call-ID: warmup@127.0.0.1\r\n" +
+            "CSeq: 1 REGISTER\r\n" +
+            "WWW-Authenticate: Digest realm=\"127.0.0.1\",nonce=\"0\",qop=\"auth\",algorithm=MD5\r\n" +
+            "Content-Length: 0\r\n\r\n";
+
+    /**
+     * Loads the message parsers and header classes used by Agents, by parsing and creating the messages of a REGISTER
+     * exchange and of a call, and the MD5 digest of the authentication. Meant to run once at application boot, on a
+     * thread of its own
+     */
+    public static void warmUp() {
+        long startNs = System.nanoTime();
+        try {
+            Request register = MESSAGE_FACTORY.createRequest(WARM_UP_REGISTER);
+            MESSAGE_FACTORY.createResponse(WARM_UP_CHALLENGE);
+            MESSAGE_FACTORY.createResponse(Response.OK, register);
+            Request invite = (Request) register.clone();
+            invite.setMethod(Request.INVITE);
+            Response ringing = MESSAGE_FACTORY.createResponse(Response.RINGING, invite);
+            ringing.addHeader(HEADER_FACTORY.createContentTypeHeader("application", "sdp"));
+            ringing.toString(); //encoded as when sent
+            DigestMD5Converter.ha1("warmup", "127.0.0.1", "warmup");
+
+            //a throwaway stack on a free loopback port, for the classes and thread pools of the stack itself
+            int port;
+            try (DatagramSocket probe = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+                port = probe.getLocalPort(); //jain-sip does not accept port 0
+            }
+            Properties properties = new Properties();
+            properties.setProperty("javax.sip.STACK_NAME", "sip4j-warm-up");
+            SipStack sipStack = SIP_FACTORY.createSipStack(properties);
+            try {
+                sipStack.createSipProvider(sipStack.createListeningPoint(InetAddress.getLoopbackAddress().getHostAddress(), port, ListeningPoint.UDP));
+                sipStack.start();
+            } finally {
+                sipStack.stop();
+            }
+        } catch (ParseException | NoSuchAlgorithmException | SipException | InvalidArgumentException | IOException | RuntimeException e) {
+            LOGGER.warn("Sip factories not warmed up: {}", e.toString());
+            return;
+        }
+        LOGGER.info("Sip factories warmed up in {}ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs));
+    }
+
     private SipAllFactories() {
         throw new IllegalStateException("Utility class");
     }
@@ -0,0 +1,7 @@
+package com.sprinklr.sip4j.sip;
+
+public class SipAuthenticationRejectedException extends RuntimeException{
+    public SipAuthenticationRejectedException(String errorMessage) {
+        super(errorMessage);
+    }
+}
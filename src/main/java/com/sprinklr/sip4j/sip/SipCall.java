@@ -0,0 +1,70 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.agent.AgentState;
+import com.sprinklr.sip4j.rtp.RtpAddress;
+
+import javax.sip.ServerTransaction;
+import javax.sip.message.Request;
+
+/**
+ * A call answered by an Agent, one of possibly several dialogs in progress on the Agent's SipExtension
+ */
+public class SipCall {
+
+    private final String callId;
+    /**
+     * The INVITE request of the call, which might be used in a CANCEL request
+     */
+    private final Request inviteRequest;
+    /**
+     * The invite server transaction, which might be used in a CANCEL request
+     */
+    private final ServerTransaction inviteServerTransaction;
+    /**
+     * The SIP and websocket state of this call, the Agent's own state keeping track of its registration
+     */
+    private final AgentState state;
+    /**
+     * The remote RTP address where data packets are to be sent, set upon parsing the INVITE SDP
+     */
+    private volatile RtpAddress rtpRemoteAddress;
+
+    public SipCall(String callId, Request inviteRequest, ServerTransaction inviteServerTransaction, AgentState state) {
+        this.callId = callId;
+        this.inviteRequest = inviteRequest;
+        this.inviteServerTransaction = inviteServerTransaction;
+        this.state = state;
+    }
+
+    public String getCallId() {
+        return callId;
+    }
+
+    public Request getInviteRequest() {
+        return inviteRequest;
+    }
+
+    public ServerTransaction getInviteServerTransaction() {
+        return inviteServerTransaction;
+    }
+
+    public AgentState getState() {
+        return state;
+    }
+
+    public RtpAddress getRtpRemoteAddress() {
+        return rtpRemoteAddress;
+    }
+
+    void setRtpRemoteAddress(RtpAddress rtpRemoteAddress) {
+        this.rtpRemoteAddress = rtpRemoteAddress;
+    }
+
+    @Override
+    public String toString() {
+        return "SipCall{" +
+                "callId='" + callId + '\'' +
+                ", state=" + state +
+                '}';
+    }
+}
@@ -2,17 +2,11 @@ package com.sprinklr.sip4j.sip;
 
 import com.sprinklr.sip4j.agent.AgentConfig;
 import com.sprinklr.sip4j.agent.AgentState;
-import com.sprinklr.sip4j.rtp.RtpAddress;
+import com.sprinklr.sip4j.metrics.RegistrationStats;
+import com.sprinklr.sip4j.metrics.StartupTimeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.sdp.Connection;
-import javax.sdp.Media;
-import javax.sdp.MediaDescription;
-import javax.sdp.SdpException;
-import javax.sdp.SdpParseException;
-import javax.sdp.SessionDescription;
-
 import javax.sip.ClientTransaction;
 import javax.sip.Dialog;
 import javax.sip.DialogState;
@@ -35,56 +29,67 @@ import javax.sip.TransactionState;
 import javax.sip.TransactionTerminatedEvent;
 import javax.sip.TransportNotSupportedException;
 import javax.sip.header.CSeqHeader;
+import javax.sip.header.CallIdHeader;
 import javax.sip.message.Request;
 import javax.sip.message.Response;
 
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.TooManyListenersException;
-import java.util.Vector;
-import java.util.concurrent.Callable;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import static com.sprinklr.sip4j.sip.SipAllFactories.MESSAGE_FACTORY;
-import static com.sprinklr.sip4j.sip.SipAllFactories.SDP_FACTORY;
+import static com.sprinklr.sip4j.sip.SipAllFactories.HEADER_FACTORY;
 import static com.sprinklr.sip4j.sip.SipAllFactories.SIP_FACTORY;
-import static com.sprinklr.sip4j.utils.Constants.SLEEP_CPU_TIME_MS;
 
 /**
  * Sip entity which handles signalling on Agent's behalf.
  * It implements SipListener which defines the methods required by an application to receive and process Events that are emitted by an object implementing the SipProvider interface.
+ * It stays registered across calls and answers up to sipMaxConcurrentCalls INVITEs at a time, each call being tracked by its Call-ID.
  */
-public class SipExtension implements SipListener, Callable<RtpAddress> {
+public class SipExtension implements SipListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SipExtension.class);
     /**
      * Defines the methods that are to be used by an application implementing the SipListener interface to control the architecture and setup of the SIP stack.
      */
     private final SipStack sipStack;
+    /**
+     * The stack shared with other Agents on the same local address, null if the Agent has a stack of its own
+     */
+    private final SipSharedStack sharedStack;
     /**
      * Maintains states (SIP state and Websocket state) of the agent
      */
     private final AgentState agentState;
     /**
-     * Used to schedule the sendRegisterRequestTask for future execution in a background thread
+     * The Agent's registration on the shared scheduler, which sends the REGISTER request in regular intervals
      */
-    private final Timer timer;
+    private final RegistrationScheduler.Registration registration;
     /**
-     * The task representing the REGISTER request which is to be sent in regular intervals
+     * Metrics of the Agent's registrations
      */
-    private final TimerTask sendRegisterRequestTask;
+    private final RegistrationStats registrationStats;
     /**
-     * The REGISTER request (without authorization) which is to be sent in regular intervals to maintain registration of the Agent in the Registrar server
+     * When the Agent's stack became ready, its first REGISTER was sent and accepted
      */
-    private final Request registerRequest;
+    private final StartupTimeline startup;
     /**
      * Helper object to create requests
      */
     private final SipRequestCreator sipRequestCreator;
+    /**
+     * Answers the SDP offers of the calls
+     */
+    private final SdpNegotiator sdpNegotiator;
     /**
      * This interface represents the messaging entity of a SIP stack and as such is the interface that defines the messaging and transactional component view of the SIP stack.
      */
@@ -93,28 +98,21 @@ public class SipExtension implements SipListener, Callable<RtpAddress> {
      * Represents configuration of an Agent, as read from the config file
      */
     private final AgentConfig agentConfig;
-
-    /**
-     * The invite server transaction, which might be used in a CANCEL request
-     */
-    private ServerTransaction inviteServerTransaction;
-    /**
-     * The INVITE request sent to SipExtension, which might be used in a CANCEL request
-     */
-    private Request inviteRequest; //storing for CANCEL request
     /**
-     * The remote RTP address where data packets are to be sent. It is set upon parsing the INVITE SDP and returned to the Agent
+     * The calls in progress, by Call-ID
      */
-    private RtpAddress rtpRemoteAddress;
+    private final Map<String, SipCall> calls = new ConcurrentHashMap<>();
     /**
-     * Flag variable specifying whether or not the remote RTP address has been set
+     * The calls whose INVITE has been answered and whose remote RTP address is set, waiting for the Agent to start their media
      */
-    private volatile boolean isRemoteRtpAddressSet = false;
+    private final BlockingQueue<SipCall> establishedCalls = new LinkedBlockingQueue<>();
 
     /**
      * Initialises a SipExtension for an Agent. Assigns factories, registers it to the registrar server and schedules its future registrations
      * @param agentState Maintains states (SIP state and Websocket state) of the agent
      * @param agentConfig Represents configuration of an Agent, as read from the config file
+     * @param registrationStats Metrics of the Agent's registrations
+     * @param startup The startup timeline of the Agent, on which the SIP phases are marked
      * @throws ParseException
      * @throws TooManyListenersException
      * @throws ObjectInUseException
@@ -122,63 +120,142 @@ public class SipExtension implements SipListener, Callable<RtpAddress> {
      * @throws TransportNotSupportedException
      * @throws InvalidArgumentException
      */
-    public SipExtension(AgentState agentState, AgentConfig agentConfig) throws ParseException, TooManyListenersException, ObjectInUseException, PeerUnavailableException, TransportNotSupportedException, InvalidArgumentException {
+    public SipExtension(AgentState agentState, AgentConfig agentConfig, RegistrationStats registrationStats, StartupTimeline startup) throws ParseException, TooManyListenersException, ObjectInUseException, PeerUnavailableException, TransportNotSupportedException, InvalidArgumentException {
 
         this.agentState = agentState;
         this.agentConfig = agentConfig;
+        this.registrationStats = registrationStats;
+        this.startup = startup;
 
-        Properties properties = new Properties();
-        properties.setProperty("javax.sip.STACK_NAME", agentConfig.getAgentName());
-        sipStack = SIP_FACTORY.createSipStack(properties);
-
-        /*
-        This interface represents a unique IP network listening point, which consists of port transport and IP.
-        A ListeningPoint is a Java representation of the socket that a SipProvider messaging entity uses to send and receive messages.
-         */
-        ListeningPoint listeningPoint = sipStack.createListeningPoint(agentConfig.getSipLocalIp(), agentConfig.getSipLocalPort(), agentConfig.getTransportMode());
-        sipProvider = sipStack.createSipProvider(listeningPoint);
-        sipProvider.addSipListener(this);
-
-        //use SipRequestCreator to create any requests to be sent from our sip entity. Currently, only REGISTER request is sent.
-        sipRequestCreator = new SipRequestCreator(sipProvider, agentConfig);
-        registerRequest = sipRequestCreator.createRegisterRequest();
-
-        timer = new Timer();
-        sendRegisterRequestTask = new SendRegisterRequestTask();
-        //re-registers to prevent expiry
-        timer.scheduleAtFixedRate(sendRegisterRequestTask,
-                0,      // run first occurrence immediately
-                TimeUnit.SECONDS.toMillis(agentConfig.getSipRegisterExpiryTimeSec() / 2)); // run every REGISTER_EXPIRY_TIME/2 seconds
+        if (agentConfig.isSipSharedStack()) {
+            //one stack per local address, events for this Agent are dispatched to it by the Agent's user and Call-IDs
+            sharedStack = SipSharedStack.acquire(agentConfig);
+            sipStack = sharedStack.getSipStack();
+        } else {
+            sharedStack = null;
+            Properties properties = new Properties();
+            properties.setProperty("javax.sip.STACK_NAME", agentConfig.getAgentName());
+            sipStack = SIP_FACTORY.createSipStack(properties);
+        }
+
+        //the Agent is not shut down if this constructor fails, the stack and its port are released here
+        try {
+            if (sharedStack != null) {
+                sipProvider = sharedStack.getSipProvider();
+                sharedStack.addUser(agentConfig.getSipLocalUsername(), this);
+            } else {
+                /*
+                This interface represents a unique IP network listening point, which consists of port transport and IP.
+                A ListeningPoint is a Java representation of the socket that a SipProvider messaging entity uses to send and receive messages.
+                 */
+                ListeningPoint listeningPoint = sipStack.createListeningPoint(agentConfig.getSipLocalIp(), agentConfig.getSipLocalPort(), agentConfig.getTransportMode());
+                sipProvider = sipStack.createSipProvider(listeningPoint);
+                sipProvider.addSipListener(this);
+            }
+
+            //use SipRequestCreator to create any requests to be sent from our sip entity. Currently, only REGISTER request is sent.
+            sipRequestCreator = new SipRequestCreator(sipProvider, agentConfig);
+            sdpNegotiator = new SdpNegotiator(agentConfig);
+            if (sharedStack != null) {
+                sharedStack.bindCallId(sipRequestCreator.getCallId(), this); //responses to the REGISTER requests
+            }
+        } catch (Exception e) {
+            try {
+                if (sharedStack != null) {
+                    sharedStack.removeListener(this);
+                    SipSharedStack.release(sharedStack);
+                } else {
+                    sipStack.stop();
+                }
+            } catch (RuntimeException stopError) {
+                e.addSuppressed(stopError); //the cause of the failure is what the Agent reports
+            }
+            throw e;
+        }
+        startup.mark(StartupTimeline.SIP_STACK_READY);
+
+        //re-registers every REGISTER_EXPIRY_TIME/2 seconds to prevent expiry
+        registration = RegistrationScheduler.getDefault().newRegistration(agentConfig.getAgentName(), new SendRegisterRequestTask(),
+                TimeUnit.SECONDS.toMillis(agentConfig.getSipRegisterExpiryTimeSec()) / 2, registrationStats);
+        registration.start();
     }
 
     /**
-     * Overridden method of Callable.
-     * @return The remote RTP address after it has been set
+     * Waits for the next call to be established
+     * @param timeout how long to wait
+     * @param unit the unit of timeout
+     * @return the call, whose remote RTP address is set, or null if no call was established in time
      * @throws InterruptedException
      */
-    @Override
-    public RtpAddress call() throws InterruptedException {
-        while (!isRemoteRtpAddressSet) {
-            //wait for rtpRemoteAddress to be initialised
-            Thread.sleep(SLEEP_CPU_TIME_MS); //sleeping for specified time to save cpu cycles
+    public SipCall pollCall(long timeout, TimeUnit unit) throws InterruptedException {
+        return establishedCalls.poll(timeout, unit);
+    }
+
+    /**
+     * Returns the calls in progress
+     * @return a snapshot of the calls
+     */
+    public List<SipCall> getCalls() {
+        return new ArrayList<>(calls.values());
+    }
+
+    /**
+     * Hangs up a call in progress, acting as UAC: sends a BYE in its dialog and transitions its SipState to DISCONNECTED.
+     * Does nothing if the call has already ended
+     * @param call the call to be hung up
+     */
+    public void hangUp(SipCall call) {
+        if (!calls.remove(call.getCallId(), call)) {
+            return;
+        }
+        try {
+            Dialog dialog = call.getInviteServerTransaction().getDialog();
+            if (dialog == null || dialog.getState() != DialogState.CONFIRMED) {
+                LOGGER.warn("{} cannot send a BYE for call {} in dialog state {}", agentConfig.getAgentName(), call.getCallId(),
+                        dialog == null ? null : dialog.getState());
+                unbindCallId(call.getCallId());
+                return;
+            }
+            Request bye = dialog.createRequest(Request.BYE);
+            ClientTransaction byeTransaction = sipProvider.getNewClientTransaction(bye);
+            dialog.sendRequest(byeTransaction);
+            LOGGER.info("{} (UAC): sent a BYE for call {}", agentConfig.getAgentName(), call.getCallId());
+        } catch (SipException e) {
+            LOGGER.error("Error while sending BYE request in {}: {}", agentConfig.getAgentName(), e.toString());
+        } finally {
+            call.getState().setSipState(SipState.DISCONNECTED);
+        }
+    }
+
+    /**
+     * Stops routing the messages of a call which ended without a confirmed dialog, whose terminated event would remove
+     * the binding from the shared stack
+     * @param callId the Call-ID of the call
+     */
+    private void unbindCallId(String callId) {
+        if (sharedStack != null) {
+            sharedStack.unbindCallId(callId, this);
         }
-        return rtpRemoteAddress;
     }
 
-    //Handle authentication if required by modifying function. Refer https://www.youtube.com/watch?v=iJeJ072UejI
-    class SendRegisterRequestTask extends TimerTask {
+    //Refreshes answer the registrar's last challenge pre-emptively, refer https://www.youtube.com/watch?v=iJeJ072UejI
+    class SendRegisterRequestTask implements Runnable {
 
         @Override
         public void run() {
             try {
+                //a new request each time, so that the CSeq grows and the nonce-count advances
+                Request registerRequest = sipRequestCreator.createRefreshRegisterRequest();
                 //create client transaction
                 ClientTransaction registerTransaction = sipProvider.getNewClientTransaction(registerRequest);
                 //send the request
                 registerTransaction.sendRequest();
+                startup.mark(StartupTimeline.REGISTER_SENT);
                 LOGGER.info("{} sent REGISTER request", agentConfig.getAgentName());
             } catch (Exception ex) {
                 agentState.setSipState(SipState.REGISTRATION_FAILED);
                 LOGGER.error("Error while sending REGISTER request in {}: {}", agentConfig.getAgentName(), ex.toString());
+                registration.failed();
             }
         }
     }
@@ -228,6 +305,9 @@ public class SipExtension implements SipListener, Callable<RtpAddress> {
             return;
         }
 
+        if (Request.BYE.equals(cseq.getMethod())) {
+            return; //the call was already disconnected when the BYE was sent
+        }
         if (!Request.REGISTER.equals(cseq.getMethod())) {
             LOGGER.error("Not a response for REGISTER request, not processing response in {}", agentConfig.getAgentName());
             return;
@@ -243,21 +323,28 @@ public class SipExtension implements SipListener, Callable<RtpAddress> {
     public void processRegisterResponse(Response response) {
         if (response.getStatusCode() == Response.OK) {
             agentState.setSipState(SipState.REGISTERED);
+            startup.mark(StartupTimeline.REGISTERED);
+            sipRequestCreator.registered();
+            registration.registered();
         } else if (response.getStatusCode() == Response.UNAUTHORIZED) {
             LOGGER.info("Received {} for REGISTER request, resending from {}", Response.UNAUTHORIZED, agentConfig.getAgentName());
+            registrationStats.recordChallenge();
             try {
                 Request newRegisterRequest = sipRequestCreator.createRegisterRequestWithCredentials(response);
                 ClientTransaction registerTransaction = sipProvider.getNewClientTransaction(newRegisterRequest); //resending REGISTER request with credentials
                 registerTransaction.sendRequest();
 
-            } catch (ParseException | InvalidArgumentException | NoSuchAlgorithmException | SipException e) {
+            } catch (ParseException | InvalidArgumentException | NoSuchAlgorithmException | SipException
+                     | SipAuthenticationRejectedException | SipIncorrectAuthenticationSchemeException e) {
                 LOGGER.error("Exception while authenticating REGISTER request in {}: {}", agentConfig.getAgentName(), e.toString());
                 agentState.setSipState(SipState.REGISTRATION_FAILED);
+                registration.failed();
             }
 
         } else {
             LOGGER.error("No 200 or 401 received for REGISTER in {}, some error has occurred", agentConfig.getAgentName());
             agentState.setSipState(SipState.REGISTRATION_FAILED);
+            registration.failed();
         }
     }
 
@@ -275,86 +362,125 @@ public class SipExtension implements SipListener, Callable<RtpAddress> {
     }
 
     /**
-     * Process the INVITE request, acting as UAS. Transitions Agent's SipState from REGISTERED->CONNECTING->CONNECTED
+     * Process the INVITE request, acting as UAS. Transitions the call's SipState from CONNECTING->CONNECTED, answering the
+     * SDP offer in the 200. Answers 486 if the Agent already has sipMaxConcurrentCalls calls in progress, and 488 if the
+     * offer has no audio stream the Agent can take part in
      * @param requestEvent The Request event representing the INVITE request messages that is received
      * @param serverTransaction Transaction from server's side
      */
     public void processInviteRequest(RequestEvent requestEvent, ServerTransaction serverTransaction) {
 
         Request request = requestEvent.getRequest();
-        this.inviteRequest = request;
+        String callId = getCallId(request);
 
         if (!agentState.getSipState().equals(SipState.REGISTERED)) {
             LOGGER.warn("Agent {} not in registered state, ignoring INVITE request", agentConfig.getAgentName());
             return;
         }
+        if (calls.containsKey(callId)) {
+            LOGGER.warn("Agent {} already answered call {}, ignoring INVITE request", agentConfig.getAgentName(), callId);
+            return;
+        }
 
+        SipCall call = null;
         try {
-            LOGGER.info("{} (UAS) sending TRYING", agentConfig.getAgentName());
-
             if (serverTransaction == null) {
                 LOGGER.info("Found null serverTransaction while processing INVITE, creating from Sip Provider in {}", agentConfig.getAgentName());
                 serverTransaction = sipProvider.getNewServerTransaction(request);
             }
-            this.inviteServerTransaction = serverTransaction;
 
+            if (calls.size() >= agentConfig.getSipMaxConcurrentCalls()) {
+                LOGGER.warn("{} busy with {} calls, rejecting call {}", agentConfig.getAgentName(), calls.size(), callId);
+                serverTransaction.sendResponse(MESSAGE_FACTORY.createResponse(Response.BUSY_HERE, request));
+                return;
+            }
+            //only the fields needed to answer are read from the offer, straight from the body
+            SdpOffer offer;
+            try {
+                offer = SdpOffer.parse(request.getRawContent());
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("{} rejecting call {}: {}", agentConfig.getAgentName(), callId, e.getMessage());
+                serverTransaction.sendResponse(MESSAGE_FACTORY.createResponse(Response.NOT_ACCEPTABLE_HERE, request));
+                return;
+            }
+            byte[] answer = sdpNegotiator.answer(offer);
+            if (answer == null) {
+                LOGGER.warn("{} rejecting call {}, payload type {} with ptime {} not acceptable for {}", agentConfig.getAgentName(), callId,
+                        agentConfig.getRtpPayloadType(), agentConfig.getRtpPtimeMs(), offer);
+                serverTransaction.sendResponse(MESSAGE_FACTORY.createResponse(Response.NOT_ACCEPTABLE_HERE, request));
+                return;
+            }
+            call = new SipCall(callId, request, serverTransaction, new AgentState(agentConfig.getAgentName() + "/" + callId));
+            call.setRtpRemoteAddress(offer.getRtpAddress());
+            calls.put(callId, call);
+            if (sharedStack != null) {
+                sharedStack.bindCallId(callId, this); //in-dialog requests may carry another Request-URI
+            }
+
+            LOGGER.info("{} (UAS) sending RINGING for call {}", agentConfig.getAgentName(), callId);
             Response ringingResponse = MESSAGE_FACTORY.createResponse(Response.RINGING, request);
             serverTransaction.sendResponse(ringingResponse);
 
-            agentState.setSipState(SipState.CONNECTING);
+            call.getState().setSipState(SipState.CONNECTING);
 
             Response okResponse = MESSAGE_FACTORY.createResponse(Response.OK, request);
             //Contact Header is mandatory for the OK to the INVITE
-            //set other data to be conveyed to Ozonetel using okResponse.setContent(). Also add ContentTypeHeader and other headers as required
             okResponse.addHeader(sipRequestCreator.getContactHeader());
-            LOGGER.info("Invite transaction id: {}", this.inviteServerTransaction);
-
-            if (inviteServerTransaction.getState() != TransactionState.COMPLETED) {
-                LOGGER.info("Dialog state in {} before 200: {}", agentConfig.getAgentName(), inviteServerTransaction.getDialog().getState());
-                inviteServerTransaction.sendResponse(okResponse);
+            okResponse.setContent(answer, HEADER_FACTORY.createContentTypeHeader("application", "sdp"));
+            LOGGER.info("Invite transaction id: {}", serverTransaction);
 
-                LOGGER.info("Dialog state in {} after 200: {}", agentConfig.getAgentName(), inviteServerTransaction.getDialog().getState());
+            if (serverTransaction.getState() != TransactionState.COMPLETED) {
+                LOGGER.info("Dialog state in {} before 200: {}", agentConfig.getAgentName(), serverTransaction.getDialog().getState());
+                serverTransaction.sendResponse(okResponse);
 
-                SessionDescription remoteSdp = extractSDP(requestEvent);
-                Media media = extractMedia(remoteSdp);
-                Connection connection = extractConnection(remoteSdp);
-                rtpRemoteAddress = new RtpAddress(media.getMediaPort(), connection.getAddress(), connection.getAddressType(), connection.getNetworkType());
-                isRemoteRtpAddressSet = true;
-                LOGGER.info("{} set remote rtp address for Agent", agentConfig.getAgentName());
-                agentState.setSipState(SipState.CONNECTED);
+                LOGGER.info("Dialog state in {} after 200: {}", agentConfig.getAgentName(), serverTransaction.getDialog().getState());
+                LOGGER.info("{} set remote rtp address {} for call {}", agentConfig.getAgentName(), call.getRtpRemoteAddress(), callId);
+                call.getState().setSipState(SipState.CONNECTED);
+                establishedCalls.add(call);
             }
         } catch (Exception ex) {
-            agentState.setSipState(SipState.DISCONNECTED);
+            if (call != null) {
+                call.getState().setSipState(SipState.DISCONNECTED);
+                calls.remove(callId);
+                unbindCallId(callId);
+            }
             LOGGER.error("Error while processing INVITE request in {}: {}", agentConfig.getAgentName(), ex.toString());
         }
     }
 
     /**
-     * Process the BYE request, acting as UAS. Transitions Agent's SipState to DISCONNECTED.
+     * Process the BYE request, acting as UAS. Transitions the call's SipState to DISCONNECTED.
      * @param requestEvent The Request event representing the BYE request messages that is received
      * @param serverTransaction Transaction from server's side
      */
     public void processByeRequest(RequestEvent requestEvent, ServerTransaction serverTransaction) {
 
         Request request = requestEvent.getRequest();
-        LOGGER.info("{} Local party = {}", agentConfig.getAgentName(), serverTransaction.getDialog().getLocalParty());
+        SipCall call = calls.remove(getCallId(request));
         try {
-            LOGGER.info("{} (UAS):  got a BYE sending OK.", agentConfig.getAgentName());
+            if (call == null) {
+                LOGGER.warn("{} (UAS): got a BYE for an unknown call", agentConfig.getAgentName());
+                respond(request, Response.CALL_OR_TRANSACTION_DOES_NOT_EXIST, serverTransaction);
+                return;
+            }
+            LOGGER.info("{} Local party = {}", agentConfig.getAgentName(), serverTransaction.getDialog().getLocalParty());
+            LOGGER.info("{} (UAS):  got a BYE for call {} sending OK.", agentConfig.getAgentName(), call.getCallId());
             Response response = MESSAGE_FACTORY.createResponse(200, request);
             serverTransaction.sendResponse(response);
 
-            agentState.setSipState(SipState.DISCONNECTED);
+            call.getState().setSipState(SipState.DISCONNECTED);
 
             LOGGER.info("Dialog State in {} is {}", agentConfig.getAgentName(), serverTransaction.getDialog().getState());
-            shutDown();
         } catch (Exception ex) {
-            agentState.setSipState(SipState.DISCONNECTED);
+            if (call != null) {
+                call.getState().setSipState(SipState.DISCONNECTED);
+            }
             LOGGER.error("Error while processing BYE request in {}: {}", agentConfig.getAgentName(), ex.toString());
         }
     }
 
     /**
-     * Process the CANCEL request, acting as UAS. A CANCEL request SHOULD NOT be sent to cancel a request other than INVITE. Refer RFC 3261. Transitions Agent's SipState to DISCONNECTED.
+     * Process the CANCEL request, acting as UAS. A CANCEL request SHOULD NOT be sent to cancel a request other than INVITE. Refer RFC 3261. Transitions the call's SipState to DISCONNECTED.
      *
      * @param requestEvent The Request event representing the CANCEL request messages that is received
      * @param serverTransaction Transaction from server's side
@@ -362,24 +488,36 @@ public class SipExtension implements SipListener, Callable<RtpAddress> {
     public void processCancelRequest(RequestEvent requestEvent, ServerTransaction serverTransaction) {
 
         Request request = requestEvent.getRequest();
+        SipCall call = null;
         try {
             LOGGER.info("{} (UAS) got a CANCEL", agentConfig.getAgentName());
             if (serverTransaction == null) {
                 LOGGER.warn("Received null serverTransaction in {}, treating as stray response", agentConfig.getAgentName());
                 return;
             }
+            call = calls.get(getCallId(request));
+            if (call == null) {
+                LOGGER.warn("{} (UAS): got a CANCEL for an unknown call", agentConfig.getAgentName());
+                serverTransaction.sendResponse(MESSAGE_FACTORY.createResponse(Response.CALL_OR_TRANSACTION_DOES_NOT_EXIST, request));
+                return;
+            }
             Response response = MESSAGE_FACTORY.createResponse(Response.OK, request);
             //send 200 response for CANCEL request
             serverTransaction.sendResponse(response);
             if (serverTransaction.getDialog().getState() != DialogState.CONFIRMED) {
                 //send 487 response for the corresponding invite request, client then sends an ACK ending the transaction
-                response = MESSAGE_FACTORY.createResponse(Response.REQUEST_TERMINATED, inviteRequest);
-                inviteServerTransaction.sendResponse(response);
-                agentState.setSipState(SipState.DISCONNECTED);
-                shutDown();
+                response = MESSAGE_FACTORY.createResponse(Response.REQUEST_TERMINATED, call.getInviteRequest());
+                call.getInviteServerTransaction().sendResponse(response);
+                calls.remove(call.getCallId());
+                unbindCallId(call.getCallId());
+                call.getState().setSipState(SipState.DISCONNECTED);
             }
         } catch (Exception ex) {
-            agentState.setSipState(SipState.DISCONNECTED);
+            if (call != null) {
+                calls.remove(call.getCallId());
+                unbindCallId(call.getCallId());
+                call.getState().setSipState(SipState.DISCONNECTED);
+            }
             LOGGER.error("Error while processing CANCEL request in {} : {}", agentConfig.getAgentName(), ex.toString());
         }
     }
@@ -397,6 +535,10 @@ public class SipExtension implements SipListener, Callable<RtpAddress> {
         if (transaction.getDialog() != null) {
             LOGGER.info("{} dialogState = {}", agentConfig.getAgentName(), transaction.getDialog().getState());
         }
+        if (!timeoutEvent.isServerTransaction() && Request.REGISTER.equals(transaction.getRequest().getMethod())) {
+            agentState.setSipState(SipState.REGISTRATION_FAILED);
+            registration.failed(); //the registrar did not answer, retried after a backoff
+        }
     }
 
     public void processIOException(IOExceptionEvent exceptionEvent) {
@@ -417,50 +559,47 @@ public class SipExtension implements SipListener, Callable<RtpAddress> {
     }
 
     /**
-     * Shuts down SipExtension of the Agent. Triggered when a BYE request is received.
+     * Shuts down SipExtension of the Agent. Triggered when the Agent stops, calls still in progress are disconnected.
      */
-    private void shutDown() {
+    public void shutDown() {
         LOGGER.info("nulling server references for {}", agentConfig.getAgentName());
-        sipStack.stop();
-        inviteServerTransaction = null;
-        inviteRequest = null;
-        //cancel registration task running at regular intervals
-        LOGGER.info("Cancelling registration task for {}: {}", agentConfig.getAgentName(), sendRegisterRequestTask.cancel());
-        timer.cancel();
-        LOGGER.info("Cancelling timer for {}", agentConfig.getAgentName());
+        //cancel registration refreshes
+        registration.cancel();
+        LOGGER.info("Cancelled registration for {}", agentConfig.getAgentName());
+        if (sharedStack != null) {
+            sharedStack.removeListener(this);
+            SipSharedStack.release(sharedStack); //stopped with its last Agent
+        } else {
+            sipStack.stop();
+        }
+        for (SipCall call : calls.values()) {
+            call.getState().setSipState(SipState.DISCONNECTED);
+        }
+        calls.clear();
+        agentState.setSipState(SipState.DISCONNECTED);
         LOGGER.info("Server shutdown in {}", agentConfig.getAgentName());
     }
 
     /**
-     * Helper function to extract the SDP content from a request
-     * @param requestEvent he Request event representing the request messages that is received
-     * @return SessionDescription object representing the SDP content
-     * @throws SdpParseException
-     */
-    public SessionDescription extractSDP(RequestEvent requestEvent) throws SdpParseException {
-        Request request = requestEvent.getRequest();
-        byte[] sdpContent = (byte[]) request.getContent();
-        return SDP_FACTORY.createSessionDescription(new String(sdpContent));
-    }
-
-    /**
-     * Extracts the connection information from a SDP
-     * @param sdp The SessionDescription representing the SDP content
-     * @return Connection object representing the connection information
+     * Answers a request in its server transaction if it has one, statelessly otherwise, e.g. one for a call the Agent does not know
+     * @param request the request
+     * @param statusCode the status code of the response
+     * @param serverTransaction the server transaction of the request, null if the stack did not create one
+     * @throws ParseException
+     * @throws SipException
+     * @throws InvalidArgumentException
      */
-    public Connection extractConnection(SessionDescription sdp) {
-        return sdp.getConnection();
+    private void respond(Request request, int statusCode, ServerTransaction serverTransaction) throws ParseException, SipException, InvalidArgumentException {
+        Response response = MESSAGE_FACTORY.createResponse(statusCode, request);
+        if (serverTransaction != null) {
+            serverTransaction.sendResponse(response);
+        } else {
+            sipProvider.sendResponse(response);
+        }
     }
 
-    /**
-     * Extracts the connection information from a SDP
-     * @param sdp The SessionDescription representing the SDP content
-     * @return Media object representing the connection information
-     * @throws SdpException
-     */
-    public Media extractMedia(SessionDescription sdp) throws SdpException {
-        @SuppressWarnings("unchecked") Vector<MediaDescription> mediaDescriptions = sdp.getMediaDescriptions(false);
-        MediaDescription mediaDescription = mediaDescriptions.get(0);
-        return mediaDescription.getMedia();
+    private static String getCallId(Request request) {
+        CallIdHeader callIdHeader = (CallIdHeader) request.getHeader(CallIdHeader.NAME);
+        return callIdHeader == null ? null : callIdHeader.getCallId();
     }
 }
\ No newline at end of file
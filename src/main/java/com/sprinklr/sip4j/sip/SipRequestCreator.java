@@ -1,7 +1,6 @@
 package com.sprinklr.sip4j.sip;
 
 import com.sprinklr.sip4j.agent.AgentConfig;
-import com.sprinklr.sip4j.utils.DigestMD5Converter;
 import gov.nist.javax.sip.header.AllowList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,12 +34,14 @@ import static com.sprinklr.sip4j.sip.SipAllFactories.MESSAGE_FACTORY;
 
 
 /**
- * Helper class which creates requests
+ * Helper class which creates requests. The headers of the Agent's requests and the REGISTER request itself are built once,
+ * as templates which are never sent, and every request is a clone of its template in which only the CSeq varies; the
+ * branch of the Via is generated by the SipProvider for each client transaction, and the Authorization is added by the
+ * caller. Templates are cloned rather than shared because jain-sip headers are mutable.
  */
 public class SipRequestCreator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SipRequestCreator.class);
-    private static final String AUTHENTICATION_SCHEME = "Digest";
     private static final List<String> SIP_ALLOWED_METHODS = Collections.unmodifiableList(Arrays.asList(Request.INVITE, Request.BYE, Request.CANCEL, Request.ACK));
     private static final AllowList ALLOW_LIST;
     static{
@@ -51,29 +52,41 @@ public class SipRequestCreator {
             LOGGER.error("ParseException, cannot create Allow Header. Empty header will be created. {}", e.toString());
         }
     }
-    private final ListeningPoint listeningPoint;
-    private final AgentConfig agentConfig;
     private final CallIdHeader callIdHeader;
+    private final ContactHeader contactHeaderTemplate;
+    private final ToHeader toHeaderTemplate;
+    private final FromHeader fromHeaderTemplate;
+    /**
+     * The REGISTER request without authentication, with CSeq 1 and a Via without branch
+     */
+    private final Request registerRequestTemplate;
+    /**
+     * The registrar's last challenge, answered pre-emptively in REGISTER refreshes
+     */
+    private final DigestAuthCache digestAuthCache;
     //separately keep track of cseq number since REGISTER not part of dialog
     private long cseqNmb = 1;
 
-    public SipRequestCreator(SipProvider sipProvider, AgentConfig agentConfig) {
-        this.listeningPoint = sipProvider.getListeningPoint(agentConfig.getTransportMode());
-        // Create a new CallId header unique for this call
-        this.callIdHeader = sipProvider.getNewCallId();
-        this.agentConfig = agentConfig;
-    }
-
     /**
-     * Create a REGISTER request without authentication to be sent to the Registrar server
-     * @return The REGISTER request
+     * Builds the header and request templates of an Agent
+     * @param sipProvider the provider the requests are sent with
+     * @param agentConfig the configuration of the Agent
      * @throws ParseException
      * @throws InvalidArgumentException
      */
-    public Request createRegisterRequest() throws ParseException, InvalidArgumentException {
-        FromHeader fromHeader = getFromHeader();
+    public SipRequestCreator(SipProvider sipProvider, AgentConfig agentConfig) throws ParseException, InvalidArgumentException {
+        ListeningPoint listeningPoint = sipProvider.getListeningPoint(agentConfig.getTransportMode());
+        // Create a new CallId header unique for this call
+        this.callIdHeader = sipProvider.getNewCallId();
+        this.digestAuthCache = new DigestAuthCache(agentConfig.getSipLocalUsername(), agentConfig.getPassword());
 
-        ToHeader toHeader = getToHeader();
+        //where to contact, differs from FROM header, refer https://stackoverflow.com/questions/31034422/what-is-the-difference-in-contact-and-from-header
+        SipURI contactURI = ADDRESS_FACTORY.createSipURI(agentConfig.getSipLocalUsername(), agentConfig.getSipLocalIp() + ":" + agentConfig.getSipLocalPort());
+        this.contactHeaderTemplate = HEADER_FACTORY.createContactHeader(ADDRESS_FACTORY.createAddress(agentConfig.getSipLocalDisplayName(), contactURI));
+        SipURI localURI = ADDRESS_FACTORY.createSipURI(agentConfig.getSipLocalUsername(), agentConfig.getSipLocalRealm());
+        Address localAddress = ADDRESS_FACTORY.createAddress(agentConfig.getSipLocalDisplayName(), localURI);
+        this.toHeaderTemplate = HEADER_FACTORY.createToHeader(localAddress, null);
+        this.fromHeaderTemplate = HEADER_FACTORY.createFromHeader(localAddress, agentConfig.getSipLocalTag());
 
         // create Register URI - this figures out where to send the request V.IMP
         // The "userinfo" and "@" components of the SIP URI MUST NOT be present, RFC 3261
@@ -85,47 +98,66 @@ public class SipRequestCreator {
         ViaHeader viaHeader = HEADER_FACTORY.createViaHeader(listeningPoint.getIPAddress(), listeningPoint.getPort(), agentConfig.getTransportMode(), null);
         List<ViaHeader> viaHeaders = Collections.singletonList(viaHeader);
 
-        // Create a new Cseq header
-        CSeqHeader cSeqHeader = HEADER_FACTORY.createCSeqHeader(cseqNmb, Request.REGISTER);
+        CSeqHeader cSeqHeader = HEADER_FACTORY.createCSeqHeader(1L, Request.REGISTER);
 
         // Create a new MaxForwardsHeader (convention is 70, but can be anything)
         MaxForwardsHeader maxForwards = HEADER_FACTORY.createMaxForwardsHeader(70);
 
-        // Create the request.
-        Request request = MESSAGE_FACTORY.createRequest(registerURI, Request.REGISTER, callIdHeader, cSeqHeader, fromHeader, toHeader, viaHeaders, maxForwards);
-
-        // Create Contact header after creating the contact address.
-        //where to contact, differs from FROM header, refer https://stackoverflow.com/questions/31034422/what-is-the-difference-in-contact-and-from-header
-        ContactHeader contactHeader = getContactHeader();
-        request.addHeader(contactHeader);
-
-        // Create Allow header
+        Request request = MESSAGE_FACTORY.createRequest(registerURI, Request.REGISTER, callIdHeader, cSeqHeader, fromHeaderTemplate, toHeaderTemplate, viaHeaders, maxForwards);
+        request.addHeader(contactHeaderTemplate);
         request.addHeader(ALLOW_LIST);
-
-        // Create an Expires header
         ExpiresHeader expiresHeader = HEADER_FACTORY.createExpiresHeader(agentConfig.getSipRegisterExpiryTimeSec());
         request.addHeader(expiresHeader);
+        this.registerRequestTemplate = request;
+    }
 
+    /**
+     * Create a REGISTER request without authentication to be sent to the Registrar server
+     * @return The REGISTER request
+     * @throws InvalidArgumentException
+     */
+    public synchronized Request createRegisterRequest() throws InvalidArgumentException {
+        Request request = (Request) registerRequestTemplate.clone();
+        ((CSeqHeader) request.getHeader(CSeqHeader.NAME)).setSeqNumber(cseqNmb);
         cseqNmb++;
         return request;
     }
 
-    public ContactHeader getContactHeader() throws ParseException {
-        SipURI contactURI = ADDRESS_FACTORY.createSipURI(agentConfig.getSipLocalUsername(), agentConfig.getSipLocalIp() + ":" + agentConfig.getSipLocalPort());
-        Address contactAddress = ADDRESS_FACTORY.createAddress(agentConfig.getSipLocalDisplayName(), contactURI);
-        return HEADER_FACTORY.createContactHeader(contactAddress);
+    /**
+     * Returns the Call-ID carried by every REGISTER request of the Agent
+     * @return the Call-ID
+     */
+    public String getCallId() {
+        return callIdHeader.getCallId();
+    }
+
+    public ContactHeader getContactHeader() {
+        return (ContactHeader) contactHeaderTemplate.clone();
     }
 
-    public ToHeader getToHeader() throws ParseException {
-        SipURI toAddress = ADDRESS_FACTORY.createSipURI(agentConfig.getSipLocalUsername(), agentConfig.getSipLocalRealm());
-        Address toNameAddress = ADDRESS_FACTORY.createAddress(agentConfig.getSipLocalDisplayName(), toAddress);
-        return HEADER_FACTORY.createToHeader(toNameAddress, null);
+    public ToHeader getToHeader() {
+        return (ToHeader) toHeaderTemplate.clone();
     }
 
-    public FromHeader getFromHeader() throws ParseException {
-        SipURI fromAddress = ADDRESS_FACTORY.createSipURI(agentConfig.getSipLocalUsername(), agentConfig.getSipLocalRealm());
-        Address fromNameAddress = ADDRESS_FACTORY.createAddress(agentConfig.getSipLocalDisplayName(), fromAddress);
-        return HEADER_FACTORY.createFromHeader(fromNameAddress, agentConfig.getSipLocalTag());
+    public FromHeader getFromHeader() {
+        return (FromHeader) fromHeaderTemplate.clone();
+    }
+
+    /**
+     * Create a REGISTER request refreshing the registration. Once the registrar has challenged the Agent, the request
+     * answers the last challenge pre-emptively instead of waiting for a 401
+     * @return The REGISTER request, with the Authorization header if a challenge is known
+     * @throws ParseException
+     * @throws InvalidArgumentException
+     * @throws NoSuchAlgorithmException
+     */
+    public Request createRefreshRegisterRequest() throws ParseException, InvalidArgumentException, NoSuchAlgorithmException {
+        Request newRequest = createRegisterRequest();
+        AuthorizationHeader authorizationHeader = digestAuthCache.authorize(Request.REGISTER, newRequest.getRequestURI());
+        if (authorizationHeader != null) {
+            newRequest.addHeader(authorizationHeader);
+        }
+        return newRequest;
     }
 
     /**
@@ -135,35 +167,21 @@ public class SipRequestCreator {
      * @throws ParseException
      * @throws InvalidArgumentException
      * @throws NoSuchAlgorithmException
+     * @throws SipAuthenticationRejectedException if the registrar rejected the credentials sent in the previous request
      */
     public Request createRegisterRequestWithCredentials(Response response) throws ParseException, InvalidArgumentException, NoSuchAlgorithmException {
 
         //names of headers in last line of respective header file in jain-sip-ri
         WWWAuthenticateHeader wwwAuthenticateHeader = (WWWAuthenticateHeader) response.getHeader(WWWAuthenticateHeader.NAME);
         //Scheme of authorization should be Digest
-        if (!AUTHENTICATION_SCHEME.equals(wwwAuthenticateHeader.getScheme())) {
-            throw new SipIncorrectAuthenticationSchemeException(wwwAuthenticateHeader.getScheme() + " not valid. Expected " + AUTHENTICATION_SCHEME);
-        }
-        Request newRequest = createRegisterRequest();
-
-        String userName = agentConfig.getSipLocalUsername();
-        String realm = wwwAuthenticateHeader.getRealm();
-        String password = agentConfig.getPassword();
-        String method = Request.REGISTER;
-        String uri = newRequest.getRequestURI().toString();
-        String nonce = wwwAuthenticateHeader.getNonce();
-        String ans = DigestMD5Converter.digestResponseFromNonce(userName, realm, password, method, uri, nonce);
-
-        AuthorizationHeader authorizationHeader = HEADER_FACTORY.createAuthorizationHeader("");
-        authorizationHeader.setAlgorithm(wwwAuthenticateHeader.getAlgorithm());
-        authorizationHeader.setNonce(nonce);
-        authorizationHeader.setRealm(realm);
-        authorizationHeader.setResponse(ans);
-        authorizationHeader.setUsername(userName);
-        authorizationHeader.setURI(newRequest.getRequestURI());
-        authorizationHeader.setScheme(wwwAuthenticateHeader.getScheme());
-        newRequest.addHeader(authorizationHeader);
+        digestAuthCache.challenge(wwwAuthenticateHeader);
+        return createRefreshRegisterRequest();
+    }
 
-        return newRequest;
+    /**
+     * Records that the registrar accepted the last REGISTER request, so that its challenge keeps being answered pre-emptively
+     */
+    public void registered() {
+        digestAuthCache.confirm();
     }
 }
@@ -0,0 +1,267 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sip.DialogTerminatedEvent;
+import javax.sip.IOExceptionEvent;
+import javax.sip.InvalidArgumentException;
+import javax.sip.ListeningPoint;
+import javax.sip.ObjectInUseException;
+import javax.sip.PeerUnavailableException;
+import javax.sip.RequestEvent;
+import javax.sip.ResponseEvent;
+import javax.sip.SipException;
+import javax.sip.SipListener;
+import javax.sip.SipProvider;
+import javax.sip.SipStack;
+import javax.sip.TimeoutEvent;
+import javax.sip.Transaction;
+import javax.sip.TransactionTerminatedEvent;
+import javax.sip.TransportNotSupportedException;
+import javax.sip.address.SipURI;
+import javax.sip.address.URI;
+import javax.sip.header.CallIdHeader;
+import javax.sip.header.ToHeader;
+import javax.sip.message.Message;
+import javax.sip.message.Request;
+import javax.sip.message.Response;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TooManyListenersException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sprinklr.sip4j.sip.SipAllFactories.MESSAGE_FACTORY;
+import static com.sprinklr.sip4j.sip.SipAllFactories.SIP_FACTORY;
+
+/**
+ * A single SipStack, ListeningPoint and SipProvider serving all the Agents configured with the same local SIP address,
+ * instead of a stack with its own threads, timers and socket per Agent. The stack is the only SipListener of its provider
+ * and dispatches every event to the SipExtension of the right Agent: requests by Call-ID once the Agent has bound it,
+ * otherwise by the user of the Request-URI and then of the To header; responses and transaction events by Call-ID.
+ * Stacks are reference counted per local address, like shared RTP ingresses.
+ */
+public class SipSharedStack implements SipListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SipSharedStack.class);
+    private static final Map<String, SipSharedStack> STACKS = new HashMap<>(); //guarded by SipSharedStack.class
+    private static int stacksCreated = 0; //guarded by SipSharedStack.class, keeps stack names unique in the SipFactory
+
+    private final String localAddress;
+    private final SipStack sipStack;
+    private final SipProvider sipProvider;
+    private final Map<String, SipListener> listenersByUser = new ConcurrentHashMap<>();
+    private final Map<String, SipListener> listenersByCallId = new ConcurrentHashMap<>();
+    private final AtomicLong unroutableMessages = new AtomicLong();
+    private int references = 0; //guarded by SipSharedStack.class
+
+    private SipSharedStack(String localAddress, SipStack sipStack, SipProvider sipProvider) {
+        this.localAddress = localAddress;
+        this.sipStack = sipStack;
+        this.sipProvider = sipProvider;
+    }
+
+    /**
+     * Returns the stack listening on the Agent's local SIP address, creating it on first use
+     * @param agentConfig the configuration of the Agent, whose sipLocalIp, sipLocalPort and transportMode are used
+     * @return the shared stack. Must be released with release() when no longer used
+     * @throws PeerUnavailableException
+     * @throws TransportNotSupportedException
+     * @throws InvalidArgumentException
+     * @throws ObjectInUseException
+     * @throws TooManyListenersException
+     */
+    public static synchronized SipSharedStack acquire(AgentConfig agentConfig) throws PeerUnavailableException, TransportNotSupportedException, InvalidArgumentException, ObjectInUseException, TooManyListenersException {
+        String localAddress = agentConfig.getTransportMode() + ":" + agentConfig.getSipLocalIp() + ":" + agentConfig.getSipLocalPort();
+        SipSharedStack stack = STACKS.get(localAddress);
+        if (stack == null) {
+            Properties properties = new Properties();
+            properties.setProperty("javax.sip.STACK_NAME", "sip4j-shared-" + stacksCreated++ + "-" + localAddress);
+            SipStack sipStack = SIP_FACTORY.createSipStack(properties);
+            ListeningPoint listeningPoint = sipStack.createListeningPoint(agentConfig.getSipLocalIp(), agentConfig.getSipLocalPort(), agentConfig.getTransportMode());
+            SipProvider sipProvider = sipStack.createSipProvider(listeningPoint);
+            stack = new SipSharedStack(localAddress, sipStack, sipProvider);
+            sipProvider.addSipListener(stack);
+            STACKS.put(localAddress, stack);
+            LOGGER.info("Shared sip stack {} listening on {}", sipStack.getStackName(), localAddress);
+        }
+        stack.references++;
+        return stack;
+    }
+
+    /**
+     * Releases a stack obtained from acquire(). The stack is stopped once the last user has released it
+     * @param stack the stack to be released
+     */
+    public static synchronized void release(SipSharedStack stack) {
+        if (--stack.references > 0) {
+            return;
+        }
+        STACKS.remove(stack.localAddress);
+        try {
+            stack.sipStack.stop();
+        } catch (NullPointerException e) {
+            //jain-sip fails with a NullPointerException when a udp listening point is stopped before its thread first ran
+            LOGGER.warn("Error while stopping shared sip stack {}: {}", stack.localAddress, e.toString());
+            return;
+        }
+        LOGGER.info("Shared sip stack {} stopped, unroutable messages: {}", stack.sipStack.getStackName(), stack.unroutableMessages.get());
+    }
+
+    public SipStack getSipStack() {
+        return sipStack;
+    }
+
+    public SipProvider getSipProvider() {
+        return sipProvider;
+    }
+
+    /**
+     * Routes the requests addressed to a user, e.g. INVITEs for the Agent's sipLocalUsername, to a listener
+     * @param user the user part of the Request-URI or To header
+     * @param listener the Agent's listener
+     * @throws IllegalStateException if the user is already served by another listener
+     */
+    public void addUser(String user, SipListener listener) {
+        SipListener previous = listenersByUser.putIfAbsent(user, listener);
+        if (previous != null && previous != listener) {
+            throw new IllegalStateException("Sip user " + user + " is already served by another Agent on " + localAddress);
+        }
+    }
+
+    /**
+     * Routes every message of a call, e.g. the responses to the Agent's REGISTER requests or the in-dialog requests of a
+     * call it answered, to a listener. The binding is removed when the call's dialog terminates
+     * @param callId the Call-ID of the call
+     * @param listener the Agent's listener
+     */
+    public void bindCallId(String callId, SipListener listener) {
+        listenersByCallId.put(callId, listener);
+    }
+
+    /**
+     * Stops routing the messages of a call which ended without a dialog terminated event, e.g. a cancelled INVITE
+     * @param callId the Call-ID of the call
+     * @param listener the Agent's listener, the binding is kept if the Call-ID is bound to another one
+     */
+    public void unbindCallId(String callId, SipListener listener) {
+        listenersByCallId.remove(callId, listener);
+    }
+
+    /**
+     * Stops routing anything to a listener
+     * @param listener the Agent's listener
+     */
+    public void removeListener(SipListener listener) {
+        listenersByUser.values().removeIf(l -> l == listener);
+        listenersByCallId.values().removeIf(l -> l == listener);
+    }
+
+    @Override
+    public void processRequest(RequestEvent requestEvent) {
+        Request request = requestEvent.getRequest();
+        String callId = getCallId(request);
+        SipListener listener = callId == null ? null : listenersByCallId.get(callId);
+        if (listener == null) {
+            listener = getListenerByUser(request);
+            if (listener == null) {
+                unroutableMessages.incrementAndGet();
+                reject(request);
+                return;
+            }
+            //the Agent binds the Call-ID of an INVITE it answers, an ignored one must not stay bound
+        }
+        listener.processRequest(requestEvent);
+    }
+
+    @Override
+    public void processResponse(ResponseEvent responseEvent) {
+        SipListener listener = getListenerByCallId(responseEvent.getResponse());
+        if (listener != null) {
+            listener.processResponse(responseEvent);
+        }
+    }
+
+    @Override
+    public void processTimeout(TimeoutEvent timeoutEvent) {
+        Transaction transaction = timeoutEvent.isServerTransaction() ? timeoutEvent.getServerTransaction() : timeoutEvent.getClientTransaction();
+        SipListener listener = transaction == null ? null : getListenerByCallId(transaction.getRequest());
+        if (listener != null) {
+            listener.processTimeout(timeoutEvent);
+        }
+    }
+
+    @Override
+    public void processIOException(IOExceptionEvent exceptionEvent) {
+        LOGGER.error("IOException event received on shared sip stack {}, host:{} and port:{}", localAddress, exceptionEvent.getHost(), exceptionEvent.getPort());
+    }
+
+    @Override
+    public void processTransactionTerminated(TransactionTerminatedEvent transactionTerminatedEvent) {
+        Transaction transaction = transactionTerminatedEvent.isServerTransaction()
+                ? transactionTerminatedEvent.getServerTransaction() : transactionTerminatedEvent.getClientTransaction();
+        SipListener listener = transaction == null ? null : getListenerByCallId(transaction.getRequest());
+        if (listener != null) {
+            listener.processTransactionTerminated(transactionTerminatedEvent);
+        }
+    }
+
+    @Override
+    public void processDialogTerminated(DialogTerminatedEvent dialogTerminatedEvent) {
+        String callId = dialogTerminatedEvent.getDialog().getCallId().getCallId();
+        SipListener listener = listenersByCallId.remove(callId);
+        if (listener != null) {
+            listener.processDialogTerminated(dialogTerminatedEvent);
+        }
+    }
+
+    private SipListener getListenerByCallId(Message message) {
+        String callId = getCallId(message);
+        SipListener listener = callId == null ? null : listenersByCallId.get(callId);
+        if (listener == null) {
+            unroutableMessages.incrementAndGet(); //e.g. a late retransmission for an Agent which has stopped
+        }
+        return listener;
+    }
+
+    private SipListener getListenerByUser(Request request) {
+        String user = getUser(request.getRequestURI());
+        SipListener listener = user == null ? null : listenersByUser.get(user);
+        if (listener == null) {
+            ToHeader toHeader = (ToHeader) request.getHeader(ToHeader.NAME);
+            user = toHeader == null ? null : getUser(toHeader.getAddress().getURI());
+            listener = user == null ? null : listenersByUser.get(user);
+        }
+        return listener;
+    }
+
+    private static String getCallId(Message message) {
+        CallIdHeader callIdHeader = message == null ? null : (CallIdHeader) message.getHeader(CallIdHeader.NAME);
+        return callIdHeader == null ? null : callIdHeader.getCallId();
+    }
+
+    private static String getUser(URI uri) {
+        return uri instanceof SipURI ? ((SipURI) uri).getUser() : null;
+    }
+
+    /**
+     * Answers a request for a user no Agent serves with 404, statelessly. ACKs cannot be answered and are dropped
+     * @param request the unroutable request
+     */
+    private void reject(Request request) {
+        LOGGER.warn("No Agent for {} {} on shared sip stack {}", request.getMethod(), request.getRequestURI(), localAddress);
+        if (Request.ACK.equals(request.getMethod())) {
+            return;
+        }
+        try {
+            Response response = MESSAGE_FACTORY.createResponse(Response.NOT_FOUND, request);
+            sipProvider.sendResponse(response);
+        } catch (ParseException | SipException e) {
+            LOGGER.error("Error while rejecting {} on shared sip stack {}: {}", request.getMethod(), localAddress, e.toString());
+        }
+    }
+}
@@ -9,7 +9,9 @@ public class Constants {
         throw new IllegalStateException("Utility class");
     }
     public static final int RTP_HEADER_SIZE = 12;
-    public static final long SLEEP_CPU_TIME_MS = 20;
+    public static final int MEDIA_QUEUE_CAPACITY = 1024;
+    public static final long MEDIA_POLL_TIMEOUT_MS = 100; //bounds how long a stage waits before re-checking its exit condition
+    public static final long MEDIA_BLOCK_TIMEOUT_MS = 100; //bounds how long a producer waits for room in a full queue with the block overflow policy
 
 
 }
@@ -1,32 +1,63 @@
 package com.sprinklr.sip4j.utils;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Collections;
 
 /**
- * Helper class to handle digest authentication
+ * Helper class to handle digest authentication. Thread-safe: each thread hashes with a MessageDigest of its own, which
+ * is reset by every digest, and ASCII input is encoded into a per-thread scratch buffer rather than a new byte array.
  */
 public class DigestMD5Converter {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(DigestMD5Converter.class);
     private static final String MD5_ALGORITHM = "MD5";
-    private static MessageDigest md;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int SCRATCH_SIZE = 256;
+    private static final ThreadLocal<Hasher> HASHER = new ThreadLocal<>();
+
+    private DigestMD5Converter() {
+        throw new IllegalStateException("Utility class");
+    }
 
-    static {
-        try {
-            md = MessageDigest.getInstance(MD5_ALGORITHM);
-        } catch (NoSuchAlgorithmException e) {
-            md = null;
+    /**
+     * The digest and scratch buffer of a thread
+     */
+    private static final class Hasher {
+        private final MessageDigest md;
+        private final byte[] scratch = new byte[SCRATCH_SIZE];
+
+        private Hasher(MessageDigest md) {
+            this.md = md;
+        }
+
+        /**
+         * Feeds a string to the digest as UTF-8, without allocating if it is short and ASCII
+         */
+        private void update(String value) {
+            int length = value.length();
+            if (length > SCRATCH_SIZE) {
+                md.update(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    md.update(value.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                scratch[i] = (byte) c;
+            }
+            md.update(scratch, 0, length);
         }
     }
 
-    private DigestMD5Converter() {
-        throw new IllegalStateException("Utility class");
+    private static Hasher getHasher() throws NoSuchAlgorithmException {
+        Hasher hasher = HASHER.get();
+        if (hasher == null) {
+            hasher = new Hasher(MessageDigest.getInstance(MD5_ALGORITHM));
+            HASHER.set(hasher);
+        }
+        return hasher;
     }
 
     /**
@@ -36,19 +67,28 @@ public class DigestMD5Converter {
      * @throws NoSuchAlgorithmException
      */
     private static String hashToMD5(String... args) throws NoSuchAlgorithmException {
-        if (md == null) {
-            LOGGER.error("MessageDigest null, algorithm exception occurred");
-            throw new NoSuchAlgorithmException();
+        Hasher hasher = getHasher();
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                hasher.md.update((byte) ':');
+            }
+            hasher.update(args[i]);
         }
+        return toHex(hasher.md.digest());
+    }
 
-        String inputString = String.join(":", args);
-        byte[] inputBytes = md.digest(inputString.getBytes());
-        BigInteger no = new BigInteger(1, inputBytes);
-        String hashText = no.toString(16);
-        int padLen = 32 - hashText.length();
-        String padding = String.join("", Collections.nCopies(padLen, "0"));
-        hashText = padding + hashText;
-        return hashText;
+    /**
+     * Encodes bytes as lowercase hexadecimal, two digits per byte
+     * @param bytes the bytes to be encoded
+     * @return the hexadecimal string
+     */
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
     }
 
     /**
@@ -64,8 +104,49 @@ public class DigestMD5Converter {
      * @throws NoSuchAlgorithmException
      */
     public static String digestResponseFromNonce(String username, String realm, String password, String method, String uri, String nonce) throws NoSuchAlgorithmException {
-        String ha1 = hashToMD5(username, realm, password);
+        return digestResponseFromNonce(ha1(username, realm, password), method, uri, nonce);
+    }
+
+    /**
+     * Computes HA1, the hash of the user's credentials in a realm, which does not depend on the challenge and can be reused
+     * @param username username of user
+     * @param realm realm of user
+     * @param password password of user
+     * @return the hashed credentials
+     * @throws NoSuchAlgorithmException
+     */
+    public static String ha1(String username, String realm, String password) throws NoSuchAlgorithmException {
+        return hashToMD5(username, realm, password);
+    }
+
+    /**
+     * Performs digest authentication without qop (RFC 2069) from precomputed credentials
+     * @param ha1 the hashed credentials, refer ha1()
+     * @param method the SIP method
+     * @param uri the SIP uri
+     * @param nonce the nonce key returned by server
+     * @return the response to the nonce key
+     * @throws NoSuchAlgorithmException
+     */
+    public static String digestResponseFromNonce(String ha1, String method, String uri, String nonce) throws NoSuchAlgorithmException {
         String ha2 = hashToMD5(method, uri);
         return hashToMD5(ha1, nonce, ha2);
     }
+
+    /**
+     * Performs digest authentication with qop (RFC 2617) from precomputed credentials
+     * @param ha1 the hashed credentials, refer ha1()
+     * @param method the SIP method
+     * @param uri the SIP uri
+     * @param nonce the nonce key returned by server
+     * @param nonceCount the number of requests sent with this nonce, as 8 hex digits
+     * @param cnonce the nonce chosen by the client for this request
+     * @param qop the quality of protection, only "auth" is supported
+     * @return the response to the nonce key
+     * @throws NoSuchAlgorithmException
+     */
+    public static String digestResponseFromNonce(String ha1, String method, String uri, String nonce, String nonceCount, String cnonce, String qop) throws NoSuchAlgorithmException {
+        String ha2 = hashToMD5(method, uri);
+        return hashToMD5(ha1, nonce, nonceCount, cnonce, qop, ha2);
+    }
 }
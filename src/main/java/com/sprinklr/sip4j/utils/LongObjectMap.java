@@ -0,0 +1,154 @@
+package com.sprinklr.sip4j.utils;
+
+/**
+ * Hash map with primitive long keys, using open addressing with linear probing.
+ * Lookups neither box the key nor allocate, so the cost stays flat on hot paths regardless of the number of entries.
+ * Not thread-safe, null values are not supported.
+ * @param <V> the type of the mapped values
+ */
+public class LongObjectMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+    /**
+     * Creates a map which can hold the expected number of entries without resizing
+     * @param expectedSize the expected number of entries
+     */
+    public LongObjectMap(int expectedSize) {
+        //keep the load factor at or below 0.5 so that probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the value mapped to the key
+     * @param key the key
+     * @return the mapped value, or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        for (int i = indexOf(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Maps the value to the key, replacing any previous mapping
+     * @param key the key
+     * @param value the value, not null
+     * @return the previously mapped value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        int i = indexOf(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > values.length) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping of the key
+     * @param key the key
+     * @return the removed value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = indexOf(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V removed = (V) values[i];
+                shiftBack(i);
+                size--;
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Closes the gap left by a removed entry by moving back the entries of the probe sequence which follow it
+     * @param gap the index of the removed entry
+     */
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null) {
+                break;
+            }
+            int home = indexOf(keys[i]);
+            //the entry at i can fill the gap only if its home slot is not cyclically within (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldValues.length << 1);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int j = indexOf(oldKeys[i]);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private int indexOf(long key) {
+        //murmur3 finaliser, spreads keys which differ only in a few bits (e.g. ports) over the whole table
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "LongObjectMap{" +
+                "size=" + size +
+                ", capacity=" + values.length +
+                '}';
+    }
+}
@@ -0,0 +1,201 @@
+package com.sprinklr.sip4j.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out the local ports of a range, e.g. the RTP ports of the Agents on a host. A stack of free slots gives allocate()
+ * in O(1), and bitmaps record which ports are in use and which are quarantined. A released port is quarantined before it
+ * can be allocated again, so that the packets still in flight to its former user, e.g. SIP retransmissions or the last RTP
+ * packets of a call, do not reach the next one. Quarantined ports are released in FIFO order, also in O(1) each.
+ * Not thread-safe.
+ */
+public class PortAllocator {
+
+    private final int minPort;
+    private final int maxPort;
+    private final int step;
+    private final long quarantineNs;
+
+    /**
+     * Bit set for the slots allocated, reserved or quarantined
+     */
+    private final long[] used;
+    /**
+     * Bit set for the slots quarantined
+     */
+    private final long[] quarantined;
+    /**
+     * Free slots, the top of the stack is allocated first
+     */
+    private final int[] freeSlots;
+    /**
+     * Index in freeSlots of each free slot, so that a given port can be reserved in O(1)
+     */
+    private final int[] freeIndexes;
+    private int freeCount;
+    /**
+     * Ring of the quarantined slots in the order they were released, with their release times
+     */
+    private final int[] quarantineSlots;
+    private final long[] quarantineStartsNs;
+    private int quarantineHead = 0;
+    private int quarantineCount = 0;
+
+    /**
+     * Creates an allocator with all the ports of the range free
+     * @param minPort the first port of the range
+     * @param maxPort the last port of the range, included if it is minPort plus a multiple of step
+     * @param step the distance between two ports of the range, e.g. 2 to only hand out even ports
+     * @param quarantineMs how long a released port stays unavailable
+     */
+    public PortAllocator(int minPort, int maxPort, int step, long quarantineMs) {
+        if (minPort < 1 || maxPort > 65535 || minPort > maxPort || step < 1 || quarantineMs < 0) {
+            throw new IllegalArgumentException("Invalid port range " + minPort + "-" + maxPort + " step " + step + " quarantine " + quarantineMs + "ms");
+        }
+        this.minPort = minPort;
+        this.maxPort = maxPort;
+        this.step = step;
+        this.quarantineNs = TimeUnit.MILLISECONDS.toNanos(quarantineMs);
+        int slots = (maxPort - minPort) / step + 1;
+        used = new long[(slots + 63) >>> 6];
+        quarantined = new long[used.length];
+        freeSlots = new int[slots];
+        freeIndexes = new int[slots];
+        //pushed from the last slot down, so that the lowest ports are allocated first
+        for (int i = 0; i < slots; i++) {
+            freeSlots[i] = slots - 1 - i;
+            freeIndexes[slots - 1 - i] = i;
+        }
+        freeCount = slots;
+        quarantineSlots = new int[slots];
+        quarantineStartsNs = new long[slots];
+    }
+
+    /**
+     * Allocates a free port
+     * @param nowNs the current time, from System.nanoTime()
+     * @return the port, -1 if all the ports of the range are in use or quarantined
+     */
+    public int allocate(long nowNs) {
+        endQuarantines(nowNs);
+        if (freeCount == 0) {
+            return -1;
+        }
+        int slot = freeSlots[--freeCount];
+        setBit(used, slot);
+        return toPort(slot);
+    }
+
+    /**
+     * Takes a given port of the range, e.g. one set in an Agent's configuration, so that it is not allocated
+     * @param port the port
+     * @param nowNs the current time, from System.nanoTime()
+     * @return whether the port was free, false if it is in use or quarantined
+     * @throws IllegalArgumentException if the port is not part of the range
+     */
+    public boolean reserve(int port, long nowNs) {
+        int slot = toSlot(port);
+        endQuarantines(nowNs);
+        if (isSet(used, slot)) {
+            return false;
+        }
+        //the last free slot takes the place of the reserved one
+        int index = freeIndexes[slot];
+        int lastSlot = freeSlots[--freeCount];
+        freeSlots[index] = lastSlot;
+        freeIndexes[lastSlot] = index;
+        setBit(used, slot);
+        return true;
+    }
+
+    /**
+     * Releases a port obtained from allocate() or reserve(). It can be allocated again once quarantined
+     * @param port the port
+     * @param nowNs the current time, from System.nanoTime()
+     * @throws IllegalArgumentException if the port is not part of the range
+     * @throws IllegalStateException if the port is not in use
+     */
+    public void release(int port, long nowNs) {
+        int slot = toSlot(port);
+        if (!isSet(used, slot) || isSet(quarantined, slot)) {
+            throw new IllegalStateException("Port " + port + " released but not in use");
+        }
+        setBit(quarantined, slot);
+        int tail = (quarantineHead + quarantineCount++) % quarantineSlots.length;
+        quarantineSlots[tail] = slot;
+        quarantineStartsNs[tail] = nowNs;
+        endQuarantines(nowNs);
+    }
+
+    /**
+     * Returns whether a port is part of the range handed out by this allocator
+     * @param port the port
+     * @return whether the port is in the range
+     */
+    public boolean contains(int port) {
+        return port >= minPort && port <= maxPort && (port - minPort) % step == 0;
+    }
+
+    /**
+     * Returns the number of ports which can be allocated
+     * @param nowNs the current time, from System.nanoTime()
+     * @return the free ports
+     */
+    public int getFreeCount(long nowNs) {
+        endQuarantines(nowNs);
+        return freeCount;
+    }
+
+    /**
+     * Returns the number of released ports which cannot be allocated yet
+     * @param nowNs the current time, from System.nanoTime()
+     * @return the quarantined ports
+     */
+    public int getQuarantinedCount(long nowNs) {
+        endQuarantines(nowNs);
+        return quarantineCount;
+    }
+
+    /**
+     * Returns the ports whose quarantine is over to the free ones
+     */
+    private void endQuarantines(long nowNs) {
+        while (quarantineCount > 0 && nowNs - quarantineStartsNs[quarantineHead] >= quarantineNs) {
+            int slot = quarantineSlots[quarantineHead];
+            quarantineHead = (quarantineHead + 1) % quarantineSlots.length;
+            quarantineCount--;
+            clearBit(quarantined, slot);
+            clearBit(used, slot);
+            freeIndexes[slot] = freeCount;
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    private int toSlot(int port) {
+        if (!contains(port)) {
+            throw new IllegalArgumentException("Port " + port + " not in range " + this);
+        }
+        return (port - minPort) / step;
+    }
+
+    private int toPort(int slot) {
+        return minPort + slot * step;
+    }
+
+    private static boolean isSet(long[] bits, int slot) {
+        return (bits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private static void setBit(long[] bits, int slot) {
+        bits[slot >>> 6] |= 1L << slot;
+    }
+
+    private static void clearBit(long[] bits, int slot) {
+        bits[slot >>> 6] &= ~(1L << slot);
+    }
+
+    @Override
+    public String toString() {
+        return minPort + "-" + maxPort + (step == 1 ? "" : " step " + step);
+    }
+}
@@ -0,0 +1,75 @@
+package com.sprinklr.sip4j.websocket;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import com.sprinklr.sip4j.media.RtpPacketizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+import static com.sprinklr.sip4j.utils.Constants.RTP_HEADER_SIZE;
+
+/**
+ * Turns the binary messages the bot sends to an Agent into packets on the Agent's outbound queue, whichever transport
+ * they were received on. Not thread-safe, called by the thread reading the bot's connection.
+ */
+public class BotMessageHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BotMessageHandler.class);
+    private final MediaQueue<ByteBuffer> outboundRtpQueue;
+    private final BufferPool outboundBufferPool;
+    /**
+     * Slices the bot's audio into RTP payloads when the header is stamped by the RtpSender, null if the bot sends
+     * complete RTP packets
+     */
+    private final RtpPacketizer packetizer;
+    private final String agentName;
+
+    /**
+     * @param outboundRtpQueue The queue where the messages from the voicebot are stored, which are to be sent via the RtpSender
+     * @param outboundBufferPool The pool from which the buffers holding the messages are taken
+     * @param agentConfig The configuration of the Agent to whom the messages are sent
+     */
+    public BotMessageHandler(MediaQueue<ByteBuffer> outboundRtpQueue, BufferPool outboundBufferPool, AgentConfig agentConfig) {
+        this.outboundRtpQueue = outboundRtpQueue;
+        this.outboundBufferPool = outboundBufferPool;
+        this.packetizer = agentConfig.isRtpHeaderStampingEnabled()
+                ? new RtpPacketizer(agentConfig.getRtpPayloadSize(), RTP_HEADER_SIZE, outboundBufferPool, outboundRtpQueue) : null;
+        this.agentName = agentConfig.getAgentName();
+    }
+
+    /**
+     * Queues the content of a message from the bot
+     * @param message Either a complete RTP packet, or audio of any length if the RTP header is stamped by the RtpSender.
+     *                Consumed by this call
+     */
+    public void onMessage(ByteBuffer message) {
+        if (packetizer != null) {
+            int dropped = packetizer.write(message);
+            if (dropped > 0) {
+                LOGGER.warn("Outbound queue full in {}, dropping {} packets from bot", agentName, dropped);
+            }
+            return;
+        }
+        //a message larger than the configured packet size is still forwarded, in a buffer which is not recycled
+        int length = message.remaining();
+        ByteBuffer packet = length <= outboundBufferPool.getBufferSize() ? outboundBufferPool.acquire() : ByteBuffer.allocate(length);
+        packet.put(message);
+        packet.flip();
+        if (!outboundRtpQueue.offer(packet)) {
+            outboundBufferPool.release(packet);
+            LOGGER.warn("Outbound queue full in {}, dropping packet from bot", agentName);
+        }
+    }
+
+    /**
+     * Called when the connection to the bot is lost
+     */
+    public void onDisconnect() {
+        if (packetizer != null) {
+            packetizer.clear(); //a partial payload cannot be completed by the audio sent after a reconnection
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.sprinklr.sip4j.websocket;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The Agent's end of the media stream to the voice bot, either a websocket of its own or a channel multiplexed with
+ * other Agents' over a shared websocket
+ */
+public interface BotTransport {
+
+    /**
+     * Starts connecting to the bot, returns without waiting for the connection to be established
+     */
+    void connect();
+
+    /**
+     * Sends a binary message to the bot. The message is serialised before this returns, so the buffer can be recycled
+     * right after
+     * @param data the message between its position and limit
+     * @throws org.java_websocket.exceptions.WebsocketNotConnectedException if the connection to the bot is not open
+     */
+    void send(ByteBuffer data);
+
+    /**
+     * Re-establishes the connection to the bot after it was lost
+     */
+    void reconnect();
+
+    /**
+     * Closes the media stream to the bot
+     */
+    void close();
+
+    /**
+     * Returns whether the connection to the bot is closed, e.g. because it was lost while the transport was idle
+     * @return true once the connection has closed, false while it is connecting or open
+     */
+    boolean isClosed();
+
+    /**
+     * Returns whether the connection to the bot is open, i.e. media can be sent
+     * @return true once the connection is established, until it closes
+     */
+    boolean isOpen();
+
+    /**
+     * Waits until the connection to the bot has been established, or has failed
+     * @param timeoutMs how long to wait, 0 to only look at the current state
+     * @return whether the connection is open
+     * @throws InterruptedException
+     */
+    boolean awaitOpen(long timeoutMs) throws InterruptedException;
+}
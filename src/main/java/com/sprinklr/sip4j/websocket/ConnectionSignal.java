@@ -0,0 +1,50 @@
+package com.sprinklr.sip4j.websocket;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wakes up the threads waiting for a websocket to open, once it has opened or closed. WebSocketClient only marks a
+ * connection closed after its onClose callback has run, so the outcome is recorded here rather than read back from it
+ */
+class ConnectionSignal {
+
+    private boolean open = false; //guarded by this, as is closed
+    private boolean closed = false;
+
+    /**
+     * Forgets the outcome of the previous connection, before connecting again
+     */
+    synchronized void connecting() {
+        open = false;
+        closed = false;
+    }
+
+    synchronized void opened() {
+        open = true;
+        notifyAll();
+    }
+
+    synchronized void closed() {
+        open = false;
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits until the connection has opened or closed
+     * @param timeoutMs how long to wait, 0 to only look at the current state
+     * @return whether the connection is open
+     * @throws InterruptedException
+     */
+    synchronized boolean awaitOpen(long timeoutMs) throws InterruptedException {
+        long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (!open && !closed) {
+            long remainingNs = deadlineNs - System.nanoTime();
+            if (remainingNs <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNs);
+        }
+        return open;
+    }
+}
@@ -0,0 +1,134 @@
+package com.sprinklr.sip4j.websocket;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.AgentState;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An Agent's media stream to the bot, carried as a channel of a websocket shared with other Agents. Obtained from
+ * MuxConnectionPool.open(). send() is called by the Agent's forwarding thread only, frames from the bot are delivered by
+ * the thread reading the shared connection.
+ */
+public class MuxChannel implements BotTransport {
+
+    private final MuxConnection connection;
+    private final int id;
+    private final BotMessageHandler messageHandler;
+    private final AgentState agentState;
+    private final String agentName;
+    /**
+     * Buffer in which outgoing media frames are built, grown to the largest message sent
+     */
+    private ByteBuffer frame;
+    private boolean closed = false;
+
+    MuxChannel(MuxConnection connection, MediaQueue<ByteBuffer> outboundRtpQueue, BufferPool outboundBufferPool,
+               AgentState agentState, AgentConfig agentConfig) {
+        this.connection = connection;
+        this.id = connection.nextChannelId();
+        this.messageHandler = new BotMessageHandler(outboundRtpQueue, outboundBufferPool, agentConfig);
+        this.agentState = agentState;
+        this.agentName = agentConfig.getAgentName();
+        this.frame = ByteBuffer.allocate(MuxFrame.HEADER_SIZE + outboundBufferPool.getBufferSize());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Attaches the channel to its shared connection. The connection itself is started by the pool
+     */
+    @Override
+    public void connect() {
+        connection.attach(this);
+    }
+
+    @Override
+    public void send(ByteBuffer data) {
+        if (!connection.isOpen()) {
+            throw new WebsocketNotConnectedException();
+        }
+        int length = MuxFrame.HEADER_SIZE + data.remaining();
+        if (length > frame.capacity()) {
+            frame = ByteBuffer.allocate(length);
+        }
+        frame.clear();
+        MuxFrame.writeHeader(frame, MuxFrame.TYPE_DATA, id);
+        frame.put(data);
+        frame.flip();
+        connection.send(frame); //frame is serialised before send returns, the buffer can be reused right after
+    }
+
+    /**
+     * Asks the shared connection to reconnect. Only the first of its channels to ask triggers a reconnection, the
+     * channels are announced again once it opens
+     */
+    @Override
+    public void reconnect() {
+        connection.reconnectIfClosed();
+    }
+
+    /**
+     * Announces the end of the channel to the bot and releases the shared connection
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        connection.detach(this);
+        if (connection.isOpen()) {
+            sendControl(MuxFrame.TYPE_CLOSE);
+        }
+        MuxConnectionPool.release(connection);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed || connection.isClosed();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed && connection.isOpen();
+    }
+
+    @Override
+    public boolean awaitOpen(long timeoutMs) throws InterruptedException {
+        return !closed && connection.awaitOpen(timeoutMs);
+    }
+
+    /**
+     * Sends a frame announcing the opening or closing of the channel. Called from any thread, so the frame buffer of
+     * the channel is not used
+     * @param type MuxFrame.TYPE_OPEN or MuxFrame.TYPE_CLOSE
+     */
+    void sendControl(int type) {
+        byte[] name = type == MuxFrame.TYPE_OPEN ? agentName.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        ByteBuffer control = ByteBuffer.allocate(MuxFrame.HEADER_SIZE + name.length);
+        MuxFrame.writeHeader(control, type, id);
+        control.put(name);
+        control.flip();
+        try {
+            connection.send(control);
+        } catch (WebsocketNotConnectedException e) {
+            //connection lost meanwhile, the channel is announced again when it reopens
+        }
+    }
+
+    void onMessage(ByteBuffer message) {
+        messageHandler.onMessage(message);
+    }
+
+    void onDisconnect(int code) {
+        agentState.setWsCloseCode(code);
+        messageHandler.onDisconnect();
+    }
+}
@@ -0,0 +1,149 @@
+package com.sprinklr.sip4j.websocket;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.enums.ReadyState;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A websocket to the bot shared by the channels of many Agents. Outgoing frames are tagged with the channel id of the
+ * sender, incoming frames are routed to the channel whose id they carry. The connection is thread-safe: frames are
+ * serialised by the sending thread and written in one piece, so channels send concurrently without coordination.
+ */
+class MuxConnection extends WebSocketClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MuxConnection.class);
+    private final String name;
+    private final Map<Integer, MuxChannel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger nextChannelId = new AtomicInteger();
+    private final AtomicLong unroutableFrames = new AtomicLong();
+    private final ConnectionSignal connectionSignal = new ConnectionSignal();
+    int users = 0; //guarded by MuxConnectionPool.class
+
+    /**
+     * Creates a connection which does not attempt to connect until connect() is called
+     * @param serverUri the uri of the bot websocket server
+     * @param name the name of the connection in logs
+     */
+    MuxConnection(URI serverUri, String name) {
+        super(serverUri, Collections.singletonMap(MuxFrame.HANDSHAKE_HEADER, String.valueOf(MuxFrame.VERSION)));
+        this.name = name;
+    }
+
+    /**
+     * Returns an id which no other channel of this connection uses
+     * @return the channel id
+     */
+    int nextChannelId() {
+        return nextChannelId.getAndIncrement();
+    }
+
+    /**
+     * Starts routing the frames of a channel to it, and announces the channel to the bot if the connection is open.
+     * Otherwise the channel is announced once the connection opens
+     * @param channel the channel to be attached
+     */
+    void attach(MuxChannel channel) {
+        channels.put(channel.getId(), channel);
+        if (isOpen()) {
+            channel.sendControl(MuxFrame.TYPE_OPEN);
+        }
+    }
+
+    /**
+     * Stops routing frames to a channel
+     * @param channel the channel to be detached
+     */
+    void detach(MuxChannel channel) {
+        channels.remove(channel.getId(), channel);
+    }
+
+    int getChannelCount() {
+        return channels.size();
+    }
+
+    /**
+     * Reconnects once after the connection was lost, however many channels ask for it
+     */
+    synchronized void reconnectIfClosed() {
+        if (getReadyState() == ReadyState.CLOSED) {
+            LOGGER.info("Reconnecting shared websocket {} with {} channels", name, channels.size());
+            reconnect();
+        }
+    }
+
+    /**
+     * Starts connecting to the bot, also called by reconnect() once the previous connection is closed
+     */
+    @Override
+    public void connect() {
+        connectionSignal.connecting();
+        super.connect();
+    }
+
+    /**
+     * Waits until the connection has been established, or has failed
+     * @param timeoutMs how long to wait, 0 to only look at the current state
+     * @return whether the connection is open
+     * @throws InterruptedException
+     */
+    boolean awaitOpen(long timeoutMs) throws InterruptedException {
+        return connectionSignal.awaitOpen(timeoutMs);
+    }
+
+    @Override
+    public void onOpen(ServerHandshake serverHandShake) {
+        LOGGER.info("Shared websocket {} opened with HttpStatus:{} and HttpStatusMessage:{}, announcing {} channels",
+                name, serverHandShake.getHttpStatus(), serverHandShake.getHttpStatusMessage(), channels.size());
+        for (MuxChannel channel : channels.values()) {
+            channel.sendControl(MuxFrame.TYPE_OPEN);
+        }
+        connectionSignal.opened();
+    }
+
+    @Override
+    public void onMessage(String message) {
+        //string message never sent by bot websocket server
+    }
+
+    @Override
+    public void onMessage(ByteBuffer byteBuffer) {
+        if (!MuxFrame.isValid(byteBuffer) || MuxFrame.getType(byteBuffer) != MuxFrame.TYPE_DATA) {
+            unroutableFrames.incrementAndGet();
+            return;
+        }
+        MuxChannel channel = channels.get(MuxFrame.getChannelId(byteBuffer));
+        if (channel == null) {
+            unroutableFrames.incrementAndGet(); //e.g. echo of a frame sent just before the channel was closed
+            return;
+        }
+        byteBuffer.position(byteBuffer.position() + MuxFrame.HEADER_SIZE);
+        channel.onMessage(byteBuffer);
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        LOGGER.info("Shared websocket {} closed with exit code {} additional info: {}, channels: {}, unroutable frames: {}",
+                name, code, reason, channels.size(), unroutableFrames.get());
+        for (MuxChannel channel : channels.values()) {
+            channel.onDisconnect(code);
+        }
+        connectionSignal.closed();
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        if (LOGGER.isErrorEnabled() && ex != null) {
+            LOGGER.error("Error occurred in shared websocket {}: {}", name, ex.toString());
+        }
+    }
+}
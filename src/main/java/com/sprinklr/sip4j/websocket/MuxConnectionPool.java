@@ -0,0 +1,95 @@
+package com.sprinklr.sip4j.websocket;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.AgentState;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Spreads the Agents talking to the same bot server over a fixed number of shared websockets, so thousands of calls cost
+ * a handful of TCP connections and client threads instead of one connection and two threads each. A channel is placed
+ * on the connection with the fewest users, connections are opened on first use and closed when their last channel is.
+ */
+public class MuxConnectionPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MuxConnectionPool.class);
+    private static final Map<String, MuxConnection[]> CONNECTIONS = new HashMap<>(); //guarded by MuxConnectionPool.class
+
+    private MuxConnectionPool() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Opens a channel to the Agent's bot server on one of the shared connections
+     * @param outboundRtpQueue The queue where the messages from the voicebot are stored, which are to be sent via the RtpSender
+     * @param outboundBufferPool The pool from which the buffers holding the messages are taken
+     * @param agentState The state of the Agent to whom the channel belongs
+     * @param agentConfig The configuration of the Agent, wsMuxConnections gives the number of connections to its wsServerUri
+     * @return the channel, to be attached with connect() and released with close()
+     * @throws URISyntaxException if wsServerUri is not a valid uri
+     */
+    public static synchronized MuxChannel open(MediaQueue<ByteBuffer> outboundRtpQueue, BufferPool outboundBufferPool,
+                                               AgentState agentState, AgentConfig agentConfig) throws URISyntaxException {
+        int size = agentConfig.getWsMuxConnections();
+        if (size <= 0) {
+            throw new IllegalArgumentException("wsMuxConnections should be positive, found " + size);
+        }
+        String uri = agentConfig.getWsServerUri();
+        MuxConnection[] connections = CONNECTIONS.get(uri);
+        if (connections == null || connections.length < size) {
+            connections = connections == null ? new MuxConnection[size] : Arrays.copyOf(connections, size);
+            CONNECTIONS.put(uri, connections);
+        }
+        int slot = 0;
+        for (int i = 0; i < connections.length; i++) {
+            if (connections[i] == null) {
+                slot = i;
+                break;
+            }
+            if (connections[i].users < connections[slot].users) {
+                slot = i;
+            }
+        }
+        MuxConnection connection = connections[slot];
+        if (connection == null) {
+            connection = new MuxConnection(new URI(uri), uri + "#" + slot);
+            connection.connect(); //starts a read and write thread internally, shared by all channels of the connection
+            connections[slot] = connection;
+            LOGGER.info("Opening shared websocket {}", uri + "#" + slot);
+        }
+        connection.users++;
+        return new MuxChannel(connection, outboundRtpQueue, outboundBufferPool, agentState, agentConfig);
+    }
+
+    /**
+     * Releases a connection used by a closed channel. The connection is closed once its last channel is
+     * @param connection the connection to be released
+     */
+    static synchronized void release(MuxConnection connection) {
+        if (--connection.users > 0) {
+            return;
+        }
+        String uri = connection.getURI().toString();
+        MuxConnection[] connections = CONNECTIONS.get(uri);
+        boolean inUse = false;
+        for (int i = 0; connections != null && i < connections.length; i++) {
+            if (connections[i] == connection) {
+                connections[i] = null;
+            }
+            inUse |= connections[i] != null;
+        }
+        if (!inUse) {
+            CONNECTIONS.remove(uri);
+        }
+        connection.close();
+    }
+}
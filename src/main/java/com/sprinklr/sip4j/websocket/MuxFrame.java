@@ -0,0 +1,61 @@
+package com.sprinklr.sip4j.websocket;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the binary frames exchanged on a websocket shared by several Agents. Every frame starts with a 5 byte header:
+ * <pre>
+ *  0               1                                               5
+ * +-------+-------+-------+-------+-------+-------+-------+-------+----------
+ * |version| type  |              channel id (big endian)          | payload...
+ * +-------+-------+-------+-------+-------+-------+-------+-------+----------
+ * </pre>
+ * The channel id identifies one Agent's call on the connection. OPEN carries the UTF-8 name of the Agent, DATA carries
+ * the same media as a dedicated websocket would, CLOSE carries nothing. The bot echoes media with the channel id it
+ * received it on.
+ */
+public class MuxFrame {
+
+    private MuxFrame() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Handshake header by which a client announces that it speaks this protocol
+     */
+    public static final String HANDSHAKE_HEADER = "X-Sip4j-Mux";
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 5;
+
+    public static final int TYPE_DATA = 0;
+    public static final int TYPE_OPEN = 1;
+    public static final int TYPE_CLOSE = 2;
+
+    /**
+     * Writes a header at the position of the buffer, and advances the position past it
+     * @param frame the buffer in which the frame is built
+     * @param type the type of the frame
+     * @param channelId the channel to which the frame belongs
+     */
+    public static void writeHeader(ByteBuffer frame, int type, int channelId) {
+        frame.put((byte) (VERSION << 4 | type));
+        frame.putInt(channelId);
+    }
+
+    /**
+     * Checks that a received frame is long enough for a header and was built with this version of the protocol
+     * @param frame the frame between its position and limit
+     * @return true if the header can be read
+     */
+    public static boolean isValid(ByteBuffer frame) {
+        return frame.remaining() >= HEADER_SIZE && (frame.get(frame.position()) & 0xFF) >> 4 == VERSION;
+    }
+
+    public static int getType(ByteBuffer frame) {
+        return frame.get(frame.position()) & 0x0F;
+    }
+
+    public static int getChannelId(ByteBuffer frame) {
+        return frame.getInt(frame.position() + 1);
+    }
+}
@@ -2,6 +2,8 @@ package com.sprinklr.sip4j.websocket;
 
 import com.sprinklr.sip4j.agent.AgentConfig;
 import com.sprinklr.sip4j.agent.AgentState;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.handshake.ServerHandshake;
 import org.slf4j.Logger;
@@ -10,16 +12,16 @@ import org.slf4j.LoggerFactory;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
-import java.util.Queue;
 
 /**
  * Agent's websocket entity which communicates for media transfer with voice bot websocket server
  */
-public class Websocket extends WebSocketClient {
+public class Websocket extends WebSocketClient implements BotTransport {
     private static final Logger LOGGER = LoggerFactory.getLogger(Websocket.class);
-    private final Queue<byte[]> outboundRtpQueue;
+    private final BotMessageHandler messageHandler;
     private final AgentState agentState;
     private final AgentConfig agentConfig;
+    private final ConnectionSignal connectionSignal = new ConnectionSignal();
 
     /**
      * Constructs a WebSocketClient instance and sets it to the connect to the specified URI. The
@@ -27,17 +29,32 @@ public class Websocket extends WebSocketClient {
      * call connect(). Uses Draft 6455 for connection.
      *
      * @param outboundRtpQueue The queue where the messages from the voicebot are stored, which are to be sent via the RtpSender
+     * @param outboundBufferPool The pool from which the buffers holding the messages are taken
      * @param agentState The state of the Agent to whom this websocket belongs.
      * @param agentConfig The configuration of the Agent to whom this websocket belongs
      * @throws URISyntaxException
      */
-    public Websocket(Queue<byte[]> outboundRtpQueue, AgentState agentState, AgentConfig agentConfig) throws URISyntaxException {
+    public Websocket(MediaQueue<ByteBuffer> outboundRtpQueue, BufferPool outboundBufferPool, AgentState agentState, AgentConfig agentConfig) throws URISyntaxException {
         super(new URI(agentConfig.getWsServerUri()));
-        this.outboundRtpQueue = outboundRtpQueue;
+        this.messageHandler = new BotMessageHandler(outboundRtpQueue, outboundBufferPool, agentConfig);
         this.agentState = agentState;
         this.agentConfig = agentConfig;
     }
 
+    /**
+     * Starts connecting to the bot, also called by reconnect() once the previous connection is closed
+     */
+    @Override
+    public void connect() {
+        connectionSignal.connecting();
+        super.connect();
+    }
+
+    @Override
+    public boolean awaitOpen(long timeoutMs) throws InterruptedException {
+        return connectionSignal.awaitOpen(timeoutMs);
+    }
+
     /**
      * Called after an opening handshake has been performed and the given websocket is ready to be
      * written on.
@@ -48,6 +65,7 @@ public class Websocket extends WebSocketClient {
     public void onOpen(ServerHandshake serverHandShake) {
         LOGGER.info("New connection opened for {} with HttpStatus:{} and HttpStatusMessage:{}",
                 agentConfig.getAgentName(), serverHandShake.getHttpStatus(), serverHandShake.getHttpStatusMessage());
+        connectionSignal.opened();
     }
 
     /**
@@ -63,11 +81,12 @@ public class Websocket extends WebSocketClient {
     /**
      * Callback for binary messages received from the remote host
      *
-     * @param byteBuffer The binary message that was received.
+     * @param byteBuffer The binary message that was received. Either a complete RTP packet, or audio of any length if the
+     *                   RTP header is stamped by the RtpSender
      */
     @Override
     public void onMessage(ByteBuffer byteBuffer) {
-        outboundRtpQueue.offer(byteBuffer.array());
+        messageHandler.onMessage(byteBuffer);
     }
 
     /**
@@ -81,6 +100,8 @@ public class Websocket extends WebSocketClient {
     public void onClose(int code, String reason, boolean remote) {
         LOGGER.info("closed {} with exit code {} additional info: {}", agentConfig.getAgentName(), code, reason);
         agentState.setWsCloseCode(code);
+        messageHandler.onDisconnect();
+        connectionSignal.closed();
     }
 
     /**
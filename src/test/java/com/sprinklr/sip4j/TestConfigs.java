@@ -0,0 +1,108 @@
+package com.sprinklr.sip4j;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.rtp.RtpEngine;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent configurations and local ports shared by the tests.
+ */
+public final class TestConfigs {
+
+	private TestConfigs() {
+		throw new IllegalStateException("Utility class");
+	}
+
+	/**
+	 * Returns a valid configuration of an Agent on the loopback address, whose sipLocalUsername is its name. Its local
+	 * ports are left at 0, to be handed out by the AgentManager or set by the test
+	 * @param agentName the name of the Agent
+	 * @return the configuration
+	 */
+	public static AgentConfig agentConfig(String agentName) {
+		AgentConfig config = new AgentConfig();
+		config.setAgentName(agentName);
+		config.setTransportMode("udp");
+		config.setSipLocalIp("127.0.0.1");
+		config.setSipLocalPort(0);
+		config.setSipLocalUsername(agentName);
+		config.setSipLocalRealm("127.0.0.1");
+		config.setSipRegistrarIp("127.0.0.1");
+		config.setSipRegistrarPort(5060);
+		config.setRtpLocalIp("127.0.0.1");
+		config.setRtpLocalPort(0);
+		config.setRtpAddressType("IP4");
+		config.setRtpNetworkType("IN");
+		config.setWsServerUri("ws://localhost:8887");
+		return config;
+	}
+
+	/**
+	 * Returns a valid configuration of an Agent on the loopback address with the given local ports
+	 * @param agentName the name of the Agent
+	 * @param sipLocalPort the local sip port, 0 to have one handed out
+	 * @param rtpLocalPort the local rtp port, 0 to have one handed out
+	 * @return the configuration
+	 */
+	public static AgentConfig agentConfig(String agentName, int sipLocalPort, int rtpLocalPort) {
+		AgentConfig config = agentConfig(agentName);
+		config.setSipLocalPort(sipLocalPort);
+		config.setRtpLocalPort(rtpLocalPort);
+		return config;
+	}
+
+	/**
+	 * Returns the configuration of an Agent which registers once with a registrar of the test, on free local ports and
+	 * with the shared rtp engine
+	 * @param agentName the name of the Agent
+	 * @param registrarPort the port of the registrar on the loopback address
+	 * @return the configuration
+	 * @throws IOException if no local port could be probed
+	 */
+	public static AgentConfig registeringAgentConfig(String agentName, int registrarPort) throws IOException {
+		AgentConfig config = agentConfig(agentName);
+		config.setSipLocalPort(freePort());
+		config.setSipRegistrarPort(registrarPort);
+		config.setSipRegisterExpiryTimeSec(0);
+		config.setRtpEngine(RtpEngine.SHARED);
+		config.setRtpLocalPort(freePort());
+		return config;
+	}
+
+	/**
+	 * Returns a udp port of the loopback address which was free when probed
+	 * @return the port
+	 * @throws IOException if no socket could be bound
+	 */
+	public static int freePort() throws IOException {
+		try (DatagramSocket probe = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			return probe.getLocalPort();
+		}
+	}
+
+	/**
+	 * Waits until a udp port of the loopback address can be bound. A channel registered with a selector is only released
+	 * once its event loop deregistered it, so the port is retried for a while
+	 * @param port the port
+	 * @throws BindException if the port is still taken after two seconds
+	 */
+	public static void awaitFreePort(int port) throws IOException, InterruptedException {
+		long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+		while (true) {
+			try {
+				new DatagramSocket(port, InetAddress.getLoopbackAddress()).close();
+				return;
+			} catch (BindException e) {
+				if (System.nanoTime() > deadlineNs) {
+					throw e;
+				}
+				Thread.sleep(10);
+			}
+		}
+	}
+}
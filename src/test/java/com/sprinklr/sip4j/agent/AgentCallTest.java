@@ -0,0 +1,142 @@
+package com.sprinklr.sip4j.agent;
+
+import com.sprinklr.sip4j.sip.SipState;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.sprinklr.sip4j.TestConfigs.registeringAgentConfig;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Places calls on a registered Agent from a socket which is both its registrar and the caller, and checks how the Agent
+ * ends calls whose media cannot be set up.
+ */
+class AgentCallTest {
+
+	private static final Pattern TO_TAG = Pattern.compile("(?im)^To:.*;tag=([^;\\s]+)");
+
+	private DatagramSocket peer;
+	private int agentPort;
+
+	@Test
+	void hangsUpACallWhoseMediaFailed() throws Exception {
+		try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			peer = socket;
+			peer.setSoTimeout(100);
+			AgentConfig agentConfig = registeringAgentConfig("call-test-agent", peer.getLocalPort());
+			agentConfig.setSipLocalUsername("agent");
+			//long-lived, an Agent with a single call slot stops after its first call
+			agentConfig.setSipMaxConcurrentCalls(2);
+			agentPort = agentConfig.getSipLocalPort();
+			Agent agent = new Agent(agentConfig);
+			Thread agentThread = new Thread(agent, "call-test-agent");
+			agentThread.start();
+			try {
+				long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+				while (!SipState.REGISTERED.equals(agent.getState().getSipState()) && System.nanoTime() < deadlineNs) {
+					receive();
+				}
+
+				//the Agent expects IP4 media, the session fails once the call is answered
+				//more calls than slots, each failed call has to give its slot back
+				for (String callId : new String[]{"failed-1", "failed-2", "failed-3"}) {
+					send(invite(callId));
+					String ok = expect("SIP/2.0 200", callId);
+					Matcher matcher = TO_TAG.matcher(ok);
+					assertTrue(matcher.find(), ok);
+					send(request("ACK", callId, 1, matcher.group(1), ""));
+
+					String bye = expect("BYE ", callId);
+					send(ok(bye));
+				}
+			} finally {
+				agent.stop();
+				agentThread.join(5000);
+			}
+		}
+	}
+
+	/**
+	 * Waits for a message of a call, answering the REGISTER requests of the Agent meanwhile
+	 * @return the message
+	 */
+	private String expect(String prefix, String callId) throws Exception {
+		long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (System.nanoTime() < deadlineNs) {
+			String message = receive();
+			if (message != null && message.startsWith(prefix) && message.contains("Call-ID: " + callId + "\r\n")) {
+				return message;
+			}
+		}
+		throw new AssertionError("No " + prefix + " for " + callId);
+	}
+
+	/**
+	 * Receives the next message, answering it with a 200 if it is a REGISTER
+	 * @return the message, null if none arrived in time
+	 */
+	private String receive() throws Exception {
+		DatagramPacket packet = new DatagramPacket(new byte[4096], 4096);
+		try {
+			peer.receive(packet);
+		} catch (SocketTimeoutException e) {
+			return null;
+		}
+		String message = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+		if (message.startsWith("REGISTER")) {
+			send(ok(message));
+		}
+		return message;
+	}
+
+	private void send(String message) throws Exception {
+		byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		peer.send(new DatagramPacket(bytes, bytes.length, InetAddress.getLoopbackAddress(), agentPort));
+	}
+
+	/**
+	 * Answers a request of the Agent with a 200 carrying its Via, From, To, Call-ID and CSeq headers
+	 */
+	private static String ok(String request) {
+		StringBuilder response = new StringBuilder("SIP/2.0 200 OK\r\n");
+		for (String line : request.split("\r\n")) {
+			if (line.startsWith("Via:") || line.startsWith("From:") || line.startsWith("To:") || line.startsWith("Call-ID:")
+					|| line.startsWith("CSeq:")) {
+				response.append(line).append("\r\n");
+			}
+		}
+		return response.append("Content-Length: 0\r\n\r\n").toString();
+	}
+
+	private String invite(String callId) {
+		String sdp = "v=0\r\n" +
+				"o=caller 1 1 IN IP6 ::1\r\n" +
+				"s=-\r\n" +
+				"c=IN IP6 ::1\r\n" +
+				"t=0 0\r\n" +
+				"m=audio 7000 RTP/AVP 0\r\n";
+		return request("INVITE", callId, 1, null, sdp);
+	}
+
+	private String request(String method, String callId, int cseq, String toTag, String body) {
+		int peerPort = peer.getLocalPort();
+		return method + " sip:agent@127.0.0.1:" + agentPort + " SIP/2.0\r\n" +
+				"Via: SIP/2.0/UDP 127.0.0.1:" + peerPort + ";branch=z9hG4bK-" + callId + "-" + method + "\r\n" +
+				"Max-Forwards: 70\r\n" +
+				"From: <sip:caller@127.0.0.1>;tag=caller\r\n" +
+				"To: <sip:agent@127.0.0.1>" + (toTag == null ? "" : ";tag=" + toTag) + "\r\n" +
+				"Call-ID: " + callId + "\r\n" +
+				"CSeq: " + cseq + " " + method + "\r\n" +
+				"Contact: <sip:caller@127.0.0.1:" + peerPort + ">\r\n" +
+				(body.isEmpty() ? "" : "Content-Type: application/sdp\r\n") +
+				"Content-Length: " + body.length() + "\r\n\r\n" + body;
+	}
+}
@@ -0,0 +1,73 @@
+package com.sprinklr.sip4j.agent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the registry serves copies of the configurations it loaded and follows the changes to their files.
+ */
+class AgentConfigRegistryTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void loadsOnceAndServesCopies() throws Exception {
+		write("agent1.yaml", "Agent_1", 5070);
+		write("notes.yaml", "Agent_x", 5090);
+
+		try (AgentConfigRegistry registry = new AgentConfigRegistry(directory)) {
+			AgentConfig first = registry.getConfig("1");
+			AgentConfig second = registry.getConfig("1");
+
+			assertEquals("Agent_1", first.getAgentName());
+			assertEquals(5070, second.getSipLocalPort());
+			assertNotEquals(first.getSipLocalTag(), second.getSipLocalTag());
+			assertEquals(1, registry.getIds().size());
+		}
+	}
+
+	@Test
+	void appliesChangedFiles() throws Exception {
+		write("agent1.yaml", "Agent_1", 5070);
+
+		try (AgentConfigRegistry registry = new AgentConfigRegistry(directory)) {
+			write("agent1.yaml", "Agent_1", 5072);
+			write("agent2.yaml", "Agent_2", 5074);
+			awaitTrue(() -> registry.getConfig("1").getSipLocalPort() == 5072 && registry.getConfig("2") != null);
+
+			Files.write(directory.resolve("agent2.yaml"), "sipLocalPort: [".getBytes(StandardCharsets.UTF_8));
+			Files.delete(directory.resolve("agent1.yaml"));
+			awaitTrue(() -> registry.getConfig("1") == null);
+			assertEquals(5074, registry.getConfig("2").getSipLocalPort());
+		}
+	}
+
+	private void write(String fileName, String agentName, int sipLocalPort) throws Exception {
+		String yaml = "agentName: " + agentName + "\n"
+				+ "transportMode: udp\n"
+				+ "sipLocalIp: 127.0.0.1\n"
+				+ "sipLocalPort: '" + sipLocalPort + "'\n"
+				+ "rtpPayloadSize: '256'\n";
+		Files.write(directory.resolve(fileName), yaml.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean() && System.nanoTime() < deadlineNs) {
+			Thread.sleep(10);
+		}
+		assertTrue(condition.getAsBoolean());
+	}
+}
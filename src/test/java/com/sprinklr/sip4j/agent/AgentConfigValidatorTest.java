@@ -0,0 +1,81 @@
+package com.sprinklr.sip4j.agent;
+
+import com.sprinklr.sip4j.media.OverflowPolicy;
+import com.sprinklr.sip4j.rtp.RtpEngine;
+import com.sprinklr.sip4j.utils.VirtualThreads;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.sprinklr.sip4j.TestConfigs.agentConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the validation of the fields of the configurations of a provisioning request.
+ */
+class AgentConfigValidatorTest {
+
+	@Test
+	void reportsMissingAndInvalidFields() {
+		AgentConfig config = agentConfig("agent1", 5070, 6022);
+		config.setSipLocalIp(null);
+		config.setRtpLocalPort(-1);
+		config.setSipMaxConcurrentCalls(2);
+
+		List<String> errors = AgentConfigValidator.validate(config);
+
+		assertEquals(3, errors.size(), errors::toString);
+		assertTrue(errors.contains("sipLocalIp is required"), errors::toString);
+	}
+
+	@Test
+	void rejectsBlockingProducersSharedByOtherCalls() {
+		AgentConfig config = agentConfig("agent1", 5070, 6022);
+		config.setRtpEngine(RtpEngine.NIO);
+		config.setInboundOverflowPolicy(OverflowPolicy.BLOCK);
+		config.setOutboundOverflowPolicy("dropAll");
+
+		List<String> errors = AgentConfigValidator.validate(config);
+
+		assertEquals(2, errors.size(), errors::toString);
+		assertTrue(errors.contains("inboundOverflowPolicy block needs rtpEngine blocking"), errors::toString);
+	}
+
+	@Test
+	void rejectsTheWarmPoolWithTheBlockingEngine() {
+		AgentConfig config = agentConfig("agent1", 5070, 6022);
+		config.setWarmPoolEnabled(true);
+
+		assertEquals(Collections.singletonList("warmPoolEnabled needs rtpEngine nio or shared"), AgentConfigValidator.validate(config));
+		config.setRtpEngine(RtpEngine.NIO);
+		assertTrue(AgentConfigValidator.validate(config).isEmpty());
+	}
+
+	@Test
+	void rejectsDynamicPayloadTypes() {
+		AgentConfig config = agentConfig("agent1", 5070, 6022);
+		config.setRtpPayloadType(96);
+
+		assertEquals(Collections.singletonList("rtpPayloadType must be a static payload type between 0 and 95, not 96"),
+				AgentConfigValidator.validate(config));
+		config.setRtpPayloadType(8);
+		assertTrue(AgentConfigValidator.validate(config).isEmpty());
+	}
+
+	@Test
+	void acceptsVirtualThreadsOnlyWhereTheRuntimeHasThem() {
+		AgentConfig config = agentConfig("agent1", 5070, 6022);
+		config.setExecutionMode(ExecutionMode.VIRTUAL);
+
+		List<String> errors = AgentConfigValidator.validate(config);
+
+		assertEquals(VirtualThreads.isSupported(), errors.isEmpty(), errors::toString);
+	}
+
+	@Test
+	void acceptsPortsToBeAllocated() {
+		assertTrue(AgentConfigValidator.validate(agentConfig("agent1", 0, 0)).isEmpty());
+	}
+}
@@ -0,0 +1,71 @@
+package com.sprinklr.sip4j.agent;
+
+import com.sprinklr.sip4j.rtp.RtpEngine;
+import com.sprinklr.sip4j.utils.PortAllocator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.sprinklr.sip4j.TestConfigs.agentConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the local ports the AgentManager hands out and the addresses it lets Agents share.
+ */
+class AgentManagerTest {
+
+	private final AgentManager agentManager = new AgentManager(new PortAllocator(16000, 16001, 1, 0), new PortAllocator(20000, 20002, 2, 0));
+
+	@Test
+	void handsOutAndRecyclesPorts() {
+		Agent first = add(agentConfig("agent1", 0, 0));
+		Agent second = add(agentConfig("agent2", 0, 0));
+		assertEquals(16000, first.getConfig().getSipLocalPort());
+		assertEquals(20002, second.getConfig().getRtpLocalPort());
+
+		List<String> errors = agentManager.addAgent(new Agent(agentConfig("agent3", 0, 0)), agentConfig("agent3", 0, 0));
+		assertEquals(2, errors.size(), errors::toString);
+
+		agentManager.removeAgent(first);
+		assertTrue(add(agentConfig("agent3", 0, 0)).getConfig().getSipLocalPort() > 0);
+	}
+
+	@Test
+	void rejectsAddressesUsedByAnotherAgent() {
+		add(agentConfig("agent1", 5070, 20000));
+
+		AgentConfig config = agentConfig("agent2", 5070, 20000);
+		List<String> errors = agentManager.addAgent(new Agent(config), config);
+
+		assertEquals(2, errors.size(), errors::toString);
+		//the configured rtp port of the range is not handed out
+		assertEquals(20002, add(agentConfig("agent3", 5072, 0)).getConfig().getRtpLocalPort());
+		assertEquals(2, agentManager.getNames().size());
+	}
+
+	@Test
+	void letsAgentsShareAddresses() {
+		Agent[] agents = new Agent[2];
+		for (int i = 0; i < agents.length; i++) {
+			AgentConfig config = agentConfig("agent" + i, 5070, 20000);
+			config.setSipSharedStack(true);
+			config.setRtpEngine(RtpEngine.SHARED);
+			agents[i] = add(config);
+		}
+		agentManager.removeAgent(agents[0]);
+
+		AgentConfig config = agentConfig("agent2", 5070, 20000);
+		List<String> errors = agentManager.addAgent(new Agent(config), config);
+		assertEquals(2, errors.size(), errors::toString);
+		agentManager.removeAgent(agents[1]);
+		assertTrue(agentManager.addAgent(new Agent(config), config).isEmpty());
+	}
+
+	private Agent add(AgentConfig config) {
+		Agent agent = new Agent(config);
+		List<String> errors = agentManager.addAgent(agent, config);
+		assertTrue(errors.isEmpty(), errors::toString);
+		return agent;
+	}
+}
@@ -0,0 +1,77 @@
+package com.sprinklr.sip4j.agent;
+
+import com.sprinklr.sip4j.metrics.StartupTimeline;
+import com.sprinklr.sip4j.sip.SipState;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static com.sprinklr.sip4j.TestConfigs.registeringAgentConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts an Agent against a registrar which accepts every REGISTER and checks the phases of its startup timeline.
+ */
+class AgentStartupTest {
+
+	@Test
+	void recordsStartupPhases() throws Exception {
+		try (DatagramSocket registrar = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			registrar.setSoTimeout(100);
+			Agent agent = new Agent(registeringAgentConfig("startup-test-agent", registrar.getLocalPort()));
+			Thread agentThread = new Thread(agent, "startup-test-agent");
+			agentThread.start();
+
+			long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (!SipState.REGISTERED.equals(agent.getState().getSipState()) && System.nanoTime() < deadlineNs) {
+				acceptRegister(registrar);
+			}
+			agent.stop();
+			agentThread.join(5000);
+
+			StartupTimeline startup = agent.getStats().getStartup();
+			assertEquals(SipState.DISCONNECTED, agent.getState().getSipState(), startup::toString);
+			long configLoadedNs = startup.getElapsedNs(StartupTimeline.CONFIG_LOADED);
+			long sipStackReadyNs = startup.getElapsedNs(StartupTimeline.SIP_STACK_READY);
+			long registerSentNs = startup.getElapsedNs(StartupTimeline.REGISTER_SENT);
+			long registeredNs = startup.getElapsedNs(StartupTimeline.REGISTERED);
+			assertTrue(configLoadedNs >= 0 && configLoadedNs <= sipStackReadyNs, startup::toString);
+			//the 200 may be processed before the thread sending the REGISTER marks it as sent
+			assertTrue(sipStackReadyNs <= registerSentNs && sipStackReadyNs <= registeredNs, startup::toString);
+			assertTrue(startup.getElapsedNs(StartupTimeline.RTP_BOUND) > 0, startup::toString);
+			assertTrue(startup.getElapsedNs(StartupTimeline.READY) > 0, startup::toString);
+			assertEquals(-1, startup.getElapsedNs(StartupTimeline.BOT_CONNECTED), startup::toString);
+		}
+	}
+
+	/**
+	 * Answers the next REGISTER with a 200, if one arrives
+	 */
+	private static void acceptRegister(DatagramSocket registrar) throws Exception {
+		DatagramPacket packet = new DatagramPacket(new byte[4096], 4096);
+		try {
+			registrar.receive(packet);
+		} catch (SocketTimeoutException e) {
+			return;
+		}
+		String request = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+		if (!request.startsWith("REGISTER")) {
+			return;
+		}
+		StringBuilder response = new StringBuilder("SIP/2.0 200 OK\r\n");
+		for (String line : request.split("\r\n")) {
+			if (line.startsWith("Via:") || line.startsWith("From:") || line.startsWith("To:") || line.startsWith("Call-ID:") || line.startsWith("CSeq:")) {
+				response.append(line).append("\r\n");
+			}
+		}
+		response.append("Content-Length: 0\r\n\r\n");
+		byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+		registrar.send(new DatagramPacket(bytes, bytes.length, packet.getSocketAddress()));
+	}
+}
@@ -0,0 +1,177 @@
+package com.sprinklr.sip4j.agent;
+
+import com.sprinklr.sip4j.rtp.RtpEngine;
+import com.sprinklr.sip4j.websocket.BotTransport;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.sprinklr.sip4j.TestConfigs.agentConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the spare bot transport a call slot of the warm pool keeps connected while it is idle, against a bot stand-in
+ * which records the connections opened to it.
+ */
+class CallSessionWarmPoolTest {
+
+	private Bot bot;
+	private CallSession session;
+
+	@BeforeEach
+	void startBot() throws Exception {
+		bot = new Bot();
+		bot.start();
+		assertTrue(bot.started.await(10, TimeUnit.SECONDS));
+		AgentConfig agentConfig = agentConfig("warm-pool-test-agent");
+		agentConfig.setRtpEngine(RtpEngine.NIO);
+		agentConfig.setWarmPoolEnabled(true);
+		agentConfig.setRtpPayloadSize(160);
+		agentConfig.setWsServerUri("ws://127.0.0.1:" + bot.getPort());
+		session = new CallSession(agentConfig, new AgentStats(agentConfig.getAgentName()), null, 0, call -> { });
+	}
+
+	@AfterEach
+	void stopBot() throws Exception {
+		session.close();
+		bot.stop();
+	}
+
+	@Test
+	void nextCallTakesTheSpareTransport() throws Exception {
+		assertTrue(session.warmUp(5000));
+		WebSocket spare = bot.opened.poll(5, TimeUnit.SECONDS);
+		assertNotNull(spare);
+
+		BotTransport transport = session.takeSpareTransport();
+
+		//the call is served by the connection made while the slot was idle, no handshake on the call's path
+		assertTrue(transport.isOpen());
+		assertNull(bot.opened.poll(100, TimeUnit.MILLISECONDS));
+		transport.send(ByteBuffer.wrap(new byte[]{1}));
+		assertEquals(spare, bot.received.poll(5, TimeUnit.SECONDS));
+		transport.close();
+
+		//the slot warms up again for the call after
+		assertTrue(session.warmUp(5000));
+		assertNotNull(bot.opened.poll(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void reconnectsASpareLostWhileIdle() throws Exception {
+		assertTrue(session.warmUp(5000));
+		WebSocket spare = bot.opened.poll(5, TimeUnit.SECONDS);
+		assertNotNull(spare);
+		spare.close();
+		assertNotNull(bot.closed.poll(5, TimeUnit.SECONDS));
+
+		BotTransport transport = awaitClosedSpareTaken();
+
+		WebSocket reconnected = bot.opened.poll(5, TimeUnit.SECONDS);
+		assertNotNull(reconnected, "the lost spare was not reconnected");
+		long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!transport.isOpen() && System.nanoTime() < deadlineNs) {
+			Thread.sleep(10);
+		}
+		transport.send(ByteBuffer.wrap(new byte[]{1}));
+		assertEquals(reconnected, bot.received.poll(5, TimeUnit.SECONDS));
+		transport.close();
+	}
+
+	@Test
+	void stopsWaitingOnceTheBotRefusesTheConnection() throws Exception {
+		int closedPort;
+		try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			closedPort = probe.getLocalPort();
+		}
+		AgentConfig agentConfig = agentConfig("warm-pool-refused-agent");
+		agentConfig.setRtpEngine(RtpEngine.NIO);
+		agentConfig.setWarmPoolEnabled(true);
+		agentConfig.setRtpPayloadSize(160);
+		agentConfig.setWsServerUri("ws://127.0.0.1:" + closedPort);
+		CallSession refused = new CallSession(agentConfig, new AgentStats(agentConfig.getAgentName()), null, 0, call -> { });
+		try {
+			long startNs = System.nanoTime();
+			assertFalse(refused.warmUp(30_000));
+			//woken up by the failed connection rather than by the timeout
+			assertTrue(System.nanoTime() - startNs < TimeUnit.SECONDS.toNanos(10));
+		} finally {
+			refused.close();
+		}
+	}
+
+	/**
+	 * Takes the spare transport once the client side has noticed the close. warmUp(0) keeps the spare and only reports
+	 * whether it is open
+	 */
+	private BotTransport awaitClosedSpareTaken() throws Exception {
+		long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (session.warmUp(0) && System.nanoTime() < deadlineNs) {
+			Thread.sleep(10);
+		}
+		//warmUp(0) turns false in onClose, WebSocketClient marks the connection closed and stops its threads afterwards
+		Thread.sleep(100);
+		return session.takeSpareTransport();
+	}
+
+	/**
+	 * Bot stand-in which records the connections opened and closed, and the connections on which messages arrive
+	 */
+	private static class Bot extends WebSocketServer {
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final BlockingQueue<WebSocket> opened = new LinkedBlockingQueue<>();
+		private final BlockingQueue<WebSocket> closed = new LinkedBlockingQueue<>();
+		private final BlockingQueue<WebSocket> received = new LinkedBlockingQueue<>();
+
+		Bot() {
+			super(new InetSocketAddress("127.0.0.1", 0));
+			setReuseAddr(true);
+		}
+
+		@Override
+		public void onOpen(WebSocket conn, ClientHandshake handshake) {
+			opened.add(conn);
+		}
+
+		@Override
+		public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+			closed.add(conn);
+		}
+
+		@Override
+		public void onMessage(WebSocket conn, String message) {
+			//only binary messages are sent
+		}
+
+		@Override
+		public void onMessage(WebSocket conn, ByteBuffer message) {
+			received.add(conn);
+		}
+
+		@Override
+		public void onError(WebSocket conn, Exception ex) {
+			ex.printStackTrace();
+		}
+
+		@Override
+		public void onStart() {
+			started.countDown();
+		}
+	}
+}
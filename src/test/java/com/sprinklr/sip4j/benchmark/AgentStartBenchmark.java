@@ -0,0 +1,82 @@
+package com.sprinklr.sip4j.benchmark;
+
+import com.sprinklr.sip4j.agent.Agent;
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.AgentConfigRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent starts per millisecond handled by AgentService.startAgent(), up to the submission of the Agent to its executor.
+ * The baseline is the former path, which opened and parsed agent1.yaml with SnakeYAML on every start; with the
+ * AgentConfigRegistry a start copies the configuration parsed when the file was loaded or last changed.
+ * Not a unit test, run from the project directory with (exec:exec, the forked trials need the test classpath):
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test "-Dexec.args=-cp %classpath com.sprinklr.sip4j.benchmark.AgentStartBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+public class AgentStartBenchmark {
+
+	private static final Path YAML_CONFIG_DIR = Paths.get("src/main/resources/yaml");
+
+	private final Yaml yaml = new Yaml();
+	private AgentConfigRegistry registry;
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.include(AgentStartBenchmark.class.getSimpleName())
+				.addProfiler("gc")
+				.build();
+		new Runner(options).run();
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		registry = new AgentConfigRegistry(YAML_CONFIG_DIR);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		registry.close();
+	}
+
+	@Benchmark
+	public Agent yamlStart() throws IOException {
+		long loadStartNs = System.nanoTime();
+		try (InputStream ymlStream = Files.newInputStream(YAML_CONFIG_DIR.resolve("agent1.yaml"))) {
+			AgentConfig config = yaml.loadAs(ymlStream, AgentConfig.class);
+			return new Agent(config, loadStartNs);
+		}
+	}
+
+	@Benchmark
+	public Agent registryStart() {
+		long loadStartNs = System.nanoTime();
+		return new Agent(registry.getConfig("1"), loadStartNs);
+	}
+}
@@ -0,0 +1,189 @@
+package com.sprinklr.sip4j.benchmark;
+
+import com.sprinklr.sip4j.media.PayloadBatcher;
+import com.sprinklr.sip4j.metrics.BatchStats;
+import com.sprinklr.sip4j.rtp.RtpPacketView;
+import org.java_websocket.WebSocket;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Prints the throughput vs latency curve of the inbound batching stage (wsBatchMs) for 20ms PCMU packets.
+ * Throughput is measured by pushing packets as fast as possible through a loopback websocket to a server which counts
+ * the audio bytes, latency is the time payloads are held in a batch when packets arrive in real time with 1% loss.
+ * Not a unit test, run with:
+ * mvn test-compile exec:java -Dexec.mainClass=com.sprinklr.sip4j.benchmark.BatchingBenchmark -Dexec.classpathScope=test
+ */
+public class BatchingBenchmark {
+
+	private static final int[] BATCH_MS = {0, 20, 40, 60, 100, 200};
+	private static final int PTIME_MS = 20;
+	private static final int PAYLOAD_SIZE = 160;
+	private static final int HEADER_SIZE = 12;
+	private static final int THROUGHPUT_PACKETS = 200_000;
+	private static final int LATENCY_PACKETS = 100_000;
+	private static final double LOSS_RATIO = 0.01;
+
+	public static void main(String[] args) throws Exception {
+		System.out.printf("%-10s %14s %14s %12s %12s %12s%n", "wsBatchMs", "packets/s", "frames/s", "holdMeanUs", "holdP99Us", "holdMaxUs");
+		for (int batchMs : BATCH_MS) {
+			measureThroughput(batchMs); //warm up
+			double[] throughput = measureThroughput(batchMs);
+			BatchStats latency = measureLatency(batchMs);
+			System.out.printf("%-10d %14.0f %14.0f %12d %12d %12d%n", batchMs, throughput[0], throughput[1],
+					latency.getHoldTime().getMeanMicros(), latency.getHoldTime().getPercentileMicros(99), latency.getHoldTime().getMaxMicros());
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Sends packets as fast as possible and waits until the server has received all the audio
+	 * @return packets per second and websocket frames per second
+	 */
+	private static double[] measureThroughput(int batchMs) throws Exception {
+		long expectedBytes = (long) THROUGHPUT_PACKETS * (batchMs == 0 ? HEADER_SIZE + PAYLOAD_SIZE : PAYLOAD_SIZE);
+		CountingServer server = new CountingServer(expectedBytes);
+		server.start();
+		server.started.await();
+		WebSocketClient client = new WebSocketClient(new URI("ws://127.0.0.1:" + server.getPort())) {
+			@Override
+			public void onOpen(ServerHandshake handshake) {
+				//nothing to do
+			}
+
+			@Override
+			public void onMessage(String message) {
+				//nothing to do
+			}
+
+			@Override
+			public void onClose(int code, String reason, boolean remote) {
+				//nothing to do
+			}
+
+			@Override
+			public void onError(Exception ex) {
+				ex.printStackTrace();
+			}
+		};
+		client.connectBlocking();
+
+		Consumer<ByteBuffer> sink = client::send;
+		PayloadBatcher batcher = batchMs == 0 ? null : new PayloadBatcher(batchMs, PTIME_MS, PAYLOAD_SIZE, sink, new BatchStats());
+		ByteBuffer packet = newPacket();
+		RtpPacketView view = new RtpPacketView().wrap(packet);
+		long startNs = System.nanoTime();
+		for (int i = 0; i < THROUGHPUT_PACKETS; i++) {
+			view.setSequenceNumber(i);
+			if (batcher == null) {
+				sink.accept(packet);
+				packet.rewind();
+			} else {
+				batcher.add(packet, startNs);
+			}
+		}
+		if (batcher != null) {
+			batcher.flush(startNs);
+		}
+		if (!server.done.await(60, TimeUnit.SECONDS)) {
+			System.err.println("received " + server.bytes.get() + " of " + expectedBytes + " bytes in " + server.frames.get() + " frames");
+		}
+		double seconds = (System.nanoTime() - startNs) / 1e9;
+		double[] result = {THROUGHPUT_PACKETS / seconds, server.frames.get() / seconds};
+		client.closeBlocking();
+		server.stop();
+		return result;
+	}
+
+	/**
+	 * Feeds packets at their real-time arrival instants, on a simulated clock, and records how long payloads are held
+	 */
+	private static BatchStats measureLatency(int batchMs) {
+		BatchStats stats = new BatchStats();
+		if (batchMs == 0) {
+			return stats; //every packet is sent on arrival
+		}
+		PayloadBatcher batcher = new PayloadBatcher(batchMs, PTIME_MS, PAYLOAD_SIZE, frame -> { }, stats);
+		ByteBuffer packet = newPacket();
+		Random random = new Random(42);
+		long ptimeNs = TimeUnit.MILLISECONDS.toNanos(PTIME_MS);
+		long stepNs = TimeUnit.MILLISECONDS.toNanos(1);
+		for (int i = 0; i < LATENCY_PACKETS; i++) {
+			long arrivalNs = i * ptimeNs;
+			for (long nowNs = arrivalNs - ptimeNs + stepNs; nowNs < arrivalNs; nowNs += stepNs) {
+				batcher.flushIfDue(nowNs); //the forwarding loop wakes up when a batch is due
+			}
+			if (random.nextDouble() >= LOSS_RATIO) {
+				batcher.add(packet, arrivalNs);
+			}
+		}
+		return stats;
+	}
+
+	private static ByteBuffer newPacket() {
+		ByteBuffer packet = ByteBuffer.allocate(HEADER_SIZE + PAYLOAD_SIZE);
+		new RtpPacketView().wrap(packet).writeHeader(0, 0, 0, 1, false);
+		return packet;
+	}
+
+	/**
+	 * Bot stand-in which counts the bytes and frames it receives
+	 */
+	private static class CountingServer extends WebSocketServer {
+		private final long expectedBytes;
+		private final AtomicLong bytes = new AtomicLong();
+		private final AtomicLong frames = new AtomicLong();
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		CountingServer(long expectedBytes) {
+			super(new InetSocketAddress("127.0.0.1", 0));
+			this.expectedBytes = expectedBytes;
+			setReuseAddr(true);
+		}
+
+		@Override
+		public void onMessage(WebSocket conn, ByteBuffer message) {
+			frames.incrementAndGet();
+			if (bytes.addAndGet(message.remaining()) >= expectedBytes) {
+				done.countDown();
+			}
+		}
+
+		@Override
+		public void onStart() {
+			started.countDown();
+		}
+
+		@Override
+		public void onOpen(WebSocket conn, ClientHandshake handshake) {
+			//nothing to do
+		}
+
+		@Override
+		public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+			//nothing to do
+		}
+
+		@Override
+		public void onMessage(WebSocket conn, String message) {
+			//nothing to do
+		}
+
+		@Override
+		public void onError(WebSocket conn, Exception ex) {
+			ex.printStackTrace();
+		}
+	}
+}
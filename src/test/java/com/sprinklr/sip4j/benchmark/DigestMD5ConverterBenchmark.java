@@ -0,0 +1,109 @@
+package com.sprinklr.sip4j.benchmark;
+
+import com.sprinklr.sip4j.utils.DigestMD5Converter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the digest computed for each authenticated REGISTER, by 1 and 4 concurrent threads as when many Agents
+ * re-register together. The baseline is the former implementation, a single MessageDigest shared by all threads (which
+ * must be locked to give correct hashes) and a BigInteger based hex encoding.
+ * Not a unit test, run with exec:exec rather than exec:java, whose classpath the JVM forked by JMH would not get:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test "-Dexec.args=-cp %classpath com.sprinklr.sip4j.benchmark.DigestMD5ConverterBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DigestMD5ConverterBenchmark {
+
+	private static final String USERNAME = "agent0042";
+	private static final String REALM = "ozonetel.com";
+	private static final String PASSWORD = "password12345";
+	private static final String METHOD = "REGISTER";
+	private static final String URI = "sip:10.0.0.1:5060";
+	private static final String NONCE = "f84f1cec41e6cbe5aea9c8e88d359";
+
+	private final MessageDigest sharedMd;
+
+	public DigestMD5ConverterBenchmark() {
+		try {
+			sharedMd = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		for (int threads : new int[]{1, 4}) {
+			Options options = new OptionsBuilder()
+					.include(DigestMD5ConverterBenchmark.class.getSimpleName())
+					.threads(threads)
+					.build();
+			new Runner(options).run();
+		}
+	}
+
+	@Benchmark
+	public String sharedDigest() {
+		String ha1 = legacyHashToMD5(USERNAME, REALM, PASSWORD);
+		String ha2 = legacyHashToMD5(METHOD, URI);
+		return legacyHashToMD5(ha1, NONCE, ha2);
+	}
+
+	@Benchmark
+	public String perThreadDigest() throws NoSuchAlgorithmException {
+		return DigestMD5Converter.digestResponseFromNonce(USERNAME, REALM, PASSWORD, METHOD, URI, NONCE);
+	}
+
+	@Benchmark
+	public String perThreadDigestCachedHa1() throws NoSuchAlgorithmException {
+		return DigestMD5Converter.digestResponseFromNonce(CachedHa1.HA1, METHOD, URI, NONCE);
+	}
+
+	private String legacyHashToMD5(String... args) {
+		String inputString = String.join(":", args);
+		byte[] inputBytes;
+		synchronized (sharedMd) {
+			inputBytes = sharedMd.digest(inputString.getBytes());
+		}
+		BigInteger no = new BigInteger(1, inputBytes);
+		String hashText = no.toString(16);
+		int padLen = 32 - hashText.length();
+		String padding = String.join("", Collections.nCopies(padLen, "0"));
+		return padding + hashText;
+	}
+
+	/**
+	 * HA1 as cached per realm by DigestAuthCache
+	 */
+	private static class CachedHa1 {
+		private static final String HA1;
+
+		static {
+			try {
+				HA1 = DigestMD5Converter.ha1(USERNAME, REALM, PASSWORD);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package com.sprinklr.sip4j.benchmark;
+
+import com.sprinklr.sip4j.agent.ExecutionMode;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import com.sprinklr.sip4j.utils.VirtualThreads;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares the platform and virtual execution modes with 100, 1,000 and 5,000 simulated Agents. Each Agent has the
+ * threading shape of a real one: a signalling task waiting for the call to end, an RTP receive task producing a 20ms
+ * packet into the inbound queue, the forwarding loop echoing it to the outbound queue as the bot would, and an RTP send
+ * task draining the outbound queue. Reports live and peak platform threads, resident memory and the forwarding latency,
+ * i.e. the time from a packet's arrival in the inbound queue until the forwarding loop picks it up.
+ * Not a unit test, run once per mode so that memory is not shared between runs, optionally followed by the agent counts:
+ * mvn test-compile exec:java -Dexec.mainClass=com.sprinklr.sip4j.benchmark.ExecutionModeBenchmark -Dexec.classpathScope=test -Dexec.args=platform
+ * mvn -Pjava21 test-compile exec:java -Dexec.mainClass=com.sprinklr.sip4j.benchmark.ExecutionModeBenchmark -Dexec.classpathScope=test -Dexec.args=virtual
+ */
+public class ExecutionModeBenchmark {
+
+	private static final int[] AGENT_COUNTS = {100, 1_000, 5_000};
+	private static final int N_HELPER_THREADS = 3;
+	private static final int PACKET_SIZE = 172;
+	private static final int QUEUE_CAPACITY = 64;
+	private static final long PTIME_NS = TimeUnit.MILLISECONDS.toNanos(20);
+	private static final long POLL_TIMEOUT_MS = 100;
+	private static final long WARMUP_SECONDS = 3;
+	private static final long MEASURED_SECONDS = 10;
+
+	public static void main(String[] args) throws Exception {
+		String mode = args.length > 0 ? args[0] : ExecutionMode.PLATFORM;
+		if (ExecutionMode.VIRTUAL.equals(mode) && !VirtualThreads.isSupported()) {
+			System.err.println("virtual mode needs Java 21 or later, running on Java " + System.getProperty("java.version"));
+			System.exit(1);
+		}
+		System.out.printf("%-9s %7s %9s %9s %9s %10s %10s %10s %12s%n",
+				"mode", "agents", "threads", "peakThr", "rssMb", "fwdP50Us", "fwdP99Us", "fwdMaxUs", "packets");
+		int[] agentCounts = AGENT_COUNTS;
+		if (args.length > 1) {
+			agentCounts = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++) {
+				agentCounts[i - 1] = Integer.parseInt(args[i]);
+			}
+		}
+		for (int agents : agentCounts) {
+			run(mode, agents);
+			System.gc();
+			Thread.sleep(1000);
+		}
+		System.exit(0);
+	}
+
+	private static void run(String mode, int agentCount) throws InterruptedException {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		Run run = new Run();
+		ExecutorService service = ExecutionMode.VIRTUAL.equals(mode)
+				? VirtualThreads.newThreadPerTaskExecutor("agent-")
+				: Executors.newCachedThreadPool(); //unbounded, like the Agent pool of AgentService
+		List<ExecutorService> executors = new ArrayList<>();
+		executors.add(service);
+		try {
+			for (int i = 0; i < agentCount; i++) {
+				ExecutorService helpers = ExecutionMode.VIRTUAL.equals(mode)
+						? VirtualThreads.newThreadPerTaskExecutor("agent" + i + "-helper-")
+						: Executors.newFixedThreadPool(N_HELPER_THREADS);
+				executors.add(helpers);
+				new SimulatedAgent(run).start(service, helpers);
+			}
+		} catch (OutOfMemoryError e) {
+			System.out.printf("%-9s %7d failed after %d platform threads: %s%n", mode, agentCount, threadBean.getThreadCount(), e.getMessage());
+			stop(run, executors);
+			return;
+		}
+
+		Thread.sleep(TimeUnit.SECONDS.toMillis(WARMUP_SECONDS));
+		threadBean.resetPeakThreadCount();
+		run.measuring = true;
+		Thread.sleep(TimeUnit.SECONDS.toMillis(MEASURED_SECONDS));
+		run.measuring = false;
+		int threads = threadBean.getThreadCount();
+		int peakThreads = threadBean.getPeakThreadCount();
+		long rssMb = readRssKb() / 1024;
+		stop(run, executors);
+
+		System.out.printf("%-9s %7d %9d %9d %9d %10d %10d %10d %12d%n", mode, agentCount, threads, peakThreads, rssMb,
+				run.forwardLatency.getPercentileMicros(50), run.forwardLatency.getPercentileMicros(99),
+				run.forwardLatency.getMaxMicros(), run.forwarded.get());
+	}
+
+	private static void stop(Run run, List<ExecutorService> executors) throws InterruptedException {
+		run.running = false;
+		run.callEnded.countDown();
+		for (ExecutorService executor : executors) {
+			executor.shutdown();
+		}
+		for (ExecutorService executor : executors) {
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Returns the resident set size of the process, -1 if /proc is not available
+	 */
+	private static long readRssKb() {
+		try {
+			for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.US_ASCII)) {
+				if (line.startsWith("VmRSS:")) {
+					return Long.parseLong(line.replaceAll("\\D", ""));
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+			//not on linux
+		}
+		return -1;
+	}
+
+	/**
+	 * State shared by all Agents of a run
+	 */
+	private static class Run {
+		private final LatencyStats forwardLatency = new LatencyStats();
+		private final AtomicLong forwarded = new AtomicLong();
+		private final CountDownLatch callEnded = new CountDownLatch(1);
+		private volatile boolean running = true;
+		private volatile boolean measuring = false;
+	}
+
+	private static class SimulatedAgent {
+		private final Run run;
+		private final BufferPool inboundBufferPool = new BufferPool(QUEUE_CAPACITY, PACKET_SIZE, new AtomicLong());
+		private final BufferPool outboundBufferPool = new BufferPool(QUEUE_CAPACITY, PACKET_SIZE, new AtomicLong());
+		private final MediaQueue<ByteBuffer> inboundRtpQueue = new MediaQueue<>(QUEUE_CAPACITY, new LatencyStats());
+		private final MediaQueue<ByteBuffer> outboundRtpQueue = new MediaQueue<>(QUEUE_CAPACITY, new LatencyStats());
+
+		SimulatedAgent(Run run) {
+			this.run = run;
+		}
+
+		void start(ExecutorService service, ExecutorService helpers) {
+			helpers.execute(this::signal);
+			helpers.execute(this::receive);
+			helpers.execute(this::send);
+			service.execute(this::forward);
+		}
+
+		/**
+		 * Stands for the SIP dialog, which waits for the call to end
+		 */
+		private void signal() {
+			try {
+				run.callEnded.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Stands for the RTP receiver, a packet every ptime with its arrival time in its first bytes
+		 */
+		private void receive() {
+			long nextNs = System.nanoTime() + ThreadLocalRandom.current().nextLong(PTIME_NS);
+			while (run.running) {
+				long waitNs = nextNs - System.nanoTime();
+				if (waitNs > 0) {
+					LockSupport.parkNanos(waitNs);
+					continue;
+				}
+				nextNs += PTIME_NS;
+				ByteBuffer packet = inboundBufferPool.acquire();
+				packet.putLong(0, System.nanoTime());
+				packet.limit(PACKET_SIZE);
+				if (!inboundRtpQueue.offer(packet)) {
+					inboundBufferPool.release(packet);
+				}
+			}
+		}
+
+		/**
+		 * Stands for the Agent's forwarding loop, the bot echoing every packet
+		 */
+		private void forward() {
+			try {
+				while (run.running) {
+					ByteBuffer data = inboundRtpQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+					if (data == null) {
+						continue;
+					}
+					if (run.measuring) {
+						run.forwardLatency.record(System.nanoTime() - data.getLong(0));
+						run.forwarded.incrementAndGet();
+					}
+					ByteBuffer echo = outboundBufferPool.acquire();
+					echo.put(data);
+					echo.flip();
+					inboundBufferPool.release(data);
+					if (!outboundRtpQueue.offer(echo)) {
+						outboundBufferPool.release(echo);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Stands for the RTP sender
+		 */
+		private void send() {
+			try {
+				while (run.running) {
+					ByteBuffer data = outboundRtpQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+					if (data != null) {
+						outboundBufferPool.release(data);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.sprinklr.sip4j.benchmark;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.sip.SipRequestCreator;
+import com.sprinklr.sip4j.sip.SipSharedStack;
+import gov.nist.javax.sip.header.AllowList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.sip.InvalidArgumentException;
+import javax.sip.ListeningPoint;
+import javax.sip.address.Address;
+import javax.sip.address.SipURI;
+import javax.sip.header.CSeqHeader;
+import javax.sip.header.CallIdHeader;
+import javax.sip.header.FromHeader;
+import javax.sip.header.ToHeader;
+import javax.sip.header.ViaHeader;
+import javax.sip.message.Request;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.sprinklr.sip4j.sip.SipAllFactories.ADDRESS_FACTORY;
+import static com.sprinklr.sip4j.sip.SipAllFactories.HEADER_FACTORY;
+import static com.sprinklr.sip4j.sip.SipAllFactories.MESSAGE_FACTORY;
+
+/**
+ * Time to create the REGISTER request of a refresh, without its Authorization header. The baseline is the former
+ * SipRequestCreator, which built every URI, address and header of the request with the jain-sip factories.
+ * Not a unit test, the benchmark is forked, run it from a java command which carries the test classpath:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test "-Dexec.args=-cp %classpath com.sprinklr.sip4j.benchmark.RegisterRequestBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+public class RegisterRequestBenchmark {
+
+	private final AgentConfig agentConfig = new AgentConfig();
+	private SipSharedStack stack;
+	private SipRequestCreator creator;
+	private ListeningPoint listeningPoint;
+	private CallIdHeader callIdHeader;
+	private AllowList allowList;
+	private long cseqNmb = 1;
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.include(RegisterRequestBenchmark.class.getSimpleName())
+				.addProfiler("gc")
+				.build();
+		new Runner(options).run();
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		agentConfig.setTransportMode("udp");
+		agentConfig.setSipLocalIp("127.0.0.1");
+		agentConfig.setSipLocalPort(25060);
+		agentConfig.setSipLocalUsername("agent1");
+		agentConfig.setSipLocalDisplayName("Agent 1");
+		agentConfig.setSipLocalRealm("ozonetel.com");
+		agentConfig.setSipRegistrarIp("10.0.0.1");
+		agentConfig.setSipRegistrarPort(5060);
+		agentConfig.setSipRegisterExpiryTimeSec(3600);
+		stack = SipSharedStack.acquire(agentConfig);
+		creator = new SipRequestCreator(stack.getSipProvider(), agentConfig);
+		listeningPoint = stack.getSipProvider().getListeningPoint(agentConfig.getTransportMode());
+		callIdHeader = stack.getSipProvider().getNewCallId();
+		allowList = new AllowList();
+		allowList.setMethods(Arrays.asList(Request.INVITE, Request.BYE, Request.CANCEL, Request.ACK));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		SipSharedStack.release(stack);
+	}
+
+	@Benchmark
+	public Request factoryRegister() throws ParseException, InvalidArgumentException {
+		SipURI fromAddress = ADDRESS_FACTORY.createSipURI(agentConfig.getSipLocalUsername(), agentConfig.getSipLocalRealm());
+		Address fromNameAddress = ADDRESS_FACTORY.createAddress(agentConfig.getSipLocalDisplayName(), fromAddress);
+		FromHeader fromHeader = HEADER_FACTORY.createFromHeader(fromNameAddress, agentConfig.getSipLocalTag());
+		SipURI toAddress = ADDRESS_FACTORY.createSipURI(agentConfig.getSipLocalUsername(), agentConfig.getSipLocalRealm());
+		Address toNameAddress = ADDRESS_FACTORY.createAddress(agentConfig.getSipLocalDisplayName(), toAddress);
+		ToHeader toHeader = HEADER_FACTORY.createToHeader(toNameAddress, null);
+		SipURI registerURI = ADDRESS_FACTORY.createSipURI(null, agentConfig.getSipRegistrarIp() + ":" + agentConfig.getSipRegistrarPort());
+		ViaHeader viaHeader = HEADER_FACTORY.createViaHeader(listeningPoint.getIPAddress(), listeningPoint.getPort(), agentConfig.getTransportMode(), null);
+		List<ViaHeader> viaHeaders = Collections.singletonList(viaHeader);
+		CSeqHeader cSeqHeader = HEADER_FACTORY.createCSeqHeader(cseqNmb++, Request.REGISTER);
+		Request request = MESSAGE_FACTORY.createRequest(registerURI, Request.REGISTER, callIdHeader, cSeqHeader, fromHeader, toHeader, viaHeaders,
+				HEADER_FACTORY.createMaxForwardsHeader(70));
+		SipURI contactURI = ADDRESS_FACTORY.createSipURI(agentConfig.getSipLocalUsername(), agentConfig.getSipLocalIp() + ":" + agentConfig.getSipLocalPort());
+		Address contactAddress = ADDRESS_FACTORY.createAddress(agentConfig.getSipLocalDisplayName(), contactURI);
+		request.addHeader(HEADER_FACTORY.createContactHeader(contactAddress));
+		request.addHeader(allowList);
+		request.addHeader(HEADER_FACTORY.createExpiresHeader(agentConfig.getSipRegisterExpiryTimeSec()));
+		return request;
+	}
+
+	@Benchmark
+	public Request templateRegister() throws InvalidArgumentException {
+		return creator.createRegisterRequest();
+	}
+}
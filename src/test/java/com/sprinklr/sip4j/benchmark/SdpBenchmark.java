@@ -0,0 +1,96 @@
+package com.sprinklr.sip4j.benchmark;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.rtp.RtpAddress;
+import com.sprinklr.sip4j.sip.SdpNegotiator;
+import com.sprinklr.sip4j.sip.SdpOffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.sdp.Connection;
+import javax.sdp.Media;
+import javax.sdp.MediaDescription;
+import javax.sdp.SdpException;
+import javax.sdp.SessionDescription;
+import java.nio.charset.StandardCharsets;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import static com.sprinklr.sip4j.sip.SipAllFactories.SDP_FACTORY;
+
+/**
+ * Time to read the remote RTP address from the SDP offer of an INVITE, as the Ozonetel mock server sends it. The
+ * baseline is the former path, the SdpFactory parse of the whole body into a SessionDescription. The fast path is
+ * measured alone and together with the rendering of the answer sent in the 200.
+ * Not a unit test, run in a JVM of its own so that the fork of each trial inherits the test classpath:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test "-Dexec.args=-cp %classpath com.sprinklr.sip4j.benchmark.SdpBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+public class SdpBenchmark {
+
+	private static final byte[] OFFER = ("v=0\r\n"
+			+ "o=4855 13760799956958020 13760799956958020 IN IP4 192.168.1.8\r\n"
+			+ "s=mysession session\r\n"
+			+ "p=+46 8 52018010\r\n"
+			+ "c=IN IP4 192.168.1.8\r\n"
+			+ "t=0 0\r\n"
+			+ "m=audio 6024 RTP/AVP 0 4 18\r\n"
+			+ "a=rtpmap:0 PCMU/8000\r\n"
+			+ "a=rtpmap:4 G723/8000\r\n"
+			+ "a=rtpmap:18 G729A/8000\r\n"
+			+ "a=ptime:20\r\n").getBytes(StandardCharsets.US_ASCII);
+
+	private final SdpNegotiator negotiator;
+
+	public SdpBenchmark() {
+		AgentConfig agentConfig = new AgentConfig();
+		agentConfig.setSipLocalUsername("agent1");
+		agentConfig.setRtpLocalIp("192.168.1.8");
+		agentConfig.setRtpLocalPort(6022);
+		agentConfig.setRtpAddressType("IP4");
+		agentConfig.setRtpNetworkType("IN");
+		negotiator = new SdpNegotiator(agentConfig);
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.include(SdpBenchmark.class.getSimpleName())
+				.addProfiler("gc")
+				.build();
+		new Runner(options).run();
+	}
+
+	@Benchmark
+	public RtpAddress sdpFactoryParse() throws SdpException {
+		SessionDescription sdp = SDP_FACTORY.createSessionDescription(new String(OFFER));
+		@SuppressWarnings("unchecked") Vector<MediaDescription> mediaDescriptions = sdp.getMediaDescriptions(false);
+		Media media = mediaDescriptions.get(0).getMedia();
+		Connection connection = sdp.getConnection();
+		return new RtpAddress(media.getMediaPort(), connection.getAddress(), connection.getAddressType(), connection.getNetworkType());
+	}
+
+	@Benchmark
+	public RtpAddress fastParse() {
+		return SdpOffer.parse(OFFER).getRtpAddress();
+	}
+
+	@Benchmark
+	public byte[] fastParseAndAnswer() {
+		return negotiator.answer(SdpOffer.parse(OFFER));
+	}
+}
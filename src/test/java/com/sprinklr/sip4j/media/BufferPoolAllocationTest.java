@@ -0,0 +1,67 @@
+package com.sprinklr.sip4j.media;
+
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards the steady state of the inbound media path (pooled receive buffer -> media queue -> release after send)
+ * against per-packet allocations.
+ */
+class BufferPoolAllocationTest {
+
+	private static final int PACKET_SIZE = 268;
+	private static final int WARMUP_PACKETS = 50_000;
+	private static final int MEASURED_PACKETS = 200_000;
+	//a single 16 byte object per packet would already allocate ~3MB, this only leaves room for measurement noise
+	private static final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+	private final byte[] datagram = new byte[PACKET_SIZE];
+	private final AtomicLong allocatedBuffers = new AtomicLong();
+	private final BufferPool pool = new BufferPool(16, PACKET_SIZE, allocatedBuffers);
+	private final MediaQueue<ByteBuffer> queue = new MediaQueue<>(16, new LatencyStats());
+
+	@Test
+	void steadyStateInboundPathDoesNotAllocate() throws InterruptedException {
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+		long threadId = Thread.currentThread().getId();
+
+		for (int i = 0; i < WARMUP_PACKETS; i++) {
+			forwardOnePacket(i);
+		}
+		long buffersAfterWarmup = allocatedBuffers.get();
+
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < MEASURED_PACKETS; i++) {
+			forwardOnePacket(i);
+		}
+		long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+		assertEquals(buffersAfterWarmup, allocatedBuffers.get(), "pool allocated buffers in steady state");
+		assertTrue(allocated < MAX_ALLOCATED_BYTES, "inbound path allocated " + allocated + " bytes for " + MEASURED_PACKETS + " packets");
+	}
+
+	private void forwardOnePacket(int sequenceNumber) throws InterruptedException {
+		//receiver side: fill a pooled buffer as DatagramSocket.receive would and hand it over
+		ByteBuffer receiveBuffer = pool.acquire();
+		datagram[3] = (byte) sequenceNumber;
+		System.arraycopy(datagram, 0, receiveBuffer.array(), 0, PACKET_SIZE);
+		receiveBuffer.limit(PACKET_SIZE);
+		assertTrue(queue.offer(receiveBuffer));
+
+		//forwarder side: take the packet, consume it as the websocket would and recycle it
+		ByteBuffer data = queue.poll(1, TimeUnit.MILLISECONDS);
+		assertEquals((byte) sequenceNumber, data.get(3));
+		pool.release(data);
+	}
+}
@@ -0,0 +1,102 @@
+package com.sprinklr.sip4j.media;
+
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import com.sprinklr.sip4j.metrics.QueueStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks what each overflow policy of a MediaQueue does with the packets offered while it is full.
+ */
+class MediaQueueTest {
+
+	private final QueueStats queueStats = new QueueStats();
+
+	@Test
+	void dropOldestEvictsTheHead() {
+		MediaQueue<Integer> queue = queue(OverflowPolicy.DROP_OLDEST, 0);
+		List<Integer> evicted = new ArrayList<>();
+		queue.setEvictionListener(evicted::add);
+		for (int i = 0; i < 5; i++) {
+			assertTrue(queue.offer(i));
+		}
+
+		assertEquals(2, evicted.size());
+		assertEquals(0, evicted.get(0));
+		assertEquals(2, queue.poll());
+		assertEquals(2, queueStats.getDrops());
+		assertEquals(3, queueStats.getHighWaterMark());
+	}
+
+	@Test
+	void dropNewestKeepsTheQueuedPackets() {
+		MediaQueue<Integer> queue = queue(OverflowPolicy.DROP_NEWEST, 0);
+		for (int i = 0; i < 3; i++) {
+			queue.offer(i);
+		}
+
+		assertFalse(queue.offer(3));
+		assertEquals(0, queue.poll());
+		assertEquals(1, queueStats.getDrops());
+	}
+
+	@Test
+	void blockWaitsForRoom() throws InterruptedException {
+		MediaQueue<Integer> queue = queue(OverflowPolicy.BLOCK, 10_000);
+		for (int i = 0; i < 3; i++) {
+			queue.offer(i);
+		}
+		AtomicBoolean inserted = new AtomicBoolean();
+		Thread producer = new Thread(() -> inserted.set(queue.offer(3)));
+		producer.start();
+		while (producer.getState() != Thread.State.TIMED_WAITING) {
+			Thread.yield();
+		}
+
+		assertEquals(0, queue.poll());
+		producer.join();
+		assertTrue(inserted.get());
+		assertEquals(0, queueStats.getDrops());
+		assertEquals(1, queueStats.getBlocks());
+	}
+
+	@Test
+	void blockGivesUpAfterTheTimeout() {
+		MediaQueue<Integer> queue = queue(OverflowPolicy.BLOCK, 1);
+		for (int i = 0; i < 3; i++) {
+			queue.offer(i);
+		}
+
+		assertFalse(queue.offer(3));
+		assertEquals(1, queueStats.getDrops());
+	}
+
+	@Test
+	void signalNotifiesOncePerOverflow() {
+		MediaQueue<Integer> queue = queue(OverflowPolicy.SIGNAL, 0);
+		AtomicInteger signals = new AtomicInteger();
+		queue.setOverflowListener(signals::incrementAndGet);
+		for (int i = 0; i < 5; i++) {
+			queue.offer(i);
+		}
+		assertEquals(1, signals.get());
+
+		queue.poll();
+		queue.offer(5);
+		assertFalse(queue.offer(6));
+		assertEquals(2, signals.get());
+		assertEquals(3, queueStats.getDrops());
+	}
+
+	private MediaQueue<Integer> queue(String overflowPolicy, long blockTimeoutMs) {
+		return new MediaQueue<>(3, overflowPolicy, blockTimeoutMs, new LatencyStats(), queueStats);
+	}
+}
@@ -0,0 +1,113 @@
+package com.sprinklr.sip4j.media;
+
+import com.sprinklr.sip4j.metrics.BatchStats;
+import com.sprinklr.sip4j.rtp.RtpPacketView;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batches 20ms packets three at a time on a simulated clock and checks the frames handed to the sink.
+ */
+class PayloadBatcherTest {
+
+	private static final int PTIME_MS = 20;
+	private static final int BATCH_MS = 60;
+	private static final int PAYLOAD_SIZE = 160;
+	private static final long PTIME_NS = TimeUnit.MILLISECONDS.toNanos(PTIME_MS);
+	private static final long BATCH_NS = TimeUnit.MILLISECONDS.toNanos(BATCH_MS);
+
+	private final List<byte[]> frames = new ArrayList<>();
+	private final BatchStats stats = new BatchStats();
+	private final PayloadBatcher batcher = new PayloadBatcher(BATCH_MS, PTIME_MS, PAYLOAD_SIZE, frame -> {
+		byte[] copy = new byte[frame.remaining()];
+		frame.get(copy); //the frame buffer is reused once the sink returns
+		frames.add(copy);
+	}, stats);
+
+	@Test
+	void flushesAFullBatch() {
+		ByteBuffer packet = packet(1);
+		batcher.add(packet, 0);
+		assertEquals(12, packet.position(), "the packet's bounds are restored");
+		assertEquals(12 + 12 + PAYLOAD_SIZE, packet.limit());
+		batcher.add(packet(2), PTIME_NS);
+		assertTrue(frames.isEmpty());
+
+		batcher.add(packet(3), 2 * PTIME_NS);
+
+		//the headers are stripped, the payloads follow each other
+		assertEquals(1, frames.size());
+		assertArrayEquals(payloads(1, 2, 3), frames.get(0));
+		assertEquals(1, stats.getFrames());
+		assertEquals(3, stats.getPayloads());
+		assertEquals(0, stats.getDeadlineFlushes());
+		assertEquals(Long.MAX_VALUE, batcher.nanosUntilDue(3 * PTIME_NS));
+	}
+
+	@Test
+	void flushesWhenTheOldestPayloadIsDue() {
+		batcher.add(packet(1), 0);
+		batcher.add(packet(2), 2 * PTIME_NS); //the packet in between was lost
+		assertEquals(BATCH_NS - PTIME_NS, batcher.nanosUntilDue(PTIME_NS));
+
+		batcher.flushIfDue(BATCH_NS - 1);
+		assertTrue(frames.isEmpty());
+		batcher.flushIfDue(BATCH_NS);
+
+		assertEquals(1, frames.size());
+		assertArrayEquals(payloads(1, 2), frames.get(0));
+		assertEquals(1, stats.getDeadlineFlushes());
+		assertEquals(TimeUnit.NANOSECONDS.toMicros(BATCH_NS), stats.getHoldTime().getMaxMicros());
+		batcher.flushIfDue(2 * BATCH_NS);
+		assertEquals(1, frames.size(), "an empty batch is never flushed");
+	}
+
+	@Test
+	void clearDropsThePendingPayloads() {
+		batcher.add(packet(1), 0);
+		batcher.add(packet(2), PTIME_NS);
+
+		batcher.clear();
+
+		assertEquals(Long.MAX_VALUE, batcher.nanosUntilDue(BATCH_NS));
+		batcher.flushIfDue(BATCH_NS);
+		batcher.flush(BATCH_NS);
+		assertTrue(frames.isEmpty());
+		//the next batch starts empty
+		batcher.add(packet(3), BATCH_NS);
+		batcher.add(packet(4), BATCH_NS + PTIME_NS);
+		batcher.add(packet(5), BATCH_NS + 2 * PTIME_NS);
+		assertEquals(1, frames.size());
+		assertArrayEquals(payloads(3, 4, 5), frames.get(0));
+		assertEquals(3, stats.getPayloads(), "the dropped payloads are not counted");
+	}
+
+	/**
+	 * Returns an RTP packet, at an offset in its buffer, whose payload bytes all hold the given value
+	 */
+	private static ByteBuffer packet(int value) {
+		ByteBuffer buffer = ByteBuffer.allocate(12 + 12 + PAYLOAD_SIZE);
+		buffer.position(12);
+		ByteBuffer packet = buffer.slice();
+		new RtpPacketView().wrap(packet).writeHeader(0, value, value * PAYLOAD_SIZE, 1, false);
+		Arrays.fill(buffer.array(), 12 + 12, buffer.capacity(), (byte) value);
+		return buffer;
+	}
+
+	private static byte[] payloads(int... values) {
+		byte[] payloads = new byte[values.length * PAYLOAD_SIZE];
+		for (int i = 0; i < values.length; i++) {
+			Arrays.fill(payloads, i * PAYLOAD_SIZE, (i + 1) * PAYLOAD_SIZE, (byte) values[i]);
+		}
+		return payloads;
+	}
+}
@@ -0,0 +1,62 @@
+package com.sprinklr.sip4j.media;
+
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Feeds bot messages of awkward sizes and checks that the audio comes out as a sequence of whole payloads.
+ */
+class RtpPacketizerTest {
+
+	private static final int PAYLOAD_SIZE = 160;
+	private static final int HEADER_ROOM = 12;
+
+	private final BufferPool pool = new BufferPool(64, HEADER_ROOM + PAYLOAD_SIZE, new AtomicLong());
+	private final MediaQueue<ByteBuffer> queue = new MediaQueue<>(64, new LatencyStats());
+	private final RtpPacketizer packetizer = new RtpPacketizer(PAYLOAD_SIZE, HEADER_ROOM, pool, queue);
+	private int nextByte = 0;
+
+	@Test
+	void slicesMessagesAndCarriesRemainder() {
+		int[] messageSizes = {100, 60, 1000, 1, 319, 120};
+		for (int size : messageSizes) {
+			assertEquals(0, packetizer.write(audio(size)));
+		}
+		assertEquals(1600 % PAYLOAD_SIZE, packetizer.pendingBytes());
+
+		int expectedByte = 0;
+		for (int i = 0; i < 1600 / PAYLOAD_SIZE; i++) {
+			ByteBuffer packet = queue.poll();
+			assertEquals(0, packet.position());
+			assertEquals(HEADER_ROOM + PAYLOAD_SIZE, packet.limit());
+			for (int j = HEADER_ROOM; j < packet.limit(); j++) {
+				assertEquals((byte) expectedByte++, packet.get(j));
+			}
+			pool.release(packet);
+		}
+		assertNull(queue.poll());
+	}
+
+	@Test
+	void reportsPacketsDroppedOnFullQueue() {
+		MediaQueue<ByteBuffer> smallQueue = new MediaQueue<>(2, new LatencyStats());
+		RtpPacketizer smallPacketizer = new RtpPacketizer(PAYLOAD_SIZE, HEADER_ROOM, pool, smallQueue);
+		assertEquals(3, smallPacketizer.write(audio(5 * PAYLOAD_SIZE)));
+		assertEquals(2, smallQueue.size());
+	}
+
+	private ByteBuffer audio(int size) {
+		ByteBuffer audio = ByteBuffer.allocate(size);
+		for (int i = 0; i < size; i++) {
+			audio.put((byte) nextByte++);
+		}
+		audio.flip();
+		return audio;
+	}
+}
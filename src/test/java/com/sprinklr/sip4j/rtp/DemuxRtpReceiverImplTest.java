@@ -0,0 +1,60 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sprinklr.sip4j.TestConfigs.agentConfig;
+import static com.sprinklr.sip4j.TestConfigs.awaitFreePort;
+import static com.sprinklr.sip4j.TestConfigs.freePort;
+
+/**
+ * Starts and stops a receiver in both orders and checks that it leaves the shared ingress.
+ */
+class DemuxRtpReceiverImplTest {
+
+	private final RtpEventLoopGroup eventLoopGroup;
+	private final MediaQueue<ByteBuffer> inboundRtpQueue = new MediaQueue<>(8, new LatencyStats());
+	private final BufferPool bufferPool = new BufferPool(8, 172, new AtomicLong());
+
+	DemuxRtpReceiverImplTest() throws Exception {
+		eventLoopGroup = new RtpEventLoopGroup(1);
+	}
+
+	@AfterEach
+	void shutDown() {
+		eventLoopGroup.shutdown();
+	}
+
+	@Test
+	void leavesTheIngressWhenStopped() throws Exception {
+		int port = freePort();
+		DemuxRtpReceiverImpl receiver = receiver(port);
+		receiver.start();
+		receiver.stop();
+
+		//the ingress is closed once its last receiver left
+		awaitFreePort(port);
+	}
+
+	@Test
+	void doesNotJoinTheIngressWhenStoppedBeforeStarting() throws Exception {
+		int port = freePort();
+		DemuxRtpReceiverImpl receiver = receiver(port);
+		//the call ended before the executor ran the receiver
+		receiver.stop();
+		receiver.start();
+
+		awaitFreePort(port);
+	}
+
+	private DemuxRtpReceiverImpl receiver(int port) {
+		return new DemuxRtpReceiverImpl(new RtpAddress(40000, "127.0.0.1", "IP4", "IN"), inboundRtpQueue, bufferPool,
+				agentConfig("demux-receiver-test-agent", 0, port), eventLoopGroup);
+	}
+}
@@ -0,0 +1,157 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.metrics.JitterBufferStats;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the jitter buffer with a simulated clock, 20ms G.711 packets.
+ */
+class JitterBufferTest {
+
+	private static final int CLOCK_RATE = 8000;
+	private static final int PTIME_MS = 20;
+	private static final int SAMPLES_PER_PACKET = CLOCK_RATE * PTIME_MS / 1000;
+	private static final long PTIME_NS = TimeUnit.MILLISECONDS.toNanos(PTIME_MS);
+	private static final int PACKET_SIZE = 12 + SAMPLES_PER_PACKET;
+
+	private final AtomicLong allocatedBuffers = new AtomicLong();
+	private final BufferPool pool = new BufferPool(64, PACKET_SIZE, allocatedBuffers);
+	private final JitterBufferStats stats = new JitterBufferStats();
+	private final JitterBuffer jitterBuffer = new JitterBuffer(CLOCK_RATE, PTIME_MS, 40, 200, pool, stats);
+	private final RtpPacketView view = new RtpPacketView();
+
+	@Test
+	void reordersAndDropsDuplicates() {
+		long t0 = 1_000_000_000L;
+		jitterBuffer.offer(packet(100), t0);
+		jitterBuffer.offer(packet(102), t0 + PTIME_NS);
+		jitterBuffer.offer(packet(101), t0 + PTIME_NS + 1);
+		jitterBuffer.offer(packet(102), t0 + PTIME_NS + 2);
+		jitterBuffer.offer(packet(103), t0 + 3 * PTIME_NS);
+
+		assertNull(jitterBuffer.poll(t0 + PTIME_NS), "first packet is held for the minimum depth");
+		assertEquals(Arrays.asList(100, 101, 102, 103), drain(t0 + TimeUnit.SECONDS.toNanos(1)));
+		assertEquals(1, stats.getDuplicates());
+		assertEquals(1, stats.getReordered());
+		assertEquals(0, stats.getLost());
+	}
+
+	@Test
+	void skipsMissingPacketsAndDropsLateOnes() {
+		long t0 = 1_000_000_000L;
+		jitterBuffer.offer(packet(10), t0);
+		jitterBuffer.offer(packet(12), t0 + 2 * PTIME_NS);
+		assertEquals(Arrays.asList(10, 12), drain(t0 + TimeUnit.SECONDS.toNanos(1)));
+		assertEquals(1, stats.getLost());
+
+		jitterBuffer.offer(packet(11), t0 + TimeUnit.SECONDS.toNanos(1));
+		assertEquals(1, stats.getLate());
+		assertEquals(1.0 / 3, stats.getLossRatio(), 1e-9, "the late packet was already counted as lost when skipped");
+	}
+
+	@Test
+	void dropsStalePacketsFarBehindWithoutResyncing() {
+		long t0 = 1_000_000_000L;
+		jitterBuffer.offer(packet(1000), t0);
+		jitterBuffer.offer(packet(1000 - 300), t0 + 1);
+		jitterBuffer.offer(packet(1001), t0 + PTIME_NS);
+
+		assertEquals(Arrays.asList(1000, 1001), drain(t0 + TimeUnit.SECONDS.toNanos(1)));
+		assertEquals(1, stats.getLate());
+		assertEquals(0, stats.getResyncs());
+	}
+
+	@Test
+	void resyncsOnAForwardJumpOrANewSsrc() {
+		long t0 = 1_000_000_000L;
+		jitterBuffer.offer(packet(10), t0);
+		jitterBuffer.offer(packet(10 + 300), t0 + PTIME_NS);
+		assertEquals(Collections.singletonList(310), drain(t0 + TimeUnit.SECONDS.toNanos(1)));
+
+		jitterBuffer.offer(packet(5, 5 * SAMPLES_PER_PACKET, 0x5678), t0 + TimeUnit.SECONDS.toNanos(1));
+		assertEquals(Collections.singletonList(5), drain(t0 + TimeUnit.SECONDS.toNanos(2)));
+		assertEquals(2, stats.getResyncs());
+		assertEquals(0, stats.getLate());
+	}
+
+	@Test
+	void jitterIgnoresDroppedPacketsAndStartsOverOnResync() {
+		long t0 = 1_000_000_000L;
+		for (int seq = 0; seq < 10; seq++) {
+			jitterBuffer.offer(packet(seq), t0 + seq * PTIME_NS);
+			//duplicates and stale packets arriving long after their time
+			jitterBuffer.offer(packet(seq), t0 + seq * PTIME_NS + TimeUnit.MILLISECONDS.toNanos(15));
+			jitterBuffer.offer(packet(seq + 65000), t0 + seq * PTIME_NS + TimeUnit.MILLISECONDS.toNanos(15));
+			drain(t0 + seq * PTIME_NS);
+		}
+		assertEquals(0, stats.getJitterUs(), "packets arriving on time have no jitter");
+
+		for (int seq = 10; seq < 20; seq++) {
+			jitterBuffer.offer(packet(seq), t0 + seq * PTIME_NS + (seq % 2 == 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(30)));
+		}
+		assertTrue(stats.getJitterUs() > 0);
+		jitterBuffer.offer(packet(1000), t0 + TimeUnit.SECONDS.toNanos(1));
+		assertEquals(0, stats.getJitterUs(), "a resync forgets the jitter of the previous stream");
+		assertEquals(40_000, stats.getDepthUs());
+	}
+
+	@Test
+	void sequenceNumberWrapsAround() {
+		long t0 = 1_000_000_000L;
+		jitterBuffer.offer(packet(65535, 0), t0);
+		jitterBuffer.offer(packet(1, 2 * SAMPLES_PER_PACKET), t0 + PTIME_NS);
+		jitterBuffer.offer(packet(0, SAMPLES_PER_PACKET), t0 + PTIME_NS + 1);
+		assertEquals(Arrays.asList(65535, 0, 1), drain(t0 + TimeUnit.SECONDS.toNanos(1)));
+		assertEquals(0, stats.getLost());
+	}
+
+	@Test
+	void depthGrowsWithJitter() {
+		long nowNs = 1_000_000_000L;
+		for (int seq = 0; seq < 200; seq++) {
+			long arrivalNs = nowNs + seq * PTIME_NS + (seq % 2 == 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(30)); //every other packet 30ms late
+			jitterBuffer.offer(packet(seq), arrivalNs);
+			drain(arrivalNs);
+		}
+		long depthUs = stats.getDepthUs();
+		assertTrue(depthUs > 40_000 && depthUs <= 200_000, "depth " + depthUs + "us should have grown above the minimum");
+	}
+
+	private List<Integer> drain(long nowNs) {
+		List<Integer> played = new ArrayList<>();
+		ByteBuffer packet;
+		while ((packet = jitterBuffer.poll(nowNs)) != null) {
+			played.add(view.wrap(packet).getSequenceNumber());
+			pool.release(packet);
+		}
+		return played;
+	}
+
+	private ByteBuffer packet(int sequenceNumber) {
+		return packet(sequenceNumber, sequenceNumber * SAMPLES_PER_PACKET);
+	}
+
+	private ByteBuffer packet(int sequenceNumber, int timeStamp) {
+		return packet(sequenceNumber, timeStamp, 0x1234);
+	}
+
+	private ByteBuffer packet(int sequenceNumber, int timeStamp, int ssrc) {
+		ByteBuffer buffer = pool.acquire();
+		buffer.limit(PACKET_SIZE);
+		view.wrap(buffer).writeHeader(0, sequenceNumber, timeStamp, ssrc, false);
+		return buffer;
+	}
+}
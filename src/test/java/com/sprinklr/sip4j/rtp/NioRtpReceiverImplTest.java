@@ -0,0 +1,54 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sprinklr.sip4j.TestConfigs.agentConfig;
+import static com.sprinklr.sip4j.TestConfigs.awaitFreePort;
+import static com.sprinklr.sip4j.TestConfigs.freePort;
+
+/**
+ * Starts and stops a receiver in both orders and checks that its port is free afterwards.
+ */
+class NioRtpReceiverImplTest {
+
+	private final RtpEventLoopGroup eventLoopGroup;
+	private final MediaQueue<ByteBuffer> inboundRtpQueue = new MediaQueue<>(8, new LatencyStats());
+	private final BufferPool bufferPool = new BufferPool(8, 172, new AtomicLong());
+
+	NioRtpReceiverImplTest() throws Exception {
+		eventLoopGroup = new RtpEventLoopGroup(1);
+	}
+
+	@AfterEach
+	void shutDown() {
+		eventLoopGroup.shutdown();
+	}
+
+	@Test
+	void releasesThePortWhenStopped() throws Exception {
+		int port = freePort();
+		NioRtpReceiverImpl receiver = new NioRtpReceiverImpl(inboundRtpQueue, bufferPool, agentConfig("nio-receiver-test-agent", 0, port), eventLoopGroup);
+		receiver.start();
+		receiver.stop();
+
+		awaitFreePort(port);
+	}
+
+	@Test
+	void doesNotBindWhenStoppedBeforeStarting() throws Exception {
+		int port = freePort();
+		NioRtpReceiverImpl receiver = new NioRtpReceiverImpl(inboundRtpQueue, bufferPool, agentConfig("nio-receiver-test-agent", 0, port), eventLoopGroup);
+		//the call ended before the executor ran the receiver
+		receiver.stop();
+		receiver.start();
+
+		awaitFreePort(port);
+	}
+}
@@ -0,0 +1,81 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sprinklr.sip4j.TestConfigs.agentConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends the packets of an outbound queue through an event loop to a socket of the test.
+ */
+class NioRtpSenderImplTest {
+
+	private static final int PACKET_SIZE = 172;
+
+	private final RtpEventLoopGroup eventLoopGroup;
+	private final MediaQueue<ByteBuffer> outboundRtpQueue = new MediaQueue<>(8, new LatencyStats());
+	private final BufferPool bufferPool = new BufferPool(8, PACKET_SIZE, new AtomicLong());
+
+	NioRtpSenderImplTest() throws Exception {
+		eventLoopGroup = new RtpEventLoopGroup(1);
+	}
+
+	@AfterEach
+	void shutDown() {
+		eventLoopGroup.shutdown();
+	}
+
+	@Test
+	void keepsSendingAfterAFailedSend() throws Exception {
+		try (DatagramSocket remote = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			remote.setSoTimeout(2000);
+			NioRtpSenderImpl sender = new NioRtpSenderImpl(new RtpAddress(remote.getLocalPort(), "127.0.0.1", "IP4", "IN"),
+					outboundRtpQueue, bufferPool, null, agentConfig("nio-test-agent"), eventLoopGroup);
+			//larger than a udp datagram can be, the send fails
+			outboundRtpQueue.offer(ByteBuffer.allocate(70000));
+			outboundRtpQueue.offer(packet(1));
+
+			sender.start();
+			assertEquals(1, receive(remote));
+
+			//queued once the queue is empty again, drained through the available listener
+			outboundRtpQueue.offer(packet(2));
+			assertEquals(2, receive(remote));
+			//released by the event loop once the send returns, which may be after the packet arrived
+			long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (bufferPool.available() < 1 && System.nanoTime() < deadlineNs) {
+				Thread.sleep(1);
+			}
+			assertTrue(bufferPool.available() >= 1, "sent buffers are released to the pool");
+			sender.stop();
+		}
+	}
+
+	private ByteBuffer packet(int marker) {
+		ByteBuffer packet = bufferPool.acquire();
+		packet.put(0, (byte) marker);
+		return packet;
+	}
+
+	/**
+	 * Receives the next packet and returns its first byte
+	 */
+	private static int receive(DatagramSocket remote) throws Exception {
+		DatagramPacket datagram = new DatagramPacket(new byte[PACKET_SIZE], PACKET_SIZE);
+		remote.receive(datagram);
+		assertEquals(PACKET_SIZE, datagram.getLength());
+		return datagram.getData()[0];
+	}
+}
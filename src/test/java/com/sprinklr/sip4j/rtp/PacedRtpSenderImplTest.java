@@ -0,0 +1,119 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import com.sprinklr.sip4j.metrics.PacingStats;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sprinklr.sip4j.TestConfigs.agentConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives the wheel of a paced sender tick by tick, faster than real time, and checks the ticks on which the packets of
+ * a burst leave the outbound queue.
+ */
+class PacedRtpSenderImplTest {
+
+	private static final int PACKET_SIZE = 172;
+	private static final int PTIME_MS = 20;
+	private static final long TICK_NS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final MediaQueue<ByteBuffer> outboundRtpQueue = new MediaQueue<>(16, new LatencyStats());
+	private final BufferPool bufferPool = new BufferPool(16, PACKET_SIZE, new AtomicLong());
+	private final PacingStats pacingStats = new PacingStats();
+	private final TimingWheel wheel = new TimingWheel(TICK_NS, System.nanoTime(), false);
+
+	@Test
+	void sendsABurstOnePacketPerPtime() throws Exception {
+		try (DatagramSocket remote = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			PacedRtpSenderImpl sender = sender(remote);
+			offer(5);
+
+			sender.start();
+			long firstTick = advanceToFirstSend();
+			List<Long> sendTicks = advance(5 * PTIME_MS);
+			sender.stop();
+
+			assertEquals(4, sendTicks.size());
+			for (int i = 0; i < sendTicks.size(); i++) {
+				assertEquals(firstTick + (i + 1) * PTIME_MS, (long) sendTicks.get(i), "slot of packet " + (i + 1));
+			}
+			assertEquals(5, pacingStats.getSent());
+			assertEquals(4, pacingStats.getSmoothed());
+		}
+	}
+
+	@Test
+	void sendsPacketsQueuedWhileScheduledOnTheFollowingSlots() throws Exception {
+		try (DatagramSocket remote = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			PacedRtpSenderImpl sender = sender(remote);
+			offer(1);
+			sender.start();
+			long firstTick = advanceToFirstSend();
+
+			//the sender is still on the wheel for its next slot, the packets wait for it instead of going out now
+			offer(2);
+			List<Long> sendTicks = advance(3 * PTIME_MS);
+			sender.stop();
+
+			assertEquals(2, sendTicks.size());
+			assertEquals(firstTick + PTIME_MS, (long) sendTicks.get(0));
+			assertEquals(firstTick + 2 * PTIME_MS, (long) sendTicks.get(1));
+			assertEquals(0, pacingStats.getResyncs());
+		}
+	}
+
+	private PacedRtpSenderImpl sender(DatagramSocket remote) {
+		AgentConfig agentConfig = agentConfig("paced-test-agent");
+		agentConfig.setRtpPtimeMs(PTIME_MS);
+		return new PacedRtpSenderImpl(new RtpAddress(remote.getLocalPort(), "127.0.0.1", "IP4", "IN"), outboundRtpQueue,
+				bufferPool, null, agentConfig, wheel, pacingStats);
+	}
+
+	private void offer(int packets) {
+		for (int i = 0; i < packets; i++) {
+			outboundRtpQueue.offer(bufferPool.acquire());
+		}
+	}
+
+	/**
+	 * Processes ticks until the first packet leaves the queue. Its tick depends on the time elapsed between the creation
+	 * of the wheel and the start of the sender
+	 * @return the tick of the first send
+	 */
+	private long advanceToFirstSend() {
+		for (int i = 0; i < 60_000; i++) {
+			List<Long> sendTicks = advance(1);
+			if (!sendTicks.isEmpty()) {
+				return sendTicks.get(0);
+			}
+		}
+		throw new AssertionError("No packet sent");
+	}
+
+	/**
+	 * Processes the given number of ticks and returns those on which a packet left the queue
+	 */
+	private List<Long> advance(int ticks) {
+		List<Long> sendTicks = new ArrayList<>();
+		for (int i = 0; i < ticks; i++) {
+			long tick = wheel.getCurrentTick();
+			int queued = outboundRtpQueue.size();
+			wheel.tick();
+			if (outboundRtpQueue.size() < queued) {
+				sendTicks.add(tick);
+			}
+		}
+		return sendTicks;
+	}
+}
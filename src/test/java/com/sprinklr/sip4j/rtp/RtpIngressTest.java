@@ -0,0 +1,120 @@
+package com.sprinklr.sip4j.rtp;
+
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sprinklr.sip4j.TestConfigs.freePort;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Sends RTP from several remote sockets to a shared ingress and checks the call queue each packet is routed to.
+ */
+class RtpIngressTest {
+
+	private static final int PACKET_SIZE = 172;
+
+	private final RtpEventLoopGroup eventLoopGroup;
+	private final RtpIngress ingress;
+	private final int ingressPort;
+	private final BufferPool bufferPool = new BufferPool(16, PACKET_SIZE, new AtomicLong());
+
+	RtpIngressTest() throws Exception {
+		eventLoopGroup = new RtpEventLoopGroup(1);
+		ingressPort = freePort();
+		ingress = RtpIngress.acquire("127.0.0.1", ingressPort, eventLoopGroup);
+	}
+
+	@AfterEach
+	void release() {
+		RtpIngress.release(ingress);
+		eventLoopGroup.shutdown();
+	}
+
+	@Test
+	void routesByRemoteAddress() throws Exception {
+		try (DatagramSocket first = remote("127.0.0.1"); DatagramSocket second = remote("127.0.0.1")) {
+			MediaQueue<ByteBuffer> firstQueue = addRoute(first);
+			MediaQueue<ByteBuffer> secondQueue = addRoute(second);
+
+			send(second, 2, 2);
+			send(first, 1, 1);
+
+			assertEquals(1, receive(firstQueue));
+			assertEquals(2, receive(secondQueue));
+			assertNull(firstQueue.poll());
+		}
+	}
+
+	@Test
+	void followsTheLatchedSsrcToAnotherPortOfTheRemoteHost() throws Exception {
+		try (DatagramSocket remote = remote("127.0.0.1"); DatagramSocket rebound = remote("127.0.0.1")) {
+			MediaQueue<ByteBuffer> queue = addRoute(remote);
+			send(remote, 1, 1);
+			assertEquals(1, receive(queue));
+
+			//e.g. after a NAT rebinding
+			send(rebound, 1, 2);
+
+			assertEquals(2, receive(queue));
+			assertEquals(0, ingress.getUnroutablePackets());
+		}
+	}
+
+	@Test
+	void dropsTheLatchedSsrcFromAnotherHost() throws Exception {
+		try (DatagramSocket remote = remote("127.0.0.1"); DatagramSocket intruder = remote("127.0.0.2")) {
+			MediaQueue<ByteBuffer> queue = addRoute(remote);
+			send(remote, 1, 1);
+			assertEquals(1, receive(queue));
+
+			send(intruder, 1, 2);
+			send(remote, 1, 3);
+
+			assertEquals(3, receive(queue));
+			assertNull(queue.poll());
+			assertEquals(1, ingress.getUnroutablePackets());
+		}
+	}
+
+	private MediaQueue<ByteBuffer> addRoute(DatagramSocket remote) {
+		MediaQueue<ByteBuffer> queue = new MediaQueue<>(16, new LatencyStats());
+		ingress.addRoute(new RtpRoute("ingress-test-agent", (InetSocketAddress) remote.getLocalSocketAddress(), queue, bufferPool));
+		return queue;
+	}
+
+	private static DatagramSocket remote(String host) throws Exception {
+		return new DatagramSocket(0, InetAddress.getByName(host));
+	}
+
+	/**
+	 * Sends an RTP packet whose sequence number tells the packets of a test apart
+	 */
+	private void send(DatagramSocket remote, int ssrc, int sequenceNumber) throws Exception {
+		ByteBuffer packet = ByteBuffer.allocate(PACKET_SIZE);
+		new RtpPacketView().wrap(packet).writeHeader(0, sequenceNumber, 0, ssrc, false);
+		remote.send(new DatagramPacket(packet.array(), PACKET_SIZE, InetAddress.getLoopbackAddress(), ingressPort));
+	}
+
+	/**
+	 * Waits for the next packet of a call and returns its sequence number
+	 */
+	private static int receive(MediaQueue<ByteBuffer> queue) throws InterruptedException {
+		ByteBuffer packet = queue.poll(5, TimeUnit.SECONDS);
+		assertNotNull(packet);
+		assertEquals(PACKET_SIZE, packet.remaining());
+		return new RtpPacketView().wrap(packet).getSequenceNumber();
+	}
+}
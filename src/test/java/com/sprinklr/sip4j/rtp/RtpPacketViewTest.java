@@ -0,0 +1,194 @@
+package com.sprinklr.sip4j.rtp;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads and writes RTP headers laid out byte by byte, refer https://dl.acm.org/doi/pdf/10.17487/RFC3550 section 5.1
+ */
+class RtpPacketViewTest {
+
+	/**
+	 * V=2, M=1, PT=8 (PCMA), no CSRC, no extension, no padding, 4 bytes of payload
+	 */
+	private static final byte[] PLAIN = bytes(
+			0x80, 0x88, 0xBE, 0xEF,
+			0x01, 0x02, 0x03, 0x04,
+			0xDE, 0xAD, 0xBE, 0xEF,
+			0xAA, 0xBB, 0xCC, 0xDD);
+
+	/**
+	 * V=2, P=1, X=1, CC=2, PT=0, two CSRCs, a one word extension, 3 bytes of payload and 3 bytes of padding
+	 */
+	private static final byte[] FULL = bytes(
+			0xB2, 0x00, 0x00, 0x01,
+			0x00, 0x00, 0x00, 0xA0,
+			0x11, 0x11, 0x11, 0x11,
+			0x22, 0x22, 0x22, 0x22,
+			0x33, 0x33, 0x33, 0x33,
+			0xBE, 0xDE, 0x00, 0x01,
+			0x10, 0x20, 0x30, 0x40,
+			0x7F, 0x7E, 0x7D,
+			0x00, 0x00, 0x03);
+
+	private final RtpPacketView view = new RtpPacketView();
+
+	@Test
+	void readsAFixedHeader() {
+		view.wrap(ByteBuffer.wrap(PLAIN));
+
+		assertTrue(view.isValid());
+		assertEquals(2, view.getVersion());
+		assertFalse(view.hasPadding());
+		assertFalse(view.hasExtension());
+		assertEquals(0, view.getCsrcCount());
+		assertTrue(view.isMarker());
+		assertEquals(8, view.getPayloadType());
+		assertEquals(0xBEEF, view.getSequenceNumber());
+		assertEquals(0x01020304, view.getTimeStamp());
+		assertEquals(0xDEADBEEF, view.getSsrc());
+		assertEquals(12, view.getHeaderLength());
+		assertEquals(12, view.getPayloadOffset());
+		assertEquals(4, view.getPayloadLength());
+	}
+
+	@Test
+	void readsCsrcsExtensionAndPadding() {
+		view.wrap(ByteBuffer.wrap(FULL));
+
+		assertTrue(view.isValid());
+		assertTrue(view.hasPadding());
+		assertTrue(view.hasExtension());
+		assertFalse(view.isMarker());
+		assertEquals(0, view.getPayloadType());
+		assertEquals(1, view.getSequenceNumber());
+		assertEquals(160, view.getTimeStamp());
+		assertEquals(2, view.getCsrcCount());
+		assertEquals(0x22222222, view.getCsrc(0));
+		assertEquals(0x33333333, view.getCsrc(1));
+		assertEquals(20, view.getExtensionOffset());
+		assertEquals(0xBEDE, view.getExtensionProfile());
+		assertEquals(4, view.getExtensionLength());
+		assertEquals(28, view.getHeaderLength());
+		assertEquals(28, view.getPayloadOffset());
+		assertEquals(3, view.getPayloadLength());
+	}
+
+	@Test
+	void readsAPacketInTheMiddleOfABuffer() {
+		ByteBuffer buffer = ByteBuffer.allocate(FULL.length + 10);
+		buffer.position(7);
+		buffer.put(FULL);
+		buffer.position(7).limit(7 + FULL.length);
+
+		view.wrap(buffer);
+
+		assertTrue(view.isValid());
+		assertEquals(0x33333333, view.getCsrc(1));
+		assertEquals(7 + 20, view.getExtensionOffset());
+		assertEquals(7 + 28, view.getPayloadOffset());
+		assertEquals(3, view.getPayloadLength());
+		assertEquals(0x7F, buffer.get(view.getPayloadOffset()));
+		assertEquals(7, buffer.position(), "the view does not move the buffer");
+		assertEquals(7 + FULL.length, buffer.limit());
+	}
+
+	@Test
+	void rejectsMalformedPackets() {
+		//shorter than the fixed header
+		assertFalse(view.wrap(ByteBuffer.wrap(PLAIN, 0, 11)).isValid());
+		//version 1
+		byte[] version1 = PLAIN.clone();
+		version1[0] = 0x40;
+		assertFalse(view.wrap(ByteBuffer.wrap(version1)).isValid());
+		//the CSRC list runs past the end
+		byte[] csrcs = PLAIN.clone();
+		csrcs[0] = (byte) 0x82;
+		assertFalse(view.wrap(ByteBuffer.wrap(csrcs)).isValid());
+		//the extension header does not fit
+		assertFalse(view.wrap(ByteBuffer.wrap(FULL, 0, 22)).isValid());
+		//the extension data runs past the end
+		assertFalse(view.wrap(ByteBuffer.wrap(FULL, 0, 26)).isValid());
+		//more padding than payload
+		byte[] padding = FULL.clone();
+		padding[padding.length - 1] = 7;
+		assertFalse(view.wrap(ByteBuffer.wrap(padding)).isValid());
+		//all of the payload is padding
+		padding[padding.length - 1] = 6;
+		assertTrue(view.wrap(ByteBuffer.wrap(padding)).isValid());
+		assertEquals(0, view.getPayloadLength());
+	}
+
+	@Test
+	void rejectsLittleEndianBuffers() {
+		assertThrows(IllegalArgumentException.class, () -> view.wrap(ByteBuffer.wrap(PLAIN).order(ByteOrder.LITTLE_ENDIAN)));
+	}
+
+	@Test
+	void writesTheFixedHeader() {
+		ByteBuffer buffer = ByteBuffer.allocate(PLAIN.length);
+		buffer.put(12, (byte) 0xAA).put(13, (byte) 0xBB).put(14, (byte) 0xCC).put(15, (byte) 0xDD);
+
+		view.wrap(buffer).writeHeader(8, 0xBEEF, 0x01020304, 0xDEADBEEF, true);
+
+		assertArrayEquals(PLAIN, buffer.array());
+	}
+
+	@Test
+	void settersOnlyChangeTheirOwnBits() {
+		byte[] packet = FULL.clone();
+		view.wrap(ByteBuffer.wrap(packet));
+
+		view.setMarker(true);
+		view.setPayloadType(0x7F);
+		assertEquals((byte) 0xFF, packet[1]);
+		view.setMarker(false);
+		assertEquals(0x7F, view.getPayloadType());
+		view.setPayloadType(8);
+		assertEquals((byte) 0x08, packet[1]);
+		view.setCsrcCount(1);
+		assertEquals((byte) 0xB1, packet[0], "padding and extension bits are kept");
+		view.setSequenceNumber(0xFFFF);
+		view.setTimeStamp(-1);
+		view.setSsrc(0x0A0B0C0D);
+		view.setCsrc(0, 0x44444444);
+
+		assertArrayEquals(bytes(
+				0xB1, 0x08, 0xFF, 0xFF,
+				0xFF, 0xFF, 0xFF, 0xFF,
+				0x0A, 0x0B, 0x0C, 0x0D,
+				0x44, 0x44, 0x44, 0x44), Arrays.copyOf(packet, 16));
+	}
+
+	@Test
+	void writesTheExtensionAfterTheCsrcList() {
+		ByteBuffer buffer = ByteBuffer.allocate(FULL.length);
+		view.wrap(buffer).writeHeader(0, 1, 160, 0x11111111, false);
+		view.setCsrcCount(2);
+		view.setCsrc(0, 0x22222222);
+		view.setCsrc(1, 0x33333333);
+		view.setExtension(0xBEDE, 1);
+		buffer.putInt(24, 0x10203040);
+		buffer.put(28, (byte) 0x7F).put(29, (byte) 0x7E).put(30, (byte) 0x7D).put(33, (byte) 3);
+		buffer.put(0, (byte) (buffer.get(0) | 0x20)); //no setter for padding, the sender never pads
+
+		assertArrayEquals(FULL, buffer.array());
+	}
+
+	private static byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,64 @@
+package com.sprinklr.sip4j.rtp;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the headers stamped by the outbound session, 20ms PCMU frames.
+ */
+class RtpSessionTest {
+
+	private static final long FRAME_NS = TimeUnit.MILLISECONDS.toNanos(20);
+
+	private final RtpSession session = new RtpSession(0, 8000, 20);
+	private final ByteBuffer packet = ByteBuffer.allocate(12 + 160);
+	private final RtpPacketView view = new RtpPacketView();
+
+	@Test
+	void stampsConsecutiveFrames() {
+		long t0 = 1_000_000_000L;
+		session.stamp(packet, t0);
+		view.wrap(packet);
+		assertTrue(view.isValid());
+		assertTrue(view.isMarker(), "first packet starts a talkspurt");
+		int firstSequenceNumber = view.getSequenceNumber();
+		int firstTimeStamp = view.getTimeStamp();
+
+		for (int i = 1; i <= 10; i++) {
+			session.stamp(packet, t0 + i * FRAME_NS - FRAME_NS / 2);
+			assertEquals((firstSequenceNumber + i) & 0xFFFF, view.getSequenceNumber());
+			assertEquals(firstTimeStamp + i * 160, view.getTimeStamp());
+			assertEquals(session.getSsrc(), view.getSsrc());
+			assertEquals(0, view.getPayloadType());
+			assertFalse(view.isMarker());
+		}
+	}
+
+	@Test
+	void burstDoesNotLookLikeSilence() {
+		long t0 = 1_000_000_000L;
+		session.stamp(packet, t0);
+		int firstTimeStamp = view.wrap(packet).getTimeStamp();
+		for (int i = 1; i <= 50; i++) {
+			session.stamp(packet, t0 + i * 1000); //the bot sent a second of audio at once
+			assertFalse(view.isMarker());
+		}
+		assertEquals(firstTimeStamp + 50 * 160, view.getTimeStamp());
+	}
+
+	@Test
+	void timeStampFollowsTheClockAcrossSilence() {
+		long t0 = 1_000_000_000L;
+		session.stamp(packet, t0);
+		int firstTimeStamp = view.wrap(packet).getTimeStamp();
+		session.stamp(packet, t0 + 100 * FRAME_NS); //two seconds of silence
+		assertTrue(view.isMarker());
+		assertEquals(firstTimeStamp + 100 * 160, view.getTimeStamp());
+	}
+}
@@ -0,0 +1,105 @@
+package com.sprinklr.sip4j.rtp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives the ticks of a wheel without thread and checks the tick on which each timeout runs. Tick 0 is at time 0, so
+ * that the deadline of tick n is n * TICK_NS.
+ */
+class TimingWheelTest {
+
+	private static final long TICK_NS = 1_000_000;
+
+	private final TimingWheel wheel = new TimingWheel(TICK_NS, 0, false);
+	private final List<Long> ran = new ArrayList<>();
+
+	@Test
+	void runsTimeoutsOfEveryLevelOnTheirTick() {
+		//level 0 covers 256 ticks, level 1 the next 256 * 64
+		schedule(5);
+		schedule(255);
+		schedule(256);
+		schedule(300);
+		schedule(16_383);
+		schedule(16_384);
+		schedule(20_000);
+
+		advanceTo(20_000);
+
+		assertEquals(listOf(5, 255, 256, 300, 16_383, 16_384, 20_000), ran);
+	}
+
+	@Test
+	void runsTimeoutsScheduledAfterTheWheelStarted() {
+		advanceTo(1000);
+		//the same offsets from a tick which is not on a boundary of any level
+		schedule(1000 + 5);
+		schedule(1000 + 300);
+		schedule(1000 + 20_000);
+
+		advanceTo(1000 + 20_000);
+
+		assertEquals(listOf(1005, 1300, 21_000), ran);
+	}
+
+	@Test
+	void runsADeadlineBeyondTheRangeOfTheWheelOnItsTick() {
+		//the three levels cover 2^20 ticks, the timeout is parked in the last level and cascaded again until in range
+		long farTick = 3 * (1L << 20) + 12_345;
+		schedule(farTick);
+		schedule(1L << 20);
+
+		advanceTo(farTick);
+
+		assertEquals(listOf(1L << 20, farTick), ran);
+	}
+
+	@Test
+	void runsAPastDeadlineOnTheNextTick() {
+		advanceTo(100);
+		schedule(10);
+
+		advanceTo(101);
+
+		assertEquals(listOf(101), ran);
+	}
+
+	@Test
+	void roundsDeadlinesUpToTheNextTick() {
+		TimingWheel.Timeout timeout = new TimingWheel.Timeout(() -> ran.add(wheel.getCurrentTick() - 1));
+		wheel.schedule(timeout, 7 * TICK_NS + 1);
+
+		advanceTo(8);
+
+		assertEquals(listOf(8), ran);
+	}
+
+	/**
+	 * Schedules a timeout which records the tick it runs on
+	 */
+	private void schedule(long tick) {
+		wheel.schedule(new TimingWheel.Timeout(() -> ran.add(wheel.getCurrentTick() - 1)), tick * TICK_NS);
+	}
+
+	/**
+	 * Processes the ticks up to and including the given one
+	 */
+	private void advanceTo(long tick) {
+		while (wheel.getCurrentTick() <= tick) {
+			wheel.tick();
+		}
+	}
+
+	private static List<Long> listOf(long... ticks) {
+		List<Long> list = new ArrayList<>();
+		for (long tick : ticks) {
+			list.add(tick);
+		}
+		return list;
+	}
+}
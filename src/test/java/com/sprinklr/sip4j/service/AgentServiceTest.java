@@ -0,0 +1,135 @@
+package com.sprinklr.sip4j.service;
+
+import com.sprinklr.sip4j.TestConfigs;
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.ExecutionMode;
+import com.sprinklr.sip4j.utils.VirtualThreads;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Provisions batches of Agents against a registrar which never answers, so that the Agents are ready but not registered.
+ */
+class AgentServiceTest {
+
+	private final AgentService agentService = new AgentService();
+
+	@AfterEach
+	void shutDown() {
+		agentService.shutdown();
+	}
+
+	@Test
+	void startsWithoutConfigurationsWhenTheDirectoryIsMissing() {
+		AgentService withoutConfigurations = new AgentService(Paths.get("target", "no-such-yaml-dir"));
+		try {
+			NoSuchFileException e = assertThrows(NoSuchFileException.class, () -> withoutConfigurations.startAgent("1"));
+			assertEquals(Paths.get("target", "no-such-yaml-dir", "agent1.yaml").toString(), e.getFile());
+		} finally {
+			withoutConfigurations.shutdown();
+		}
+	}
+
+	@Test
+	void startsTheRestOfTheBatchWhenAnAgentFails() throws Exception {
+		try (DatagramSocket registrar = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+			 DatagramSocket taken = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			AgentConfig virtual = agentConfig("service-test-virtual", 0, registrar.getLocalPort());
+			virtual.setExecutionMode(ExecutionMode.VIRTUAL);
+			List<CompletableFuture<String>> results = agentService.provisionAgents(Arrays.asList(
+					agentConfig("service-test-1", 0, registrar.getLocalPort()),
+					agentConfig("service-test-2", taken.getLocalPort(), registrar.getLocalPort()),
+					virtual,
+					agentConfig("service-test-3", 0, registrar.getLocalPort())));
+
+			assertTrue(get(results, 0).startsWith("service-test-1 ready"), results::toString);
+			//its sip port is bound by the test
+			assertTrue(get(results, 1).startsWith("service-test-2 failed"), results::toString);
+			assertEquals(VirtualThreads.isSupported(), get(results, 2).startsWith("service-test-virtual ready"), results::toString);
+			assertTrue(get(results, 3).startsWith("service-test-3 ready"), results::toString);
+			List<String> statuses = agentService.showAllStatus();
+			assertTrue(statuses.stream().anyMatch(status -> status.startsWith("service-test-1 ")), statuses::toString);
+			assertTrue(statuses.stream().anyMatch(status -> status.startsWith("service-test-3 ")), statuses::toString);
+
+			for (String agentName : new String[]{"service-test-1", "service-test-virtual", "service-test-3"}) {
+				agentService.stopAgent(agentName);
+			}
+			long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (!agentService.showAllStatus().isEmpty() && System.nanoTime() < deadlineNs) {
+				Thread.sleep(10);
+			}
+			assertTrue(agentService.showAllStatus().isEmpty(), () -> agentService.showAllStatus().toString());
+		}
+	}
+
+	@Test
+	void releasesAgentsWhichCanNoLongerBeStarted() throws Exception {
+		agentService.shutdown();
+		AgentConfig invalid = agentConfig("service-test-2", 0, 5060);
+		invalid.setTransportMode("sctp");
+
+		List<CompletableFuture<String>> results = agentService.provisionAgents(Arrays.asList(agentConfig("service-test-1", 0, 5060), invalid));
+
+		assertTrue(get(results, 0).startsWith("service-test-1 failed"), results::toString);
+		assertTrue(get(results, 1).startsWith("service-test-2 rejected"), results::toString);
+		//the name of the first Agent has been released, and its ports are quarantined
+		assertTrue(agentService.showAllStatus().isEmpty(), () -> agentService.showAllStatus().toString());
+		assertTrue(agentService.showPorts().startsWith("sip 16000-16999 free: 999 quarantined: 1,"), agentService::showPorts);
+	}
+
+	@Test
+	void runsAgentsOnTheThreadsOfTheirExecutionMode() throws Exception {
+		AgentConfig platform = agentConfig("service-test-1", 0, 5060);
+		AgentConfig virtual = agentConfig("service-test-2", 0, 5060);
+		virtual.setExecutionMode(ExecutionMode.VIRTUAL);
+
+		assertFalse(threadName(agentService.getExecutor(platform)).startsWith("agent-"));
+		if (VirtualThreads.isSupported()) {
+			assertTrue(threadName(agentService.getExecutor(virtual)).startsWith("agent-"));
+		}
+
+		agentService.shutdown();
+		assertThrows(RejectedExecutionException.class, () -> agentService.getExecutor(platform).execute(() -> { }));
+		//also when no virtual Agent was started before the shutdown
+		assertThrows(RejectedExecutionException.class, () -> agentService.getExecutor(virtual).execute(() -> { }));
+	}
+
+	/**
+	 * Returns the name of the thread on which the executor runs a task
+	 */
+	private static String threadName(ExecutorService executor) throws Exception {
+		CompletableFuture<String> name = new CompletableFuture<>();
+		executor.execute(() -> name.complete(Thread.currentThread().getName()));
+		return name.get(10, TimeUnit.SECONDS);
+	}
+
+	private static String get(List<CompletableFuture<String>> results, int index) throws Exception {
+		return results.get(index).get(10, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Returns the configuration of an Agent whose registrar is on the loopback address, with its rtp port handed out
+	 */
+	private static AgentConfig agentConfig(String agentName, int sipLocalPort, int registrarPort) {
+		AgentConfig config = TestConfigs.agentConfig(agentName, sipLocalPort, 0);
+		config.setSipRegistrarPort(registrarPort);
+		config.setSipRegisterExpiryTimeSec(60);
+		return config;
+	}
+}
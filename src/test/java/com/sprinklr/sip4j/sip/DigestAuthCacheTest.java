@@ -0,0 +1,70 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.utils.DigestMD5Converter;
+import org.junit.jupiter.api.Test;
+
+import javax.sip.address.URI;
+import javax.sip.header.AuthorizationHeader;
+import javax.sip.header.WWWAuthenticateHeader;
+
+import static com.sprinklr.sip4j.sip.SipAllFactories.ADDRESS_FACTORY;
+import static com.sprinklr.sip4j.sip.SipAllFactories.HEADER_FACTORY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Answers registrar challenges from the cache and checks the digests, nonce-counts and rejection of wrong credentials.
+ */
+class DigestAuthCacheTest {
+
+	private final DigestAuthCache cache = new DigestAuthCache("Mufasa", "Circle Of Life");
+
+	@Test
+	void matchesRfc2617Example() throws Exception {
+		String ha1 = DigestMD5Converter.ha1("Mufasa", "testrealm@host.com", "Circle Of Life");
+		assertEquals("6629fae49393a05397450978507c4ef1", DigestMD5Converter.digestResponseFromNonce(ha1, "GET", "/dir/index.html",
+				"dcd98b7102dd2f0e8b11d0f600bfb0c093", "00000001", "0a4f113b", "auth"));
+	}
+
+	@Test
+	void reusesNonceWithIncreasingNonceCount() throws Exception {
+		URI uri = ADDRESS_FACTORY.createURI("sip:registrar.example.com");
+		assertNull(cache.authorize("REGISTER", uri));
+		cache.challenge(challenge("Digest realm=\"example.com\", nonce=\"abc\", qop=\"auth,auth-int\", opaque=\"xyz\""));
+
+		AuthorizationHeader first = cache.authorize("REGISTER", uri);
+		cache.confirm();
+		AuthorizationHeader refresh = cache.authorize("REGISTER", uri);
+		assertEquals(1, first.getNonceCount());
+		assertEquals(2, refresh.getNonceCount());
+		assertTrue(refresh.toString().contains("nc=00000002"), refresh.toString());
+		assertEquals("abc", refresh.getNonce());
+		assertEquals("xyz", refresh.getOpaque());
+		assertNotEquals(first.getCNonce(), refresh.getCNonce());
+
+		String ha1 = DigestMD5Converter.ha1("Mufasa", "example.com", "Circle Of Life");
+		assertEquals(DigestMD5Converter.digestResponseFromNonce(ha1, "REGISTER", uri.toString(), "abc", "00000002",
+				refresh.getCNonce(), "auth"), refresh.getResponse());
+	}
+
+	@Test
+	void rejectsRepeatedChallengeUnlessStale() throws Exception {
+		URI uri = ADDRESS_FACTORY.createURI("sip:registrar.example.com");
+		cache.challenge(challenge("Digest realm=\"example.com\", nonce=\"n1\""));
+		assertNotNull(cache.authorize("REGISTER", uri));
+		cache.challenge(challenge("Digest realm=\"example.com\", nonce=\"n2\", stale=true"));
+		assertEquals("n2", cache.authorize("REGISTER", uri).getNonce());
+
+		assertThrows(SipAuthenticationRejectedException.class,
+				() -> cache.challenge(challenge("Digest realm=\"example.com\", nonce=\"n3\"")));
+		assertNull(cache.authorize("REGISTER", uri));
+	}
+
+	private static WWWAuthenticateHeader challenge(String value) throws Exception {
+		return (WWWAuthenticateHeader) HEADER_FACTORY.createHeader(WWWAuthenticateHeader.NAME, value);
+	}
+}
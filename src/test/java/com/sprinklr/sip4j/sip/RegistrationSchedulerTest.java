@@ -0,0 +1,123 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.metrics.RegistrationStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reports outcomes to registrations on a scheduler with short delays and checks when the next attempts are sent.
+ */
+class RegistrationSchedulerTest {
+
+	private static final long MIN_BACKOFF_MS = 100;
+	private static final long MAX_BACKOFF_MS = 400;
+
+	private final RegistrationScheduler scheduler = new RegistrationScheduler(1, 0, MIN_BACKOFF_MS, MAX_BACKOFF_MS);
+	private final BlockingQueue<Long> attempts = new LinkedBlockingQueue<>();
+	private final RegistrationStats stats = new RegistrationStats();
+
+	@AfterEach
+	void tearDown() {
+		scheduler.stop();
+	}
+
+	@Test
+	void refreshesAfterSuccess() throws Exception {
+		RegistrationScheduler.Registration registration = start(500);
+		assertNotNull(attempts.poll(1, TimeUnit.SECONDS));
+		long registeredNs = System.nanoTime();
+		registration.registered();
+		Long refreshNs = attempts.poll(2, TimeUnit.SECONDS);
+		assertNotNull(refreshNs);
+		long delayMs = TimeUnit.NANOSECONDS.toMillis(refreshNs - registeredNs);
+		assertTrue(delayMs >= 450 && delayMs < 1000, "refreshed after " + delayMs + "ms");
+		assertEquals(2, stats.getAttempts());
+		assertEquals(1, stats.getSuccesses());
+		assertEquals(1, stats.getLatency().getCount());
+	}
+
+	@Test
+	void backsOffAfterConsecutiveFailures() throws Exception {
+		RegistrationScheduler.Registration registration = start(60_000);
+		assertNotNull(attempts.poll(1, TimeUnit.SECONDS));
+		long[] minDelaysMs = {MIN_BACKOFF_MS / 2, MIN_BACKOFF_MS, 2 * MIN_BACKOFF_MS, MAX_BACKOFF_MS / 2};
+		for (long minDelayMs : minDelaysMs) {
+			long failedNs = System.nanoTime();
+			registration.failed();
+			Long retryNs = attempts.poll(2, TimeUnit.SECONDS);
+			assertNotNull(retryNs);
+			long delayMs = TimeUnit.NANOSECONDS.toMillis(retryNs - failedNs);
+			assertTrue(delayMs >= minDelayMs, "retried after " + delayMs + "ms, expected at least " + minDelayMs + "ms");
+		}
+		assertEquals(4, stats.getConsecutiveFailures());
+		registration.registered();
+		assertEquals(0, stats.getConsecutiveFailures());
+		assertEquals(4, stats.getFailures());
+	}
+
+	@Test
+	void ignoresOutcomesAfterCancel() throws Exception {
+		RegistrationScheduler.Registration registration = start(100);
+		assertNotNull(attempts.poll(1, TimeUnit.SECONDS));
+		registration.cancel();
+		registration.registered();
+		registration.failed();
+		assertNull(attempts.poll(300, TimeUnit.MILLISECONDS));
+		assertEquals(0, stats.getSuccesses());
+		assertEquals(0, stats.getFailures());
+	}
+
+	@Test
+	void spreadsOnlyConcurrentFirstAttempts() throws Exception {
+		RegistrationScheduler spreading = new RegistrationScheduler(1, 1_000_000, MIN_BACKOFF_MS, MAX_BACKOFF_MS);
+		try {
+			BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+			//keeps the scheduler's thread busy, so that the first attempt is still pending when the second Agent starts
+			CountDownLatch running = new CountDownLatch(1);
+			CountDownLatch busy = new CountDownLatch(1);
+			spreading.newRegistration("busy", () -> {
+				running.countDown();
+				awaitQuietly(busy);
+			}, 0, stats).start();
+			assertTrue(running.await(1, TimeUnit.SECONDS));
+			RegistrationScheduler.Registration first = spreading.newRegistration("first", () -> sent.add("first"), 0, stats);
+			RegistrationScheduler.Registration second = spreading.newRegistration("second", () -> sent.add("second"), 0, stats);
+			first.start();
+			second.start();
+			busy.countDown();
+			assertEquals("first", sent.poll(1, TimeUnit.SECONDS));
+			assertNull(sent.poll(200, TimeUnit.MILLISECONDS));
+			second.cancel();
+
+			//nothing is pending any more, so the next Agent registers immediately again
+			spreading.newRegistration("third", () -> sent.add("third"), 0, stats).start();
+			assertEquals("third", sent.poll(1, TimeUnit.SECONDS));
+		} finally {
+			spreading.stop();
+		}
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private RegistrationScheduler.Registration start(long refreshIntervalMs) {
+		RegistrationScheduler.Registration registration = scheduler.newRegistration("agent", () -> attempts.add(System.nanoTime()), refreshIntervalMs, stats);
+		registration.start();
+		return registration;
+	}
+}
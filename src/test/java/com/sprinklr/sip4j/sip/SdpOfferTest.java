@@ -0,0 +1,116 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.TestConfigs;
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.rtp.RtpAddress;
+import org.junit.jupiter.api.Test;
+
+import javax.sdp.MediaDescription;
+import javax.sdp.SessionDescription;
+import java.nio.charset.StandardCharsets;
+import java.util.Vector;
+
+import static com.sprinklr.sip4j.sip.SipAllFactories.SDP_FACTORY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parses SDP offers and checks the answers of the SdpNegotiator against the SdpFactory.
+ */
+class SdpOfferTest {
+
+	private static final String OZONETEL_OFFER = "v=0\r\n"
+			+ "o=4855 13760799956958020 13760799956958020 IN IP4 192.168.1.8\r\n"
+			+ "s=mysession session\r\n"
+			+ "p=+46 8 52018010\r\n"
+			+ "c=IN IP4 192.168.1.8\r\n"
+			+ "t=0 0\r\n"
+			+ "m=audio 6024 RTP/AVP 0 4 18\r\n"
+			+ "a=rtpmap:0 PCMU/8000\r\n"
+			+ "a=rtpmap:4 G723/8000\r\n"
+			+ "a=rtpmap:18 G729A/8000\r\n"
+			+ "a=ptime:20\r\n";
+
+	@Test
+	void parsesFirstAudioStream() {
+		SdpOffer offer = SdpOffer.parse(OZONETEL_OFFER.getBytes(StandardCharsets.US_ASCII));
+		assertEquals(new RtpAddress(6024, "192.168.1.8", "IP4", "IN"), offer.getRtpAddress());
+		assertTrue(offer.offers(0));
+		assertTrue(offer.offers(18));
+		assertFalse(offer.offers(8));
+		assertEquals(20, offer.getPtimeMs());
+		assertEquals(0, offer.getMaxPtimeMs());
+	}
+
+	@Test
+	void prefersMediaConnectionAndSkipsOtherStreams() {
+		String sdp = "v=0\n"
+				+ "o=- 1 1 IN IP4 10.0.0.1\n"
+				+ "s=-\n"
+				+ "c=IN IP4 10.0.0.1\n"
+				+ "t=0 0\n"
+				+ "m=video 5000 RTP/AVP 96\n"
+				+ "c=IN IP4 10.0.0.9\n"
+				+ "a=ptime:40\n"
+				+ "m=audio 7078/2 RTP/AVP 8 101\n"
+				+ "c=IN IP4 224.2.1.1/127\n"
+				+ "a=maxptime:60\n"
+				+ "m=audio 7080 RTP/AVP 0\n";
+		SdpOffer offer = SdpOffer.parse(sdp.getBytes(StandardCharsets.US_ASCII));
+		assertEquals(new RtpAddress(7078, "224.2.1.1", "IP4", "IN"), offer.getRtpAddress());
+		assertTrue(offer.offers(101));
+		assertFalse(offer.offers(0));
+		assertEquals(0, offer.getPtimeMs());
+		assertEquals(60, offer.getMaxPtimeMs());
+	}
+
+	@Test
+	void rejectsOfferWithoutActiveAudio() {
+		String noConnection = "v=0\r\nm=audio 6024 RTP/AVP 0\r\n";
+		String disabled = "v=0\r\nc=IN IP4 10.0.0.1\r\nm=audio 0 RTP/AVP 0\r\n";
+		assertThrows(IllegalArgumentException.class, () -> SdpOffer.parse(noConnection.getBytes(StandardCharsets.US_ASCII)));
+		assertThrows(IllegalArgumentException.class, () -> SdpOffer.parse(disabled.getBytes(StandardCharsets.US_ASCII)));
+		assertThrows(IllegalArgumentException.class, () -> SdpOffer.parse(new byte[0]));
+		assertThrows(IllegalArgumentException.class, () -> SdpOffer.parse(null));
+	}
+
+	@Test
+	void answersWithAgentCodec() throws Exception {
+		SdpNegotiator negotiator = new SdpNegotiator(agentConfig());
+		SdpOffer offer = SdpOffer.parse(OZONETEL_OFFER.getBytes(StandardCharsets.US_ASCII));
+		byte[] first = negotiator.answer(offer);
+		byte[] second = negotiator.answer(offer);
+
+		SessionDescription answer = SDP_FACTORY.createSessionDescription(new String(first, StandardCharsets.US_ASCII));
+		assertEquals("10.0.0.2", answer.getConnection().getAddress());
+		@SuppressWarnings("unchecked") Vector<MediaDescription> media = answer.getMediaDescriptions(false);
+		assertEquals(6022, media.get(0).getMedia().getMediaPort());
+		assertEquals("0", media.get(0).getMedia().getMediaFormats(false).get(0));
+		assertEquals("PCMU/8000", media.get(0).getAttribute("rtpmap").substring(2));
+		assertEquals("20", media.get(0).getAttribute("ptime"));
+		long firstSessionId = answer.getOrigin().getSessionId();
+		long secondSessionId = SDP_FACTORY.createSessionDescription(new String(second, StandardCharsets.US_ASCII)).getOrigin().getSessionId();
+		assertEquals(firstSessionId + 1, secondSessionId);
+	}
+
+	@Test
+	void refusesOfferWithoutAgentCodecOrPtime() {
+		SdpNegotiator negotiator = new SdpNegotiator(agentConfig());
+		String alaw = "v=0\r\nc=IN IP4 10.0.0.1\r\nm=audio 6024 RTP/AVP 8\r\n";
+		String shortPtime = "v=0\r\nc=IN IP4 10.0.0.1\r\nm=audio 6024 RTP/AVP 0\r\na=maxptime:10\r\n";
+		assertNull(negotiator.answer(SdpOffer.parse(alaw.getBytes(StandardCharsets.US_ASCII))));
+		assertNull(negotiator.answer(SdpOffer.parse(shortPtime.getBytes(StandardCharsets.US_ASCII))));
+	}
+
+	/**
+	 * Returns the configuration of an Agent whose answers carry 10.0.0.2:6022
+	 */
+	private static AgentConfig agentConfig() {
+		AgentConfig agentConfig = TestConfigs.agentConfig("agent", 0, 6022);
+		agentConfig.setRtpLocalIp("10.0.0.2");
+		return agentConfig;
+	}
+}
@@ -0,0 +1,227 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.AgentState;
+import com.sprinklr.sip4j.metrics.RegistrationStats;
+import com.sprinklr.sip4j.metrics.StartupTimeline;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.sprinklr.sip4j.TestConfigs.agentConfig;
+import static com.sprinklr.sip4j.TestConfigs.freePort;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Places calls on an Agent's SipExtension with raw SIP over UDP and checks that concurrent calls are tracked by Call-ID.
+ */
+class SipExtensionCallsTest {
+
+	private static final Pattern TO_TAG = Pattern.compile("(?im)^To:.*;tag=([^;\\s]+)");
+	private static SipExtension sip;
+	private static AgentState agentState;
+	private static DatagramSocket client;
+	private static int port;
+
+	@BeforeAll
+	static void startAgent() throws Exception {
+		port = freePort();
+		client = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+		client.setSoTimeout(5000);
+		AgentConfig agentConfig = agentConfig("calls-test-agent", port, 6022);
+		agentConfig.setSipLocalUsername("agent");
+		agentConfig.setSipRegistrarPort(client.getLocalPort()); //REGISTER requests are skipped by expect()
+		agentConfig.setSipRegisterExpiryTimeSec(0);
+		agentConfig.setSipMaxConcurrentCalls(2);
+		agentState = new AgentState(agentConfig.getAgentName());
+		sip = new SipExtension(agentState, agentConfig, new RegistrationStats(), new StartupTimeline(System.nanoTime()));
+		agentState.setSipState(SipState.REGISTERED);
+	}
+
+	@AfterAll
+	static void stopAgent() {
+		sip.shutDown();
+		client.close();
+	}
+
+	@Test
+	void handlesConcurrentCallsUpToLimit() throws Exception {
+		String firstTag = answer("call-a", 7000);
+		String secondTag = answer("call-b", 7002);
+		SipCall first = sip.pollCall(5, TimeUnit.SECONDS);
+		SipCall second = sip.pollCall(5, TimeUnit.SECONDS);
+		assertNotNull(first);
+		assertNotNull(second);
+		assertEquals("call-a", first.getCallId());
+		assertEquals(7002, second.getRtpRemoteAddress().getPort());
+		assertEquals(SipState.CONNECTED, second.getState().getSipState());
+
+		send(invite("call-c", 7004, 0));
+		expect("486", "call-c", "INVITE");
+		assertEquals(2, sip.getCalls().size());
+
+		send(bye("call-a", firstTag));
+		expect("200", "call-a", "BYE");
+		awaitDisconnected(first); //the state changes right after the 200 is sent
+		assertEquals(SipState.CONNECTED, second.getState().getSipState());
+		assertEquals(SipState.REGISTERED, agentState.getSipState());
+
+		//an offer without the Agent's codec is refused
+		send(invite("call-e", 7008, 8));
+		expect("488", "call-e", "INVITE");
+
+		//the freed call slot takes the next call on the same stack
+		answer("call-d", 7006);
+		assertEquals("call-d", sip.pollCall(5, TimeUnit.SECONDS).getCallId());
+		send(bye("call-b", secondTag));
+		expect("200", "call-b", "BYE");
+		assertNull(sip.pollCall(100, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void hangUpSendsAByeInTheDialog() throws Exception {
+		String toTag = answer("call-h", 7010);
+		SipCall call = sip.pollCall(5, TimeUnit.SECONDS);
+		assertNotNull(call);
+		assertEquals("call-h", call.getCallId());
+
+		sip.hangUp(call);
+
+		String bye = expectRequest("BYE", "call-h");
+		assertTrue(bye.startsWith("BYE sip:caller@127.0.0.1:" + client.getLocalPort()), bye); //to the caller's Contact
+		assertTrue(bye.matches("(?s).*\r\nFrom: [^\r]*;tag=" + Pattern.quote(toTag) + "[;\r].*"), bye);
+		assertTrue(bye.matches("(?s).*\r\nTo: [^\r]*;tag=caller[;\r].*"), bye);
+		assertEquals(SipState.DISCONNECTED, call.getState().getSipState());
+		assertTrue(sip.getCalls().stream().noneMatch(c -> c == call));
+		send(ok(bye));
+
+		//a second hang up does nothing, the dialog has ended on both sides
+		sip.hangUp(call);
+		send(bye("call-h", toTag));
+		expect("481", "call-h", "BYE");
+	}
+
+	/**
+	 * Sends an INVITE, waits for its 200 and acknowledges it
+	 * @return the To tag of the dialog
+	 */
+	private String answer(String callId, int rtpPort) throws Exception {
+		send(invite(callId, rtpPort, 0));
+		String response = expect("200", callId, "INVITE");
+		assertTrue(response.contains("\r\nm=audio 6022 RTP/AVP 0\r\n"), response);
+		Matcher matcher = TO_TAG.matcher(response);
+		assertTrue(matcher.find(), response);
+		send(request("ACK", callId, 1, matcher.group(1), ""));
+		return matcher.group(1);
+	}
+
+	private static void awaitDisconnected(SipCall call) throws InterruptedException {
+		long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!SipState.DISCONNECTED.equals(call.getState().getSipState()) && System.nanoTime() < deadlineNs) {
+			Thread.sleep(10);
+		}
+		assertEquals(SipState.DISCONNECTED, call.getState().getSipState());
+	}
+
+	private void send(String message) throws Exception {
+		byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		client.send(new DatagramPacket(bytes, bytes.length, InetAddress.getLoopbackAddress(), port));
+	}
+
+	/**
+	 * Waits for a response to a request, skipping the Agent's REGISTER requests and the other responses
+	 * @return the response
+	 */
+	private String expect(String status, String callId, String method) throws Exception {
+		long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (System.nanoTime() < deadlineNs) {
+			DatagramPacket packet = new DatagramPacket(new byte[4096], 4096);
+			try {
+				client.receive(packet);
+			} catch (SocketTimeoutException e) {
+				break;
+			}
+			String message = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+			if (message.startsWith("SIP/2.0 " + status) && message.contains("Call-ID: " + callId + "\r\n")
+					&& message.contains(" " + method + "\r\n")) {
+				return message;
+			}
+		}
+		throw new AssertionError("No " + status + " to " + method + " of " + callId);
+	}
+
+	/**
+	 * Waits for a request of the Agent, skipping its REGISTER requests and the responses
+	 * @return the request
+	 */
+	private String expectRequest(String method, String callId) throws Exception {
+		long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (System.nanoTime() < deadlineNs) {
+			DatagramPacket packet = new DatagramPacket(new byte[4096], 4096);
+			try {
+				client.receive(packet);
+			} catch (SocketTimeoutException e) {
+				break;
+			}
+			String message = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+			if (message.startsWith(method + " ") && message.contains("Call-ID: " + callId + "\r\n")) {
+				return message;
+			}
+		}
+		throw new AssertionError("No " + method + " for " + callId);
+	}
+
+	/**
+	 * Answers a request of the Agent with a 200 carrying its Via, From, To, Call-ID and CSeq headers
+	 */
+	private static String ok(String request) {
+		StringBuilder response = new StringBuilder("SIP/2.0 200 OK\r\n");
+		for (String line : request.split("\r\n")) {
+			if (line.startsWith("Via:") || line.startsWith("From:") || line.startsWith("To:") || line.startsWith("Call-ID:")
+					|| line.startsWith("CSeq:")) {
+				response.append(line).append("\r\n");
+			}
+		}
+		return response.append("Content-Length: 0\r\n\r\n").toString();
+	}
+
+	private String invite(String callId, int rtpPort, int payloadType) {
+		String sdp = "v=0\r\n" +
+				"o=caller 1 1 IN IP4 127.0.0.1\r\n" +
+				"s=-\r\n" +
+				"c=IN IP4 127.0.0.1\r\n" +
+				"t=0 0\r\n" +
+				"m=audio " + rtpPort + " RTP/AVP " + payloadType + "\r\n";
+		return request("INVITE", callId, 1, null, sdp);
+	}
+
+	private String bye(String callId, String toTag) {
+		return request("BYE", callId, 2, toTag, "");
+	}
+
+	private String request(String method, String callId, int cseq, String toTag, String body) {
+		int clientPort = client.getLocalPort();
+		return method + " sip:agent@127.0.0.1:" + port + " SIP/2.0\r\n" +
+				"Via: SIP/2.0/UDP 127.0.0.1:" + clientPort + ";branch=z9hG4bK-" + callId + "-" + method + "\r\n" +
+				"Max-Forwards: 70\r\n" +
+				"From: <sip:caller@127.0.0.1>;tag=caller\r\n" +
+				"To: <sip:agent@127.0.0.1>" + (toTag == null ? "" : ";tag=" + toTag) + "\r\n" +
+				"Call-ID: " + callId + "\r\n" +
+				"CSeq: " + cseq + " " + method + "\r\n" +
+				"Contact: <sip:caller@127.0.0.1:" + clientPort + ">\r\n" +
+				(body.isEmpty() ? "" : "Content-Type: application/sdp\r\n") +
+				"Content-Length: " + body.length() + "\r\n\r\n" + body;
+	}
+}
@@ -0,0 +1,57 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.TestConfigs;
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.AgentState;
+import com.sprinklr.sip4j.metrics.RegistrationStats;
+import com.sprinklr.sip4j.metrics.StartupTimeline;
+import org.junit.jupiter.api.Test;
+
+import javax.sip.InvalidArgumentException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+
+import static com.sprinklr.sip4j.TestConfigs.freePort;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that a SipExtension whose request templates cannot be built releases its SIP stack and local port, since the
+ * Agent never shuts it down.
+ */
+class SipExtensionStartupTest {
+
+	@Test
+	void stopsItsOwnStackWhenItCannotBeCreated() throws Exception {
+		AgentConfig agentConfig = agentConfig("startup-own-stack");
+
+		assertThrows(InvalidArgumentException.class, () -> newSipExtension(agentConfig));
+
+		//the port is free again
+		new DatagramSocket(agentConfig.getSipLocalPort(), InetAddress.getLoopbackAddress()).close();
+	}
+
+	@Test
+	void releasesTheSharedStackWhenItCannotBeCreated() throws Exception {
+		AgentConfig agentConfig = agentConfig("startup-shared-stack");
+		agentConfig.setSipSharedStack(true);
+
+		assertThrows(InvalidArgumentException.class, () -> newSipExtension(agentConfig));
+
+		//the reference of the Agent was the last one, the stack has been stopped
+		new DatagramSocket(agentConfig.getSipLocalPort(), InetAddress.getLoopbackAddress()).close();
+	}
+
+	/**
+	 * Returns a configuration on a free port whose REGISTER template cannot be built
+	 */
+	private static AgentConfig agentConfig(String agentName) throws Exception {
+		AgentConfig agentConfig = TestConfigs.agentConfig(agentName, freePort(), 0);
+		//rejected by the Expires header of the REGISTER template
+		agentConfig.setSipRegisterExpiryTimeSec(-1);
+		return agentConfig;
+	}
+
+	private static void newSipExtension(AgentConfig agentConfig) throws Exception {
+		new SipExtension(new AgentState(agentConfig.getAgentName()), agentConfig, new RegistrationStats(), new StartupTimeline(System.nanoTime()));
+	}
+}
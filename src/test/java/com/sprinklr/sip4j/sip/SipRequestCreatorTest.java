@@ -0,0 +1,66 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sip.address.SipURI;
+import javax.sip.header.CSeqHeader;
+import javax.sip.header.CallIdHeader;
+import javax.sip.header.ContactHeader;
+import javax.sip.header.ExpiresHeader;
+import javax.sip.header.ViaHeader;
+import javax.sip.message.Request;
+
+import static com.sprinklr.sip4j.TestConfigs.agentConfig;
+import static com.sprinklr.sip4j.TestConfigs.freePort;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that the requests and headers cloned from the templates of SipRequestCreator are independent of each other.
+ */
+class SipRequestCreatorTest {
+
+	private static SipSharedStack stack;
+	private static SipRequestCreator creator;
+
+	@BeforeAll
+	static void createTemplates() throws Exception {
+		AgentConfig agentConfig = agentConfig("agent", freePort(), 0);
+		agentConfig.setSipRegisterExpiryTimeSec(3600);
+		stack = SipSharedStack.acquire(agentConfig);
+		creator = new SipRequestCreator(stack.getSipProvider(), agentConfig);
+	}
+
+	@AfterAll
+	static void releaseStack() {
+		SipSharedStack.release(stack);
+	}
+
+	@Test
+	void registerRequestsOnlyDifferInCSeq() throws Exception {
+		Request first = creator.createRegisterRequest();
+		((ViaHeader) first.getHeader(ViaHeader.NAME)).setBranch("z9hG4bK-sent"); //as the provider does when sending
+		Request second = creator.createRegisterRequest();
+
+		long firstCSeq = ((CSeqHeader) first.getHeader(CSeqHeader.NAME)).getSeqNumber();
+		assertEquals(firstCSeq + 1, ((CSeqHeader) second.getHeader(CSeqHeader.NAME)).getSeqNumber());
+		assertNull(((ViaHeader) second.getHeader(ViaHeader.NAME)).getBranch());
+		assertEquals(creator.getCallId(), ((CallIdHeader) second.getHeader(CallIdHeader.NAME)).getCallId());
+		assertEquals(3600, ((ExpiresHeader) second.getHeader(ExpiresHeader.NAME)).getExpires());
+		assertEquals("sip:127.0.0.1:5060", second.getRequestURI().toString());
+	}
+
+	@Test
+	void headersAreClonedFromTemplates() throws Exception {
+		ContactHeader contactHeader = creator.getContactHeader();
+		assertNotSame(contactHeader, creator.getContactHeader());
+		((SipURI) contactHeader.getAddress().getURI()).setUser("changed");
+		assertEquals("agent", ((SipURI) creator.getContactHeader().getAddress().getURI()).getUser());
+		ContactHeader registerContact = (ContactHeader) creator.createRegisterRequest().getHeader(ContactHeader.NAME);
+		assertEquals("agent", ((SipURI) registerContact.getAddress().getURI()).getUser());
+	}
+}
@@ -0,0 +1,178 @@
+package com.sprinklr.sip4j.sip;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sip.DialogTerminatedEvent;
+import javax.sip.IOExceptionEvent;
+import javax.sip.RequestEvent;
+import javax.sip.ResponseEvent;
+import javax.sip.SipListener;
+import javax.sip.TimeoutEvent;
+import javax.sip.TransactionTerminatedEvent;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.sprinklr.sip4j.TestConfigs.agentConfig;
+import static com.sprinklr.sip4j.TestConfigs.freePort;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends raw SIP requests to a shared stack and checks that they reach the listener of the Agent they are addressed to.
+ */
+class SipSharedStackTest {
+
+	private static SipSharedStack stack;
+	private static int port;
+	private final RecordingListener alice = new RecordingListener();
+	private final RecordingListener bob = new RecordingListener();
+	private DatagramSocket client;
+
+	@BeforeAll
+	static void startStack() throws Exception {
+		port = freePort();
+		AgentConfig agentConfig = agentConfig("shared-stack-test-agent", port, 0);
+		stack = SipSharedStack.acquire(agentConfig);
+		assertSame(stack, SipSharedStack.acquire(agentConfig));
+		SipSharedStack.release(stack);
+	}
+
+	@AfterAll
+	static void stopStack() {
+		SipSharedStack.release(stack);
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		stack.addUser("alice", alice);
+		stack.addUser("bob", bob);
+		client = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+		client.setSoTimeout(5000);
+	}
+
+	@AfterEach
+	void tearDown() {
+		client.close();
+		stack.removeListener(alice);
+		stack.removeListener(bob);
+	}
+
+	@Test
+	void routesRequestsByRequestUriUser() throws Exception {
+		send(invite("sip:bob@127.0.0.1:" + port, "<sip:bob@127.0.0.1>", "call-1"));
+		RequestEvent event = bob.requests.poll(5, TimeUnit.SECONDS);
+		assertNotNull(event);
+		assertEquals("INVITE", event.getRequest().getMethod());
+		assertNull(alice.requests.poll());
+	}
+
+	@Test
+	void fallsBackToToHeaderUser() throws Exception {
+		send(invite("sip:127.0.0.1:" + port, "<sip:alice@127.0.0.1>", "call-2"));
+		assertNotNull(alice.requests.poll(5, TimeUnit.SECONDS));
+		assertNull(bob.requests.poll());
+	}
+
+	@Test
+	void rejectsUnknownUser() throws Exception {
+		send(invite("sip:carol@127.0.0.1:" + port, "<sip:carol@127.0.0.1>", "call-3"));
+		DatagramPacket packet = new DatagramPacket(new byte[4096], 4096);
+		client.receive(packet);
+		String response = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+		assertTrue(response.startsWith("SIP/2.0 404"), response);
+	}
+
+	@Test
+	void routesByCallIdOnlyWhileTheListenerHasItBound() throws Exception {
+		//an INVITE the listener did not answer leaves its Call-ID unbound
+		send(invite("sip:bob@127.0.0.1:" + port, "<sip:bob@127.0.0.1>", "call-4", 1));
+		assertNotNull(bob.requests.poll(5, TimeUnit.SECONDS));
+		send(invite("sip:alice@127.0.0.1:" + port, "<sip:alice@127.0.0.1>", "call-4", 2));
+		assertNotNull(alice.requests.poll(5, TimeUnit.SECONDS));
+
+		stack.bindCallId("call-4", bob);
+		send(invite("sip:alice@127.0.0.1:" + port, "<sip:alice@127.0.0.1>", "call-4", 3));
+		assertNotNull(bob.requests.poll(5, TimeUnit.SECONDS));
+
+		stack.unbindCallId("call-4", alice); //bound to another listener, kept
+		stack.unbindCallId("call-4", bob);
+		send(invite("sip:alice@127.0.0.1:" + port, "<sip:alice@127.0.0.1>", "call-4", 4));
+		assertNotNull(alice.requests.poll(5, TimeUnit.SECONDS));
+		assertNull(bob.requests.poll());
+	}
+
+	@Test
+	void refusesUserServedByAnotherListener() {
+		assertThrows(IllegalStateException.class, () -> stack.addUser("alice", bob));
+	}
+
+	private void send(String message) throws Exception {
+		byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		client.send(new DatagramPacket(bytes, bytes.length, InetAddress.getLoopbackAddress(), port));
+	}
+
+	private String invite(String requestUri, String to, String callId) {
+		return invite(requestUri, to, callId, 1);
+	}
+
+	private String invite(String requestUri, String to, String callId, int cSeq) {
+		int clientPort = client.getLocalPort();
+		return "INVITE " + requestUri + " SIP/2.0\r\n" +
+				"Via: SIP/2.0/UDP 127.0.0.1:" + clientPort + ";branch=z9hG4bK-" + callId + "-" + cSeq + "\r\n" +
+				"Max-Forwards: 70\r\n" +
+				"From: <sip:caller@127.0.0.1>;tag=caller\r\n" +
+				"To: " + to + "\r\n" +
+				"Call-ID: " + callId + "\r\n" +
+				"CSeq: " + cSeq + " INVITE\r\n" +
+				"Contact: <sip:caller@127.0.0.1:" + clientPort + ">\r\n" +
+				"Content-Length: 0\r\n\r\n";
+	}
+
+	private static class RecordingListener implements SipListener {
+		private final BlockingQueue<RequestEvent> requests = new LinkedBlockingQueue<>();
+
+		@Override
+		public void processRequest(RequestEvent requestEvent) {
+			requests.add(requestEvent);
+		}
+
+		@Override
+		public void processResponse(ResponseEvent responseEvent) {
+			//not expected
+		}
+
+		@Override
+		public void processTimeout(TimeoutEvent timeoutEvent) {
+			//not expected
+		}
+
+		@Override
+		public void processIOException(IOExceptionEvent exceptionEvent) {
+			//not expected
+		}
+
+		@Override
+		public void processTransactionTerminated(TransactionTerminatedEvent transactionTerminatedEvent) {
+			//not expected
+		}
+
+		@Override
+		public void processDialogTerminated(DialogTerminatedEvent dialogTerminatedEvent) {
+			//not expected
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.sprinklr.sip4j.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the hex encoding and that concurrent callers get the same digests as a single thread.
+ */
+class DigestMD5ConverterTest {
+
+	@Test
+	void encodesLeadingZeros() {
+		assertEquals("000fa0ff", DigestMD5Converter.toHex(new byte[]{0x00, 0x0f, (byte) 0xa0, (byte) 0xff}));
+	}
+
+	@Test
+	void hashesConsistentlyAcrossThreads() throws Exception {
+		String expected = DigestMD5Converter.digestResponseFromNonce("user", "realm", "pässword", "REGISTER", "sip:host", "nonce");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				results.add(executor.submit(() -> {
+					for (int i = 0; i < 10_000; i++) {
+						if (!expected.equals(DigestMD5Converter.digestResponseFromNonce("user", "realm", "pässword", "REGISTER", "sip:host", "nonce"))) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertEquals(true, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.sprinklr.sip4j.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks the open addressing map against a HashMap, with enough entries per table that probe sequences overlap.
+ */
+class LongObjectMapTest {
+
+	@Test
+	void keepsEveryEntryAcrossResizes() {
+		LongObjectMap<String> map = new LongObjectMap<>(1);
+		for (long key = 0; key < 1000; key++) {
+			assertNull(map.put(key << 16 | 5004, "v" + key)); //keys which only differ in the address bits, as routing keys
+		}
+
+		assertEquals(1000, map.size());
+		for (long key = 0; key < 1000; key++) {
+			assertEquals("v" + key, map.get(key << 16 | 5004));
+		}
+		assertEquals("v7", map.put(7L << 16 | 5004, "w7"));
+		assertEquals(1000, map.size());
+		assertNull(map.get(5004 + 1));
+	}
+
+	@Test
+	void removalKeepsTheRestOfTheProbeSequenceReachable() {
+		//a full table at the largest load factor, so that every removal has followers to shift back
+		LongObjectMap<Long> map = new LongObjectMap<>(8);
+		for (long key = 0; key < 8; key++) {
+			map.put(key, key);
+		}
+
+		for (long removed = 0; removed < 8; removed++) {
+			assertEquals(removed, map.remove(removed));
+			assertNull(map.remove(removed));
+			assertNull(map.get(removed));
+			for (long key = removed + 1; key < 8; key++) {
+				assertEquals(key, map.get(key), "lost after removing " + removed);
+			}
+		}
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	void behavesLikeAHashMapUnderRandomUpdates() {
+		LongObjectMap<Long> map = new LongObjectMap<>(4);
+		Map<Long, Long> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			long key = random.nextInt(64); //few keys, so that the same slots are filled and emptied over and over
+			if (random.nextBoolean()) {
+				assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+			} else {
+				assertEquals(expected.remove(key), map.remove(key));
+			}
+		}
+
+		assertEquals(expected.size(), map.size());
+		for (long key = 0; key < 64; key++) {
+			assertEquals(expected.get(key), map.get(key));
+		}
+	}
+}
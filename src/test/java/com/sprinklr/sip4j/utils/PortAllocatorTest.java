@@ -0,0 +1,58 @@
+package com.sprinklr.sip4j.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the PortAllocator hands out each port of its range once, and again only after its quarantine.
+ */
+class PortAllocatorTest {
+
+	private static final long QUARANTINE_NS = TimeUnit.SECONDS.toNanos(4);
+
+	@Test
+	void allocatesEveryPortOnce() {
+		PortAllocator allocator = new PortAllocator(20000, 20199, 2, 4000);
+		Set<Integer> ports = new HashSet<>();
+		int port;
+		while ((port = allocator.allocate(0)) > 0) {
+			assertTrue(port % 2 == 0 && ports.add(port), "port " + port);
+		}
+		assertEquals(100, ports.size());
+		assertEquals(0, allocator.getFreeCount(0));
+	}
+
+	@Test
+	void quarantinesReleasedPorts() {
+		PortAllocator allocator = new PortAllocator(16000, 16001, 1, 4000);
+		int first = allocator.allocate(0);
+		int second = allocator.allocate(0);
+		allocator.release(first, 0);
+		allocator.release(second, 1);
+
+		assertEquals(-1, allocator.allocate(QUARANTINE_NS - 1));
+		assertEquals(first, allocator.allocate(QUARANTINE_NS));
+		assertEquals(1, allocator.getQuarantinedCount(QUARANTINE_NS));
+		assertThrows(IllegalStateException.class, () -> allocator.release(second, QUARANTINE_NS));
+	}
+
+	@Test
+	void reservesConfiguredPorts() {
+		PortAllocator allocator = new PortAllocator(16000, 16002, 1, 4000);
+		assertTrue(allocator.reserve(16000, 0));
+		assertFalse(allocator.reserve(16000, 0));
+		assertEquals(16001, allocator.allocate(0));
+		assertEquals(16002, allocator.allocate(0));
+		assertEquals(-1, allocator.allocate(0));
+		assertFalse(allocator.contains(16003));
+		assertThrows(IllegalArgumentException.class, () -> allocator.reserve(16003, 0));
+	}
+}
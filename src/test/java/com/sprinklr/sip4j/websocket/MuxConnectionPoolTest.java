@@ -0,0 +1,96 @@
+package com.sprinklr.sip4j.websocket;
+
+import com.sprinklr.sip4j.agent.AgentConfig;
+import com.sprinklr.sip4j.agent.AgentState;
+import com.sprinklr.sip4j.media.BufferPool;
+import com.sprinklr.sip4j.media.MediaQueue;
+import com.sprinklr.sip4j.metrics.LatencyStats;
+import com.sprinklr.sip4j.mockserver.WsBot;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sprinklr.sip4j.TestConfigs.agentConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs several Agents' channels over the shared websockets of the pool against the mock bot, and checks that every
+ * Agent gets back its own audio.
+ */
+class MuxConnectionPoolTest {
+
+	private static final int AGENTS = 5;
+	private static final int CONNECTIONS = 2;
+	private static final int PACKET_SIZE = 172;
+
+	@Test
+	void echoesEachChannelOnItsOwnQueue() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		WsBot bot = new WsBot(new InetSocketAddress("127.0.0.1", 0)) {
+			@Override
+			public void onStart() {
+				started.countDown();
+			}
+		};
+		bot.setReuseAddr(true);
+		bot.start();
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		MuxChannel[] channels = new MuxChannel[AGENTS];
+		@SuppressWarnings("unchecked")
+		MediaQueue<ByteBuffer>[] queues = new MediaQueue[AGENTS];
+		BufferPool pool = new BufferPool(16, PACKET_SIZE, new AtomicLong());
+		for (int i = 0; i < AGENTS; i++) {
+			AgentConfig agentConfig = agentConfig("agent" + i);
+			agentConfig.setWsServerUri("ws://127.0.0.1:" + bot.getPort());
+			agentConfig.setWsMuxConnections(CONNECTIONS);
+			queues[i] = new MediaQueue<>(16, new LatencyStats());
+			channels[i] = MuxConnectionPool.open(queues[i], pool, new AgentState(agentConfig.getAgentName()), agentConfig);
+			channels[i].connect();
+		}
+
+		for (int i = 0; i < AGENTS; i++) {
+			sendWhenOpen(channels[i], packet(i));
+		}
+		for (int i = 0; i < AGENTS; i++) {
+			ByteBuffer echo = queues[i].poll(10, TimeUnit.SECONDS);
+			assertNotNull(echo);
+			assertEquals(PACKET_SIZE, echo.remaining());
+			assertEquals((byte) i, echo.get(PACKET_SIZE - 1));
+			assertNull(queues[i].poll());
+		}
+		assertEquals(CONNECTIONS, bot.getConnections().size());
+
+		for (MuxChannel channel : channels) {
+			channel.close();
+		}
+		bot.stop();
+	}
+
+	private static void sendWhenOpen(MuxChannel channel, ByteBuffer packet) throws InterruptedException {
+		long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (true) {
+			try {
+				channel.send(packet);
+				return;
+			} catch (WebsocketNotConnectedException e) {
+				assertTrue(System.nanoTime() < deadlineNs, "shared websocket not opened");
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	private static ByteBuffer packet(int agent) {
+		ByteBuffer packet = ByteBuffer.allocate(PACKET_SIZE);
+		packet.put(PACKET_SIZE - 1, (byte) agent);
+		return packet;
+	}
+}